@@ -0,0 +1,146 @@
+package yemedemertiwlidlibrarysystem;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Random;
+
+// Shared setup for the benchmarks. Defaults to an in-memory H2 database in MySQL
+// mode (put the H2 jar on bench.classpath); point -Dbench.db.url at a MySQL
+// instance to measure against the real server.
+public class BenchDatabase {
+
+    public static final String DB_URL = System.getProperty("bench.db.url",
+            "jdbc:h2:mem:library_bench;MODE=MySQL;DB_CLOSE_DELAY=-1");
+    public static final String DB_USER = System.getProperty("bench.db.user", "root");
+    public static final String DB_PASSWORD = System.getProperty("bench.db.password", "");
+
+    private static final String UPDATED_AT_COLUMN = "updated_at TIMESTAMP(3) NOT NULL "
+            + "DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3)";
+
+    private static final String[] GENRES = {
+        "Fiction", "History", "Science", "Poetry", "Religion", "Children", "Biography", "Technology"
+    };
+
+    public static Connection open() throws SQLException {
+        return DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD);
+    }
+
+    public static void createSchema(Connection connection) throws SQLException {
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("CREATE TABLE IF NOT EXISTS books ("
+                    + "isbn VARCHAR(20) PRIMARY KEY,"
+                    + "title VARCHAR(255) NOT NULL,"
+                    + "author VARCHAR(100) NOT NULL,"
+                    + "genre VARCHAR(50) NOT NULL,"
+                    + "shelf_number VARCHAR(20) NOT NULL,"
+                    + "status VARCHAR(20) NOT NULL,"
+                    + "quantity INT NOT NULL,"
+                    + "cover_image LONGBLOB,"
+                    + UPDATED_AT_COLUMN + ")");
+            stmt.execute("CREATE TABLE IF NOT EXISTS loans ("
+                    + "id INT AUTO_INCREMENT PRIMARY KEY,"
+                    + "isbn VARCHAR(20) NOT NULL,"
+                    + "borrower_id VARCHAR(50) NOT NULL,"
+                    + "borrower_name VARCHAR(100) NOT NULL,"
+                    + "loan_date DATETIME NOT NULL,"
+                    + "return_date DATETIME NOT NULL,"
+                    + "returned BOOLEAN DEFAULT FALSE,"
+                    + UPDATED_AT_COLUMN + ","
+                    + "FOREIGN KEY (isbn) REFERENCES books(isbn))");
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_loans_borrower ON loans (borrower_id)");
+            stmt.execute("CREATE TABLE IF NOT EXISTS users ("
+                    + "id INT AUTO_INCREMENT PRIMARY KEY,"
+                    + "full_name VARCHAR(100) NOT NULL,"
+                    + "username VARCHAR(50) UNIQUE NOT NULL,"
+                    + "password VARCHAR(255) NOT NULL,"
+                    + "password_salt VARCHAR(64),"
+                    + "is_admin BOOLEAN DEFAULT FALSE)");
+            stmt.execute(ChangeLog.CREATE_TABLE);
+        }
+    }
+
+    public static int countRows(Connection connection, String table) throws SQLException {
+        try (Statement stmt = connection.createStatement();
+                ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM " + table)) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    public static String isbn(int index) {
+        return String.format("978%010d", index);
+    }
+
+    // Fills the books table up to the requested row count (no covers)
+    public static void seedBooks(Connection connection, int count) throws SQLException {
+        int existing = countRows(connection, "books");
+        if (existing >= count) {
+            return;
+        }
+
+        Random random = new Random(42);
+        String sql = "INSERT INTO books (isbn, title, author, genre, shelf_number, status, quantity) "
+                + "VALUES (?, ?, ?, ?, ?, ?, ?)";
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+            for (int i = existing; i < count; i++) {
+                pstmt.setString(1, isbn(i));
+                pstmt.setString(2, "Book Title " + i);
+                pstmt.setString(3, "Author " + random.nextInt(2000));
+                pstmt.setString(4, GENRES[random.nextInt(GENRES.length)]);
+                pstmt.setString(5, "S-" + random.nextInt(40));
+                pstmt.setString(6, "Available");
+                pstmt.setInt(7, 1 + random.nextInt(5));
+                pstmt.addBatch();
+                if ((i + 1) % 1000 == 0) {
+                    pstmt.executeBatch();
+                }
+            }
+            pstmt.executeBatch();
+            connection.commit();
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+    }
+
+    // Fills the loans table up to the requested row count, spread over the seeded books
+    public static void seedLoans(Connection connection, int count, int bookCount) throws SQLException {
+        int existing = countRows(connection, "loans");
+        if (existing >= count) {
+            return;
+        }
+
+        Random random = new Random(7);
+        LocalDateTime base = LocalDateTime.now().minusYears(3);
+        String sql = "INSERT INTO loans (isbn, borrower_id, borrower_name, loan_date, return_date, returned) "
+                + "VALUES (?, ?, ?, ?, ?, ?)";
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+            for (int i = existing; i < count; i++) {
+                LocalDateTime loanDate = base.plusMinutes(random.nextInt(3 * 365 * 24 * 60));
+                int borrower = random.nextInt(20000);
+                pstmt.setString(1, isbn(random.nextInt(bookCount)));
+                pstmt.setString(2, "B" + borrower);
+                pstmt.setString(3, "Borrower " + borrower);
+                pstmt.setTimestamp(4, Timestamp.valueOf(loanDate));
+                pstmt.setTimestamp(5, Timestamp.valueOf(loanDate.plusWeeks(2)));
+                pstmt.setBoolean(6, random.nextInt(10) != 0);
+                pstmt.addBatch();
+                if ((i + 1) % 1000 == 0) {
+                    pstmt.executeBatch();
+                }
+            }
+            pstmt.executeBatch();
+            connection.commit();
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+    }
+}
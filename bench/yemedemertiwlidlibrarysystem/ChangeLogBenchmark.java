@@ -0,0 +1,124 @@
+package yemedemertiwlidlibrarysystem;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+// Two in-process terminals on one database: terminal A adds books, lends and
+// returns them through LibraryRepository; terminal B only follows the change log
+// into its own CatalogSnapshot. Reports how long A's commits take to reach B and
+// checks that B's availability matches the database afterwards.
+//
+//   ant bench-change-log -Dbench.operations=5000 -Dbench.poll.ms=200
+public class ChangeLogBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int books = Integer.getInteger("bench.books", 10_000);
+        int operations = Integer.getInteger("bench.operations", 2_000);
+        long pollMillis = Long.getLong("bench.poll.ms", 100);
+
+        try (Connection setup = BenchDatabase.open()) {
+            BenchDatabase.createSchema(setup);
+            BenchDatabase.seedBooks(setup, books);
+        }
+
+        // Terminal B: snapshot driven by the change log only
+        Map<String, Long> received = new ConcurrentHashMap<>();
+        LibraryEventBus busB = new LibraryEventBus();
+        CatalogSnapshot snapshotB = new CatalogSnapshot(BenchDatabase::open);
+        busB.subscribeAll(snapshotB::apply);
+        busB.subscribeAll(event -> record(received, event));
+        ChangeLogTailer tailerB = new ChangeLogTailer(BenchDatabase::open, "terminal-b", busB::publish);
+        tailerB.seekToEnd();
+        snapshotB.load();
+        tailerB.start(pollMillis);
+
+        // Terminal A: writes through the repository
+        Map<String, Long> committed = new ConcurrentHashMap<>();
+        try (Connection connectionA = BenchDatabase.open()) {
+            LibraryEventBus busA = new LibraryEventBus();
+            busA.subscribeAll(event -> record(committed, event));
+            LibraryRepository repositoryA = new LibraryRepository(() -> connectionA, busA, "terminal-a");
+
+            Random random = new Random(11);
+            List<LoanRow> open = new ArrayList<>();
+            LocalDateTime now = LocalDateTime.now();
+            long start = System.nanoTime();
+            for (int i = 0; i < operations; i++) {
+                int kind = random.nextInt(10);
+                if (kind == 0) {
+                    repositoryA.addBook(new BookRow(BenchDatabase.isbn(books + i), "Added " + i, "Author",
+                            "Fiction", "S-1", "Available", 2, null));
+                } else if (kind < 6 || open.isEmpty()) {
+                    String isbn = BenchDatabase.isbn(random.nextInt(books));
+                    open.add(repositoryA.createLoan(isbn, "B" + i, "Borrower " + i, now, now.plusWeeks(2)));
+                } else {
+                    repositoryA.returnLoan(open.remove(random.nextInt(open.size())));
+                }
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("Terminal A: %,d operations in %.2f s (%,.0f ops/s)%n",
+                    operations, seconds, operations / seconds);
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (!received.keySet().containsAll(committed.keySet()) && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+        }
+        tailerB.stop();
+
+        long[] latencies = committed.entrySet().stream()
+                .filter(entry -> received.containsKey(entry.getKey()))
+                .mapToLong(entry -> received.get(entry.getKey()) - entry.getValue())
+                .sorted().toArray();
+        System.out.printf("Terminal B: received %,d of %,d changes, poll every %d ms%n",
+                latencies.length, committed.size(), pollMillis);
+        if (latencies.length > 0) {
+            System.out.printf("Propagation  p50 %6.1f ms  p99 %6.1f ms  max %6.1f ms%n",
+                    percentile(latencies, 0.50), percentile(latencies, 0.99), latencies[latencies.length - 1] / 1e6);
+        }
+
+        int mismatches = 0;
+        try (Connection check = BenchDatabase.open();
+                PreparedStatement pstmt = check.prepareStatement("SELECT b.isbn, b.quantity - "
+                        + "(SELECT COUNT(*) FROM loans l WHERE l.isbn = b.isbn AND l.returned = 0) FROM books b");
+                ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                if (snapshotB.getAvailableCount(rs.getString(1)) != rs.getInt(2)) {
+                    mismatches++;
+                }
+            }
+        }
+        System.out.printf("Terminal B availability mismatches against the database: %,d (%,d books)%n",
+                mismatches, snapshotB.size());
+    }
+
+    // Keys one logical change the same way on both terminals. Book updates are left
+    // out: the tailer publishes the row as it is when read, so two quick status
+    // changes of one book can arrive as a single update.
+    private static void record(Map<String, Long> times, LibraryEvent event) {
+        String key = switch (event) {
+            case LibraryEvent.BookAdded added -> "book+" + added.book().isbn();
+            case LibraryEvent.BookDeleted deleted -> "book-" + deleted.book().isbn();
+            case LibraryEvent.LoanCreated created -> "loan+" + created.loan().id();
+            case LibraryEvent.LoanReturned returned -> "loan-" + returned.loan().id();
+            case LibraryEvent.BookUpdated updated -> null;
+            case LibraryEvent.CatalogReloaded reloaded -> null;
+        };
+        if (key != null) {
+            times.put(key, System.nanoTime());
+        }
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        int index = (int) Math.min(sorted.length - 1, Math.ceil(p * sorted.length) - 1);
+        return sorted[Math.max(index, 0)] / 1e6;
+    }
+}
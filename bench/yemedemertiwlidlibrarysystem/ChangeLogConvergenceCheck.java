@@ -0,0 +1,149 @@
+package yemedemertiwlidlibrarysystem;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+// Two terminals on one embedded database, checked for convergence rather than
+// timed: terminal A writes through LibraryRepository, terminal B follows the change
+// log into its own CatalogSnapshot. Between A's writes a third connection rolls back
+// a change-log insert (leaving a hole in the ids) and holds a loan open in a
+// transaction that commits only after later ids are already published. Every
+// change must reach B within MAX_PROPAGATION_MILLIS of its commit, and B's
+// availability must match the database at the end; otherwise the check exits with
+// status 1.
+//
+//   ant check-change-log
+public class ChangeLogConvergenceCheck {
+
+    private static final long MAX_PROPAGATION_MILLIS = 1_000;
+    private static final long POLL_MILLIS = 100;
+    // Longer than a tailer would ever want to stall at a hole
+    private static final long LATE_COMMIT_MILLIS = 3_000;
+
+    private static final List<String> failures = new ArrayList<>();
+
+    public static void main(String[] args) throws Exception {
+        int books = 50;
+        try (Connection setup = BenchDatabase.open()) {
+            BenchDatabase.createSchema(setup);
+            BenchDatabase.seedBooks(setup, books);
+        }
+
+        Map<String, Long> received = new ConcurrentHashMap<>();
+        LibraryEventBus busB = new LibraryEventBus();
+        CatalogSnapshot snapshotB = new CatalogSnapshot(BenchDatabase::open);
+        busB.subscribeAll(snapshotB::apply);
+        busB.subscribeAll(event -> record(received, event));
+        ChangeLogTailer tailerB = new ChangeLogTailer(BenchDatabase::open, "terminal-b", busB::publish);
+        tailerB.seekToEnd();
+        snapshotB.load();
+        tailerB.start(POLL_MILLIS);
+
+        try (Connection connectionA = BenchDatabase.open();
+                Connection connectionC = BenchDatabase.open()) {
+            LibraryRepository repositoryA = new LibraryRepository(() -> connectionA, new LibraryEventBus(), "terminal-a");
+            LocalDateTime now = LocalDateTime.now();
+
+            // A rolled-back transaction leaves its change-log id unused
+            connectionC.setAutoCommit(false);
+            ChangeLog.append(connectionC, "terminal-c", ChangeLog.BOOK, ChangeLog.UPDATE, BenchDatabase.isbn(0), 0);
+            connectionC.rollback();
+
+            LoanRow first = repositoryA.createLoan(BenchDatabase.isbn(1), "A1", "Borrower A1", now, now.plusWeeks(2));
+            expect(received, "loan+" + first.id(), "loan committed after a rolled-back transaction");
+
+            // A transaction takes a change-log id, then commits after later ids are published
+            int lateLoan = insertLoan(connectionC, BenchDatabase.isbn(2), now);
+            ChangeLog.append(connectionC, "terminal-c", ChangeLog.LOAN, ChangeLog.INSERT, String.valueOf(lateLoan), 0);
+
+            LoanRow second = repositoryA.createLoan(BenchDatabase.isbn(3), "A2", "Borrower A2", now, now.plusWeeks(2));
+            expect(received, "loan+" + second.id(), "loan committed while an earlier id is still open");
+            repositoryA.returnLoan(first);
+            expect(received, "loan-" + first.id(), "return committed while an earlier id is still open");
+
+            Thread.sleep(LATE_COMMIT_MILLIS);
+            connectionC.commit();
+            expect(received, "loan+" + lateLoan, "loan whose transaction committed late");
+
+            repositoryA.addBook(new BookRow(BenchDatabase.isbn(books), "Added", "Author", "Fiction", "S-1",
+                    "Available", 2, null));
+            expect(received, "book+" + BenchDatabase.isbn(books), "book added after the late commit");
+        }
+        tailerB.stop();
+
+        if (tailerB.getMissingCount() != 1) {
+            failures.add("tailer remembers " + tailerB.getMissingCount() + " missing ids, expected the rolled-back one");
+        }
+        try (Connection check = BenchDatabase.open();
+                PreparedStatement pstmt = check.prepareStatement("SELECT b.isbn, b.quantity - "
+                        + "(SELECT COUNT(*) FROM loans l WHERE l.isbn = b.isbn AND l.returned = 0) FROM books b");
+                ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                int available = snapshotB.getAvailableCount(rs.getString(1));
+                if (available != rs.getInt(2)) {
+                    failures.add("availability of " + rs.getString(1) + " is " + available
+                            + " on terminal B, " + rs.getInt(2) + " in the database");
+                }
+            }
+        }
+
+        if (failures.isEmpty()) {
+            System.out.println("Change log convergence: OK");
+            return;
+        }
+        for (String failure : failures) {
+            System.out.println("FAILED: " + failure);
+        }
+        System.exit(1);
+    }
+
+    private static int insertLoan(Connection connection, String isbn, LocalDateTime now) throws Exception {
+        String sql = "INSERT INTO loans (isbn, borrower_id, borrower_name, loan_date, return_date) VALUES (?, ?, ?, ?, ?)";
+        try (PreparedStatement pstmt = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+            pstmt.setString(1, isbn);
+            pstmt.setString(2, "C1");
+            pstmt.setString(3, "Borrower C1");
+            pstmt.setTimestamp(4, Timestamp.valueOf(now));
+            pstmt.setTimestamp(5, Timestamp.valueOf(now.plusWeeks(2)));
+            pstmt.executeUpdate();
+            try (ResultSet keys = pstmt.getGeneratedKeys()) {
+                keys.next();
+                return keys.getInt(1);
+            }
+        }
+    }
+
+    private static void expect(Map<String, Long> received, String key, String what) throws InterruptedException {
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(MAX_PROPAGATION_MILLIS);
+        while (!received.containsKey(key) && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        if (!received.containsKey(key)) {
+            failures.add(what + " did not reach terminal B within " + MAX_PROPAGATION_MILLIS + " ms");
+        } else {
+            System.out.printf("%-55s %6.1f ms%n", what, (received.get(key) - start) / 1e6);
+        }
+    }
+
+    private static void record(Map<String, Long> times, LibraryEvent event) {
+        String key = switch (event) {
+            case LibraryEvent.BookAdded added -> "book+" + added.book().isbn();
+            case LibraryEvent.LoanCreated created -> "loan+" + created.loan().id();
+            case LibraryEvent.LoanReturned returned -> "loan-" + returned.loan().id();
+            default -> null;
+        };
+        if (key != null) {
+            times.putIfAbsent(key, System.nanoTime());
+        }
+    }
+}
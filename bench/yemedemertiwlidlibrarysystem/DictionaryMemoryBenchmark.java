@@ -0,0 +1,87 @@
+package yemedemertiwlidlibrarysystem;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+// Compares the heap held by an in-memory catalog whose genre, shelf and status
+// columns are plain per-row Strings (as read from JDBC) with the dictionary
+// encoded BookRow, and times a genre filter over both.
+//
+//   ant bench-dictionary -Dbench.rows=1000000
+public class DictionaryMemoryBenchmark {
+
+    // What a row looked like before dictionary encoding
+    private record PlainRow(String isbn, String title, String author, String genre, String shelfNumber,
+            String status, int quantity) {
+    }
+
+    private static final String[] GENRES = {
+        "Fiction", "History", "Science", "Poetry", "Religion", "Children", "Biography", "Technology",
+        "Philosophy", "Travel", "Art", "Law", "Medicine", "Economics", "Languages", "Reference"
+    };
+    private static final String[] STATUSES = {"Available", "On Loan", "Reserved", "Damaged", "Lost"};
+
+    public static void main(String[] args) {
+        int rows = Integer.getInteger("bench.rows", 500_000);
+
+        long baseline = usedHeap();
+        List<PlainRow> plain = new ArrayList<>(rows);
+        Random random = new Random(1);
+        for (int i = 0; i < rows; i++) {
+            // new String(...) mimics the fresh copy the driver materialises for every row
+            plain.add(new PlainRow(BenchDatabase.isbn(i), "Book Title " + i, "Author " + random.nextInt(5000),
+                    new String(GENRES[random.nextInt(GENRES.length)]), new String("S-" + random.nextInt(40)),
+                    new String(STATUSES[random.nextInt(STATUSES.length)]), 1 + random.nextInt(5)));
+        }
+        long plainBytes = usedHeap() - baseline;
+
+        baseline = usedHeap();
+        List<BookRow> encoded = new ArrayList<>(rows);
+        random = new Random(1);
+        for (int i = 0; i < rows; i++) {
+            encoded.add(new BookRow(BenchDatabase.isbn(i), "Book Title " + i, "Author " + random.nextInt(5000),
+                    new String(GENRES[random.nextInt(GENRES.length)]), new String("S-" + random.nextInt(40)),
+                    new String(STATUSES[random.nextInt(STATUSES.length)]), 1 + random.nextInt(5), null));
+        }
+        long encodedBytes = usedHeap() - baseline;
+
+        System.out.printf("rows: %,d%n", rows);
+        System.out.printf("plain strings : %,12d bytes (%5.1f bytes/row)%n", plainBytes, (double) plainBytes / rows);
+        System.out.printf("dictionary    : %,12d bytes (%5.1f bytes/row)%n", encodedBytes, (double) encodedBytes / rows);
+        System.out.printf("saved         : %,12d bytes (%4.1f%%)%n", plainBytes - encodedBytes,
+                100.0 * (plainBytes - encodedBytes) / plainBytes);
+
+        for (int round = 0; round < 5; round++) {
+            long start = System.nanoTime();
+            int plainMatches = 0;
+            for (PlainRow row : plain) {
+                if ("History".equals(row.genre())) {
+                    plainMatches++;
+                }
+            }
+            long plainNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            int historyCode = ValueDictionary.GENRE.lookup("History");
+            int encodedMatches = 0;
+            for (BookRow row : encoded) {
+                if (row.genreCode() == historyCode) {
+                    encodedMatches++;
+                }
+            }
+            long encodedNanos = System.nanoTime() - start;
+
+            System.out.printf("genre filter round %d: strings %6.2f ms (%d), codes %6.2f ms (%d)%n", round,
+                    plainNanos / 1e6, plainMatches, encodedNanos / 1e6, encodedMatches);
+        }
+    }
+
+    private static long usedHeap() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
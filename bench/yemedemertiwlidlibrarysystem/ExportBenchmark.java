@@ -0,0 +1,71 @@
+package yemedemertiwlidlibrarysystem;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.sql.Connection;
+
+// Throughput benchmark for CatalogExporter: seeds the benchmark database, then
+// exports the loans and books tables as plain and gzipped CSV and reports rows/s,
+// output size and the peak heap seen during the run.
+//
+//   ant bench-export -Dbench.loans=1000000
+public class ExportBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int books = Integer.getInteger("bench.books", 50_000);
+        int loans = Integer.getInteger("bench.loans", 500_000);
+        int rounds = Integer.getInteger("bench.rounds", 3);
+
+        try (Connection connection = BenchDatabase.open()) {
+            BenchDatabase.createSchema(connection);
+            System.out.printf("Seeding %,d books and %,d loans...%n", books, loans);
+            BenchDatabase.seedBooks(connection, books);
+            BenchDatabase.seedLoans(connection, loans, books);
+
+            for (CatalogExporter.Table table : CatalogExporter.Table.values()) {
+                for (boolean gzip : new boolean[]{false, true}) {
+                    for (int round = 1; round <= rounds; round++) {
+                        run(connection, table, gzip, round);
+                    }
+                }
+            }
+        }
+    }
+
+    private static void run(Connection connection, CatalogExporter.Table table, boolean gzip, int round)
+            throws Exception {
+        File file = File.createTempFile("export-bench-", gzip ? ".csv.gz" : ".csv");
+        file.deleteOnExit();
+
+        System.gc();
+        resetPeakUsage();
+        long start = System.nanoTime();
+        long rows = new CatalogExporter(connection).export(table, file, gzip, null);
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.printf("%-5s %-7s round %d: %,10d rows in %6.2f s  %,12.0f rows/s  %,8d KB  peak heap %,d MB%n",
+                table.getTableName(), gzip ? "csv.gz" : "csv", round, rows, seconds, rows / seconds,
+                file.length() / 1024, peakHeapUsage() / (1024 * 1024));
+        file.delete();
+    }
+
+    private static void resetPeakUsage() {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+            }
+        }
+    }
+
+    private static long peakHeapUsage() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        return peak;
+    }
+}
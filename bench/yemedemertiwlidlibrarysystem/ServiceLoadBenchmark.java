@@ -0,0 +1,65 @@
+package yemedemertiwlidlibrarysystem;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+// Runs LoadGenerator against the service layer as the headless server wires it
+// (connection pool, bounded concurrency, optional in-memory catalog) on the
+// embedded benchmark database, once per concurrency level.
+//
+//   ant bench-service-load -Dbench.concurrency=1,16,64,256 -Dbench.seconds=20 -Dbench.catalog=true
+public class ServiceLoadBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int books = Integer.getInteger("bench.books", 20_000);
+        int loans = Integer.getInteger("bench.loans", 50_000);
+        int poolSize = Integer.getInteger("bench.pool", 8);
+        int seconds = Integer.getInteger("bench.seconds", 10);
+        int warmupSeconds = Integer.getInteger("bench.warmup", 3);
+        boolean useCatalog = Boolean.parseBoolean(System.getProperty("bench.catalog", "false"));
+        LoadGenerator.Mix mix = LoadGenerator.Mix.parse(System.getProperty("bench.mix",
+                LoadGenerator.Mix.SEMESTER_START.toString()));
+        String[] levels = System.getProperty("bench.concurrency", "1,8,32,128,512").split(",");
+
+        List<BookRow> sample = new ArrayList<>();
+        try (Connection connection = BenchDatabase.open()) {
+            BenchDatabase.createSchema(connection);
+            BenchDatabase.seedBooks(connection, books);
+            BenchDatabase.seedLoans(connection, loans, books);
+            try (PreparedStatement pstmt = connection.prepareStatement(
+                    "SELECT " + BookRow.COLUMNS + " FROM books ORDER BY isbn LIMIT 2000");
+                    ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    sample.add(BookRow.fromResultSet(rs, false));
+                }
+            }
+        }
+
+        try (ConnectionPool pool = new ConnectionPool(BenchDatabase::open, poolSize, 10_000)) {
+            LibraryRepository repository = new LibraryRepository(pool, new LibraryEventBus(), "load-benchmark");
+            LocalLibraryService local = new LocalLibraryService(repository, pool, 1_000);
+            CatalogSnapshot catalog = null;
+            if (useCatalog) {
+                catalog = new CatalogSnapshot(BenchDatabase::open);
+                repository.getEventBus().subscribeAll(catalog::apply);
+                catalog.load();
+                local.setCatalog(catalog);
+            }
+            LibraryService service = new BoundedLibraryService(local, poolSize, 10_000);
+
+            System.out.printf("Mix %s, pool %d, in-memory catalog %s%n", mix, poolSize, useCatalog);
+            for (String level : levels) {
+                LoadGenerator generator = new LoadGenerator(service, sample, mix, Integer.parseInt(level.trim()));
+                LoadGenerator.Report report = generator.run(Duration.ofSeconds(warmupSeconds), Duration.ofSeconds(seconds));
+                System.out.println(report.summary());
+            }
+            if (catalog != null) {
+                catalog.stop();
+            }
+        }
+    }
+}
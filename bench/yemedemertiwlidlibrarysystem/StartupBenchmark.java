@@ -0,0 +1,113 @@
+package yemedemertiwlidlibrarysystem;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Launches the desk app repeatedly, with and without the class data sharing archive
+// from ant cds-archive, and reports how long it takes to show the login screen. Each
+// launch runs with -Dlibrary.exitAfterFirstFrame=true, so the app prints the time from
+// main() to its first login frame and exits. The time from starting the process to
+// that line, which includes JVM boot, is reported as well. Launches alternate between
+// the two modes so both see the same disk cache and machine load; the first launch of
+// each mode is a warm-up and not counted. No database is needed: the login screen is
+// shown before the connection is attempted.
+//
+//   ant bench-startup -Dbench.runs=20
+public class StartupBenchmark {
+
+    private static final Pattern FIRST_FRAME = Pattern.compile("\\[startup\\] first login frame ([0-9.]+) ms after main");
+    private static final String MAIN_CLASS = "yemedemertiwlidlibrarysystem.YemeDemerTiwlidLibrarySystem";
+
+    public static void main(String[] args) throws Exception {
+        int runs = Integer.getInteger("bench.runs", 10);
+        String classpath = System.getProperty("bench.app.classpath");
+        Path archive = Path.of(System.getProperty("bench.cds.archive", "dist/YemeDemerTiwlidLibrarySystem.jsa"));
+        if (classpath == null || classpath.isEmpty()) {
+            throw new IllegalArgumentException("Set bench.app.classpath to the classpath the archive was created with");
+        }
+        if (!Files.isRegularFile(archive)) {
+            throw new IllegalArgumentException("No archive at " + archive + "; run ant cds-archive first");
+        }
+
+        String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        List<String> plain = Arrays.asList(java, "-cp", classpath, "-Dlibrary.exitAfterFirstFrame=true", MAIN_CLASS);
+        List<String> shared = Arrays.asList(java, "-XX:SharedArchiveFile=" + archive, "-Xshare:auto",
+                "-cp", classpath, "-Dlibrary.exitAfterFirstFrame=true", MAIN_CLASS);
+
+        long[] plainMain = new long[runs];
+        long[] plainLaunch = new long[runs];
+        long[] sharedMain = new long[runs];
+        long[] sharedLaunch = new long[runs];
+        for (int i = -1; i < runs; i++) {
+            long[] a = launch(plain);
+            long[] b = launch(shared);
+            if (i >= 0) {
+                plainMain[i] = a[0];
+                plainLaunch[i] = a[1];
+                sharedMain[i] = b[0];
+                sharedLaunch[i] = b[1];
+            }
+        }
+
+        System.out.printf("Startup to first login frame, %d launches each (archive %s, %,d KB)%n",
+                runs, archive, Files.size(archive) / 1024);
+        report("main -> frame     ", plainMain, sharedMain);
+        report("process -> frame  ", plainLaunch, sharedLaunch);
+    }
+
+    // Returns {main to first frame, process start to first frame} in nanoseconds
+    private static long[] launch(List<String> command) throws IOException, InterruptedException {
+        ProcessBuilder builder = new ProcessBuilder(command);
+        builder.redirectErrorStream(true);
+        long start = System.nanoTime();
+        Process process = builder.start();
+        long mainToFrame = -1;
+        long launchToFrame = -1;
+        List<String> output = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                output.add(line);
+                Matcher matcher = FIRST_FRAME.matcher(line);
+                if (matcher.find() && mainToFrame < 0) {
+                    launchToFrame = System.nanoTime() - start;
+                    mainToFrame = (long) (Double.parseDouble(matcher.group(1)) * 1e6);
+                }
+            }
+        }
+        if (!process.waitFor(60, TimeUnit.SECONDS)) {
+            process.destroyForcibly();
+        }
+        if (mainToFrame < 0) {
+            throw new IllegalStateException("The app did not report its first frame:\n" + String.join("\n", output));
+        }
+        return new long[]{mainToFrame, launchToFrame};
+    }
+
+    private static void report(String label, long[] plain, long[] shared) {
+        Arrays.sort(plain);
+        Arrays.sort(shared);
+        double plainMedian = percentile(plain, 0.50);
+        double sharedMedian = percentile(shared, 0.50);
+        System.out.printf("%s without archive  p50 %7.1f ms  p90 %7.1f ms%n", label,
+                plainMedian, percentile(plain, 0.90));
+        System.out.printf("%s with archive     p50 %7.1f ms  p90 %7.1f ms  (%+.0f%%)%n", label,
+                sharedMedian, percentile(shared, 0.90), (sharedMedian / plainMedian - 1) * 100);
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        int index = (int) Math.min(sorted.length - 1, Math.ceil(p * sorted.length) - 1);
+        return sorted[Math.max(index, 0)] / 1e6;
+    }
+}
@@ -0,0 +1,189 @@
+package yemedemertiwlidlibrarysystem;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Read paths behind the catalog, search and loans views. Each SQL benchmark runs
+// the same statement the screen issues, next to the in-memory alternative where
+// there is one.
+//
+//   ant jmh -Djmh.classpath=... -Djmh.args="CatalogReadBenchmark.search -p searchType=Title,Genre"
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CatalogReadBenchmark {
+
+    private static final int SEARCH_LIMIT = 500;
+
+    // Kept in their own states so only the benchmarks using them are multiplied out
+    @State(Scope.Benchmark)
+    public static class PageParam {
+
+        // 0 is the first page; 300 sits near the end of the default 20,000 books
+        @Param({"0", "300"})
+        public int page;
+    }
+
+    @State(Scope.Benchmark)
+    public static class SearchParam {
+
+        @Param({"Title", "Author", "Genre", "ISBN"})
+        public String searchType;
+    }
+
+    // Matches a slice of the seeded data for every search type
+    private static String searchText(String searchType) {
+        switch (searchType) {
+            case "Author":
+                return "Author 12";
+            case "Genre":
+                return "Hist";
+            case "ISBN":
+                return "97800000012";
+            default:
+                return "Title 12";
+        }
+    }
+
+    // loadBooksFromDatabase without the in-memory catalog
+    @Benchmark
+    public List<BookRow> pageFetchSql(SeededLibrary library, PageParam param) throws SQLException {
+        List<BookRow> batch = new ArrayList<>();
+        String sql = "SELECT " + BookRow.COLUMNS_WITH_COVER + " FROM books LIMIT ? OFFSET ?";
+        try (PreparedStatement pstmt = library.connection.prepareStatement(sql)) {
+            pstmt.setInt(1, SeededLibrary.PAGE_SIZE);
+            pstmt.setInt(2, param.page * SeededLibrary.PAGE_SIZE);
+            ResultSet rs = pstmt.executeQuery();
+            while (rs.next()) {
+                batch.add(BookRow.fromResultSet(rs, true));
+            }
+        }
+        return batch;
+    }
+
+    // loadBooksFromDatabase with the in-memory catalog: page from memory, covers in one IN query
+    @Benchmark
+    public List<BookRow> pageFetchSnapshot(SeededLibrary library, PageParam param) throws SQLException {
+        List<BookRow> rows = library.catalog.page(param.page, SeededLibrary.PAGE_SIZE);
+        if (rows.isEmpty()) {
+            return rows;
+        }
+
+        Map<String, byte[]> covers = new HashMap<>();
+        String sql = "SELECT isbn, cover_image FROM books WHERE isbn IN ("
+                + String.join(",", Collections.nCopies(rows.size(), "?")) + ")";
+        try (PreparedStatement pstmt = library.connection.prepareStatement(sql)) {
+            for (int i = 0; i < rows.size(); i++) {
+                pstmt.setString(i + 1, rows.get(i).isbn());
+            }
+            ResultSet rs = pstmt.executeQuery();
+            while (rs.next()) {
+                covers.put(rs.getString(1), rs.getBytes(2));
+            }
+        }
+
+        List<BookRow> result = new ArrayList<>(rows.size());
+        for (BookRow row : rows) {
+            result.add(row.withCoverImage(covers.get(row.isbn())));
+        }
+        return result;
+    }
+
+    // performSearch through LocalLibraryService with no catalog attached (LIKE '%text%')
+    @Benchmark
+    public List<BookRow> searchSql(SeededLibrary library, SearchParam param) throws LibraryServiceException {
+        return library.sqlService.search(searchText(param.searchType), param.searchType, SEARCH_LIMIT);
+    }
+
+    // performSearch answered by the in-memory catalog
+    @Benchmark
+    public List<BookRow> searchSnapshot(SeededLibrary library, SearchParam param) {
+        return library.catalog.search(searchText(param.searchType), param.searchType, SEARCH_LIMIT);
+    }
+
+    // getAvailableCount for every card on a page: two queries per book
+    @Benchmark
+    public int availabilityPerBook(SeededLibrary library) throws SQLException {
+        int sum = 0;
+        for (String isbn : library.firstPageIsbns) {
+            try (PreparedStatement pstmt = library.connection.prepareStatement(
+                    "SELECT quantity FROM books WHERE isbn = ?")) {
+                pstmt.setString(1, isbn);
+                ResultSet rs = pstmt.executeQuery();
+                if (rs.next()) {
+                    int total = rs.getInt("quantity");
+                    try (PreparedStatement pstmt2 = library.connection.prepareStatement(
+                            "SELECT COUNT(*) FROM loans WHERE isbn = ? AND returned = 0")) {
+                        pstmt2.setString(1, isbn);
+                        ResultSet rs2 = pstmt2.executeQuery();
+                        sum += total - (rs2.next() ? rs2.getInt(1) : 0);
+                    }
+                }
+            }
+        }
+        return sum;
+    }
+
+    // The same page of availability counts in a single grouped query
+    @Benchmark
+    public int availabilityBatched(SeededLibrary library) throws SQLException {
+        List<String> isbns = library.firstPageIsbns;
+        String sql = "SELECT b.isbn, b.quantity - COUNT(l.id) FROM books b "
+                + "LEFT JOIN loans l ON l.isbn = b.isbn AND l.returned = 0 "
+                + "WHERE b.isbn IN (" + String.join(",", Collections.nCopies(isbns.size(), "?")) + ") "
+                + "GROUP BY b.isbn, b.quantity";
+        int sum = 0;
+        try (PreparedStatement pstmt = library.connection.prepareStatement(sql)) {
+            for (int i = 0; i < isbns.size(); i++) {
+                pstmt.setString(i + 1, isbns.get(i));
+            }
+            ResultSet rs = pstmt.executeQuery();
+            while (rs.next()) {
+                sum += rs.getInt(2);
+            }
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public int availabilitySnapshot(SeededLibrary library) {
+        int sum = 0;
+        for (String isbn : library.firstPageIsbns) {
+            sum += library.catalog.getAvailableCount(isbn);
+        }
+        return sum;
+    }
+
+    // The loans view query: every loan, mapped to rows for the table
+    @Benchmark
+    public List<LoanRow> loansListing(SeededLibrary library) throws SQLException {
+        List<LoanRow> loans = new ArrayList<>();
+        try (PreparedStatement pstmt = library.connection.prepareStatement(
+                "SELECT * FROM loans ORDER BY returned, return_date")) {
+            ResultSet rs = pstmt.executeQuery();
+            while (rs.next()) {
+                loans.add(LoanRow.fromResultSet(rs));
+            }
+        }
+        return loans;
+    }
+}
@@ -0,0 +1,87 @@
+package yemedemertiwlidlibrarysystem;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// A circulation desk lending a stack of books and taking them back, one service call
+// and one transaction per book as the loan dialog and Return button do, against the
+// station's batched circulate(). Each invocation lends and returns the same books, so
+// the loans table stays the same size. On the embedded database a commit is cheap; on
+// MySQL, where each commit waits for the log flush, the gap is wider.
+//
+//   ant jmh -Djmh.classpath=... -Djmh.args="CirculationBenchmark -p items=1,10,50"
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CirculationBenchmark {
+
+    private static final String BORROWER = "bench.borrower";
+
+    @Param({"10", "50"})
+    public int items;
+
+    private List<String> isbns;
+
+    // Books with a copy to spare, so no checkout is refused
+    @Setup(Level.Trial)
+    public void setUp(SeededLibrary library) throws SQLException {
+        isbns = new ArrayList<>();
+        String sql = "SELECT b.isbn FROM books b WHERE b.quantity - "
+                + "(SELECT COUNT(*) FROM loans l WHERE l.isbn = b.isbn AND l.returned = 0) > 0 LIMIT ?";
+        try (PreparedStatement pstmt = library.connection.prepareStatement(sql)) {
+            pstmt.setInt(1, items);
+            ResultSet rs = pstmt.executeQuery();
+            while (rs.next()) {
+                isbns.add(rs.getString(1));
+            }
+        }
+        if (isbns.size() < items) {
+            throw new IllegalStateException("Only " + isbns.size() + " books have a copy available");
+        }
+    }
+
+    @Benchmark
+    public int perItem(SeededLibrary library) throws LibraryServiceException {
+        LocalDateTime now = LocalDateTime.now();
+        List<LoanRow> loans = new ArrayList<>(items);
+        for (String isbn : isbns) {
+            loans.add(library.sqlService.checkout(isbn, BORROWER, "Bench Borrower", now, now.plusDays(14)));
+        }
+        for (LoanRow loan : loans) {
+            library.sqlService.returnLoan(loan.id());
+        }
+        return loans.size();
+    }
+
+    @Benchmark
+    public int batched(SeededLibrary library) throws LibraryServiceException {
+        LocalDateTime now = LocalDateTime.now();
+        List<CirculationScan> checkouts = new ArrayList<>(items);
+        List<CirculationScan> returns = new ArrayList<>(items);
+        for (String isbn : isbns) {
+            checkouts.add(CirculationScan.checkout(isbn, BORROWER, now, now.plusDays(14)));
+            returns.add(CirculationScan.checkin(isbn, now));
+        }
+        return library.sqlService.circulate(checkouts).size() + library.sqlService.circulate(returns).size();
+    }
+}
@@ -0,0 +1,50 @@
+package yemedemertiwlidlibrarysystem;
+
+import java.io.ByteArrayInputStream;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import javafx.scene.image.Image;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Cover decoding as done by setBookCoverImage for every card. Image decoding does
+// not need a running FX application, only the graphics module on the classpath.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CoverDecodeBenchmark {
+
+    // Size the cards display the cover at
+    private static final double CARD_WIDTH = 120;
+    private static final double CARD_HEIGHT = 180;
+
+    private byte[] cover;
+
+    @Setup
+    public void setUp() throws Exception {
+        cover = SeededLibrary.syntheticCover(new Random(11));
+    }
+
+    // What setBookCoverImage does today: decode at full resolution, let the ImageView scale
+    @Benchmark
+    public Image decodeFullSize() {
+        return new Image(new ByteArrayInputStream(cover));
+    }
+
+    // Decoding straight to the card size keeps less pixel data per card
+    @Benchmark
+    public Image decodeAtCardSize() {
+        return new Image(new ByteArrayInputStream(cover), CARD_WIDTH, CARD_HEIGHT, true, true);
+    }
+}
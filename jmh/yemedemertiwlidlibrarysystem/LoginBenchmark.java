@@ -0,0 +1,86 @@
+package yemedemertiwlidlibrarysystem;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// The whole sign-in path through AuthenticationService: a first login that runs the
+// key derivation, a re-entry inside the verification cache window, a wrong password
+// and an unknown username. The last two should cost about the same as coldLogin.
+//
+//   ant jmh -Djmh.classpath=... -Djmh.args="LoginBenchmark -p iterations=100000,600000"
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LoginBenchmark {
+
+    private static final String USERNAME = "bench.staff";
+    private static final String PASSWORD = "correct horse battery staple";
+
+    @Param({"600000"})
+    public int iterations;
+
+    private Connection connection;
+    private AuthenticationService uncached;
+    private AuthenticationService cached;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        connection = BenchDatabase.open();
+        BenchDatabase.createSchema(connection);
+        try (Statement stmt = connection.createStatement()) {
+            stmt.executeUpdate("DELETE FROM users WHERE username = '" + USERNAME + "'");
+        }
+        PasswordHasher hasher = new PasswordHasher(iterations);
+        uncached = new AuthenticationService(() -> connection, hasher, 0);
+        cached = new AuthenticationService(() -> connection, hasher,
+                AuthenticationService.DEFAULT_CACHE_TTL_MILLIS);
+        uncached.addUser("Bench Staff", USERNAME, PASSWORD, false);
+        if (cached.authenticate(USERNAME, PASSWORD).isEmpty()) {
+            throw new IllegalStateException("Seeded user did not authenticate");
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        connection.close();
+    }
+
+    @Benchmark
+    public Optional<AuthenticationService.Account> coldLogin() throws SQLException {
+        return uncached.authenticate(USERNAME, PASSWORD);
+    }
+
+    @Benchmark
+    public Optional<AuthenticationService.Account> cachedReauth() throws SQLException {
+        return cached.authenticate(USERNAME, PASSWORD);
+    }
+
+    @Benchmark
+    public Optional<AuthenticationService.Account> wrongPassword() throws SQLException {
+        return uncached.authenticate(USERNAME, "wrong password");
+    }
+
+    @Benchmark
+    public Optional<AuthenticationService.Account> unknownUser() throws SQLException {
+        return uncached.authenticate("nobody", PASSWORD);
+    }
+}
@@ -0,0 +1,49 @@
+package yemedemertiwlidlibrarysystem;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Cost of one password hash: the unsalted SHA-256 older rows still carry, and the
+// salted PBKDF2 every login and registration now derives (see LoginBenchmark for the
+// whole login path)
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PasswordHashBenchmark {
+
+    @Param({"admin123", "a much longer pass phrase of forty chars"})
+    public String password;
+
+    @Param({"600000"})
+    public int iterations;
+
+    private PasswordHasher hasher;
+
+    @Setup
+    public void setUp() {
+        hasher = new PasswordHasher(iterations);
+    }
+
+    @Benchmark
+    public String legacySha256() {
+        return PasswordHasher.legacySha256(password);
+    }
+
+    @Benchmark
+    public PasswordHasher.Hash pbkdf2() {
+        return hasher.hash(password);
+    }
+}
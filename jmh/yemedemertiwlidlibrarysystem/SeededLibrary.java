@@ -0,0 +1,101 @@
+package yemedemertiwlidlibrarysystem;
+
+import java.awt.Color;
+import java.awt.GradientPaint;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import javax.imageio.ImageIO;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+// Embedded database shared by the JMH benchmarks, seeded once per fork through
+// BenchDatabase. The first COVERED_PAGES pages of books get a synthetic JPEG cover
+// so page fetches and cover decoding see realistic blob sizes.
+@State(Scope.Benchmark)
+public class SeededLibrary {
+
+    static final int PAGE_SIZE = YemeDemerTiwlidLibrarySystem.BOOKS_PER_PAGE;
+    static final int COVERED_PAGES = 4;
+    static final int COVER_WIDTH = 300;
+    static final int COVER_HEIGHT = 450;
+
+    @Param({"20000"})
+    public int books;
+
+    @Param({"50000"})
+    public int loans;
+
+    Connection connection;
+    ConnectionPool pool;
+    LocalLibraryService sqlService;
+    CatalogSnapshot catalog;
+    byte[] cover;
+    List<String> firstPageIsbns;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        connection = BenchDatabase.open();
+        BenchDatabase.createSchema(connection);
+        BenchDatabase.seedBooks(connection, books);
+        BenchDatabase.seedLoans(connection, loans, books);
+
+        cover = syntheticCover(new Random(11));
+        try (PreparedStatement pstmt = connection.prepareStatement(
+                "UPDATE books SET cover_image = ? WHERE isbn = ?")) {
+            for (int i = 0; i < COVERED_PAGES * PAGE_SIZE && i < books; i++) {
+                pstmt.setBytes(1, cover);
+                pstmt.setString(2, BenchDatabase.isbn(i));
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
+        }
+
+        firstPageIsbns = new ArrayList<>();
+        for (int i = 0; i < PAGE_SIZE && i < books; i++) {
+            firstPageIsbns.add(BenchDatabase.isbn(i));
+        }
+
+        // No catalog attached: searches go to SQL, as on a terminal without the in-memory catalog
+        pool = new ConnectionPool(BenchDatabase::open, 2, 10_000);
+        sqlService = new LocalLibraryService(new LibraryRepository(pool, new LibraryEventBus(), "jmh"), pool, 0);
+
+        catalog = new CatalogSnapshot(BenchDatabase::open);
+        catalog.load();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        catalog.stop();
+        pool.close();
+        connection.close();
+    }
+
+    // Gradient plus noise so the JPEG does not compress down to nothing
+    static byte[] syntheticCover(Random random) throws IOException {
+        BufferedImage image = new BufferedImage(COVER_WIDTH, COVER_HEIGHT, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        g.setPaint(new GradientPaint(0, 0, new Color(random.nextInt(0xFFFFFF)),
+                COVER_WIDTH, COVER_HEIGHT, new Color(random.nextInt(0xFFFFFF))));
+        g.fillRect(0, 0, COVER_WIDTH, COVER_HEIGHT);
+        g.dispose();
+        for (int i = 0; i < COVER_WIDTH * COVER_HEIGHT / 8; i++) {
+            image.setRGB(random.nextInt(COVER_WIDTH), random.nextInt(COVER_HEIGHT), random.nextInt(0xFFFFFF));
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "jpg", out);
+        return out.toByteArray();
+    }
+}
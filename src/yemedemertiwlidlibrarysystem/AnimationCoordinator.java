@@ -0,0 +1,112 @@
+package yemedemertiwlidlibrarysystem;
+
+import java.util.List;
+import javafx.animation.Interpolator;
+import javafx.animation.Transition;
+import javafx.beans.property.BooleanProperty;
+import javafx.beans.property.SimpleBooleanProperty;
+import javafx.geometry.Bounds;
+import javafx.scene.Node;
+import javafx.scene.Parent;
+import javafx.scene.control.ScrollPane;
+import javafx.scene.layout.Region;
+import javafx.util.Duration;
+
+// Keeps card animations within a budget the desk PCs can render. A batch of cards
+// added together gets one transition that fades and scales them in with a short
+// stagger, instead of a fade, a scale and a parallel transition per card. Only the
+// first cards of a large batch animate, cards appended below the visible part of a
+// scroll pane do not animate at all, and reduced motion (Settings, or
+// -Dlibrary.reducedMotion=true) turns entry, hover and press animations off.
+public final class AnimationCoordinator {
+
+    private static final Duration ENTRY_DURATION = Duration.millis(300);
+    private static final Duration STAGGER = Duration.millis(25);
+    private static final double ENTRY_SCALE = 0.95;
+    // Roughly the cards that fit on screen at once; the rest of a bulk insert appears without animation
+    private static final int MAX_ANIMATED_PER_BATCH = 12;
+
+    private static final BooleanProperty reducedMotion =
+            new SimpleBooleanProperty(Boolean.getBoolean("library.reducedMotion"));
+
+    private AnimationCoordinator() {
+    }
+
+    public static BooleanProperty reducedMotionProperty() {
+        return reducedMotion;
+    }
+
+    public static boolean isReducedMotion() {
+        return reducedMotion.get();
+    }
+
+    // Animates nodes that were just added to container; call on the FX thread after adding them
+    public static void animateEntry(Region container, List<? extends Node> added) {
+        if (isReducedMotion() || added.isEmpty() || appendedBelowViewport(container, added.get(0))) {
+            return;
+        }
+
+        List<? extends Node> animated = added.subList(0, Math.min(added.size(), MAX_ANIMATED_PER_BATCH));
+        for (Node node : animated) {
+            node.setOpacity(0);
+            node.setScaleX(ENTRY_SCALE);
+            node.setScaleY(ENTRY_SCALE);
+        }
+        new BatchEntry(animated.toArray(new Node[0])).play();
+    }
+
+    // True when the content laid out before this batch already reaches past the bottom of the
+    // enclosing scroll pane's viewport, so nodes appended after it cannot be on screen yet
+    private static boolean appendedBelowViewport(Region container, Node first) {
+        if (container.getChildrenUnmodifiable().indexOf(first) <= 0) {
+            return false;
+        }
+        ScrollPane scrollPane = enclosingScrollPane(container);
+        if (scrollPane == null) {
+            return false;
+        }
+        Bounds viewport = scrollPane.getViewportBounds();
+        double contentHeight = container.getHeight();
+        double scrollable = Math.max(0, contentHeight - viewport.getHeight());
+        double range = scrollPane.getVmax() - scrollPane.getVmin();
+        double position = range <= 0 ? 0 : (scrollPane.getVvalue() - scrollPane.getVmin()) / range;
+        double visibleBottom = position * scrollable + viewport.getHeight();
+        return contentHeight > visibleBottom + 1;
+    }
+
+    private static ScrollPane enclosingScrollPane(Node node) {
+        for (Parent parent = node.getParent(); parent != null; parent = parent.getParent()) {
+            if (parent instanceof ScrollPane) {
+                return (ScrollPane) parent;
+            }
+        }
+        return null;
+    }
+
+    // One transition for the whole batch; node i starts STAGGER * i after the first
+    private static final class BatchEntry extends Transition {
+
+        private final Node[] nodes;
+        private final double entryMillis = ENTRY_DURATION.toMillis();
+        private final double staggerMillis = STAGGER.toMillis();
+
+        BatchEntry(Node[] nodes) {
+            this.nodes = nodes;
+            setCycleDuration(ENTRY_DURATION.add(STAGGER.multiply(nodes.length - 1)));
+            setInterpolator(Interpolator.LINEAR);
+        }
+
+        @Override
+        protected void interpolate(double frac) {
+            double elapsed = frac * getCycleDuration().toMillis();
+            for (int i = 0; i < nodes.length; i++) {
+                double t = Math.min(1, Math.max(0, (elapsed - i * staggerMillis) / entryMillis));
+                double eased = Interpolator.EASE_OUT.interpolate(0.0, 1.0, t);
+                Node node = nodes[i];
+                node.setOpacity(eased);
+                node.setScaleX(ENTRY_SCALE + (1 - ENTRY_SCALE) * eased);
+                node.setScaleY(ENTRY_SCALE + (1 - ENTRY_SCALE) * eased);
+            }
+        }
+    }
+}
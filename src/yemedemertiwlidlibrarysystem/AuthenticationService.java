@@ -0,0 +1,213 @@
+package yemedemertiwlidlibrarysystem;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+// Staff sign-in against the users table. The stored hash is read by username and
+// checked in Java with PasswordHasher, so the comparison is constant time instead of
+// being left to a WHERE clause. A row with an unsalted or cheaper hash is rehashed
+// with the current cost as part of a successful login.
+//
+// Staff re-enter their password many times a shift, so a successful verification is
+// remembered for a short while (-Dlibrary.authCacheSeconds, default 300): within that
+// window the same username and password are accepted without running the key
+// derivation again. The cache holds an HMAC of the credentials under a key that only
+// lives in this process, never the password, and an entry only counts while the
+// stored hash it was checked against is still the one in the database, so a
+// password change or a removed account takes effect at once.
+//
+// Thread safe; methods block on the database and the key derivation, so call them
+// off the FX thread.
+public class AuthenticationService {
+
+    public record Account(String fullName, String username, boolean admin) {
+    }
+
+    public static final long DEFAULT_CACHE_TTL_MILLIS = 300_000;
+    private static final int MAX_CACHED = 256;
+
+    private static final class Verified {
+
+        final byte[] proof;
+        final String storedHash;
+        final long expiresAt;
+
+        Verified(byte[] proof, String storedHash, long expiresAt) {
+            this.proof = proof;
+            this.storedHash = storedHash;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private final LibraryRepository.ConnectionProvider connections;
+    private final PasswordHasher hasher;
+    private final long cacheTtlMillis;
+    private final SecretKeySpec cacheKey;
+    // Verified for unknown usernames, so a missing account takes as long to reject as a wrong password
+    private final PasswordHasher.Hash decoy;
+    private final Map<String, Verified> verified = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Verified> eldest) {
+            return size() > MAX_CACHED;
+        }
+    };
+
+    // cacheTtlMillis of 0 turns the verification cache off
+    public AuthenticationService(LibraryRepository.ConnectionProvider connections, PasswordHasher hasher,
+            long cacheTtlMillis) {
+        this.connections = connections;
+        this.hasher = hasher;
+        this.cacheTtlMillis = cacheTtlMillis;
+        byte[] key = new byte[32];
+        new SecureRandom().nextBytes(key);
+        this.cacheKey = new SecretKeySpec(key, "HmacSHA256");
+        this.decoy = hasher.decoy();
+    }
+
+    public static AuthenticationService fromSystemProperties(LibraryRepository.ConnectionProvider connections) {
+        return new AuthenticationService(connections, PasswordHasher.fromSystemProperties(),
+                Long.getLong("library.authCacheSeconds", DEFAULT_CACHE_TTL_MILLIS / 1000) * 1000);
+    }
+
+    // The account when username and password match, empty when they do not
+    public Optional<Account> authenticate(String username, String password) throws SQLException {
+        long start = System.nanoTime();
+        try {
+            return verify(username, password);
+        } finally {
+            Metrics.timer("auth.login").recordSince(start);
+        }
+    }
+
+    private Optional<Account> verify(String username, String password) throws SQLException {
+        String fullName;
+        String storedHash;
+        String salt;
+        boolean admin;
+        Connection connection = connections.get();
+        try (PreparedStatement pstmt = connection.prepareStatement(
+                "SELECT full_name, password, password_salt, is_admin FROM users WHERE username = ?")) {
+            pstmt.setString(1, username);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (!rs.next()) {
+                    hasher.verify(password, decoy.encoded(), decoy.salt());
+                    return Optional.empty();
+                }
+                fullName = rs.getString("full_name");
+                storedHash = rs.getString("password");
+                salt = rs.getString("password_salt");
+                admin = rs.getBoolean("is_admin");
+            }
+        } finally {
+            connections.release(connection);
+        }
+        Account account = new Account(fullName, username, admin);
+
+        byte[] proof = cacheTtlMillis > 0 ? proof(username, password) : null;
+        if (proof != null && isCached(username, storedHash, proof)) {
+            Metrics.cacheHit("auth.verify", true);
+            return Optional.of(account);
+        }
+        Metrics.cacheHit("auth.verify", false);
+
+        if (!hasher.verify(password, storedHash, salt)) {
+            forget(username);
+            return Optional.empty();
+        }
+        if (hasher.needsRehash(storedHash, salt)) {
+            storedHash = rehash(username, password, storedHash);
+        }
+        if (proof != null) {
+            synchronized (verified) {
+                verified.put(username, new Verified(proof, storedHash, System.currentTimeMillis() + cacheTtlMillis));
+            }
+        }
+        return Optional.of(account);
+    }
+
+    // Inserts a user with a freshly salted hash
+    public void addUser(String fullName, String username, String password, boolean admin) throws SQLException {
+        PasswordHasher.Hash hash = hasher.hash(password);
+        Connection connection = connections.get();
+        try (PreparedStatement pstmt = connection.prepareStatement(
+                "INSERT INTO users (full_name, username, password, password_salt, is_admin) VALUES (?, ?, ?, ?, ?)")) {
+            pstmt.setString(1, fullName);
+            pstmt.setString(2, username);
+            pstmt.setString(3, hash.encoded());
+            pstmt.setString(4, hash.salt());
+            pstmt.setBoolean(5, admin);
+            pstmt.executeUpdate();
+        } finally {
+            connections.release(connection);
+        }
+    }
+
+    // Drops the remembered verification, e.g. after a password change from this desk
+    public void forget(String username) {
+        synchronized (verified) {
+            verified.remove(username);
+        }
+    }
+
+    public void clearCache() {
+        synchronized (verified) {
+            verified.clear();
+        }
+    }
+
+    private boolean isCached(String username, String storedHash, byte[] proof) {
+        Verified entry;
+        synchronized (verified) {
+            entry = verified.get(username);
+            if (entry != null && entry.expiresAt < System.currentTimeMillis()) {
+                verified.remove(username);
+                entry = null;
+            }
+        }
+        return entry != null && entry.storedHash.equals(storedHash) && MessageDigest.isEqual(entry.proof, proof);
+    }
+
+    // Returns the hash now stored. Only replaces the row if it still holds the hash that
+    // was verified, so a concurrent password change is not overwritten.
+    private String rehash(String username, String password, String oldHash) throws SQLException {
+        PasswordHasher.Hash hash = hasher.hash(password);
+        Connection connection = connections.get();
+        try (PreparedStatement pstmt = connection.prepareStatement(
+                "UPDATE users SET password = ?, password_salt = ? WHERE username = ? AND password = ?")) {
+            pstmt.setString(1, hash.encoded());
+            pstmt.setString(2, hash.salt());
+            pstmt.setString(3, username);
+            pstmt.setString(4, oldHash);
+            if (pstmt.executeUpdate() == 0) {
+                return oldHash;
+            }
+        } finally {
+            connections.release(connection);
+        }
+        Metrics.increment("auth.rehash");
+        return hash.encoded();
+    }
+
+    private byte[] proof(String username, String password) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(cacheKey);
+            mac.update(username.getBytes(StandardCharsets.UTF_8));
+            mac.update((byte) 0);
+            return mac.doFinal(password.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package yemedemertiwlidlibrarysystem;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Immutable row of the books table for the data and service layers. It carries no
+// JavaFX properties; a Book view model is only created from it when the row is
+// actually shown on screen. Genre, shelf and status repeat a few dozen values
+// across the catalog, so they are held as ValueDictionary codes.
+public record BookRow(String isbn, String title, String author, int genreCode, int shelfCode,
+        int statusCode, int quantity, byte[] coverImage) {
+
+    // Columns read by fromResultSet, without the cover blob
+    public static final String COLUMNS = "isbn, title, author, genre, shelf_number, status, quantity";
+    public static final String COLUMNS_WITH_COVER = COLUMNS + ", cover_image";
+    // Every status a book can have, in the order the edit dialog offers them
+    public static final List<String> STATUSES = List.of("Available", "On Loan", "Reserved", "Damaged", "Lost");
+
+    public BookRow(String isbn, String title, String author, String genre, String shelfNumber,
+            String status, int quantity, byte[] coverImage) {
+        this(isbn, title, author, ValueDictionary.GENRE.encode(genre), ValueDictionary.SHELF.encode(shelfNumber),
+                ValueDictionary.STATUS.encode(status), quantity, coverImage);
+    }
+
+    public static BookRow fromResultSet(ResultSet rs, boolean withCover) throws SQLException {
+        return new BookRow(
+                rs.getString("isbn"),
+                rs.getString("title"),
+                rs.getString("author"),
+                rs.getString("genre"),
+                rs.getString("shelf_number"),
+                rs.getString("status"),
+                rs.getInt("quantity"),
+                withCover ? rs.getBytes("cover_image") : null
+        );
+    }
+
+    public String genre() {
+        return ValueDictionary.GENRE.decode(genreCode);
+    }
+
+    public String shelfNumber() {
+        return ValueDictionary.SHELF.decode(shelfCode);
+    }
+
+    public String status() {
+        return ValueDictionary.STATUS.decode(statusCode);
+    }
+
+    public BookRow withStatus(String newStatus) {
+        return new BookRow(isbn, title, author, genreCode, shelfCode,
+                ValueDictionary.STATUS.encode(newStatus), quantity, coverImage);
+    }
+
+    public BookRow withCoverImage(byte[] newCoverImage) {
+        return new BookRow(isbn, title, author, genreCode, shelfCode, statusCode, quantity, newCoverImage);
+    }
+
+    // Field map for the server's JSON API; covers are not sent
+    public Map<String, Object> toMap() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("isbn", isbn);
+        map.put("title", title);
+        map.put("author", author);
+        map.put("genre", genre());
+        map.put("shelfNumber", shelfNumber());
+        map.put("status", status());
+        map.put("quantity", quantity);
+        return map;
+    }
+
+    public static BookRow fromMap(Map<String, Object> map) {
+        return new BookRow((String) map.get("isbn"), (String) map.get("title"), (String) map.get("author"),
+                (String) map.get("genre"), (String) map.get("shelfNumber"), (String) map.get("status"),
+                ((Number) map.get("quantity")).intValue(), null);
+    }
+}
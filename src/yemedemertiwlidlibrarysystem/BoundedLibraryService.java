@@ -0,0 +1,80 @@
+package yemedemertiwlidlibrarysystem;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+// Caps how many service operations run at once. Callers are cheap virtual threads,
+// so a burst of thousands of requests simply queues here, in arrival order, instead
+// of piling onto the connection pool; a caller that waits longer than the timeout
+// gets UNAVAILABLE rather than hanging.
+public class BoundedLibraryService implements LibraryService {
+
+    private interface Operation<T> {
+
+        T run() throws LibraryServiceException;
+    }
+
+    private final LibraryService delegate;
+    private final Semaphore permits;
+    private final long timeoutMillis;
+
+    public BoundedLibraryService(LibraryService delegate, int maxConcurrent, long timeoutMillis) {
+        this.delegate = delegate;
+        this.permits = new Semaphore(maxConcurrent, true);
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    // Callers currently waiting for a permit
+    public int getQueueLength() {
+        return permits.getQueueLength();
+    }
+
+    @Override
+    public List<BookRow> search(String query, String searchType, int limit) throws LibraryServiceException {
+        return bounded(() -> delegate.search(query, searchType, limit));
+    }
+
+    @Override
+    public LoanRow checkout(String isbn, String borrowerId, String borrowerName,
+            LocalDateTime loanDate, LocalDateTime returnDate) throws LibraryServiceException {
+        return bounded(() -> delegate.checkout(isbn, borrowerId, borrowerName, loanDate, returnDate));
+    }
+
+    @Override
+    public LoanRow returnLoan(int loanId) throws LibraryServiceException {
+        return bounded(() -> delegate.returnLoan(loanId));
+    }
+
+    @Override
+    public List<CirculationResult> circulate(List<CirculationScan> scans) throws LibraryServiceException {
+        return bounded(() -> delegate.circulate(scans));
+    }
+
+    @Override
+    public Stats stats() throws LibraryServiceException {
+        return bounded(delegate::stats);
+    }
+
+    private <T> T bounded(Operation<T> operation) throws LibraryServiceException {
+        long start = System.nanoTime();
+        try {
+            boolean acquired = permits.tryAcquire(timeoutMillis, TimeUnit.MILLISECONDS);
+            Metrics.timer("service.wait").recordSince(start);
+            if (!acquired) {
+                Metrics.increment("service.rejected");
+                throw new LibraryServiceException(LibraryServiceException.Reason.UNAVAILABLE,
+                        "The library service is busy, please try again");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new LibraryServiceException(LibraryServiceException.Reason.UNAVAILABLE, "Request interrupted", e);
+        }
+        try {
+            return operation.run();
+        } finally {
+            permits.release();
+        }
+    }
+}
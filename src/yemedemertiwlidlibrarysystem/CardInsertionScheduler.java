@@ -0,0 +1,141 @@
+package yemedemertiwlidlibrarysystem;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.List;
+import java.util.function.Function;
+import javafx.animation.AnimationTimer;
+import javafx.geometry.Bounds;
+import javafx.scene.Node;
+import javafx.scene.Parent;
+import javafx.scene.control.ScrollPane;
+import javafx.scene.layout.FlowPane;
+
+// Adds cards to a flow pane a chunk per pulse instead of building a whole page or
+// search result in one pulse. Each pulse builds cards until its time budget is used
+// (always at least one) and adds them with a single addAll, so the pane is laid out
+// once per chunk. Cards that will be on screen get the larger budget and go first;
+// once the viewport is filled the rest is added with a smaller budget, so scrolling
+// and hovering stay responsive while an off-screen tail is still being built.
+// Cards keep the order they were queued in.
+public class CardInsertionScheduler<T> {
+
+    private static final long VISIBLE_BUDGET_NANOS = 8_000_000;
+    private static final long BACKGROUND_BUDGET_NANOS = 4_000_000;
+    // Used until a card has been laid out and its real size is known
+    private static final double ESTIMATED_CARD_HEIGHT = 380;
+    private static final double ESTIMATED_CARD_WIDTH = 250;
+
+    private final FlowPane target;
+    private final Function<T, Node> cardFactory;
+    private final Deque<T> queue = new ArrayDeque<>();
+    private final AnimationTimer timer;
+    private boolean running = false;
+
+    // cardFactory builds or looks up the card for an item, or returns null to skip it
+    public CardInsertionScheduler(FlowPane target, Function<T, Node> cardFactory) {
+        this.target = target;
+        this.cardFactory = cardFactory;
+        this.timer = new AnimationTimer() {
+            @Override
+            public void handle(long now) {
+                insertChunk();
+            }
+        };
+    }
+
+    public void enqueue(Collection<? extends T> items) {
+        if (items.isEmpty()) {
+            return;
+        }
+        queue.addAll(items);
+        if (!running) {
+            running = true;
+            timer.start();
+            // The first chunk goes in now rather than on the next pulse
+            insertChunk();
+        }
+    }
+
+    // Drops queued items that were not added yet, e.g. when the pane is cleared or replaced
+    public void cancel() {
+        queue.clear();
+        stop();
+    }
+
+    public boolean isIdle() {
+        return queue.isEmpty();
+    }
+
+    private void stop() {
+        if (running) {
+            running = false;
+            timer.stop();
+        }
+    }
+
+    private void insertChunk() {
+        if (queue.isEmpty()) {
+            stop();
+            return;
+        }
+        long start = System.nanoTime();
+        long budget = remainingVisibleSlots() > 0 ? VISIBLE_BUDGET_NANOS : BACKGROUND_BUDGET_NANOS;
+        List<Node> chunk = new ArrayList<>();
+        while (!queue.isEmpty() && (chunk.isEmpty() || System.nanoTime() - start < budget)) {
+            Node card = cardFactory.apply(queue.poll());
+            if (card != null && card.getParent() != target && !chunk.contains(card)) {
+                chunk.add(card);
+            }
+        }
+        if (!chunk.isEmpty()) {
+            target.getChildren().addAll(chunk);
+            AnimationCoordinator.animateEntry(target, chunk);
+        }
+        Metrics.timer("fx.cardChunk").recordSince(start);
+        Metrics.add("fx.cardsInserted", chunk.size());
+        if (queue.isEmpty()) {
+            stop();
+        }
+    }
+
+    // Cards that still fit between the end of the pane's content and the bottom of the
+    // enclosing scroll pane's viewport
+    private int remainingVisibleSlots() {
+        ScrollPane scrollPane = enclosingScrollPane();
+        if (scrollPane == null) {
+            return Integer.MAX_VALUE;
+        }
+        Bounds viewport = scrollPane.getViewportBounds();
+        double cardWidth = ESTIMATED_CARD_WIDTH;
+        double cardHeight = ESTIMATED_CARD_HEIGHT;
+        List<Node> children = target.getChildren();
+        if (!children.isEmpty()) {
+            Bounds laidOut = children.get(0).getLayoutBounds();
+            if (laidOut.getHeight() > 0) {
+                cardWidth = laidOut.getWidth();
+                cardHeight = laidOut.getHeight();
+            }
+        }
+        int perRow = Math.max(1, (int) ((viewport.getWidth() + target.getHgap()) / (cardWidth + target.getHgap())));
+        int visibleRows = (int) Math.ceil(viewport.getHeight() / (cardHeight + target.getVgap()));
+
+        // Rows already scrolled past do not count; the viewport starts this far down the content
+        double scrollable = Math.max(0, target.getHeight() - viewport.getHeight());
+        double range = scrollPane.getVmax() - scrollPane.getVmin();
+        double position = range <= 0 ? 0 : (scrollPane.getVvalue() - scrollPane.getVmin()) / range;
+        int firstVisibleRow = (int) (position * scrollable / (cardHeight + target.getVgap()));
+        return (firstVisibleRow + visibleRows) * perRow - children.size();
+    }
+
+    private ScrollPane enclosingScrollPane() {
+        for (Parent parent = target.getParent(); parent != null; parent = parent.getParent()) {
+            if (parent instanceof ScrollPane) {
+                return (ScrollPane) parent;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,194 @@
+package yemedemertiwlidlibrarysystem;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.CancellationException;
+import java.util.zip.GZIPOutputStream;
+
+// Streams the full books (without cover blobs) and loans tables into CSV files.
+// Rows are read through a forward-only cursor and written straight to a buffered
+// stream, so memory use does not depend on the number of rows exported. Each dump
+// is written to a .part file next to the target and renamed into place only once
+// it has been closed cleanly.
+public class CatalogExporter {
+
+    public enum Table {
+        BOOKS("books",
+                "SELECT isbn, title, author, genre, shelf_number, status, quantity FROM books ORDER BY isbn"),
+        LOANS("loans",
+                "SELECT id, isbn, borrower_id, borrower_name, loan_date, return_date, returned FROM loans ORDER BY id");
+
+        private final String tableName;
+        private final String selectSql;
+
+        Table(String tableName, String selectSql) {
+            this.tableName = tableName;
+            this.selectSql = selectSql;
+        }
+
+        public String getTableName() {
+            return tableName;
+        }
+    }
+
+    public interface ProgressListener {
+
+        void onProgress(long rowsWritten, long totalRows);
+    }
+
+    // Rows pulled from the server per round trip (needs useCursorFetch=true on MySQL)
+    public static final int FETCH_SIZE = 2000;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int PROGRESS_INTERVAL = 5000;
+
+    private final Connection connection;
+    private volatile boolean cancelled = false;
+
+    // The connection should be dedicated to the export: a streaming result set
+    // keeps it busy until the last row has been read.
+    public CatalogExporter(Connection connection) {
+        this.connection = connection;
+    }
+
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    public long export(Table table, File file, boolean gzip, ProgressListener listener)
+            throws SQLException, IOException {
+        long totalRows = countRows(table);
+        long rowsWritten = 0;
+        boolean completed = false;
+        File partFile = new File(file.getPath() + ".part");
+
+        try {
+            rowsWritten = writeRows(table, partFile, gzip, totalRows, listener);
+            // Closing flushes the buffers and writes the gzip trailer, so only now is the dump whole
+            moveIntoPlace(partFile.toPath(), file.toPath());
+            completed = true;
+        } finally {
+            // Never leave a truncated file behind that looks like a finished dump
+            if (!completed) {
+                partFile.delete();
+            }
+        }
+
+        if (listener != null) {
+            listener.onProgress(rowsWritten, rowsWritten);
+        }
+        return rowsWritten;
+    }
+
+    private long writeRows(Table table, File file, boolean gzip, long totalRows, ProgressListener listener)
+            throws SQLException, IOException {
+        long rowsWritten = 0;
+        try (Writer writer = openWriter(file, gzip);
+                PreparedStatement pstmt = connection.prepareStatement(table.selectSql,
+                        ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            pstmt.setFetchSize(FETCH_SIZE);
+
+            try (ResultSet rs = pstmt.executeQuery()) {
+                int columnCount = rs.getMetaData().getColumnCount();
+
+                for (int i = 1; i <= columnCount; i++) {
+                    if (i > 1) {
+                        writer.write(',');
+                    }
+                    writer.write(rs.getMetaData().getColumnLabel(i));
+                }
+                writer.write('\n');
+
+                while (rs.next()) {
+                    if (cancelled) {
+                        throw new CancellationException("Export of " + table.tableName + " cancelled");
+                    }
+                    for (int i = 1; i <= columnCount; i++) {
+                        if (i > 1) {
+                            writer.write(',');
+                        }
+                        writeField(writer, rs.getString(i));
+                    }
+                    writer.write('\n');
+                    rowsWritten++;
+
+                    if (listener != null && rowsWritten % PROGRESS_INTERVAL == 0) {
+                        listener.onProgress(rowsWritten, Math.max(totalRows, rowsWritten));
+                    }
+                }
+            }
+        }
+        return rowsWritten;
+    }
+
+    private static void moveIntoPlace(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private long countRows(Table table) throws SQLException {
+        String sql = "SELECT COUNT(*) FROM " + table.tableName;
+        try (PreparedStatement pstmt = connection.prepareStatement(sql); ResultSet rs = pstmt.executeQuery()) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+
+    private static Writer openWriter(File file, boolean gzip) throws IOException {
+        OutputStream out = new BufferedOutputStream(new FileOutputStream(file), BUFFER_SIZE);
+        if (gzip) {
+            out = new GZIPOutputStream(out, BUFFER_SIZE);
+        }
+        return new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+    }
+
+    static void writeField(Writer writer, String value) throws IOException {
+        if (value == null) {
+            return;
+        }
+
+        boolean needsQuotes = false;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+                needsQuotes = true;
+                break;
+            }
+        }
+
+        if (!needsQuotes) {
+            writer.write(value);
+            return;
+        }
+
+        writer.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                writer.write('"');
+            }
+            writer.write(c);
+        }
+        writer.write('"');
+    }
+}
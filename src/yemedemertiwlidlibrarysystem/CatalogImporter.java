@@ -0,0 +1,357 @@
+package yemedemertiwlidlibrarysystem;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+
+// Bulk catalog import from CSV. Rows are parsed and validated one at a time and
+// upserted by ISBN in JDBC batches, committing every CHUNK_SIZE rows. Open the
+// connection with rewriteBatchedStatements=true so MySQL receives each batch as a
+// single multi-row INSERT.
+//
+// Before a chunk is written its existing books are locked and their open loans
+// counted, so checkouts wait for the chunk. A blank status keeps the status the
+// book already has (new books start Available), a status the application does not
+// know is rejected, and so is a row whose quantity is below the copies on loan.
+public class CatalogImporter {
+
+    public interface ProgressListener {
+
+        void onProgress(long bytesRead, long totalBytes, long rowsImported);
+    }
+
+    public static class ImportReport {
+
+        private long rowsRead;
+        private long rowsImported;
+        private long rowsRejected;
+        private final List<String> errors = new ArrayList<>();
+        private double seconds;
+
+        public long getRowsRead() {
+            return rowsRead;
+        }
+
+        public long getRowsImported() {
+            return rowsImported;
+        }
+
+        public long getRowsRejected() {
+            return rowsRejected;
+        }
+
+        // First MAX_REPORTED_ERRORS rejection messages
+        public List<String> getErrors() {
+            return errors;
+        }
+
+        public double getSeconds() {
+            return seconds;
+        }
+
+        public double getRowsPerSecond() {
+            return rowsImported / Math.max(seconds, 0.001);
+        }
+
+        public String summary() {
+            StringBuilder sb = new StringBuilder(String.format(
+                    "Imported %,d of %,d rows in %.1f s (%,.0f rows/s), %,d rejected",
+                    rowsImported, rowsRead, seconds, getRowsPerSecond(), rowsRejected));
+            for (String error : errors) {
+                sb.append('\n').append(error);
+            }
+            if (rowsRejected > errors.size()) {
+                sb.append("\n... and ").append(rowsRejected - errors.size()).append(" more");
+            }
+            return sb.toString();
+        }
+    }
+
+    public static final int CHUNK_SIZE = 1000;
+    private static final int MAX_REPORTED_ERRORS = 20;
+    private static final int PROGRESS_INTERVAL = 1000;
+
+    private static final String UPSERT_SQL = "INSERT INTO books "
+            + "(isbn, title, author, genre, shelf_number, status, quantity) VALUES (?, ?, ?, ?, ?, ?, ?) "
+            + "ON DUPLICATE KEY UPDATE title = VALUES(title), author = VALUES(author), genre = VALUES(genre), "
+            + "shelf_number = VALUES(shelf_number), status = VALUES(status), quantity = VALUES(quantity)";
+
+    // Accepted header names for each column, matched case-insensitively
+    private static final String[][] COLUMN_ALIASES = {
+        {"isbn"},
+        {"title"},
+        {"author"},
+        {"genre"},
+        {"shelf_number", "shelf", "shelf number"},
+        {"status"},
+        {"quantity", "qty", "copies"}
+    };
+    private static final int ISBN = 0, TITLE = 1, AUTHOR = 2, GENRE = 3, SHELF = 4, STATUS = 5, QUANTITY = 6;
+    // Column limits from the books table definition
+    private static final int[] MAX_LENGTHS = {20, 255, 100, 50, 20, 20, 0};
+
+    private record Row(long line, String[] values) {
+    }
+
+    private final Connection connection;
+    private volatile boolean cancelled = false;
+
+    public CatalogImporter(Connection connection) {
+        this.connection = connection;
+    }
+
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public ImportReport importFile(File file, ProgressListener listener) throws IOException, SQLException {
+        ImportReport report = new ImportReport();
+        long start = System.nanoTime();
+        long totalBytes = file.length();
+        long[] bytesRead = new long[1];
+
+        InputStream in = new FilterInputStream(new BufferedInputStream(new FileInputStream(file), 64 * 1024)) {
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                int n = super.read(b, off, len);
+                if (n > 0) {
+                    bytesRead[0] += n;
+                }
+                return n;
+            }
+        };
+
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+
+        try (CsvReader csv = new CsvReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+                PreparedStatement pstmt = connection.prepareStatement(UPSERT_SQL)) {
+            int[] columns = mapHeader(csv.readRecord());
+            List<Row> pending = new ArrayList<>(CHUNK_SIZE);
+
+            String[] record;
+            while ((record = csv.readRecord()) != null) {
+                if (cancelled) {
+                    connection.rollback();
+                    throw new CancellationException("Import cancelled after " + report.rowsImported + " rows");
+                }
+                if (record.length == 1 && record[0].trim().isEmpty()) {
+                    continue;
+                }
+                report.rowsRead++;
+
+                String[] values = new String[COLUMN_ALIASES.length];
+                String error = extract(record, columns, values);
+                if (error != null) {
+                    reject(report, csv.getRecordLineNumber(), error);
+                    continue;
+                }
+
+                pending.add(new Row(csv.getRecordLineNumber(), values));
+                if (pending.size() == CHUNK_SIZE) {
+                    report.rowsImported += flush(pstmt, pending, report);
+                    pending.clear();
+                }
+
+                if (listener != null && report.rowsRead % PROGRESS_INTERVAL == 0) {
+                    listener.onProgress(bytesRead[0], totalBytes, report.rowsImported);
+                }
+            }
+
+            if (!pending.isEmpty()) {
+                report.rowsImported += flush(pstmt, pending, report);
+            }
+        } catch (SQLException | IOException | RuntimeException e) {
+            // A failed rollback (say, on a dead connection) must not hide why the import failed
+            try {
+                connection.rollback();
+            } catch (SQLException rollbackError) {
+                e.addSuppressed(rollbackError);
+            }
+            throw e;
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+
+        report.seconds = (System.nanoTime() - start) / 1e9;
+        if (listener != null) {
+            listener.onProgress(totalBytes, totalBytes, report.rowsImported);
+        }
+        return report;
+    }
+
+    // Writes one chunk in its own transaction; returns the number of rows written
+    private int flush(PreparedStatement pstmt, List<Row> rows, ImportReport report) throws SQLException {
+        List<String> isbns = new ArrayList<>(rows.size());
+        for (Row row : rows) {
+            isbns.add(row.values()[ISBN]);
+        }
+        Map<String, String> statuses = lockBooks(isbns);
+        Map<String, Integer> onLoan = countOpenLoans(isbns);
+
+        int written = 0;
+        for (Row row : rows) {
+            String[] values = row.values();
+            int quantity = Integer.parseInt(values[QUANTITY]);
+            int loaned = onLoan.getOrDefault(values[ISBN], 0);
+            if (quantity < loaned) {
+                reject(report, row.line(), "quantity " + quantity + " is below the " + loaned + " copies on loan");
+                continue;
+            }
+            String status = values[STATUS] != null ? values[STATUS] : statuses.getOrDefault(values[ISBN], "Available");
+
+            pstmt.setString(1, values[ISBN]);
+            pstmt.setString(2, values[TITLE]);
+            pstmt.setString(3, values[AUTHOR]);
+            pstmt.setString(4, values[GENRE]);
+            pstmt.setString(5, values[SHELF]);
+            pstmt.setString(6, status);
+            pstmt.setInt(7, quantity);
+            pstmt.addBatch();
+            written++;
+        }
+        if (written > 0) {
+            pstmt.executeBatch();
+        }
+        connection.commit();
+        return written;
+    }
+
+    // Current status of each existing book, locked until the chunk commits
+    private Map<String, String> lockBooks(List<String> isbns) throws SQLException {
+        String sql = "SELECT isbn, status FROM books WHERE isbn IN (" + placeholders(isbns.size()) + ") FOR UPDATE";
+        Map<String, String> statuses = new HashMap<>();
+        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+            bind(pstmt, isbns);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    statuses.put(rs.getString(1), rs.getString(2));
+                }
+            }
+        }
+        return statuses;
+    }
+
+    private Map<String, Integer> countOpenLoans(List<String> isbns) throws SQLException {
+        String sql = "SELECT isbn, COUNT(*) FROM loans WHERE returned = 0 AND isbn IN (" + placeholders(isbns.size())
+                + ") GROUP BY isbn";
+        Map<String, Integer> counts = new HashMap<>();
+        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+            bind(pstmt, isbns);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    counts.put(rs.getString(1), rs.getInt(2));
+                }
+            }
+        }
+        return counts;
+    }
+
+    private static String placeholders(int count) {
+        return String.join(",", Collections.nCopies(count, "?"));
+    }
+
+    private static void bind(PreparedStatement pstmt, List<String> values) throws SQLException {
+        for (int i = 0; i < values.size(); i++) {
+            pstmt.setString(i + 1, values.get(i));
+        }
+    }
+
+    private static int[] mapHeader(String[] header) throws IOException {
+        if (header == null) {
+            throw new IOException("The file is empty");
+        }
+
+        Map<String, Integer> positions = new HashMap<>();
+        for (int i = 0; i < header.length; i++) {
+            positions.put(header[i].trim().toLowerCase(Locale.ROOT), i);
+        }
+
+        int[] columns = new int[COLUMN_ALIASES.length];
+        for (int column = 0; column < COLUMN_ALIASES.length; column++) {
+            columns[column] = -1;
+            for (String alias : COLUMN_ALIASES[column]) {
+                Integer position = positions.get(alias);
+                if (position != null) {
+                    columns[column] = position;
+                    break;
+                }
+            }
+            if (columns[column] < 0 && column != STATUS) {
+                throw new IOException("Missing required column '" + COLUMN_ALIASES[column][0] + "' in header");
+            }
+        }
+        return columns;
+    }
+
+    // Copies the mapped fields into values; returns an error message or null if the row is valid
+    private static String extract(String[] record, int[] columns, String[] values) {
+        for (int column = 0; column < columns.length; column++) {
+            int position = columns[column];
+            String value = position >= 0 && position < record.length ? record[position].trim() : "";
+
+            if (value.isEmpty()) {
+                if (column == STATUS) {
+                    // Left to the book's current status when the row is written
+                    values[column] = null;
+                    continue;
+                }
+                return "missing " + COLUMN_ALIASES[column][0];
+            }
+            if (MAX_LENGTHS[column] > 0 && value.length() > MAX_LENGTHS[column]) {
+                return COLUMN_ALIASES[column][0] + " longer than " + MAX_LENGTHS[column] + " characters";
+            }
+            if (column == STATUS) {
+                value = knownStatus(value);
+                if (value == null) {
+                    return "unknown status '" + record[position].trim() + "', expected one of "
+                            + String.join(", ", BookRow.STATUSES);
+                }
+            }
+            values[column] = value;
+        }
+
+        try {
+            int quantity = Integer.parseInt(values[QUANTITY]);
+            if (quantity < 0) {
+                return "negative quantity";
+            }
+        } catch (NumberFormatException e) {
+            return "quantity '" + values[QUANTITY] + "' is not a number";
+        }
+        return null;
+    }
+
+    // The status as the application spells it, matched case-insensitively; null if unknown
+    private static String knownStatus(String value) {
+        for (String status : BookRow.STATUSES) {
+            if (status.equalsIgnoreCase(value)) {
+                return status;
+            }
+        }
+        return null;
+    }
+
+    private static void reject(ImportReport report, long line, String error) {
+        report.rowsRejected++;
+        if (report.errors.size() < MAX_REPORTED_ERRORS) {
+            report.errors.add("Line " + line + ": " + error);
+        }
+    }
+}
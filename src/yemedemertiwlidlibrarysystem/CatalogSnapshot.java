@@ -0,0 +1,568 @@
+package yemedemertiwlidlibrarysystem;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// In-memory copy of the text columns of the books table plus the number of copies
+// on loan per ISBN. It is loaded once in parallel ISBN ranges and then kept fresh by
+// polling rows whose updated_at changed since the last poll, so catalog pages,
+// searches and availability checks are answered from memory. Covers stay in the
+// database and are fetched per page.
+//
+// A deleted row has no updated_at to poll, so deletes are found two ways: the
+// books named by BOOK DELETE entries in the change log are checked, and the full
+// set of ISBNs is compared against the database after a bulk job logs a catalog
+// reload and every RECONCILE_INTERVAL_MILLIS for deletes made outside the log.
+public class CatalogSnapshot {
+
+    public interface ConnectionSource {
+
+        Connection open() throws SQLException;
+    }
+
+    private static final int LOAD_CHUNK_SIZE = 10_000;
+    private static final int LOAD_THREADS = 4;
+    // Re-read a little before the last watermark so rows committed late by a slow transaction are not missed
+    private static final long POLL_OVERLAP_MILLIS = 5_000;
+    private static final int MAX_IN_LIST = 500;
+    private static final long RECONCILE_INTERVAL_MILLIS = 5 * 60_000;
+
+    private final ConnectionSource connectionSource;
+    private final ConcurrentSkipListMap<String, BookRow> books = new ConcurrentSkipListMap<>();
+    private final ConcurrentHashMap<String, Integer> onLoan = new ConcurrentHashMap<>();
+
+    // Rows in ISBN order for paging; rebuilt lazily after a change
+    private final Object orderLock = new Object();
+    private volatile BookRow[] ordered = null;
+    private long orderVersion = 0;
+    private volatile boolean ready = false;
+    private Timestamp watermark;
+    private long lastReconcile;
+
+    private ScheduledExecutorService poller;
+    private Connection pollConnection;
+    private volatile Runnable changeListener;
+
+    public CatalogSnapshot(ConnectionSource connectionSource) {
+        this.connectionSource = connectionSource;
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public int size() {
+        return books.size();
+    }
+
+    // Called (on the poller thread) whenever a delta poll changed something
+    public void setChangeListener(Runnable changeListener) {
+        this.changeListener = changeListener;
+    }
+
+    // Loads into fresh maps and swaps them in at the end, so a reload keeps answering
+    // from the previous copy until the new one is complete
+    public void load() throws SQLException, InterruptedException {
+        long start = System.nanoTime();
+        Timestamp loadStart;
+        List<String> boundaries;
+
+        try (Connection conn = connectionSource.open()) {
+            loadStart = databaseTime(conn);
+            boundaries = chunkBoundaries(conn);
+        }
+
+        Map<String, BookRow> loadedBooks = new ConcurrentHashMap<>();
+        Map<String, Integer> loadedOnLoan = new ConcurrentHashMap<>();
+        ExecutorService loaders = Executors.newFixedThreadPool(LOAD_THREADS, runnable -> {
+            Thread thread = new Thread(runnable, "catalog-snapshot-loader");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<?>> chunks = new ArrayList<>();
+            for (int i = 0; i < boundaries.size(); i++) {
+                String from = i > 0 ? boundaries.get(i) : null;
+                String to = i + 1 < boundaries.size() ? boundaries.get(i + 1) : null;
+                chunks.add(loaders.submit(() -> {
+                    loadChunk(from, to, loadedBooks);
+                    return null;
+                }));
+            }
+            chunks.add(loaders.submit(() -> {
+                loadAvailability(loadedOnLoan);
+                return null;
+            }));
+
+            for (Future<?> chunk : chunks) {
+                try {
+                    chunk.get();
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof SQLException) {
+                        throw (SQLException) e.getCause();
+                    }
+                    throw new SQLException("Could not load catalog snapshot", e.getCause());
+                }
+            }
+        } finally {
+            loaders.shutdownNow();
+        }
+
+        books.keySet().retainAll(loadedBooks.keySet());
+        books.putAll(loadedBooks);
+        onLoan.keySet().retainAll(loadedOnLoan.keySet());
+        onLoan.putAll(loadedOnLoan);
+        synchronized (this) {
+            watermark = loadStart;
+            lastReconcile = System.currentTimeMillis();
+        }
+        invalidateOrder();
+        ready = true;
+        Metrics.timer("catalog.snapshotLoad").recordSince(start);
+    }
+
+    // First ISBN of every LOAD_CHUNK_SIZE rows. The chunks are ranges between them rather
+    // than offsets, so a row deleted mid-load cannot shift a later chunk past one it skips.
+    private static List<String> chunkBoundaries(Connection conn) throws SQLException {
+        List<String> boundaries = new ArrayList<>();
+        try (PreparedStatement pstmt = conn.prepareStatement("SELECT isbn FROM books ORDER BY isbn")) {
+            pstmt.setFetchSize(LOAD_CHUNK_SIZE);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                for (int row = 0; rs.next(); row++) {
+                    if (row % LOAD_CHUNK_SIZE == 0) {
+                        boundaries.add(rs.getString(1));
+                    }
+                }
+            }
+        }
+        return boundaries;
+    }
+
+    // Rows with from <= isbn < to; the first chunk has no lower bound and the last no upper one
+    private void loadChunk(String from, String to, Map<String, BookRow> into) throws SQLException {
+        List<String> bounds = new ArrayList<>(2);
+        StringBuilder sql = new StringBuilder("SELECT " + BookRow.COLUMNS + " FROM books WHERE 1 = 1");
+        if (from != null) {
+            sql.append(" AND isbn >= ?");
+            bounds.add(from);
+        }
+        if (to != null) {
+            sql.append(" AND isbn < ?");
+            bounds.add(to);
+        }
+        try (Connection conn = connectionSource.open(); PreparedStatement pstmt = conn.prepareStatement(sql.toString())) {
+            for (int i = 0; i < bounds.size(); i++) {
+                pstmt.setString(i + 1, bounds.get(i));
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    BookRow row = BookRow.fromResultSet(rs, false);
+                    into.put(row.isbn(), row);
+                }
+            }
+        }
+    }
+
+    private void loadAvailability(Map<String, Integer> into) throws SQLException {
+        String sql = "SELECT isbn, COUNT(*) FROM loans WHERE returned = 0 GROUP BY isbn";
+        try (Connection conn = connectionSource.open(); PreparedStatement pstmt = conn.prepareStatement(sql);
+                ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                into.put(rs.getString(1), rs.getInt(2));
+            }
+        }
+    }
+
+    public synchronized void startPolling(long intervalMillis) {
+        if (poller != null) {
+            return;
+        }
+        poller = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "catalog-snapshot-poller");
+            thread.setDaemon(true);
+            return thread;
+        });
+        poller.scheduleWithFixedDelay(() -> {
+            try {
+                if (pollChanges() && changeListener != null) {
+                    changeListener.run();
+                }
+            } catch (SQLException e) {
+                System.err.println("Catalog delta poll failed: " + e.getMessage());
+                closePollConnection();
+            }
+        }, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void stop() {
+        if (poller != null) {
+            poller.shutdownNow();
+            poller = null;
+        }
+        closePollConnection();
+        ready = false;
+    }
+
+    // Applies rows and availability changed since the last poll; returns true if anything changed
+    public synchronized boolean pollChanges() throws SQLException {
+        if (!ready) {
+            return false;
+        }
+        if (pollConnection == null || pollConnection.isClosed()) {
+            pollConnection = connectionSource.open();
+        }
+
+        Timestamp pollStart = databaseTime(pollConnection);
+        Timestamp since = new Timestamp(watermark.getTime() - POLL_OVERLAP_MILLIS);
+        boolean changed = false;
+
+        // Deletes first, so a book deleted and added again is put back by the delta below
+        if (catalogReloadedSince(pollConnection, since)
+                || System.currentTimeMillis() - lastReconcile >= RECONCILE_INTERVAL_MILLIS) {
+            changed |= reconcileIsbns(pollConnection);
+        } else {
+            changed |= removeDeleted(pollConnection, deletedSince(pollConnection, since));
+        }
+
+        String booksSql = "SELECT " + BookRow.COLUMNS + " FROM books WHERE updated_at >= ?";
+        try (PreparedStatement pstmt = pollConnection.prepareStatement(booksSql)) {
+            pstmt.setTimestamp(1, since);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    changed |= putIfChanged(BookRow.fromResultSet(rs, false));
+                }
+            }
+        }
+
+        Set<String> touchedIsbns = new HashSet<>();
+        String loansSql = "SELECT DISTINCT isbn FROM loans WHERE updated_at >= ?";
+        try (PreparedStatement pstmt = pollConnection.prepareStatement(loansSql)) {
+            pstmt.setTimestamp(1, since);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    touchedIsbns.add(rs.getString(1));
+                }
+            }
+        }
+        changed |= refreshAvailability(pollConnection, touchedIsbns);
+
+        watermark = pollStart;
+        return changed;
+    }
+
+    private static boolean catalogReloadedSince(Connection conn, Timestamp since) throws SQLException {
+        String sql = "SELECT 1 FROM change_log WHERE entity = ? AND created_at >= ? LIMIT 1";
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, ChangeLog.CATALOG);
+            pstmt.setTimestamp(2, since);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next();
+            }
+        }
+    }
+
+    private static Set<String> deletedSince(Connection conn, Timestamp since) throws SQLException {
+        String sql = "SELECT DISTINCT entity_key FROM change_log WHERE entity = ? AND action = ? AND created_at >= ?";
+        Set<String> isbns = new HashSet<>();
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, ChangeLog.BOOK);
+            pstmt.setString(2, ChangeLog.DELETE);
+            pstmt.setTimestamp(3, since);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    isbns.add(rs.getString(1));
+                }
+            }
+        }
+        return isbns;
+    }
+
+    // Drops the given books unless they are still (or again) in the database
+    private boolean removeDeleted(Connection conn, Set<String> isbns) throws SQLException {
+        boolean changed = false;
+        List<String> pending = new ArrayList<>(isbns);
+        pending.removeIf(isbn -> !books.containsKey(isbn));
+        for (int from = 0; from < pending.size(); from += MAX_IN_LIST) {
+            List<String> chunk = pending.subList(from, Math.min(from + MAX_IN_LIST, pending.size()));
+            String placeholders = String.join(",", Collections.nCopies(chunk.size(), "?"));
+            Set<String> present = new HashSet<>();
+            try (PreparedStatement pstmt = conn.prepareStatement("SELECT isbn FROM books WHERE isbn IN (" + placeholders + ")")) {
+                for (int i = 0; i < chunk.size(); i++) {
+                    pstmt.setString(i + 1, chunk.get(i));
+                }
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        present.add(rs.getString(1));
+                    }
+                }
+            }
+            for (String isbn : chunk) {
+                if (!present.contains(isbn)) {
+                    remove(isbn);
+                    changed = true;
+                }
+            }
+        }
+        return changed;
+    }
+
+    // Drops every book no longer in the database
+    private boolean reconcileIsbns(Connection conn) throws SQLException {
+        Set<String> present = new HashSet<>(books.size() * 2);
+        try (PreparedStatement pstmt = conn.prepareStatement("SELECT isbn FROM books");
+                ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                present.add(rs.getString(1));
+            }
+        }
+        lastReconcile = System.currentTimeMillis();
+
+        int removed = 0;
+        for (String isbn : books.keySet()) {
+            if (!present.contains(isbn)) {
+                remove(isbn);
+                removed++;
+            }
+        }
+        Metrics.add("catalog.reconciledDeletes", removed);
+        return removed > 0;
+    }
+
+    private boolean refreshAvailability(Connection conn, Set<String> isbns) throws SQLException {
+        boolean changed = false;
+        List<String> pending = new ArrayList<>(isbns);
+        for (int from = 0; from < pending.size(); from += MAX_IN_LIST) {
+            List<String> chunk = pending.subList(from, Math.min(from + MAX_IN_LIST, pending.size()));
+            String placeholders = String.join(",", Collections.nCopies(chunk.size(), "?"));
+            String sql = "SELECT isbn, COUNT(*) FROM loans WHERE returned = 0 AND isbn IN (" + placeholders
+                    + ") GROUP BY isbn";
+
+            Map<String, Integer> counts = new HashMap<>();
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                for (int i = 0; i < chunk.size(); i++) {
+                    pstmt.setString(i + 1, chunk.get(i));
+                }
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        counts.put(rs.getString(1), rs.getInt(2));
+                    }
+                }
+            }
+            for (String isbn : chunk) {
+                changed |= setOnLoan(isbn, counts.getOrDefault(isbn, 0));
+            }
+        }
+        return changed;
+    }
+
+    private boolean putIfChanged(BookRow row) {
+        BookRow previous = books.put(row.isbn(), row);
+        boolean changed = previous == null || !sameText(previous, row);
+        if (changed) {
+            invalidateOrder();
+        }
+        return changed;
+    }
+
+    private boolean setOnLoan(String isbn, int count) {
+        Integer previous = count == 0 ? onLoan.remove(isbn) : onLoan.put(isbn, count);
+        return previous == null ? count != 0 : previous != count;
+    }
+
+    private static boolean sameText(BookRow a, BookRow b) {
+        return a.title().equals(b.title()) && a.author().equals(b.author()) && a.genreCode() == b.genreCode()
+                && a.shelfCode() == b.shelfCode() && a.statusCode() == b.statusCode() && a.quantity() == b.quantity();
+    }
+
+    private static Timestamp databaseTime(Connection conn) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement("SELECT CURRENT_TIMESTAMP(3)");
+                ResultSet rs = pstmt.executeQuery()) {
+            rs.next();
+            return rs.getTimestamp(1);
+        }
+    }
+
+    private void closePollConnection() {
+        if (pollConnection != null) {
+            try {
+                pollConnection.close();
+            } catch (SQLException ignored) {
+                // Nothing useful to do, a new connection is opened on the next poll
+            }
+            pollConnection = null;
+        }
+    }
+
+    // Local change log: this terminal's own mutations are applied immediately
+    // instead of waiting for the next poll.
+    public void put(BookRow row) {
+        putIfChanged(row.coverImage() == null ? row : row.withCoverImage(null));
+    }
+
+    public void remove(String isbn) {
+        if (books.remove(isbn) != null) {
+            invalidateOrder();
+        }
+        onLoan.remove(isbn);
+    }
+
+    public void adjustOnLoan(String isbn, int delta) {
+        onLoan.merge(isbn, delta, (current, change) -> current + change > 0 ? current + change : null);
+    }
+
+    // Applies a change published on the event bus
+    public void apply(LibraryEvent event) {
+        switch (event) {
+            case LibraryEvent.BookAdded added -> put(added.book());
+            case LibraryEvent.BookUpdated updated -> put(updated.book());
+            case LibraryEvent.BookDeleted deleted -> remove(deleted.book().isbn());
+            case LibraryEvent.LoanCreated created -> adjustOnLoan(created.loan().isbn(), 1);
+            case LibraryEvent.LoanReturned returned -> adjustOnLoan(returned.loan().isbn(), -1);
+            case LibraryEvent.CatalogReloaded reloaded -> {
+                // Bulk jobs touch updated_at, the next delta poll picks the rows up
+            }
+        }
+    }
+
+    public BookRow get(String isbn) {
+        return books.get(isbn);
+    }
+
+    public int getAvailableCount(String isbn) {
+        BookRow row = books.get(isbn);
+        return row == null ? 0 : row.quantity() - onLoan.getOrDefault(isbn, 0);
+    }
+
+    // The pageSize rows after the given ISBN in ISBN order (from the start for null)
+    public List<BookRow> pageAfter(String afterIsbn, int pageSize) {
+        Map<String, BookRow> tail = afterIsbn == null ? books : books.tailMap(afterIsbn, false);
+        List<BookRow> rows = new ArrayList<>(pageSize);
+        for (BookRow row : tail.values()) {
+            if (rows.size() == pageSize) {
+                break;
+            }
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    public List<BookRow> page(int pageIndex, int pageSize) {
+        BookRow[] rows = orderedRows();
+        int from = Math.min(pageIndex * pageSize, rows.length);
+        int to = Math.min(from + pageSize, rows.length);
+        return Arrays.asList(Arrays.copyOfRange(rows, from, to));
+    }
+
+    // Same semantics as the LIKE '%query%' search, matched in memory
+    public List<BookRow> search(String query, String searchType, int limit) {
+        String needle = query.toLowerCase(Locale.ROOT);
+        List<BookRow> results = new ArrayList<>();
+
+        ValueDictionary dictionary = dictionaryFor(searchType);
+        if (dictionary != null) {
+            // Resolve the matching dictionary values once, then compare codes per row
+            String[] values = dictionary.values();
+            boolean[] matches = new boolean[values.length];
+            for (int code = 0; code < values.length; code++) {
+                matches[code] = values[code].toLowerCase(Locale.ROOT).contains(needle);
+            }
+            for (BookRow row : orderedRows()) {
+                int code = codeFor(row, dictionary);
+                if (code >= 0 && code < matches.length && matches[code]) {
+                    results.add(row);
+                    if (results.size() == limit) {
+                        break;
+                    }
+                }
+            }
+            return results;
+        }
+
+        for (BookRow row : orderedRows()) {
+            String value;
+            switch (searchType) {
+                case "Author":
+                    value = row.author();
+                    break;
+                case "ISBN":
+                    value = row.isbn();
+                    break;
+                default:
+                    value = row.title();
+                    break;
+            }
+            if (value != null && value.toLowerCase(Locale.ROOT).contains(needle)) {
+                results.add(row);
+                if (results.size() == limit) {
+                    break;
+                }
+            }
+        }
+        return results;
+    }
+
+    private static ValueDictionary dictionaryFor(String searchType) {
+        switch (searchType) {
+            case "Genre":
+                return ValueDictionary.GENRE;
+            case "Shelf":
+                return ValueDictionary.SHELF;
+            case "Status":
+                return ValueDictionary.STATUS;
+            default:
+                return null;
+        }
+    }
+
+    private static int codeFor(BookRow row, ValueDictionary dictionary) {
+        if (dictionary == ValueDictionary.GENRE) {
+            return row.genreCode();
+        }
+        return dictionary == ValueDictionary.SHELF ? row.shelfCode() : row.statusCode();
+    }
+
+    private BookRow[] orderedRows() {
+        BookRow[] rows = ordered;
+        if (rows == null) {
+            long version;
+            synchronized (orderLock) {
+                version = orderVersion;
+            }
+            rows = books.values().toArray(new BookRow[0]);
+            synchronized (orderLock) {
+                // Only cache the copy if nothing changed while it was being built
+                if (version == orderVersion) {
+                    ordered = rows;
+                }
+            }
+        }
+        return rows;
+    }
+
+    private void invalidateOrder() {
+        synchronized (orderLock) {
+            orderVersion++;
+            ordered = null;
+        }
+    }
+}
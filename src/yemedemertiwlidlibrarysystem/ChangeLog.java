@@ -0,0 +1,77 @@
+package yemedemertiwlidlibrarysystem;
+
+import java.lang.management.ManagementFactory;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.UUID;
+
+// Append-only record of every mutation, shared by all terminals on the same
+// database. Each write appends one row in the same transaction as the change;
+// ChangeLogTailer reads the rows by increasing id and turns them back into
+// LibraryEvents on the other terminals.
+public final class ChangeLog {
+
+    public static final String CREATE_TABLE = "CREATE TABLE IF NOT EXISTS change_log ("
+            + "id BIGINT AUTO_INCREMENT PRIMARY KEY,"
+            + "origin VARCHAR(64) NOT NULL,"
+            + "entity VARCHAR(10) NOT NULL,"
+            + "action VARCHAR(10) NOT NULL,"
+            + "entity_key VARCHAR(20) NOT NULL,"
+            + "quantity_delta INT NOT NULL DEFAULT 0,"
+            + "created_at TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3),"
+            + "INDEX idx_change_log_created_at (created_at))";
+
+    public static final String BOOK = "BOOK";
+    public static final String LOAN = "LOAN";
+    // Bulk jobs log a single entry instead of one per row
+    public static final String CATALOG = "CATALOG";
+
+    public static final String INSERT = "INSERT";
+    public static final String UPDATE = "UPDATE";
+    public static final String DELETE = "DELETE";
+    public static final String RELOAD = "RELOAD";
+
+    // Entries are only needed until every running terminal has read them
+    public static final long RETENTION_MILLIS = 24L * 60 * 60 * 1000;
+
+    private ChangeLog() {
+    }
+
+    // Identifies one running client, so a tailer can skip the entries it wrote itself
+    public static String newOrigin() {
+        return ManagementFactory.getRuntimeMXBean().getName() + "/" + UUID.randomUUID().toString().substring(0, 8);
+    }
+
+    // quantityDelta is the change in total copies, so counters can follow without a query
+    public static void append(Connection connection, String origin, String entity, String action,
+            String key, int quantityDelta) throws SQLException {
+        String sql = "INSERT INTO change_log (origin, entity, action, entity_key, quantity_delta) VALUES (?, ?, ?, ?, ?)";
+        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+            pstmt.setString(1, origin);
+            pstmt.setString(2, entity);
+            pstmt.setString(3, action);
+            pstmt.setString(4, key);
+            pstmt.setInt(5, quantityDelta);
+            pstmt.executeUpdate();
+        }
+    }
+
+    public static long latestId(Connection connection) throws SQLException {
+        try (Statement stmt = connection.createStatement();
+                ResultSet rs = stmt.executeQuery("SELECT MAX(id) FROM change_log")) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+
+    public static int prune(Connection connection) throws SQLException {
+        String sql = "DELETE FROM change_log WHERE created_at < ?";
+        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+            pstmt.setTimestamp(1, new Timestamp(System.currentTimeMillis() - RETENTION_MILLIS));
+            return pstmt.executeUpdate();
+        }
+    }
+}
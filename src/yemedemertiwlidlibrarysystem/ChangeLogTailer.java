@@ -0,0 +1,317 @@
+package yemedemertiwlidlibrarysystem;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+// Follows the change_log table written by the other terminals. Each poll reads
+// entries after the last seen id in batches, fetches the current rows they refer
+// to with one IN query per table and hands them on as LibraryEvents, so local
+// caches and views stay current without re-reading whole tables.
+//
+// Ids are handed out before commit, so a lower id can commit after a higher one,
+// and a rolled-back transaction leaves a hole for good. Polling never waits at a
+// hole: the ids skipped over are remembered and looked up again on every poll for
+// GAP_RECHECK_MILLIS, and an entry that turns up late is published then. Events
+// carry the rows as they are when read and counts move by deltas, so a late entry
+// applied after newer ones still leaves caches at the right totals.
+public class ChangeLogTailer {
+
+    public static final int BATCH_SIZE = 500;
+    // How long a skipped id is looked for before it is taken to be a rolled-back insert
+    static final long GAP_RECHECK_MILLIS = 60_000;
+    // Skipped ids remembered at most, for when the sequence jumps (e.g. after a server restart)
+    private static final int MAX_MISSING = 10_000;
+    private static final int MAX_IN_LIST = 500;
+    private static final String ENTRY_COLUMNS = "id, origin, entity, action, entity_key, quantity_delta";
+
+    private record Entry(long id, boolean own, String entity, String action, String key, int quantityDelta) {
+    }
+
+    private final CatalogSnapshot.ConnectionSource connectionSource;
+    private final String origin;
+    private final Consumer<LibraryEvent> sink;
+
+    // Highest id read so far
+    private long position = 0;
+    // Ids below position not seen yet, with the time they were skipped, oldest first
+    private final Map<Long, Long> missing = new LinkedHashMap<>();
+    private ScheduledExecutorService poller;
+    private Connection pollConnection;
+
+    public ChangeLogTailer(CatalogSnapshot.ConnectionSource connectionSource, String origin,
+            Consumer<LibraryEvent> sink) {
+        this.connectionSource = connectionSource;
+        this.origin = origin;
+        this.sink = sink;
+    }
+
+    public synchronized long getPosition() {
+        return position;
+    }
+
+    // Skips everything logged so far; call before loading the state the tailer keeps up to date
+    public synchronized void seekToEnd() throws SQLException {
+        position = ChangeLog.latestId(connection());
+        missing.clear();
+    }
+
+    public synchronized void start(long intervalMillis) {
+        if (poller != null) {
+            return;
+        }
+        poller = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "change-log-tailer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        poller.scheduleWithFixedDelay(() -> {
+            try {
+                poll();
+            } catch (SQLException e) {
+                System.err.println("Change log poll failed: " + e.getMessage());
+                closePollConnection();
+            } catch (RuntimeException e) {
+                System.err.println("Change log poll failed: " + e);
+            }
+        }, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void stop() {
+        if (poller != null) {
+            poller.shutdownNow();
+            poller = null;
+        }
+        closePollConnection();
+    }
+
+    // Reads and publishes every entry available now, including late ones for earlier
+    // holes; returns the number of entries consumed
+    public synchronized int poll() throws SQLException {
+        Connection conn = connection();
+        int consumed = recheckMissing(conn);
+
+        while (true) {
+            List<Entry> batch = readBatch(conn);
+            if (!batch.isEmpty()) {
+                long now = System.currentTimeMillis();
+                long expected = position + 1;
+                for (Entry entry : batch) {
+                    for (long id = expected; id < entry.id() && missing.size() < MAX_MISSING; id++) {
+                        missing.put(id, now);
+                    }
+                    expected = entry.id() + 1;
+                }
+                publish(conn, batch);
+                position = batch.get(batch.size() - 1).id();
+                consumed += batch.size();
+            }
+            if (batch.size() < BATCH_SIZE) {
+                return consumed;
+            }
+        }
+    }
+
+    // Ids skipped over and not seen yet
+    public synchronized int getMissingCount() {
+        return missing.size();
+    }
+
+    private int recheckMissing(Connection conn) throws SQLException {
+        long expireBefore = System.currentTimeMillis() - GAP_RECHECK_MILLIS;
+        Iterator<Map.Entry<Long, Long>> iterator = missing.entrySet().iterator();
+        while (iterator.hasNext() && iterator.next().getValue() < expireBefore) {
+            iterator.remove();
+            Metrics.increment("changelog.gapsExpired");
+        }
+        if (missing.isEmpty()) {
+            return 0;
+        }
+
+        List<Entry> late = new ArrayList<>();
+        List<Long> ids = new ArrayList<>(missing.keySet());
+        for (int from = 0; from < ids.size(); from += MAX_IN_LIST) {
+            List<Long> chunk = ids.subList(from, Math.min(from + MAX_IN_LIST, ids.size()));
+            String sql = "SELECT " + ENTRY_COLUMNS + " FROM change_log WHERE id IN ("
+                    + String.join(",", Collections.nCopies(chunk.size(), "?")) + ") ORDER BY id";
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                for (int i = 0; i < chunk.size(); i++) {
+                    pstmt.setLong(i + 1, chunk.get(i));
+                }
+                late.addAll(readEntries(pstmt));
+            }
+        }
+        if (late.isEmpty()) {
+            return 0;
+        }
+        for (Entry entry : late) {
+            missing.remove(entry.id());
+        }
+        Metrics.add("changelog.lateEntries", late.size());
+        publish(conn, late);
+        return late.size();
+    }
+
+    private List<Entry> readBatch(Connection conn) throws SQLException {
+        String sql = "SELECT " + ENTRY_COLUMNS + " FROM change_log WHERE id > ? ORDER BY id LIMIT ?";
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setLong(1, position);
+            pstmt.setInt(2, BATCH_SIZE);
+            return readEntries(pstmt);
+        }
+    }
+
+    private List<Entry> readEntries(PreparedStatement pstmt) throws SQLException {
+        List<Entry> entries = new ArrayList<>();
+        try (ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                entries.add(new Entry(rs.getLong("id"), origin.equals(rs.getString("origin")), rs.getString("entity"),
+                        rs.getString("action"), rs.getString("entity_key"), rs.getInt("quantity_delta")));
+            }
+        }
+        return entries;
+    }
+
+    private void publish(Connection conn, List<Entry> entries) throws SQLException {
+        Set<String> isbns = new HashSet<>();
+        Set<String> loanIds = new HashSet<>();
+        for (Entry entry : entries) {
+            if (entry.own()) {
+                continue;
+            }
+            if (ChangeLog.BOOK.equals(entry.entity()) && !ChangeLog.DELETE.equals(entry.action())) {
+                isbns.add(entry.key());
+            } else if (ChangeLog.LOAN.equals(entry.entity())) {
+                loanIds.add(entry.key());
+            }
+        }
+        Map<String, BookRow> books = fetchBooks(conn, isbns);
+        Map<String, LoanRow> loans = fetchLoans(conn, loanIds);
+
+        // Quantity announced for books whose row was already gone, so a later delete does not subtract it
+        Map<String, Integer> unannounced = new HashMap<>();
+
+        for (Entry entry : entries) {
+            if (entry.own()) {
+                continue; // written by this client, which already published it locally
+            }
+            switch (entry.entity()) {
+                case ChangeLog.BOOK -> {
+                    if (ChangeLog.DELETE.equals(entry.action())) {
+                        int quantity = -entry.quantityDelta() - unannounced.getOrDefault(entry.key(), 0);
+                        sink.accept(new LibraryEvent.BookDeleted(new BookRow(entry.key(), null, null,
+                                ValueDictionary.NONE, ValueDictionary.NONE, ValueDictionary.NONE, quantity, null)));
+                        continue;
+                    }
+                    BookRow book = books.get(entry.key());
+                    if (book == null) {
+                        unannounced.merge(entry.key(), entry.quantityDelta(), Integer::sum);
+                    } else if (ChangeLog.INSERT.equals(entry.action())) {
+                        sink.accept(new LibraryEvent.BookAdded(book));
+                    } else {
+                        BookRow previous = new BookRow(book.isbn(), book.title(), book.author(), book.genreCode(),
+                                book.shelfCode(), book.statusCode(), book.quantity() - entry.quantityDelta(), null);
+                        sink.accept(new LibraryEvent.BookUpdated(previous, book));
+                    }
+                }
+                case ChangeLog.LOAN -> {
+                    LoanRow loan = loans.get(entry.key());
+                    if (loan == null) {
+                        continue;
+                    }
+                    if (ChangeLog.INSERT.equals(entry.action())) {
+                        sink.accept(new LibraryEvent.LoanCreated(new LoanRow(loan.id(), loan.isbn(), loan.borrowerId(),
+                                loan.borrowerName(), loan.loanDate(), loan.returnDate(), false)));
+                    } else {
+                        sink.accept(new LibraryEvent.LoanReturned(loan.asReturned()));
+                    }
+                }
+                case ChangeLog.CATALOG -> sink.accept(new LibraryEvent.CatalogReloaded());
+                default -> System.err.println("Unknown change log entity: " + entry.entity());
+            }
+        }
+    }
+
+    private static Map<String, BookRow> fetchBooks(Connection conn, Set<String> isbns) throws SQLException {
+        Map<String, BookRow> rows = new HashMap<>();
+        for (List<String> chunk : chunks(isbns)) {
+            String sql = "SELECT " + BookRow.COLUMNS + " FROM books WHERE isbn IN (" + placeholders(chunk) + ")";
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                for (int i = 0; i < chunk.size(); i++) {
+                    pstmt.setString(i + 1, chunk.get(i));
+                }
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        BookRow row = BookRow.fromResultSet(rs, false);
+                        rows.put(row.isbn(), row);
+                    }
+                }
+            }
+        }
+        return rows;
+    }
+
+    private static Map<String, LoanRow> fetchLoans(Connection conn, Set<String> ids) throws SQLException {
+        Map<String, LoanRow> rows = new HashMap<>();
+        for (List<String> chunk : chunks(ids)) {
+            String sql = "SELECT * FROM loans WHERE id IN (" + placeholders(chunk) + ")";
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                for (int i = 0; i < chunk.size(); i++) {
+                    pstmt.setInt(i + 1, Integer.parseInt(chunk.get(i)));
+                }
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        LoanRow row = LoanRow.fromResultSet(rs);
+                        rows.put(String.valueOf(row.id()), row);
+                    }
+                }
+            }
+        }
+        return rows;
+    }
+
+    private static List<List<String>> chunks(Set<String> keys) {
+        List<String> all = new ArrayList<>(keys);
+        List<List<String>> chunks = new ArrayList<>();
+        for (int from = 0; from < all.size(); from += MAX_IN_LIST) {
+            chunks.add(all.subList(from, Math.min(from + MAX_IN_LIST, all.size())));
+        }
+        return chunks;
+    }
+
+    private static String placeholders(List<String> chunk) {
+        return String.join(",", Collections.nCopies(chunk.size(), "?"));
+    }
+
+    private Connection connection() throws SQLException {
+        if (pollConnection == null || pollConnection.isClosed()) {
+            pollConnection = connectionSource.open();
+        }
+        return pollConnection;
+    }
+
+    private void closePollConnection() {
+        if (pollConnection != null) {
+            try {
+                pollConnection.close();
+            } catch (SQLException ignored) {
+                // Nothing useful to do, a new connection is opened on the next poll
+            }
+            pollConnection = null;
+        }
+    }
+}
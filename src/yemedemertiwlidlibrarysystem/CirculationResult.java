@@ -0,0 +1,40 @@
+package yemedemertiwlidlibrarysystem;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// What became of one CirculationScan: the loan it created or closed, with the
+// book's title for the desk's feedback line, or the reason it was refused. A
+// refused scan changed nothing.
+public record CirculationResult(CirculationScan scan, LoanRow loan, String title, String error) {
+
+    public static CirculationResult done(CirculationScan scan, LoanRow loan, String title) {
+        return new CirculationResult(scan, loan, title, null);
+    }
+
+    public static CirculationResult refused(CirculationScan scan, String title, String error) {
+        return new CirculationResult(scan, null, title, error);
+    }
+
+    public boolean succeeded() {
+        return error == null;
+    }
+
+    // Field map for the server's JSON API
+    public Map<String, Object> toMap() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("scan", scan.toMap());
+        map.put("loan", loan == null ? null : loan.toMap());
+        map.put("title", title);
+        map.put("error", error);
+        return map;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static CirculationResult fromMap(Map<String, Object> map) {
+        Object loan = map.get("loan");
+        return new CirculationResult(CirculationScan.fromMap((Map<String, Object>) map.get("scan")),
+                loan == null ? null : LoanRow.fromMap((Map<String, Object>) loan),
+                (String) map.get("title"), (String) map.get("error"));
+    }
+}
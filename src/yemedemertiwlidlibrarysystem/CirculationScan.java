@@ -0,0 +1,44 @@
+package yemedemertiwlidlibrarysystem;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// One book scanned at a circulation station: lent to the borrower whose card was
+// scanned before it, or handed back. A return names no loan; it closes the oldest
+// open loan of that ISBN, since copies of a title share one barcode.
+public record CirculationScan(Kind kind, String isbn, String borrowerId,
+        LocalDateTime scannedAt, LocalDateTime dueDate) {
+
+    public enum Kind {
+        CHECKOUT,
+        RETURN
+    }
+
+    public static CirculationScan checkout(String isbn, String borrowerId, LocalDateTime scannedAt,
+            LocalDateTime dueDate) {
+        return new CirculationScan(Kind.CHECKOUT, isbn, borrowerId, scannedAt, dueDate);
+    }
+
+    public static CirculationScan checkin(String isbn, LocalDateTime scannedAt) {
+        return new CirculationScan(Kind.RETURN, isbn, null, scannedAt, null);
+    }
+
+    // Field map for the server's JSON API, dates in ISO-8601
+    public Map<String, Object> toMap() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("kind", kind.name());
+        map.put("isbn", isbn);
+        map.put("borrowerId", borrowerId);
+        map.put("scannedAt", scannedAt.toString());
+        map.put("dueDate", dueDate == null ? null : dueDate.toString());
+        return map;
+    }
+
+    public static CirculationScan fromMap(Map<String, Object> map) {
+        Object dueDate = map.get("dueDate");
+        return new CirculationScan(Kind.valueOf((String) map.get("kind")), (String) map.get("isbn"),
+                (String) map.get("borrowerId"), LocalDateTime.parse((String) map.get("scannedAt")),
+                dueDate == null ? null : LocalDateTime.parse((String) dueDate));
+    }
+}
@@ -0,0 +1,155 @@
+package yemedemertiwlidlibrarysystem;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+import javafx.beans.property.ReadOnlyIntegerProperty;
+import javafx.beans.property.ReadOnlyIntegerWrapper;
+import javafx.concurrent.Task;
+
+// Queue between a circulation desk's barcode scanner and the library service.
+// Scans are accepted as fast as the scanner types them and committed in batches:
+// while one batch is in flight, everything scanned meanwhile collects and goes out
+// together as the next one. An idle desk commits each scan at once; a busy one pays
+// one round trip and one transaction per batch instead of one per book. Results are
+// handed to onResult in scan order.
+//
+// If a whole batch is rejected (INVALID_REQUEST, or CONFLICT when its transaction
+// was rolled back) nothing of it was applied, so its scans are sent again one at a
+// time and a scan the database rejects only refuses itself. Any other failure (a
+// timeout, the server unreachable) may come after the batch committed; checkouts
+// and returns are not idempotent, so those scans are not retried but reported as
+// refused with a note that their outcome is unknown.
+//
+// All methods and callbacks run on the FX application thread.
+public class CirculationStation {
+
+    // EAN-13 / ISBN-13, or ISBN-10 with its X check digit; hyphens and spaces as printed
+    private static final Pattern BOOK_CODE = Pattern.compile("(?:\\d[- ]?){12}\\d|(?:\\d[- ]?){9}[\\dXx]");
+    private static final long RATE_WINDOW_NANOS = 60_000_000_000L;
+
+    private final LibraryService service;
+    private final Executor executor;
+    private final int maxBatch;
+    private final Consumer<CirculationResult> onResult;
+
+    private final Deque<CirculationScan> pending = new ArrayDeque<>();
+    // Scans at the head of pending to send one at a time after their batch failed
+    private int isolated = 0;
+    private Task<List<CirculationResult>> inFlight;
+    private final ReadOnlyIntegerWrapper queued = new ReadOnlyIntegerWrapper(0);
+    // Completion times of the results delivered in the last RATE_WINDOW_NANOS
+    private final Deque<Long> completed = new ArrayDeque<>();
+
+    public CirculationStation(LibraryService service, Executor executor, int maxBatch,
+            Consumer<CirculationResult> onResult) {
+        this.service = service;
+        this.executor = executor;
+        this.maxBatch = maxBatch;
+        this.onResult = onResult;
+    }
+
+    // True for a scanned book barcode; anything else is taken to be a borrower card
+    public static boolean isBookCode(String code) {
+        return BOOK_CODE.matcher(code).matches();
+    }
+
+    public void submit(CirculationScan scan) {
+        pending.add(scan);
+        queued.set(queued.get() + 1);
+        flush();
+    }
+
+    // Scans accepted but not answered yet, including the batch in flight
+    public ReadOnlyIntegerProperty queuedProperty() {
+        return queued.getReadOnlyProperty();
+    }
+
+    // Results delivered in the last minute
+    public int getItemsPerMinute() {
+        expireRate(System.nanoTime());
+        return completed.size();
+    }
+
+    private void flush() {
+        if (inFlight != null || pending.isEmpty()) {
+            return;
+        }
+        int size = isolated > 0 ? 1 : Math.min(pending.size(), maxBatch);
+        if (isolated > 0) {
+            isolated--;
+        }
+        List<CirculationScan> batch = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            batch.add(pending.poll());
+        }
+
+        long start = System.nanoTime();
+        Task<List<CirculationResult>> task = new Task<>() {
+            @Override
+            protected List<CirculationResult> call() throws Exception {
+                return service.circulate(batch);
+            }
+        };
+        task.setOnSucceeded(e -> {
+            Metrics.timer("circulation.roundTrip").recordSince(start);
+            inFlight = null;
+            deliver(task.getValue());
+            flush();
+        });
+        task.setOnFailed(e -> {
+            inFlight = null;
+            Throwable error = task.getException();
+            if (!wasRejected(error)) {
+                Metrics.add("circulation.unconfirmed", batch.size());
+                String message = "Not confirmed, check the loan list before scanning again"
+                        + (error == null ? "" : ": " + error.getMessage());
+                List<CirculationResult> results = new ArrayList<>(batch.size());
+                for (CirculationScan scan : batch) {
+                    results.add(CirculationResult.refused(scan, null, message));
+                }
+                deliver(results);
+            } else if (batch.size() > 1) {
+                Metrics.increment("circulation.isolatedBatches");
+                for (int i = batch.size() - 1; i >= 0; i--) {
+                    pending.addFirst(batch.get(i));
+                }
+                isolated += batch.size();
+            } else {
+                deliver(List.of(CirculationResult.refused(batch.get(0), null, error.getMessage())));
+            }
+            flush();
+        });
+        inFlight = task;
+        executor.execute(task);
+    }
+
+    // True if the service refused the whole batch, so none of it was applied
+    private static boolean wasRejected(Throwable error) {
+        if (!(error instanceof LibraryServiceException serviceError)) {
+            return false;
+        }
+        return serviceError.getReason() == LibraryServiceException.Reason.INVALID_REQUEST
+                || serviceError.getReason() == LibraryServiceException.Reason.CONFLICT;
+    }
+
+    private void deliver(List<CirculationResult> results) {
+        long now = System.nanoTime();
+        expireRate(now);
+        queued.set(queued.get() - results.size());
+        for (CirculationResult result : results) {
+            completed.add(now);
+            onResult.accept(result);
+        }
+    }
+
+    private void expireRate(long now) {
+        while (!completed.isEmpty() && now - completed.peekFirst() > RATE_WINDOW_NANOS) {
+            completed.poll();
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package yemedemertiwlidlibrarysystem;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+// Fixed-size JDBC connection pool for the headless server. At most size
+// connections are ever open; callers beyond that wait up to the timeout for one
+// to be released. Idle connections are checked before being handed out again.
+public class ConnectionPool implements LibraryRepository.ConnectionProvider, AutoCloseable {
+
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+
+    private final CatalogSnapshot.ConnectionSource connectionSource;
+    private final int size;
+    private final long timeoutMillis;
+    private final Semaphore permits;
+    private final ConcurrentLinkedQueue<Connection> idle = new ConcurrentLinkedQueue<>();
+    private volatile boolean closed = false;
+
+    public ConnectionPool(CatalogSnapshot.ConnectionSource connectionSource, int size, long timeoutMillis) {
+        this.connectionSource = connectionSource;
+        this.size = size;
+        this.timeoutMillis = timeoutMillis;
+        this.permits = new Semaphore(size, true);
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public int getInUse() {
+        return size - permits.availablePermits();
+    }
+
+    @Override
+    public Connection get() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed");
+        }
+        long start = System.nanoTime();
+        try {
+            boolean acquired = permits.tryAcquire(timeoutMillis, TimeUnit.MILLISECONDS);
+            Metrics.timer("pool.wait").recordSince(start);
+            if (!acquired) {
+                Metrics.increment("pool.timeouts");
+                throw new SQLException("Timed out after " + timeoutMillis + " ms waiting for a database connection");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection", e);
+        }
+
+        try {
+            Connection connection;
+            while ((connection = idle.poll()) != null) {
+                if (connection.isValid(VALIDATION_TIMEOUT_SECONDS)) {
+                    return connection;
+                }
+                closeQuietly(connection);
+            }
+            return connectionSource.open();
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    @Override
+    public void release(Connection connection) {
+        try {
+            if (closed || connection.isClosed()) {
+                closeQuietly(connection);
+            } else {
+                idle.offer(connection);
+            }
+        } catch (SQLException e) {
+            closeQuietly(connection);
+        } finally {
+            permits.release();
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        Connection connection;
+        while ((connection = idle.poll()) != null) {
+            closeQuietly(connection);
+        }
+    }
+
+    private static void closeQuietly(Connection connection) {
+        try {
+            connection.close();
+        } catch (SQLException ignored) {
+            // The connection is being discarded anyway
+        }
+    }
+}
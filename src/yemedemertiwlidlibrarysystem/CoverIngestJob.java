@@ -0,0 +1,376 @@
+package yemedemertiwlidlibrarysystem;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.imageio.ImageIO;
+
+// Batch cover ingest from a directory of <isbn>.jpg / <isbn>.png files.
+// Files are read, decoded and thumbnailed on a worker pool sized to the machine,
+// identical files are decoded only once (SHA-256 of the content, remembered for
+// the most recent DEDUPE_ENTRIES distinct images), and a single
+// writer stores the thumbnails in batched transactions. Raw bytes in flight are
+// capped by MAX_IN_FLIGHT_BYTES, and finished thumbnails wait in a bounded queue,
+// so memory stays bounded however large the directory is.
+public class CoverIngestJob {
+
+    public interface ProgressListener {
+
+        void onProgress(int processed, int total);
+    }
+
+    public static class IngestReport {
+
+        private int filesFound;
+        private int stored;
+        private int duplicates;
+        private int unknownIsbn;
+        private long bytesRead;
+        private double seconds;
+        private final List<String> failures = Collections.synchronizedList(new ArrayList<>());
+
+        public int getFilesFound() {
+            return filesFound;
+        }
+
+        public int getStored() {
+            return stored;
+        }
+
+        public int getDuplicates() {
+            return duplicates;
+        }
+
+        public int getUnknownIsbn() {
+            return unknownIsbn;
+        }
+
+        public List<String> getFailures() {
+            return failures;
+        }
+
+        public double getImagesPerSecond() {
+            return filesFound / Math.max(seconds, 0.001);
+        }
+
+        public String summary() {
+            StringBuilder sb = new StringBuilder(String.format(
+                    "Stored %,d of %,d covers in %.1f s (%,.0f images/s, %.1f MB/s)%n"
+                    + "%,d duplicate files reused, %,d without a matching book, %,d failed",
+                    stored, filesFound, seconds, getImagesPerSecond(),
+                    bytesRead / (1024.0 * 1024.0) / Math.max(seconds, 0.001),
+                    duplicates, unknownIsbn, failures.size()));
+            synchronized (failures) {
+                for (int i = 0; i < Math.min(failures.size(), 20); i++) {
+                    sb.append('\n').append(failures.get(i));
+                }
+            }
+            return sb.toString();
+        }
+    }
+
+    static final int THUMBNAIL_WIDTH = 300;
+    static final int THUMBNAIL_HEIGHT = 400;
+    private static final long MAX_IN_FLIGHT_BYTES = 64L * 1024 * 1024;
+    private static final int WRITE_BATCH_SIZE = 100;
+    private static final int QUEUE_CAPACITY = 256;
+    private static final int DEDUPE_ENTRIES = 1024;
+
+    private static final String UPDATE_SQL = "UPDATE books SET cover_image = ? WHERE isbn = ?";
+
+    // Marks the end of the stream of decoded covers for the writer
+    private static final Cover END = new Cover(null, null, null);
+
+    private static class Cover {
+
+        final String isbn;
+        final String file;
+        final byte[] thumbnail;
+
+        Cover(String isbn, String file, byte[] thumbnail) {
+            this.isbn = isbn;
+            this.file = file;
+            this.thumbnail = thumbnail;
+        }
+    }
+
+    private final Connection connection;
+    private final int workers;
+    private volatile boolean cancelled = false;
+
+    public CoverIngestJob(Connection connection) {
+        this(connection, Runtime.getRuntime().availableProcessors());
+    }
+
+    public CoverIngestJob(Connection connection, int workers) {
+        this.connection = connection;
+        this.workers = Math.max(1, workers);
+    }
+
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public IngestReport ingest(Path directory, ProgressListener listener)
+            throws IOException, SQLException, InterruptedException {
+        IngestReport report = new IngestReport();
+        long start = System.nanoTime();
+
+        List<Path> files = listCoverFiles(directory);
+        report.filesFound = files.size();
+
+        // Permits are bytes; a single file larger than the budget takes all of them
+        int permitUnit = 1024;
+        Semaphore inFlight = new Semaphore((int) (MAX_IN_FLIGHT_BYTES / permitUnit));
+        BlockingQueue<Cover> decoded = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        // Recently seen content hashes; bounded so the thumbnails it holds do not grow with the directory
+        Map<String, CompletableFuture<byte[]>> byHash = Collections.synchronizedMap(
+                new LinkedHashMap<String, CompletableFuture<byte[]>>(DEDUPE_ENTRIES, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CompletableFuture<byte[]>> eldest) {
+                return size() > DEDUPE_ENTRIES;
+            }
+        });
+        AtomicInteger duplicates = new AtomicInteger();
+        AtomicInteger processed = new AtomicInteger();
+        AtomicLong bytesRead = new AtomicLong();
+
+        ExecutorService pool = Executors.newFixedThreadPool(workers, runnable -> {
+            Thread thread = new Thread(runnable, "cover-ingest-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        FutureTask<int[]> writer = new FutureTask<>(
+                () -> writeCovers(decoded, report, processed, files.size(), listener));
+        Thread writerThread = new Thread(writer, "cover-ingest-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+
+        try {
+            for (Path file : files) {
+                if (cancelled || writer.isDone()) {
+                    break;
+                }
+                long size = Files.size(file);
+                int permits = (int) Math.min(Math.max(size / permitUnit, 1), MAX_IN_FLIGHT_BYTES / permitUnit);
+                inFlight.acquire(permits);
+
+                pool.execute(() -> {
+                    String name = file.getFileName().toString();
+                    try {
+                        if (cancelled) {
+                            return;
+                        }
+                        byte[] raw = Files.readAllBytes(file);
+                        bytesRead.addAndGet(raw.length);
+
+                        CompletableFuture<byte[]> mine = new CompletableFuture<>();
+                        CompletableFuture<byte[]> existing = byHash.putIfAbsent(sha256(raw), mine);
+                        byte[] thumbnail;
+                        if (existing == null) {
+                            try {
+                                mine.complete(thumbnail(raw));
+                            } catch (IOException | RuntimeException e) {
+                                mine.completeExceptionally(e);
+                            }
+                            thumbnail = mine.join();
+                        } else {
+                            duplicates.incrementAndGet();
+                            thumbnail = existing.join();
+                        }
+                        enqueue(decoded, new Cover(isbnOf(name), name, thumbnail), writer);
+                    } catch (Exception e) {
+                        Throwable cause = e.getCause() != null ? e.getCause() : e;
+                        report.failures.add(name + ": " + cause.getMessage());
+                        processed.incrementAndGet();
+                    } finally {
+                        inFlight.release(permits);
+                    }
+                });
+            }
+        } finally {
+            pool.shutdown();
+            try {
+                pool.awaitTermination(1, TimeUnit.HOURS);
+                enqueue(decoded, END, writer);
+            } catch (InterruptedException e) {
+                // END will not be sent, so stop the writer directly rather than leave it
+                // waiting on take() for good with the connection
+                pool.shutdownNow();
+                writerThread.interrupt();
+                Thread.currentThread().interrupt();
+                throw e;
+            }
+        }
+
+        int[] counts;
+        try {
+            counts = writer.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof SQLException) {
+                throw (SQLException) e.getCause();
+            }
+            throw new IOException("Cover ingest failed: " + e.getCause().getMessage(), e.getCause());
+        }
+
+        if (cancelled) {
+            throw new CancellationException("Cover ingest cancelled after " + counts[0] + " covers");
+        }
+
+        report.stored = counts[0];
+        report.unknownIsbn = counts[1];
+        report.duplicates = duplicates.get();
+        report.bytesRead = bytesRead.get();
+        report.seconds = (System.nanoTime() - start) / 1e9;
+        return report;
+    }
+
+    // Hands a cover to the writer, giving up if the writer has already stopped
+    private static void enqueue(BlockingQueue<Cover> queue, Cover cover, Future<?> writer)
+            throws InterruptedException {
+        while (!queue.offer(cover, 100, TimeUnit.MILLISECONDS)) {
+            if (writer.isDone()) {
+                return;
+            }
+        }
+    }
+
+    // Returns {stored, unknownIsbn}
+    private int[] writeCovers(BlockingQueue<Cover> decoded, IngestReport report, AtomicInteger processed,
+            int total, ProgressListener listener) throws SQLException, InterruptedException {
+        int stored = 0;
+        int unknown = 0;
+        List<Cover> batch = new ArrayList<>(WRITE_BATCH_SIZE);
+
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        try (PreparedStatement pstmt = connection.prepareStatement(UPDATE_SQL)) {
+            while (true) {
+                Cover cover = decoded.take();
+                if (cover != END) {
+                    batch.add(cover);
+                }
+                if (batch.size() == WRITE_BATCH_SIZE || (cover == END && !batch.isEmpty())) {
+                    for (Cover c : batch) {
+                        pstmt.setBytes(1, c.thumbnail);
+                        pstmt.setString(2, c.isbn);
+                        pstmt.addBatch();
+                    }
+                    int[] results = pstmt.executeBatch();
+                    connection.commit();
+
+                    for (int i = 0; i < results.length; i++) {
+                        if (results[i] == 0) {
+                            unknown++;
+                            report.failures.add(batch.get(i).file + ": no book with ISBN " + batch.get(i).isbn);
+                        } else {
+                            stored++;
+                        }
+                    }
+                    batch.clear();
+
+                    if (listener != null) {
+                        listener.onProgress(processed.addAndGet(results.length), total);
+                    }
+                }
+                if (cover == END) {
+                    break;
+                }
+            }
+        } catch (SQLException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+        return new int[]{stored, unknown};
+    }
+
+    private static List<Path> listCoverFiles(Path directory) throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*.{jpg,jpeg,png,JPG,JPEG,PNG}")) {
+            for (Path file : stream) {
+                if (Files.isRegularFile(file)) {
+                    files.add(file);
+                }
+            }
+        }
+        return files;
+    }
+
+    private static String isbnOf(String fileName) {
+        int dot = fileName.lastIndexOf('.');
+        return (dot > 0 ? fileName.substring(0, dot) : fileName).trim();
+    }
+
+    private static String sha256(byte[] data) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(data));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    // Scales the image down to fit the thumbnail box and re-encodes it as JPEG
+    static byte[] thumbnail(byte[] raw) throws IOException {
+        BufferedImage source = ImageIO.read(new ByteArrayInputStream(raw));
+        if (source == null) {
+            throw new IOException("unsupported or corrupt image");
+        }
+
+        double scale = Math.min(1.0, Math.min((double) THUMBNAIL_WIDTH / source.getWidth(),
+                (double) THUMBNAIL_HEIGHT / source.getHeight()));
+        int width = Math.max(1, (int) Math.round(source.getWidth() * scale));
+        int height = Math.max(1, (int) Math.round(source.getHeight() * scale));
+
+        // JPEG has no alpha channel, so always draw onto an opaque RGB image
+        BufferedImage target = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = target.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g.setColor(java.awt.Color.WHITE);
+            g.fillRect(0, 0, width, height);
+            g.drawImage(source, 0, 0, width, height, null);
+        } finally {
+            g.dispose();
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(32 * 1024);
+        if (!ImageIO.write(target, "jpg", out)) {
+            throw new IOException("no JPEG encoder available");
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,118 @@
+package yemedemertiwlidlibrarysystem;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+// Minimal streaming CSV parser (RFC 4180): quoted fields, doubled quotes and
+// line breaks inside quotes. Reads one record at a time so files of any size can
+// be processed without loading them into memory.
+public class CsvReader implements Closeable {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Reader reader;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private int position = 0;
+    private int limit = 0;
+
+    private final List<String> fields = new ArrayList<>();
+    private final StringBuilder field = new StringBuilder(64);
+    private long lineNumber = 1;
+    private long recordLineNumber = 0;
+    private boolean firstChar = true;
+
+    public CsvReader(Reader reader) {
+        this.reader = reader;
+    }
+
+    // Returns the next record, or null at end of input
+    public String[] readRecord() throws IOException {
+        fields.clear();
+        field.setLength(0);
+        recordLineNumber = lineNumber;
+
+        int c = read();
+        if (c == -1) {
+            return null;
+        }
+
+        boolean inQuotes = false;
+        while (true) {
+            if (inQuotes) {
+                if (c == -1) {
+                    throw new IOException("Unterminated quoted field starting on line " + recordLineNumber);
+                }
+                if (c == '"') {
+                    if (peek() == '"') {
+                        read();
+                        field.append('"');
+                    } else {
+                        inQuotes = false;
+                    }
+                } else {
+                    if (c == '\n') {
+                        lineNumber++;
+                    }
+                    field.append((char) c);
+                }
+            } else if (c == -1 || c == '\n') {
+                fields.add(field.toString());
+                if (c == '\n') {
+                    lineNumber++;
+                }
+                break;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c == '"' && field.length() == 0) {
+                inQuotes = true;
+            } else if (c != '\r') {
+                field.append((char) c);
+            }
+            c = read();
+        }
+
+        return fields.toArray(new String[0]);
+    }
+
+    // Line on which the last returned record started (1-based)
+    public long getRecordLineNumber() {
+        return recordLineNumber;
+    }
+
+    private int read() throws IOException {
+        if (position >= limit && !fill()) {
+            return -1;
+        }
+        char c = buffer[position++];
+        if (firstChar) {
+            firstChar = false;
+            // Skip the UTF-8 byte order mark spreadsheet tools like to write
+            if (c == '\uFEFF') {
+                return read();
+            }
+        }
+        return c;
+    }
+
+    private int peek() throws IOException {
+        if (position >= limit && !fill()) {
+            return -1;
+        }
+        return buffer[position];
+    }
+
+    private boolean fill() throws IOException {
+        limit = reader.read(buffer, 0, buffer.length);
+        position = 0;
+        return limit > 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
@@ -0,0 +1,509 @@
+package yemedemertiwlidlibrarysystem;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.GradientPaint;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CancellationException;
+import javax.imageio.ImageIO;
+
+// Deterministic synthetic data for scale testing: the same seed and sizes always
+// produce the same rows. Books get Zipf-skewed genres and authors, loans cover
+// several years of history with popular titles borrowed far more often than the
+// long tail, and a share of past-due loans is left open as overdue. Rows are
+// written in JDBC batches; open the connection with rewriteBatchedStatements=true
+// on MySQL.
+//
+// Generated rows are recognisable by ISBN_PREFIX and USERNAME_PREFIX so they can
+// be cleared again without touching real data.
+public class DatasetGenerator {
+
+    public interface ProgressListener {
+
+        void onProgress(String table, long rowsWritten, long totalRows);
+    }
+
+    public static class Report {
+
+        private final List<String> tables = new ArrayList<>();
+        private final List<Long> rows = new ArrayList<>();
+        private final List<Double> seconds = new ArrayList<>();
+        private int openLoans;
+        private int overdueLoans;
+
+        private void add(String table, long tableRows, double tableSeconds) {
+            tables.add(table);
+            rows.add(tableRows);
+            seconds.add(tableSeconds);
+        }
+
+        public long getRows(String table) {
+            int index = tables.indexOf(table);
+            return index < 0 ? 0 : rows.get(index);
+        }
+
+        public int getOpenLoans() {
+            return openLoans;
+        }
+
+        public int getOverdueLoans() {
+            return overdueLoans;
+        }
+
+        public String summary() {
+            StringBuilder sb = new StringBuilder();
+            long totalRows = 0;
+            double totalSeconds = 0;
+            for (int i = 0; i < tables.size(); i++) {
+                long tableRows = rows.get(i);
+                double tableSeconds = seconds.get(i);
+                totalRows += tableRows;
+                totalSeconds += tableSeconds;
+                sb.append(String.format("%-6s %,12d rows in %7.1f s (%,.0f rows/s)%n",
+                        tables.get(i), tableRows, tableSeconds, tableRows / Math.max(tableSeconds, 0.001)));
+            }
+            sb.append(String.format("Total  %,12d rows in %7.1f s (%,.0f rows/s)",
+                    totalRows, totalSeconds, totalRows / Math.max(totalSeconds, 0.001)));
+            if (getRows("loans") > 0) {
+                sb.append(String.format("%n%,d loans open, %,d of them overdue", openLoans, overdueLoans));
+            }
+            return sb.toString();
+        }
+    }
+
+    // Not an assigned ISBN prefix, so generated books never collide with real ones
+    public static final String ISBN_PREFIX = "999";
+    public static final String USERNAME_PREFIX = "reader";
+    // Every generated user signs in with this password
+    public static final String USER_PASSWORD = "reader123";
+    public static final int BATCH_SIZE = 1000;
+
+    private static final int PROGRESS_INTERVAL = 50_000;
+    private static final int COVER_VARIANTS = 32;
+    private static final long DAY_MILLIS = 24L * 60 * 60 * 1000;
+    private static final int LOAN_DAYS = 14;
+    // Share of loans still inside their loan period that have not come back yet
+    private static final double OPEN_CURRENT_FRACTION = 0.7;
+
+    private static final String[] GENRES = {
+        "Fiction", "Children", "History", "Religion", "Science", "Biography", "Poetry",
+        "Technology", "Travel", "Philosophy", "Art", "Reference"
+    };
+    private static final String[] FIRST_NAMES = {
+        "Abebe", "Almaz", "Bekele", "Birtukan", "Dawit", "Eleni", "Fikru", "Genet", "Haile", "Hirut",
+        "Kebede", "Lemlem", "Meron", "Mulugeta", "Negash", "Rahel", "Selam", "Solomon", "Tadesse", "Tigist",
+        "Tsion", "Worku", "Yared", "Yohannes", "Zewdu", "Anna", "David", "Maria", "James", "Sara",
+        "Peter", "Ruth", "Daniel", "Hanna", "Samuel", "Lydia", "Michael", "Martha", "Joseph", "Miriam"
+    };
+    private static final String[] LAST_NAMES = {
+        "Alemu", "Asfaw", "Ayele", "Bekele", "Berhane", "Desta", "Gebre", "Girma", "Hailu", "Kassa",
+        "Lemma", "Mekonnen", "Mengistu", "Negussie", "Shiferaw", "Tadesse", "Tesfaye", "Wolde", "Yilma", "Zeleke",
+        "Abate", "Amare", "Belay", "Demissie", "Fikre", "Gebeyehu", "Kebede", "Mamo", "Tekle", "Woldemariam"
+    };
+    private static final String[] TITLE_WORDS_A = {
+        "Silent", "Golden", "Hidden", "Last", "Broken", "Distant", "Ancient", "Bright", "Quiet", "Lost",
+        "Red", "Endless", "Secret", "First", "Wandering", "Forgotten", "Wild", "Little", "Northern", "Burning"
+    };
+    private static final String[] TITLE_WORDS_B = {
+        "River", "Highlands", "Garden", "Kingdom", "Letters", "Journey", "Harvest", "Mountain", "City", "Market",
+        "Voices", "Season", "Road", "Light", "Children", "Shadows", "Sea", "Crown", "Field", "Rain",
+        "Stars", "Bridge", "Song", "Door", "Winter", "Fire", "Island", "Memory", "Teacher", "Library"
+    };
+
+    private final Connection connection;
+    private final long seed;
+    private double coverFraction = 0;
+    private int historyYears = 3;
+    private double overdueFraction = 0.02;
+    private volatile boolean cancelled = false;
+
+    public DatasetGenerator(Connection connection, long seed) {
+        this.connection = connection;
+        this.seed = seed;
+    }
+
+    // Share of books that get one of a small set of synthetic JPEG covers (0 to 1)
+    public void setCoverFraction(double coverFraction) {
+        this.coverFraction = coverFraction;
+    }
+
+    public void setHistoryYears(int historyYears) {
+        this.historyYears = historyYears;
+    }
+
+    // Share of past-due loans that were never returned (0 to 1)
+    public void setOverdueFraction(double overdueFraction) {
+        this.overdueFraction = overdueFraction;
+    }
+
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public static String isbn(int index) {
+        return String.format("%s%010d", ISBN_PREFIX, index);
+    }
+
+    public static String username(int index) {
+        return String.format("%s%08d", USERNAME_PREFIX, index);
+    }
+
+    // Generates books, users and loans in that order. Loans are drawn from the books
+    // and users generated in the same run, so they need books > 0.
+    public Report generate(int books, int users, int loans, ProgressListener listener)
+            throws SQLException, IOException {
+        if (loans > 0 && books == 0) {
+            throw new IllegalArgumentException("Loans are generated for the generated books; set books > 0");
+        }
+        if (countGenerated("books", "isbn", ISBN_PREFIX) > 0 || countGenerated("users", "username", USERNAME_PREFIX) > 0) {
+            throw new IllegalStateException("The database already contains generated data; clear it first");
+        }
+
+        Report report = new Report();
+        byte[] quantities = new byte[books];
+
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        try {
+            long start = System.nanoTime();
+            generateBooks(books, quantities, listener);
+            report.add("books", books, (System.nanoTime() - start) / 1e9);
+
+            start = System.nanoTime();
+            generateUsers(users, listener);
+            report.add("users", users, (System.nanoTime() - start) / 1e9);
+
+            start = System.nanoTime();
+            generateLoans(loans, books, Math.max(users, 1), quantities, report, listener);
+            report.add("loans", loans, (System.nanoTime() - start) / 1e9);
+
+            // Running terminals drop their cached catalog and reload it
+            ChangeLog.append(connection, "dataset-generator", ChangeLog.CATALOG, ChangeLog.RELOAD, "*", 0);
+            connection.commit();
+        } catch (SQLException | IOException | RuntimeException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+        return report;
+    }
+
+    // Deletes every generated row; returns the number of rows removed
+    public long clear() throws SQLException {
+        long removed = 0;
+        removed += deleteInChunks("DELETE FROM loans WHERE isbn LIKE '" + ISBN_PREFIX + "%' LIMIT " + BATCH_SIZE * 10);
+        removed += deleteInChunks("DELETE FROM books WHERE isbn LIKE '" + ISBN_PREFIX + "%' LIMIT " + BATCH_SIZE * 10);
+        removed += deleteInChunks("DELETE FROM users WHERE username LIKE '" + USERNAME_PREFIX + "%' LIMIT " + BATCH_SIZE * 10);
+        return removed;
+    }
+
+    private long deleteInChunks(String sql) throws SQLException {
+        long removed = 0;
+        try (Statement stmt = connection.createStatement()) {
+            int n;
+            do {
+                n = stmt.executeUpdate(sql);
+                removed += n;
+            } while (n > 0);
+        }
+        return removed;
+    }
+
+    private long countGenerated(String table, String column, String prefix) throws SQLException {
+        String sql = "SELECT COUNT(*) FROM " + table + " WHERE " + column + " LIKE ?";
+        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+            pstmt.setString(1, prefix + "%");
+            ResultSet rs = pstmt.executeQuery();
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+
+    private void generateBooks(int count, byte[] quantities, ProgressListener listener)
+            throws SQLException, IOException {
+        Random random = new Random(seed);
+        ZipfSampler genres = new ZipfSampler(GENRES.length, 1.0);
+        // Roughly one author per ten titles, a few of them very prolific
+        ZipfSampler authors = new ZipfSampler(Math.max(count / 10, 10), 0.5);
+        byte[][] covers = coverFraction > 0 ? syntheticCovers(new Random(seed + 1)) : null;
+
+        String sql = "INSERT INTO books (isbn, title, author, genre, shelf_number, status, quantity, cover_image) "
+                + "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+            for (int i = 0; i < count; i++) {
+                checkCancelled();
+                int genre = genres.sample(random) - 1;
+                // Most titles have a single copy; course books and best sellers have more
+                int quantity = random.nextInt(10) < 6 ? 1 : 2 + random.nextInt(random.nextInt(10) == 0 ? 10 : 3);
+                quantities[i] = (byte) quantity;
+
+                pstmt.setString(1, isbn(i));
+                pstmt.setString(2, title(random));
+                pstmt.setString(3, personName(mix(seed ^ 0x5DEECE66DL, authors.sample(random))));
+                pstmt.setString(4, GENRES[genre]);
+                pstmt.setString(5, GENRES[genre].substring(0, 3).toUpperCase() + "-" + (1 + random.nextInt(60)));
+                pstmt.setString(6, "Available");
+                pstmt.setInt(7, quantity);
+                if (covers != null && random.nextDouble() < coverFraction) {
+                    pstmt.setBytes(8, covers[random.nextInt(covers.length)]);
+                } else {
+                    pstmt.setNull(8, Types.BLOB);
+                }
+                pstmt.addBatch();
+                flushIfFull(pstmt, "books", i + 1, count, listener);
+            }
+            flush(pstmt, "books", count, count, listener);
+        }
+    }
+
+    private void generateUsers(int count, ProgressListener listener) throws SQLException {
+        // Hashing is the expensive part of a user row, far too slow to repeat per row; all
+        // generated users share one password and therefore one salt. Test data only.
+        PasswordHasher.Hash passwordHash = PasswordHasher.fromSystemProperties().hash(USER_PASSWORD);
+        String sql = "INSERT INTO users (full_name, username, password, password_salt, is_admin) VALUES (?, ?, ?, ?, ?)";
+        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+            for (int i = 0; i < count; i++) {
+                checkCancelled();
+                pstmt.setString(1, personName(mix(seed, i)));
+                pstmt.setString(2, username(i));
+                pstmt.setString(3, passwordHash.encoded());
+                pstmt.setString(4, passwordHash.salt());
+                pstmt.setBoolean(5, false);
+                pstmt.addBatch();
+                flushIfFull(pstmt, "users", i + 1, count, listener);
+            }
+            flush(pstmt, "users", count, count, listener);
+        }
+    }
+
+    private void generateLoans(int count, int books, int borrowers, byte[] quantities, Report report,
+            ProgressListener listener) throws SQLException {
+        Random random = new Random(seed + 2);
+        ZipfSampler popularity = new ZipfSampler(books, 0.6);
+        ZipfSampler readers = new ZipfSampler(borrowers, 0.7);
+        int bookStride = coprimeStride(books);
+        int readerStride = coprimeStride(borrowers);
+        byte[] open = new byte[books];
+
+        long now = System.currentTimeMillis();
+        long start = now - historyYears * 365L * DAY_MILLIS;
+        double step = (double) (now - start) / Math.max(count, 1);
+
+        String sql = "INSERT INTO loans (isbn, borrower_id, borrower_name, loan_date, return_date, returned) "
+                + "VALUES (?, ?, ?, ?, ?, ?)";
+        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+            for (int i = 0; i < count; i++) {
+                checkCancelled();
+                // Popularity ranks are scattered over the catalog instead of following ISBN order
+                int book = (int) ((popularity.sample(random) - 1L) * bookStride % books);
+                int reader = (int) ((readers.sample(random) - 1L) * readerStride % borrowers);
+
+                // Loans arrive in date order, as the auto-increment ids would in real use
+                long loanDate = start + (long) ((i + random.nextDouble()) * step);
+                long dueDate = loanDate + LOAN_DAYS * DAY_MILLIS;
+                boolean pastDue = dueDate < now;
+                boolean stillOut = random.nextDouble() < (pastDue ? overdueFraction : OPEN_CURRENT_FRACTION);
+                if (stillOut && open[book] >= quantities[book]) {
+                    // Every copy is already out; this one must have come back
+                    stillOut = false;
+                }
+                if (stillOut) {
+                    open[book]++;
+                    report.openLoans++;
+                    if (pastDue) {
+                        report.overdueLoans++;
+                    }
+                }
+
+                pstmt.setString(1, isbn(book));
+                pstmt.setString(2, username(reader));
+                pstmt.setString(3, personName(mix(seed, reader)));
+                pstmt.setTimestamp(4, new Timestamp(loanDate));
+                pstmt.setTimestamp(5, new Timestamp(dueDate));
+                pstmt.setBoolean(6, !stillOut);
+                pstmt.addBatch();
+                flushIfFull(pstmt, "loans", i + 1, count, listener);
+            }
+            flush(pstmt, "loans", count, count, listener);
+        }
+
+        String statusSql = "UPDATE books SET status = 'On Loan' WHERE isbn = ?";
+        try (PreparedStatement pstmt = connection.prepareStatement(statusSql)) {
+            int pending = 0;
+            for (int book = 0; book < books; book++) {
+                if (open[book] > 0) {
+                    pstmt.setString(1, isbn(book));
+                    pstmt.addBatch();
+                    if (++pending == BATCH_SIZE) {
+                        pstmt.executeBatch();
+                        pending = 0;
+                    }
+                }
+            }
+            pstmt.executeBatch();
+            connection.commit();
+        }
+    }
+
+    private void flushIfFull(PreparedStatement pstmt, String table, long written, long total,
+            ProgressListener listener) throws SQLException {
+        if (written % BATCH_SIZE == 0) {
+            flush(pstmt, table, written, total, listener);
+        }
+    }
+
+    private void flush(PreparedStatement pstmt, String table, long written, long total,
+            ProgressListener listener) throws SQLException {
+        pstmt.executeBatch();
+        connection.commit();
+        if (listener != null && (written % PROGRESS_INTERVAL == 0 || written == total)) {
+            listener.onProgress(table, written, total);
+        }
+    }
+
+    private void checkCancelled() {
+        if (cancelled) {
+            throw new CancellationException("Data generation cancelled");
+        }
+    }
+
+    private static String title(Random random) {
+        String a = TITLE_WORDS_A[random.nextInt(TITLE_WORDS_A.length)];
+        String b = TITLE_WORDS_B[random.nextInt(TITLE_WORDS_B.length)];
+        switch (random.nextInt(4)) {
+            case 0:
+                return "The " + a + " " + b;
+            case 1:
+                return b + " of the " + a + " " + TITLE_WORDS_B[random.nextInt(TITLE_WORDS_B.length)];
+            case 2:
+                return a + " " + b + ", Volume " + (1 + random.nextInt(5));
+            default:
+                return "A " + a + " " + b;
+        }
+    }
+
+    // Stable name for a person number, so loans name the same borrower as the users table
+    private static String personName(long hash) {
+        String first = FIRST_NAMES[(int) Long.remainderUnsigned(hash, FIRST_NAMES.length)];
+        String last = LAST_NAMES[(int) Long.remainderUnsigned(hash >>> 16, LAST_NAMES.length)];
+        char initial = (char) ('A' + Long.remainderUnsigned(hash >>> 32, 26));
+        return first + " " + initial + ". " + last;
+    }
+
+    // SplitMix64 finalizer
+    private static long mix(long seed, long value) {
+        long z = seed + value * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    // Multiplier that visits every index once when ranks are mapped as rank * stride % n
+    private static int coprimeStride(int n) {
+        int stride = 7919;
+        while (gcd(stride, n) != 1) {
+            stride += 2;
+        }
+        return stride;
+    }
+
+    private static int gcd(int a, int b) {
+        return b == 0 ? a : gcd(b, a % b);
+    }
+
+    private static byte[][] syntheticCovers(Random random) throws IOException {
+        byte[][] covers = new byte[COVER_VARIANTS][];
+        for (int i = 0; i < covers.length; i++) {
+            BufferedImage image = new BufferedImage(CoverIngestJob.THUMBNAIL_WIDTH, CoverIngestJob.THUMBNAIL_HEIGHT,
+                    BufferedImage.TYPE_INT_RGB);
+            Graphics2D g = image.createGraphics();
+            g.setPaint(new GradientPaint(0, 0, new Color(random.nextInt(0xFFFFFF)),
+                    image.getWidth(), image.getHeight(), new Color(random.nextInt(0xFFFFFF))));
+            g.fillRect(0, 0, image.getWidth(), image.getHeight());
+            g.setColor(Color.WHITE);
+            g.setFont(new Font(Font.SERIF, Font.BOLD, 28));
+            g.drawString(TITLE_WORDS_B[i % TITLE_WORDS_B.length], 20, image.getHeight() / 3);
+            g.dispose();
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            ImageIO.write(image, "jpg", out);
+            covers[i] = out.toByteArray();
+        }
+        return covers;
+    }
+
+    // Zipf(n, exponent) over 1..n by rejection-inversion (Hörmann and Derflinger),
+    // constant memory so it works for catalogs of any size.
+    static class ZipfSampler {
+
+        private final int n;
+        private final double exponent;
+        private final double hIntegralX1;
+        private final double hIntegralN;
+        private final double s;
+
+        ZipfSampler(int n, double exponent) {
+            this.n = n;
+            this.exponent = exponent;
+            this.hIntegralX1 = hIntegral(1.5) - 1;
+            this.hIntegralN = hIntegral(n + 0.5);
+            this.s = 2 - hIntegralInverse(hIntegral(2.5) - h(2));
+        }
+
+        int sample(Random random) {
+            while (true) {
+                double u = hIntegralN + random.nextDouble() * (hIntegralX1 - hIntegralN);
+                double x = hIntegralInverse(u);
+                int k = (int) (x + 0.5);
+                if (k < 1) {
+                    k = 1;
+                } else if (k > n) {
+                    k = n;
+                }
+                if (k - x <= s || u >= hIntegral(k + 0.5) - h(k)) {
+                    return k;
+                }
+            }
+        }
+
+        private double hIntegral(double x) {
+            double logX = Math.log(x);
+            return helper2((1 - exponent) * logX) * logX;
+        }
+
+        private double h(double x) {
+            return Math.exp(-exponent * Math.log(x));
+        }
+
+        private double hIntegralInverse(double x) {
+            double t = x * (1 - exponent);
+            if (t < -1) {
+                t = -1;
+            }
+            return Math.exp(helper1(t) * x);
+        }
+
+        // log(1 + x) / x, accurate near 0
+        private static double helper1(double x) {
+            return Math.abs(x) > 1e-8 ? Math.log1p(x) / x : 1 - x * (0.5 - x * (1.0 / 3 - 0.25 * x));
+        }
+
+        // (exp(x) - 1) / x, accurate near 0
+        private static double helper2(double x) {
+            return Math.abs(x) > 1e-8 ? Math.expm1(x) / x : 1 + x * 0.5 * (1 + x / 3 * (1 + 0.25 * x));
+        }
+    }
+}
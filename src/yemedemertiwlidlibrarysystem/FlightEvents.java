@@ -0,0 +1,138 @@
+package yemedemertiwlidlibrarysystem;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import jdk.jfr.Category;
+import jdk.jfr.Configuration;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Recording;
+import jdk.jfr.StackTrace;
+
+// Custom Java Flight Recorder events. With no recording running an event costs a
+// disabled check and nothing is allocated, so they stay in the hot paths. The
+// bundled library.jfc profile enables them together with the JDK events needed to
+// explain a stall (execution samples, socket reads, monitor waits, GC).
+//
+//   java -XX:StartFlightRecording:settings=src/yemedemertiwlidlibrarysystem/library.jfc,filename=library.jfr ...
+//   java ... YemeDemerTiwlidLibrarySystem --record=library.jfr   (uses the profile from the jar)
+public final class FlightEvents {
+
+    private static final String PROFILE = "library.jfc";
+    private static final Duration MAX_RECORDING_AGE = Duration.ofHours(2);
+
+    private FlightEvents() {
+    }
+
+    @Name("yemedemertiwlid.ViewShown")
+    @Label("View Shown")
+    @Category({"Library", "UI"})
+    @Description("Building a main view on the FX application thread")
+    @StackTrace(false)
+    public static class ViewShown extends Event {
+
+        @Label("View")
+        public String view;
+    }
+
+    @Name("yemedemertiwlid.Query")
+    @Label("Query")
+    @Category({"Library", "Database"})
+    @Description("JDBC statement from execute until its result set was read to the end or closed")
+    public static class Query extends Event {
+
+        @Label("Statement")
+        @Description("Normalized SQL, the same name the metrics registry uses")
+        public String statement;
+
+        @Label("Rows")
+        @Description("Rows read from the result set, or rows updated")
+        public long rows;
+
+        @Label("Batch Size")
+        public int batchSize;
+
+        @Label("On FX Thread")
+        public boolean fxThread;
+    }
+
+    @Name("yemedemertiwlid.CoverDecode")
+    @Label("Cover Decode")
+    @Category({"Library", "UI"})
+    @StackTrace(false)
+    public static class CoverDecode extends Event {
+
+        @Label("Encoded Size")
+        @DataAmount
+        public long bytes;
+
+        @Label("Width")
+        public int width;
+
+        @Label("Height")
+        public int height;
+
+        @Label("Failed")
+        public boolean failed;
+    }
+
+    @Name("yemedemertiwlid.BookCardCreated")
+    @Label("Book Card Created")
+    @Category({"Library", "UI"})
+    @StackTrace(false)
+    public static class BookCardCreated extends Event {
+
+        @Label("ISBN")
+        public String isbn;
+    }
+
+    @Name("yemedemertiwlid.FxStall")
+    @Label("FX Thread Stall")
+    @Category({"Library", "UI"})
+    @Description("The FX application thread ran no pulse for longer than the stall threshold")
+    @StackTrace(false)
+    public static class FxStall extends Event {
+
+        @Label("Stack")
+        @Description("Most frequently sampled FX thread stack during the stall")
+        public String stack;
+    }
+
+    public static ViewShown beginView(String view) {
+        ViewShown event = new ViewShown();
+        event.view = view;
+        event.begin();
+        return event;
+    }
+
+    // Starts an in-process recording with the bundled profile; it is written to file when the JVM exits
+    public static void startRecording(Path file) throws IOException, ParseException {
+        Configuration configuration;
+        try (InputStream in = FlightEvents.class.getResourceAsStream(PROFILE)) {
+            if (in == null) {
+                throw new IOException("JFR profile " + PROFILE + " is missing from the classpath");
+            }
+            try (Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8)) {
+                configuration = Configuration.create(reader);
+            }
+        }
+
+        Recording recording = new Recording(configuration);
+        recording.setName("library");
+        recording.setToDisk(true);
+        recording.setMaxAge(MAX_RECORDING_AGE);
+        recording.setDestination(file);
+        recording.setDumpOnExit(true);
+        recording.start();
+        System.out.println("Recording flight data to " + file.toAbsolutePath());
+    }
+}
@@ -0,0 +1,201 @@
+package yemedemertiwlidlibrarysystem;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import javafx.animation.AnimationTimer;
+
+// Watches the JavaFX Application Thread for stalls. An AnimationTimer stamps every
+// pulse (which also keeps pulses coming at the display rate); a watchdog thread
+// checks the stamp and, while no pulse has run for longer than the threshold,
+// samples the FX thread's stack. When the stall ends the most frequent sample is
+// reported to stderr, kept for the overlay and the metrics dump, and recorded as
+// the "fx.stall" timer and a FlightEvents.FxStall event.
+//
+//   -Dlibrary.stallMillis=200   report threshold
+//   -Dlibrary.stallDetector=false   disable
+public class FxStallDetector {
+
+    public static final class Stall {
+
+        private final long millis;
+        private final String stack;
+        private final long endedAt;
+
+        Stall(long millis, String stack, long endedAt) {
+            this.millis = millis;
+            this.stack = stack;
+            this.endedAt = endedAt;
+        }
+
+        public long getMillis() {
+            return millis;
+        }
+
+        // Most frequently sampled FX thread stack during the stall
+        public String getStack() {
+            return stack;
+        }
+
+        public long getEndedAt() {
+            return endedAt;
+        }
+    }
+
+    private static final long WATCHDOG_INTERVAL_MS = 50;
+    private static final int MAX_STACK_FRAMES = 25;
+    private static final int MAX_STALLS = 20;
+    // Frames averaged for the frame time shown in the overlay
+    private static final int FRAME_WINDOW = 60;
+
+    private final long thresholdNanos;
+    private final Deque<Stall> stalls = new ArrayDeque<>();
+    private final long[] frameNanos = new long[FRAME_WINDOW];
+    private int frameIndex = 0;
+    private int frameCount = 0;
+
+    private AnimationTimer pulseTimer;
+    private ScheduledExecutorService watchdog;
+    private volatile Thread fxThread;
+    private volatile long lastPulse = 0;
+
+    // Watchdog thread only
+    private long stallStart = 0;
+    private FlightEvents.FxStall stallEvent;
+    private final Map<String, Integer> samples = new HashMap<>();
+
+    public FxStallDetector(long thresholdMillis) {
+        this.thresholdNanos = TimeUnit.MILLISECONDS.toNanos(thresholdMillis);
+    }
+
+    public static boolean isEnabledBySystemProperties() {
+        return !"false".equalsIgnoreCase(System.getProperty("library.stallDetector"));
+    }
+
+    public static long thresholdFromSystemProperties() {
+        return Long.getLong("library.stallMillis", 200);
+    }
+
+    // Call on the FX application thread
+    public void start() {
+        if (pulseTimer != null) {
+            return;
+        }
+        fxThread = Thread.currentThread();
+        lastPulse = System.nanoTime();
+        pulseTimer = new AnimationTimer() {
+            @Override
+            public void handle(long now) {
+                long current = System.nanoTime();
+                long previous = lastPulse;
+                lastPulse = current;
+                frameNanos[frameIndex] = current - previous;
+                frameIndex = (frameIndex + 1) % FRAME_WINDOW;
+                frameCount = Math.min(frameCount + 1, FRAME_WINDOW);
+                Metrics.timer("fx.frame").record(current - previous);
+            }
+        };
+        pulseTimer.start();
+
+        watchdog = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "fx-stall-watchdog");
+            thread.setDaemon(true);
+            return thread;
+        });
+        watchdog.scheduleAtFixedRate(this::check, WATCHDOG_INTERVAL_MS, WATCHDOG_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    public void stop() {
+        if (pulseTimer != null) {
+            pulseTimer.stop();
+            pulseTimer = null;
+        }
+        if (watchdog != null) {
+            watchdog.shutdownNow();
+            watchdog = null;
+        }
+    }
+
+    // Mean and worst frame interval over the last FRAME_WINDOW pulses; read on the FX thread
+    public double getMeanFrameMillis() {
+        if (frameCount == 0) {
+            return 0;
+        }
+        long total = 0;
+        for (int i = 0; i < frameCount; i++) {
+            total += frameNanos[i];
+        }
+        return total / 1e6 / frameCount;
+    }
+
+    public double getMaxFrameMillis() {
+        long max = 0;
+        for (int i = 0; i < frameCount; i++) {
+            max = Math.max(max, frameNanos[i]);
+        }
+        return max / 1e6;
+    }
+
+    public List<Stall> getRecentStalls() {
+        synchronized (stalls) {
+            return new ArrayList<>(stalls);
+        }
+    }
+
+    private void check() {
+        Thread thread = fxThread;
+        long sinceLastPulse = System.nanoTime() - lastPulse;
+        if (sinceLastPulse > thresholdNanos) {
+            if (stallStart == 0) {
+                stallStart = lastPulse;
+                stallEvent = new FlightEvents.FxStall();
+                stallEvent.begin();
+            }
+            samples.merge(format(thread.getStackTrace()), 1, Integer::sum);
+        } else if (stallStart != 0) {
+            // The FX thread has pulsed again since the stall began
+            long nanos = lastPulse - stallStart;
+            report(nanos);
+            stallStart = 0;
+            samples.clear();
+        }
+    }
+
+    private void report(long nanos) {
+        String stack = samples.entrySet().stream()
+                .max(Map.Entry.comparingByValue())
+                .map(Map.Entry::getKey)
+                .orElse("");
+        Stall stall = new Stall(TimeUnit.NANOSECONDS.toMillis(nanos), stack, System.currentTimeMillis());
+        synchronized (stalls) {
+            if (stalls.size() == MAX_STALLS) {
+                stalls.removeFirst();
+            }
+            stalls.addLast(stall);
+        }
+        Metrics.timer("fx.stall").record(nanos);
+        if (stallEvent.shouldCommit()) {
+            stallEvent.stack = stack;
+            stallEvent.commit();
+        }
+        stallEvent = null;
+        System.err.println("[fx stall] FX application thread blocked for " + stall.getMillis() + " ms, mostly in:\n" + stack);
+    }
+
+    private static String format(StackTraceElement[] frames) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < frames.length && i < MAX_STACK_FRAMES; i++) {
+            sb.append("    at ").append(frames[i]).append('\n');
+        }
+        if (frames.length > MAX_STACK_FRAMES) {
+            sb.append("    ... ").append(frames.length - MAX_STACK_FRAMES).append(" more\n");
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,332 @@
+package yemedemertiwlidlibrarysystem;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.LocalTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+// Wraps a JDBC connection so every statement it creates is timed. Executions are
+// recorded under "jdbc <normalized sql>" (literals and IN lists collapsed, so one
+// statement shape is one timer), JDBC time on the FX application thread is added
+// to "fx.jdbc", and executions slower than the threshold are written to stderr and
+// kept for the metrics dump together with their bound parameters. While a flight
+// recording has it enabled, each execution also emits a FlightEvents.Query with
+// the rows read or updated.
+//
+// Only statement execution is timed, not iterating the result set; the MySQL
+// driver reads the whole result during execute unless cursor fetch is enabled.
+public final class InstrumentedJdbc {
+
+    private static final String FX_THREAD_NAME = "JavaFX Application Thread";
+    private static final int MAX_SLOW_QUERIES = 50;
+    private static final int MAX_PARAMETER_LENGTH = 64;
+    private static final int MAX_NAME_LENGTH = 160;
+    // SQL built with literals can produce endless distinct strings; stop caching names past this
+    private static final int MAX_CACHED_NAMES = 10_000;
+
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern NUMBER_LITERAL = Pattern.compile("\\b\\d+\\b");
+    private static final Pattern IN_LIST = Pattern.compile("\\(\\s*\\?(\\s*,\\s*\\?)+\\s*\\)");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private static volatile long slowQueryMillis = Long.getLong("library.slowQueryMillis", 200);
+    private static final Deque<String> slowQueries = new ArrayDeque<>();
+    private static final Map<String, String> names = new ConcurrentHashMap<>();
+    private static final AtomicInteger inFlight = new AtomicInteger();
+
+    private InstrumentedJdbc() {
+    }
+
+    public static Connection wrap(Connection connection) {
+        if (connection == null || Proxy.isProxyClass(connection.getClass())) {
+            return connection;
+        }
+        return (Connection) Proxy.newProxyInstance(InstrumentedJdbc.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, new ConnectionHandler(connection));
+    }
+
+    public static long getSlowQueryMillis() {
+        return slowQueryMillis;
+    }
+
+    public static void setSlowQueryMillis(long millis) {
+        slowQueryMillis = millis;
+    }
+
+    // Statements currently executing on any wrapped connection
+    public static int getInFlight() {
+        return inFlight.get();
+    }
+
+    public static List<String> recentSlowQueries() {
+        synchronized (slowQueries) {
+            return new ArrayList<>(slowQueries);
+        }
+    }
+
+    // Timer name for a statement: whitespace collapsed, literals and IN (?, ?, ...) lists folded
+    static String queryName(String sql) {
+        String name = names.get(sql);
+        if (name == null) {
+            name = normalize(sql);
+            if (names.size() < MAX_CACHED_NAMES) {
+                names.put(sql, name);
+            }
+        }
+        return name;
+    }
+
+    private static String normalize(String sql) {
+        String name = STRING_LITERAL.matcher(sql).replaceAll("?");
+        name = NUMBER_LITERAL.matcher(name).replaceAll("N");
+        name = IN_LIST.matcher(name).replaceAll("(?...)");
+        name = WHITESPACE.matcher(name).replaceAll(" ").trim();
+        if (name.length() > MAX_NAME_LENGTH) {
+            name = name.substring(0, MAX_NAME_LENGTH) + "...";
+        }
+        return "jdbc " + name;
+    }
+
+    private static boolean isFxThread() {
+        return FX_THREAD_NAME.equals(Thread.currentThread().getName());
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static final class ConnectionHandler implements InvocationHandler {
+
+        private final Connection connection;
+
+        ConnectionHandler(Connection connection) {
+            this.connection = connection;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.equals("commit") || name.equals("rollback")) {
+                long start = System.nanoTime();
+                try {
+                    return InstrumentedJdbc.invoke(connection, method, args);
+                } finally {
+                    Metrics.timer("jdbc " + name.toUpperCase()).recordSince(start);
+                }
+            }
+
+            Object result = InstrumentedJdbc.invoke(connection, method, args);
+            switch (name) {
+                case "prepareCall":
+                    return wrapStatement(result, CallableStatement.class, (String) args[0]);
+                case "prepareStatement":
+                    return wrapStatement(result, PreparedStatement.class, (String) args[0]);
+                case "createStatement":
+                    return wrapStatement(result, Statement.class, null);
+                default:
+                    return result;
+            }
+        }
+    }
+
+    private static Object wrapStatement(Object statement, Class<?> type, String sql) {
+        return Proxy.newProxyInstance(InstrumentedJdbc.class.getClassLoader(), new Class<?>[]{type},
+                new StatementHandler(statement, sql));
+    }
+
+    private static final class StatementHandler implements InvocationHandler {
+
+        private final Object statement;
+        private final String sql;
+        // Bound parameters of the current execution, by 1-based index
+        private final List<Object> parameters = new ArrayList<>();
+        private int batchSize = 0;
+        private ResultSetHandler openResult;
+
+        StatementHandler(Object statement, String sql) {
+            this.statement = statement;
+            this.sql = sql;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.startsWith("execute")) {
+                finishOpenResult();
+                // Statement.execute*(sql) carries its own SQL; prepared statements use theirs
+                String executed = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : sql;
+                if (executed == null) {
+                    executed = "(batch)";
+                }
+                boolean batch = name.equals("executeBatch") || name.equals("executeLargeBatch");
+                int batchRows = batch ? batchSize : 0;
+
+                FlightEvents.Query event = new FlightEvents.Query();
+                event.begin();
+                long start = System.nanoTime();
+                inFlight.incrementAndGet();
+                Object result;
+                try {
+                    result = InstrumentedJdbc.invoke(statement, method, args);
+                } finally {
+                    inFlight.decrementAndGet();
+                    record(executed, System.nanoTime() - start, batchRows);
+                    if (batch) {
+                        Metrics.add("jdbc.batchedRows", batchSize);
+                        batchSize = 0;
+                    }
+                }
+                return event.isEnabled() ? trace(event, executed, result, batchRows) : result;
+            }
+
+            if (name.equals("close")) {
+                finishOpenResult();
+            } else if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer) {
+                bind((Integer) args[0], name.equals("setNull") ? null : args[1]);
+            } else if (name.equals("clearParameters")) {
+                parameters.clear();
+            } else if (name.equals("addBatch")) {
+                batchSize++;
+            }
+            return InstrumentedJdbc.invoke(statement, method, args);
+        }
+
+        // Fills in the flight event; for a result set it is committed once the rows have been read
+        private Object trace(FlightEvents.Query event, String executedSql, Object result, int batchRows) {
+            event.statement = queryName(executedSql).substring("jdbc ".length());
+            event.batchSize = batchRows;
+            event.fxThread = isFxThread();
+            if (result instanceof ResultSet) {
+                openResult = new ResultSetHandler((ResultSet) result, event);
+                return Proxy.newProxyInstance(InstrumentedJdbc.class.getClassLoader(),
+                        new Class<?>[]{ResultSet.class}, openResult);
+            }
+
+            if (result instanceof Number) {
+                event.rows = ((Number) result).longValue();
+            } else if (result instanceof int[]) {
+                for (int count : (int[]) result) {
+                    event.rows += Math.max(count, 0);
+                }
+            } else if (result instanceof long[]) {
+                for (long count : (long[]) result) {
+                    event.rows += Math.max(count, 0);
+                }
+            }
+            event.commit();
+            return result;
+        }
+
+        // A result set is closed with its statement or by the next execution
+        private void finishOpenResult() {
+            if (openResult != null) {
+                openResult.finish();
+                openResult = null;
+            }
+        }
+
+        private void bind(int index, Object value) {
+            while (parameters.size() < index) {
+                parameters.add(null);
+            }
+            parameters.set(index - 1, value);
+        }
+
+        private void record(String executedSql, long nanos, int batchRows) {
+            String name = queryName(executedSql);
+            Metrics.timer(name).record(nanos);
+            if (isFxThread()) {
+                Metrics.timer("fx.jdbc").record(nanos);
+            }
+
+            long millis = nanos / 1_000_000;
+            if (millis >= slowQueryMillis) {
+                String line = String.format("%s %6d ms  %s  %s=%s", LocalTime.now().withNano(0), millis,
+                        name.substring("jdbc ".length()),
+                        batchRows > 0 ? "batch of " + batchRows + ", last params" : "params", describeParameters());
+                System.err.println("[slow query] " + line);
+                Metrics.increment("jdbc.slowQueries");
+                synchronized (slowQueries) {
+                    if (slowQueries.size() == MAX_SLOW_QUERIES) {
+                        slowQueries.removeFirst();
+                    }
+                    slowQueries.addLast(line);
+                }
+            }
+        }
+
+        private String describeParameters() {
+            List<String> values = new ArrayList<>(parameters.size());
+            for (Object value : parameters) {
+                String text;
+                if (value == null) {
+                    text = "null";
+                } else if (value instanceof byte[]) {
+                    text = "<" + ((byte[]) value).length + " bytes>";
+                } else {
+                    text = String.valueOf(value);
+                    if (text.length() > MAX_PARAMETER_LENGTH) {
+                        text = text.substring(0, MAX_PARAMETER_LENGTH) + "...";
+                    }
+                }
+                values.add(text);
+            }
+            return values.toString();
+        }
+    }
+
+    // Counts rows for a Query flight event; only installed while a recording has the event enabled
+    private static final class ResultSetHandler implements InvocationHandler {
+
+        private final ResultSet resultSet;
+        private final FlightEvents.Query event;
+        private boolean finished = false;
+
+        ResultSetHandler(ResultSet resultSet, FlightEvents.Query event) {
+            this.resultSet = resultSet;
+            this.event = event;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.equals("close")) {
+                finish();
+            }
+            Object result = InstrumentedJdbc.invoke(resultSet, method, args);
+            if (name.equals("next")) {
+                if (Boolean.TRUE.equals(result)) {
+                    event.rows++;
+                } else {
+                    finish();
+                }
+            }
+            return result;
+        }
+
+        void finish() {
+            if (!finished) {
+                finished = true;
+                event.commit();
+            }
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package yemedemertiwlidlibrarysystem;
+
+// Domain events published by the data layer after a mutation has been committed.
+// Subscribers (caches, counters, visible cards and rows) update only what the
+// event describes instead of reloading whole views.
+public sealed interface LibraryEvent {
+
+    // previous is the row as it was before the update, or null if it was not known
+    record BookAdded(BookRow book) implements LibraryEvent {
+    }
+
+    record BookUpdated(BookRow previous, BookRow book) implements LibraryEvent {
+    }
+
+    record BookDeleted(BookRow book) implements LibraryEvent {
+    }
+
+    record LoanCreated(LoanRow loan) implements LibraryEvent {
+    }
+
+    record LoanReturned(LoanRow loan) implements LibraryEvent {
+    }
+
+    // A bulk job changed many rows at once; views reload instead of applying rows one by one
+    record CatalogReloaded() implements LibraryEvent {
+    }
+}
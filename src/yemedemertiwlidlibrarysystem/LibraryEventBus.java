@@ -0,0 +1,57 @@
+package yemedemertiwlidlibrarysystem;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+// In-process publish/subscribe for LibraryEvents. Handlers run synchronously on
+// the publishing thread; subscribers that touch the UI wrap themselves so they
+// run on the JavaFX Application Thread.
+public class LibraryEventBus {
+
+    public interface Subscription {
+
+        void cancel();
+    }
+
+    private static class Handler<T extends LibraryEvent> {
+
+        final Class<T> type;
+        final Consumer<? super T> consumer;
+
+        Handler(Class<T> type, Consumer<? super T> consumer) {
+            this.type = type;
+            this.consumer = consumer;
+        }
+
+        void deliver(LibraryEvent event) {
+            if (type.isInstance(event)) {
+                consumer.accept(type.cast(event));
+            }
+        }
+    }
+
+    private final List<Handler<?>> handlers = new CopyOnWriteArrayList<>();
+
+    public <T extends LibraryEvent> Subscription subscribe(Class<T> type, Consumer<? super T> consumer) {
+        Handler<T> handler = new Handler<>(type, consumer);
+        handlers.add(handler);
+        return () -> handlers.remove(handler);
+    }
+
+    public Subscription subscribeAll(Consumer<LibraryEvent> consumer) {
+        return subscribe(LibraryEvent.class, consumer);
+    }
+
+    public void publish(LibraryEvent event) {
+        for (Handler<?> handler : handlers) {
+            try {
+                handler.deliver(event);
+            } catch (RuntimeException e) {
+                // One failing subscriber must not keep the others from seeing the change
+                System.err.println("Event handler failed for " + event + ": " + e.getMessage());
+                e.printStackTrace();
+            }
+        }
+    }
+}
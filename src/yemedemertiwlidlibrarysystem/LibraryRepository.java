@@ -0,0 +1,425 @@
+package yemedemertiwlidlibrarysystem;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Data layer for catalog and circulation writes. Every write runs in one
+// transaction together with its change_log entry and, once committed, is
+// published on the event bus so this terminal's caches and views follow at once;
+// other terminals pick it up through their ChangeLogTailer.
+public class LibraryRepository {
+
+    // Supplies the connection for one operation and takes it back afterwards; the
+    // desktop client hands out its single connection, the server borrows from a pool
+    public interface ConnectionProvider {
+
+        Connection get() throws SQLException;
+
+        default void release(Connection connection) {
+        }
+    }
+
+    // E is what the work may refuse with besides a database error, such as a checkout
+    // of a book that has no copy left; it rolls the transaction back like any failure
+    private interface Work<T, E extends Exception> {
+
+        T run(Connection conn) throws SQLException, E;
+    }
+
+    private final ConnectionProvider connections;
+    private final LibraryEventBus eventBus;
+    private final String origin;
+
+    public LibraryRepository(ConnectionProvider connections, LibraryEventBus eventBus, String origin) {
+        this.connections = connections;
+        this.eventBus = eventBus;
+        this.origin = origin;
+    }
+
+    public String getOrigin() {
+        return origin;
+    }
+
+    public LibraryEventBus getEventBus() {
+        return eventBus;
+    }
+
+    public void addBook(BookRow book) throws SQLException {
+        inTransaction(conn -> {
+            String sql = "INSERT INTO books (title, author, isbn, genre, shelf_number, status, quantity, cover_image) "
+                    + "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                pstmt.setString(1, book.title());
+                pstmt.setString(2, book.author());
+                pstmt.setString(3, book.isbn());
+                pstmt.setString(4, book.genre());
+                pstmt.setString(5, book.shelfNumber());
+                pstmt.setString(6, book.status());
+                pstmt.setInt(7, book.quantity());
+                pstmt.setBytes(8, book.coverImage());
+                pstmt.executeUpdate();
+            }
+            ChangeLog.append(conn, origin, ChangeLog.BOOK, ChangeLog.INSERT, book.isbn(), book.quantity());
+            return null;
+        });
+        eventBus.publish(new LibraryEvent.BookAdded(book));
+    }
+
+    // A row without a cover leaves the stored one alone: rows that came from another
+    // terminal's change log or the in-memory catalog carry no cover, so null means unknown
+    public void updateBook(BookRow previous, BookRow book) throws SQLException {
+        inTransaction(conn -> {
+            String sql = "UPDATE books SET title = ?, author = ?, genre = ?, shelf_number = ?, "
+                    + "status = ?, quantity = ?, cover_image = COALESCE(?, cover_image) WHERE isbn = ?";
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                pstmt.setString(1, book.title());
+                pstmt.setString(2, book.author());
+                pstmt.setString(3, book.genre());
+                pstmt.setString(4, book.shelfNumber());
+                pstmt.setString(5, book.status());
+                pstmt.setInt(6, book.quantity());
+                pstmt.setBytes(7, book.coverImage());
+                pstmt.setString(8, book.isbn());
+                pstmt.executeUpdate();
+            }
+            ChangeLog.append(conn, origin, ChangeLog.BOOK, ChangeLog.UPDATE, book.isbn(),
+                    book.quantity() - previous.quantity());
+            return null;
+        });
+        eventBus.publish(new LibraryEvent.BookUpdated(previous, book));
+    }
+
+    public void deleteBook(BookRow book) throws SQLException {
+        inTransaction(conn -> {
+            String sql = "DELETE FROM books WHERE isbn = ?";
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                pstmt.setString(1, book.isbn());
+                pstmt.executeUpdate();
+            }
+            ChangeLog.append(conn, origin, ChangeLog.BOOK, ChangeLog.DELETE, book.isbn(), -book.quantity());
+            return null;
+        });
+        eventBus.publish(new LibraryEvent.BookDeleted(book));
+    }
+
+    // Records a loan and marks the book as on loan. The book row is locked before its
+    // open loans are counted, so concurrent checkouts of the last copy cannot all pass.
+    public LoanRow createLoan(String isbn, String borrowerId, String borrowerName,
+            LocalDateTime loanDate, LocalDateTime returnDate) throws SQLException, LibraryServiceException {
+        BookRow[] status = new BookRow[2];
+        LoanRow loan = inTransaction(conn -> {
+            int quantity = lockBook(conn, isbn);
+            if (quantity < 0) {
+                throw new LibraryServiceException(LibraryServiceException.Reason.NOT_FOUND, "No book with ISBN " + isbn);
+            }
+            if (quantity - countOpenLoans(conn, isbn) <= 0) {
+                throw new LibraryServiceException(LibraryServiceException.Reason.CONFLICT,
+                        "No copies of this book are available for loan");
+            }
+
+            String sql = "INSERT INTO loans (isbn, borrower_id, borrower_name, loan_date, return_date) "
+                    + "VALUES (?, ?, ?, ?, ?)";
+            int id = 0;
+            try (PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+                pstmt.setString(1, isbn);
+                pstmt.setString(2, borrowerId);
+                pstmt.setString(3, borrowerName);
+                pstmt.setTimestamp(4, Timestamp.valueOf(loanDate));
+                pstmt.setTimestamp(5, Timestamp.valueOf(returnDate));
+                pstmt.executeUpdate();
+
+                try (ResultSet keys = pstmt.getGeneratedKeys()) {
+                    if (keys.next()) {
+                        id = keys.getInt(1);
+                    }
+                }
+            }
+            ChangeLog.append(conn, origin, ChangeLog.LOAN, ChangeLog.INSERT, String.valueOf(id), 0);
+            updateStatus(conn, isbn, "On Loan", status);
+            return new LoanRow(id, isbn, borrowerId, borrowerName, loanDate, returnDate, false);
+        });
+        eventBus.publish(new LibraryEvent.LoanCreated(loan));
+        publishStatusChange(status);
+        return loan;
+    }
+
+    // Marks the loan returned and the book available again once no copies are out
+    // A loan that another terminal returned first is a CONFLICT; nothing is logged or published for it
+    public LoanRow returnLoan(LoanRow loan) throws SQLException, LibraryServiceException {
+        BookRow[] status = new BookRow[2];
+        inTransaction(conn -> {
+            lockBook(conn, loan.isbn());
+            String sql = "UPDATE loans SET returned = TRUE WHERE id = ? AND returned = FALSE";
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                pstmt.setInt(1, loan.id());
+                if (pstmt.executeUpdate() == 0) {
+                    throw new LibraryServiceException(LibraryServiceException.Reason.CONFLICT,
+                            "This loan has already been returned");
+                }
+            }
+            ChangeLog.append(conn, origin, ChangeLog.LOAN, ChangeLog.UPDATE, String.valueOf(loan.id()), 0);
+
+            if (countOpenLoans(conn, loan.isbn()) == 0) {
+                updateStatus(conn, loan.isbn(), "Available", status);
+            }
+            return null;
+        });
+
+        LoanRow returned = loan.asReturned();
+        eventBus.publish(new LibraryEvent.LoanReturned(returned));
+        publishStatusChange(status);
+        return returned;
+    }
+
+    // Applies a circulation station's scans in order in one transaction, so a burst of
+    // scans costs one commit instead of one per book. A scan that cannot be applied (no
+    // such ISBN, no copy left, nothing on loan) is refused in its result and the others
+    // go ahead; later scans see the effect of earlier ones, so the last copy cannot be
+    // lent twice in one batch. Each book row is locked before its loans are counted, as
+    // in createLoan, so two desks cannot lend the last copy together either. Events are
+    // published after the commit, in scan order.
+    public List<CirculationResult> circulate(List<CirculationScan> scans) throws SQLException {
+        List<LibraryEvent> events = new ArrayList<>();
+        List<CirculationResult> results = inTransaction(conn -> {
+            events.clear();
+            List<CirculationResult> applied = new ArrayList<>(scans.size());
+            Map<String, String> borrowerNames = new HashMap<>();
+            try (PreparedStatement lockBook = conn.prepareStatement(
+                    "SELECT title, quantity FROM books WHERE isbn = ? FOR UPDATE");
+                    PreparedStatement countOpen = conn.prepareStatement(
+                            "SELECT id FROM loans WHERE isbn = ? AND returned = 0 FOR UPDATE");
+                    PreparedStatement findOldestOpen = conn.prepareStatement(
+                            "SELECT * FROM loans WHERE isbn = ? AND returned = 0 ORDER BY loan_date, id LIMIT 1 FOR UPDATE");
+                    PreparedStatement insertLoan = conn.prepareStatement(
+                            "INSERT INTO loans (isbn, borrower_id, borrower_name, loan_date, return_date) "
+                            + "VALUES (?, ?, ?, ?, ?)", Statement.RETURN_GENERATED_KEYS);
+                    PreparedStatement closeLoan = conn.prepareStatement(
+                            "UPDATE loans SET returned = TRUE WHERE id = ? AND returned = FALSE")) {
+                for (CirculationScan scan : scans) {
+                    lockBook.setString(1, scan.isbn());
+                    String title;
+                    int quantity;
+                    try (ResultSet rs = lockBook.executeQuery()) {
+                        if (!rs.next()) {
+                            applied.add(CirculationResult.refused(scan, null, "No book with ISBN " + scan.isbn()));
+                            continue;
+                        }
+                        title = rs.getString("title");
+                        quantity = rs.getInt("quantity");
+                    }
+
+                    BookRow[] status = new BookRow[2];
+                    if (scan.kind() == CirculationScan.Kind.CHECKOUT) {
+                        if (quantity - countOpen(countOpen, scan.isbn()) <= 0) {
+                            applied.add(CirculationResult.refused(scan, title, "No copies left to lend"));
+                            continue;
+                        }
+                        String borrowerName = borrowerNames.get(scan.borrowerId());
+                        if (borrowerName == null) {
+                            borrowerName = borrowerName(conn, scan.borrowerId());
+                            borrowerNames.put(scan.borrowerId(), borrowerName);
+                        }
+
+                        insertLoan.setString(1, scan.isbn());
+                        insertLoan.setString(2, scan.borrowerId());
+                        insertLoan.setString(3, borrowerName);
+                        insertLoan.setTimestamp(4, Timestamp.valueOf(scan.scannedAt()));
+                        insertLoan.setTimestamp(5, Timestamp.valueOf(scan.dueDate()));
+                        insertLoan.executeUpdate();
+                        int id = 0;
+                        try (ResultSet keys = insertLoan.getGeneratedKeys()) {
+                            if (keys.next()) {
+                                id = keys.getInt(1);
+                            }
+                        }
+                        ChangeLog.append(conn, origin, ChangeLog.LOAN, ChangeLog.INSERT, String.valueOf(id), 0);
+                        updateStatus(conn, scan.isbn(), "On Loan", status);
+
+                        LoanRow loan = new LoanRow(id, scan.isbn(), scan.borrowerId(), borrowerName,
+                                scan.scannedAt(), scan.dueDate(), false);
+                        applied.add(CirculationResult.done(scan, loan, title));
+                        events.add(new LibraryEvent.LoanCreated(loan));
+                    } else {
+                        LoanRow loan;
+                        findOldestOpen.setString(1, scan.isbn());
+                        try (ResultSet rs = findOldestOpen.executeQuery()) {
+                            loan = rs.next() ? LoanRow.fromResultSet(rs) : null;
+                        }
+                        if (loan == null) {
+                            applied.add(CirculationResult.refused(scan, title, "Not on loan"));
+                            continue;
+                        }
+
+                        closeLoan.setInt(1, loan.id());
+                        if (closeLoan.executeUpdate() == 0) {
+                            applied.add(CirculationResult.refused(scan, title, "Already returned"));
+                            continue;
+                        }
+                        ChangeLog.append(conn, origin, ChangeLog.LOAN, ChangeLog.UPDATE, String.valueOf(loan.id()), 0);
+                        if (countOpen(countOpen, scan.isbn()) == 0) {
+                            updateStatus(conn, scan.isbn(), "Available", status);
+                        }
+
+                        LoanRow returned = loan.asReturned();
+                        applied.add(CirculationResult.done(scan, returned, title));
+                        events.add(new LibraryEvent.LoanReturned(returned));
+                    }
+                    if (status[0] != null) {
+                        events.add(new LibraryEvent.BookUpdated(status[0], status[1]));
+                    }
+                }
+            }
+            return applied;
+        });
+
+        for (LibraryEvent event : events) {
+            eventBus.publish(event);
+        }
+        return results;
+    }
+
+    // Announces that a bulk job changed the catalog outside this class
+    public void catalogReloaded() throws SQLException {
+        inTransaction(conn -> {
+            ChangeLog.append(conn, origin, ChangeLog.CATALOG, ChangeLog.RELOAD, "*", 0);
+            return null;
+        });
+        eventBus.publish(new LibraryEvent.CatalogReloaded());
+    }
+
+    // Current row without its cover
+    public BookRow findBook(String isbn) throws SQLException {
+        Connection conn = connections.get();
+        try {
+            return findBook(conn, isbn);
+        } finally {
+            connections.release(conn);
+        }
+    }
+
+    public LoanRow findLoan(int id) throws SQLException {
+        Connection conn = connections.get();
+        try (PreparedStatement pstmt = conn.prepareStatement("SELECT * FROM loans WHERE id = ?")) {
+            pstmt.setInt(1, id);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? LoanRow.fromResultSet(rs) : null;
+            }
+        } finally {
+            connections.release(conn);
+        }
+    }
+
+    private static BookRow findBook(Connection conn, String isbn) throws SQLException {
+        String sql = "SELECT " + BookRow.COLUMNS + " FROM books WHERE isbn = ?";
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, isbn);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? BookRow.fromResultSet(rs, false) : null;
+            }
+        }
+    }
+
+    // Locks the book row until the transaction ends, so checkouts and returns of one
+    // title run one at a time; returns its quantity, or -1 if there is no such book
+    private static int lockBook(Connection conn, String isbn) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement("SELECT quantity FROM books WHERE isbn = ? FOR UPDATE")) {
+            pstmt.setString(1, isbn);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : -1;
+            }
+        }
+    }
+
+    // A locking read, so loans committed while this transaction waited for the book row
+    // are counted even where plain reads see an older snapshot
+    private static int countOpenLoans(Connection conn, String isbn) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(
+                "SELECT id FROM loans WHERE isbn = ? AND returned = 0 FOR UPDATE")) {
+            return countOpen(pstmt, isbn);
+        }
+    }
+
+    // countOpen selects the ids of the book's open loans with a locking read
+    private static int countOpen(PreparedStatement countOpen, String isbn) throws SQLException {
+        countOpen.setString(1, isbn);
+        try (ResultSet rs = countOpen.executeQuery()) {
+            int open = 0;
+            while (rs.next()) {
+                open++;
+            }
+            return open;
+        }
+    }
+
+    // The name on the borrower's account, else the name on their latest loan, else the ID itself
+    private static String borrowerName(Connection conn, String borrowerId) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement("SELECT full_name FROM users WHERE username = ?")) {
+            pstmt.setString(1, borrowerId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next()) {
+                    return rs.getString(1);
+                }
+            }
+        }
+        String sql = "SELECT borrower_name FROM loans WHERE borrower_id = ? ORDER BY id DESC LIMIT 1";
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, borrowerId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? rs.getString(1) : borrowerId;
+            }
+        }
+    }
+
+    // Leaves the row before and after the change in change[0] and change[1]
+    private void updateStatus(Connection conn, String isbn, String status, BookRow[] change) throws SQLException {
+        BookRow previous = findBook(conn, isbn);
+        if (previous == null || previous.status().equals(status)) {
+            return;
+        }
+
+        String sql = "UPDATE books SET status = ? WHERE isbn = ?";
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, status);
+            pstmt.setString(2, isbn);
+            pstmt.executeUpdate();
+        }
+        ChangeLog.append(conn, origin, ChangeLog.BOOK, ChangeLog.UPDATE, isbn, 0);
+        change[0] = previous;
+        change[1] = previous.withStatus(status);
+    }
+
+    private void publishStatusChange(BookRow[] change) {
+        if (change[0] != null) {
+            eventBus.publish(new LibraryEvent.BookUpdated(change[0], change[1]));
+        }
+    }
+
+    private <T, E extends Exception> T inTransaction(Work<T, E> work) throws SQLException, E {
+        Connection conn = connections.get();
+        boolean autoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+        try {
+            T result = work.run(conn);
+            conn.commit();
+            return result;
+        } catch (Exception e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            try {
+                conn.setAutoCommit(autoCommit);
+            } finally {
+                connections.release(conn);
+            }
+        }
+    }
+}
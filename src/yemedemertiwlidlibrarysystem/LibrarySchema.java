@@ -0,0 +1,126 @@
+package yemedemertiwlidlibrarysystem;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Locale;
+
+// Tables of the library database and the migrations for databases created by older
+// versions. Run by every process that opens the database, the desk app at startup
+// and the headless server, so either can be started first against an empty schema.
+// On an empty users table the first accounts are added through accounts.
+public final class LibrarySchema {
+
+    static final String UPDATED_AT_COLUMN = "updated_at TIMESTAMP(3) NOT NULL "
+            + "DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3)";
+
+    private LibrarySchema() {
+    }
+
+    public static void create(Connection connection, AuthenticationService accounts) throws SQLException {
+        // Users table
+        String usersTable = "CREATE TABLE IF NOT EXISTS users ("
+                + "id INT AUTO_INCREMENT PRIMARY KEY,"
+                + "full_name VARCHAR(100) NOT NULL,"
+                + "username VARCHAR(50) UNIQUE NOT NULL,"
+                + "password VARCHAR(255) NOT NULL,"
+                + "password_salt VARCHAR(64),"
+                + "is_admin BOOLEAN DEFAULT FALSE)";
+
+        // Books table
+        String booksTable = "CREATE TABLE IF NOT EXISTS books ("
+                + "isbn VARCHAR(20) PRIMARY KEY,"
+                + "title VARCHAR(255) NOT NULL,"
+                + "author VARCHAR(100) NOT NULL,"
+                + "genre VARCHAR(50) NOT NULL,"
+                + "shelf_number VARCHAR(20) NOT NULL,"
+                + "status VARCHAR(20) NOT NULL,"
+                + "quantity INT NOT NULL,"
+                + "cover_image LONGBLOB,"
+                + UPDATED_AT_COLUMN + ","
+                + "INDEX idx_books_updated_at (updated_at))";
+
+        // Loans table
+        String loansTable = "CREATE TABLE IF NOT EXISTS loans ("
+                + "id INT AUTO_INCREMENT PRIMARY KEY,"
+                + "isbn VARCHAR(20) NOT NULL,"
+                + "borrower_id VARCHAR(50) NOT NULL,"
+                + "borrower_name VARCHAR(100) NOT NULL,"
+                + "loan_date DATETIME NOT NULL,"
+                + "return_date DATETIME NOT NULL,"
+                + "returned BOOLEAN DEFAULT FALSE,"
+                + UPDATED_AT_COLUMN + ","
+                + "INDEX idx_loans_updated_at (updated_at),"
+                + "INDEX idx_loans_borrower (borrower_id),"
+                + "FOREIGN KEY (isbn) REFERENCES books(isbn))";
+
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute(usersTable);
+            stmt.execute(booksTable);
+            stmt.execute(loansTable);
+            stmt.execute(ChangeLog.CREATE_TABLE);
+            ChangeLog.prune(connection);
+
+            // Tables created before the in-memory catalog existed have no change timestamps yet
+            for (String table : new String[]{"books", "loans"}) {
+                if (!columnExists(connection, table, "updated_at")) {
+                    stmt.execute("ALTER TABLE " + table + " ADD COLUMN " + UPDATED_AT_COLUMN
+                            + ", ADD INDEX idx_" + table + "_updated_at (updated_at)");
+                }
+            }
+
+            // Circulation stations look up a scanned card's name from the borrower's latest loan
+            if (!indexExists(connection, "loans", "idx_loans_borrower")) {
+                stmt.execute("ALTER TABLE loans ADD INDEX idx_loans_borrower (borrower_id)");
+            }
+
+            // Users created before salted hashes keep an unsalted SHA-256 until they next sign in
+            if (!columnExists(connection, "users", "password_salt")) {
+                stmt.execute("ALTER TABLE users ADD COLUMN password_salt VARCHAR(64) AFTER password");
+            }
+
+            if (isTableEmpty(connection, "users")) {
+                insertSampleUsers(accounts);
+            }
+        }
+    }
+
+    private static boolean columnExists(Connection connection, String tableName, String columnName) throws SQLException {
+        DatabaseMetaData metaData = connection.getMetaData();
+        try (ResultSet rs = metaData.getColumns(connection.getCatalog(), null, identifier(metaData, tableName),
+                identifier(metaData, columnName))) {
+            return rs.next();
+        }
+    }
+
+    private static boolean indexExists(Connection connection, String tableName, String indexName) throws SQLException {
+        DatabaseMetaData metaData = connection.getMetaData();
+        try (ResultSet rs = metaData.getIndexInfo(connection.getCatalog(), null, identifier(metaData, tableName), false, true)) {
+            while (rs.next()) {
+                if (indexName.equalsIgnoreCase(rs.getString("INDEX_NAME"))) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    // Metadata lookups take names as the database stores them, e.g. upper case on H2
+    private static String identifier(DatabaseMetaData metaData, String name) throws SQLException {
+        return metaData.storesUpperCaseIdentifiers() ? name.toUpperCase(Locale.ROOT) : name;
+    }
+
+    private static boolean isTableEmpty(Connection connection, String tableName) throws SQLException {
+        String query = "SELECT COUNT(*) FROM " + tableName;
+        try (Statement stmt = connection.createStatement(); ResultSet rs = stmt.executeQuery(query)) {
+            return rs.next() && rs.getInt(1) == 0;
+        }
+    }
+
+    private static void insertSampleUsers(AuthenticationService accounts) throws SQLException {
+        accounts.addUser("Admin User", "admin", "admin123", true);
+        accounts.addUser("Library Staff", "librarian", "lib123", false);
+    }
+}
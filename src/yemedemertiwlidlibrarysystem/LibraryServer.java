@@ -0,0 +1,294 @@
+package yemedemertiwlidlibrarysystem;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Headless library server: one connection pool and one in-memory catalog shared by
+// every desk client, exposed as a small JSON API on the JDK's built-in HTTP
+// server. Each request runs on its own virtual thread; at most as many service
+// operations as there are pooled connections run at once, the rest queue.
+//
+// The API has no authentication, so the server listens on the loopback interface
+// unless it is given another bind address explicitly (--bind=0.0.0.0 from the
+// launcher). Writes from desk clients that talk to the database directly reach
+// the shared catalog through a ChangeLogTailer, like on the desks.
+//
+//   GET  /api/books/search?q=...&type=Title&limit=50
+//   POST /api/loans                  {"isbn", "borrowerId", "borrowerName", "loanDate"?, "returnDate"?}
+//   POST /api/loans/{id}/return
+//   POST /api/circulation            {"scans": [{"kind", "isbn", "borrowerId"?, "scannedAt", "dueDate"?}, ...]}
+//   GET  /api/stats
+//   GET  /api/metrics                timers, counters and slow queries (see Metrics)
+public class LibraryServer {
+
+    public static final int DEFAULT_PORT = 8085;
+    public static final int DEFAULT_POOL_SIZE = 10;
+    private static final int MAX_SEARCH_RESULTS = 500;
+    private static final int DEFAULT_LOAN_DAYS = 14;
+    private static final long STATS_TTL_MILLIS = 1_000;
+    private static final long POOL_TIMEOUT_MILLIS = 5_000;
+    private static final long CATALOG_POLL_INTERVAL_MS = 1_000;
+    private static final long CHANGE_LOG_POLL_INTERVAL_MS = 500;
+
+    private interface Route {
+
+        Object handle(HttpExchange exchange) throws LibraryServiceException, IOException;
+    }
+
+    private final LibraryService service;
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    // Listens on the loopback interface only
+    public LibraryServer(LibraryService service, int port) throws IOException {
+        this(service, new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+    }
+
+    public LibraryServer(LibraryService service, InetSocketAddress address) throws IOException {
+        this.service = service;
+        this.server = HttpServer.create(address, 0);
+        server.setExecutor(executor);
+        server.createContext("/api/books/search", exchange -> dispatch(exchange, "GET", this::search));
+        server.createContext("/api/loans", exchange -> dispatch(exchange, "POST", this::loans));
+        server.createContext("/api/circulation", exchange -> dispatch(exchange, "POST", this::circulation));
+        server.createContext("/api/stats", exchange -> dispatch(exchange, "GET", this::stats));
+        server.createContext("/api/metrics", exchange -> dispatch(exchange, "GET", e -> Metrics.toMap()));
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public void stop() {
+        server.stop(1);
+        executor.shutdown();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    // Wires the pool, schema, repository, shared catalog and HTTP server together and serves
+    // until the JVM exits. bindAddress null means loopback only.
+    public static void runHeadless(String dbUrl, Properties connectionProperties, String bindAddress, int port,
+            int poolSize) throws IOException, SQLException, InterruptedException {
+        CatalogSnapshot.ConnectionSource source = () -> InstrumentedJdbc.wrap(DriverManager.getConnection(dbUrl, connectionProperties));
+        ConnectionPool pool = new ConnectionPool(source, poolSize, POOL_TIMEOUT_MILLIS);
+        Connection schemaConnection = pool.get();
+        try {
+            LibrarySchema.create(schemaConnection, AuthenticationService.fromSystemProperties(pool));
+        } finally {
+            pool.release(schemaConnection);
+        }
+
+        LibraryEventBus eventBus = new LibraryEventBus();
+        LibraryRepository repository = new LibraryRepository(pool, eventBus, ChangeLog.newOrigin());
+
+        CatalogSnapshot catalog = new CatalogSnapshot(source);
+        eventBus.subscribeAll(catalog::apply);
+        // Positioned before the load, so nothing committed in between is missed
+        ChangeLogTailer tailer = new ChangeLogTailer(source, repository.getOrigin(), eventBus::publish);
+        tailer.seekToEnd();
+        catalog.load();
+        catalog.startPolling(CATALOG_POLL_INTERVAL_MS);
+        tailer.start(CHANGE_LOG_POLL_INTERVAL_MS);
+
+        LocalLibraryService local = new LocalLibraryService(repository, pool, STATS_TTL_MILLIS);
+        local.setCatalog(catalog);
+        LibraryService service = new BoundedLibraryService(local, poolSize, POOL_TIMEOUT_MILLIS);
+
+        InetSocketAddress address = bindAddress == null
+                ? new InetSocketAddress(InetAddress.getLoopbackAddress(), port) : new InetSocketAddress(bindAddress, port);
+        LibraryServer server = new LibraryServer(service, address);
+        server.start();
+        System.out.printf("Library server listening on %s:%d (%d database connections, %,d books cached)%n",
+                address.getHostString(), server.getPort(), poolSize, catalog.size());
+        if (!address.getAddress().isLoopbackAddress()) {
+            System.out.println("The API has no authentication; only bind beyond loopback on a trusted network");
+        }
+
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.stop();
+            tailer.stop();
+            catalog.stop();
+            pool.close();
+        }, "library-server-shutdown"));
+    }
+
+    private Object search(HttpExchange exchange) throws LibraryServiceException {
+        Map<String, String> params = queryParameters(exchange);
+        int limit = Math.min(intParameter(params, "limit", MAX_SEARCH_RESULTS), MAX_SEARCH_RESULTS);
+
+        List<Map<String, Object>> books = new ArrayList<>();
+        for (BookRow row : service.search(params.get("q"), params.getOrDefault("type", "Title"), limit)) {
+            books.add(row.toMap());
+        }
+        return books;
+    }
+
+    private Object loans(HttpExchange exchange) throws LibraryServiceException, IOException {
+        String path = exchange.getRequestURI().getPath();
+        if (path.equals("/api/loans") || path.equals("/api/loans/")) {
+            Map<String, Object> body = jsonBody(exchange);
+            LocalDateTime loanDate = dateField(body, "loanDate", LocalDateTime.now());
+            LocalDateTime returnDate = dateField(body, "returnDate", loanDate.plusDays(DEFAULT_LOAN_DAYS));
+            return service.checkout(stringField(body, "isbn"), stringField(body, "borrowerId"),
+                    stringField(body, "borrowerName"), loanDate, returnDate).toMap();
+        }
+
+        String[] parts = path.split("/");
+        if (parts.length == 5 && parts[4].equals("return")) {
+            try {
+                return service.returnLoan(Integer.parseInt(parts[3])).toMap();
+            } catch (NumberFormatException e) {
+                throw new LibraryServiceException(LibraryServiceException.Reason.INVALID_REQUEST,
+                        "Invalid loan ID '" + parts[3] + "'");
+            }
+        }
+        throw new LibraryServiceException(LibraryServiceException.Reason.NOT_FOUND, "No such resource: " + path);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Object circulation(HttpExchange exchange) throws LibraryServiceException, IOException {
+        Object items = jsonBody(exchange).get("scans");
+        if (!(items instanceof List<?>)) {
+            throw new IllegalArgumentException("scans must be a list");
+        }
+        List<CirculationScan> scans = new ArrayList<>();
+        for (Object item : (List<Object>) items) {
+            try {
+                scans.add(CirculationScan.fromMap((Map<String, Object>) item));
+            } catch (ClassCastException | NullPointerException | DateTimeParseException e) {
+                throw new IllegalArgumentException("Malformed scan: " + item);
+            }
+        }
+
+        List<Map<String, Object>> results = new ArrayList<>();
+        for (CirculationResult result : service.circulate(scans)) {
+            results.add(result.toMap());
+        }
+        return results;
+    }
+
+    private Object stats(HttpExchange exchange) throws LibraryServiceException {
+        LibraryService.Stats stats = service.stats();
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("totalBooks", stats.totalBooks());
+        map.put("onLoan", stats.onLoan());
+        map.put("overdue", stats.overdue());
+        return map;
+    }
+
+    private static void dispatch(HttpExchange exchange, String method, Route route) throws IOException {
+        long start = System.nanoTime();
+        int status = 200;
+        Object response;
+        try {
+            if (!method.equals(exchange.getRequestMethod())) {
+                exchange.getResponseHeaders().set("Allow", method);
+                status = 405;
+                response = error("Use " + method + " for this resource");
+            } else {
+                response = route.handle(exchange);
+            }
+        } catch (LibraryServiceException e) {
+            status = e.getReason().getHttpStatus();
+            response = error(e.getMessage());
+        } catch (IllegalArgumentException e) {
+            status = 400;
+            response = error(e.getMessage());
+        } catch (RuntimeException e) {
+            status = 500;
+            response = error("Internal error: " + e);
+            e.printStackTrace();
+        }
+
+        byte[] bytes = Json.write(response).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+        Metrics.timer("http " + exchange.getHttpContext().getPath()).recordSince(start);
+        if (status >= 500) {
+            Metrics.increment("http.errors");
+        }
+    }
+
+    private static Map<String, Object> error(String message) {
+        Map<String, Object> map = new HashMap<>();
+        map.put("error", message);
+        return map;
+    }
+
+    private static Map<String, String> queryParameters(HttpExchange exchange) {
+        Map<String, String> params = new HashMap<>();
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query == null) {
+            return params;
+        }
+        for (String pair : query.split("&")) {
+            int equals = pair.indexOf('=');
+            if (equals > 0) {
+                params.put(URLDecoder.decode(pair.substring(0, equals), StandardCharsets.UTF_8),
+                        URLDecoder.decode(pair.substring(equals + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return params;
+    }
+
+    private static int intParameter(Map<String, String> params, String name, int defaultValue) {
+        String value = params.get(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Parameter " + name + " must be a number");
+        }
+    }
+
+    private static Map<String, Object> jsonBody(HttpExchange exchange) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            return Json.parseObject(new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+    }
+
+    private static String stringField(Map<String, Object> body, String name) {
+        Object value = body.get(name);
+        return value == null ? null : value.toString();
+    }
+
+    private static LocalDateTime dateField(Map<String, Object> body, String name, LocalDateTime defaultValue) {
+        Object value = body.get(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return LocalDateTime.parse(value.toString());
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException(name + " must be an ISO date-time such as 2024-09-02T10:30");
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package yemedemertiwlidlibrarysystem;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+// Catalog search and circulation operations shared by the desk clients. The
+// desktop app runs them in-process (LocalLibraryService) or against a headless
+// LibraryServer (LibraryServiceClient), so many terminals can share one
+// connection pool and one catalog cache.
+public interface LibraryService {
+
+    record Stats(long totalBooks, long onLoan, long overdue) {
+    }
+
+    // Matching rows without covers, at most limit of them
+    List<BookRow> search(String query, String searchType, int limit) throws LibraryServiceException;
+
+    LoanRow checkout(String isbn, String borrowerId, String borrowerName,
+            LocalDateTime loanDate, LocalDateTime returnDate) throws LibraryServiceException;
+
+    LoanRow returnLoan(int loanId) throws LibraryServiceException;
+
+    // Applies a circulation station's scans in order in one transaction; a scan that
+    // cannot be applied is refused in its own result without failing the others
+    List<CirculationResult> circulate(List<CirculationScan> scans) throws LibraryServiceException;
+
+    Stats stats() throws LibraryServiceException;
+}
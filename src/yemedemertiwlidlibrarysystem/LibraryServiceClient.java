@@ -0,0 +1,138 @@
+package yemedemertiwlidlibrarysystem;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// LibraryService that forwards every call to a LibraryServer over HTTP. The
+// server logs and publishes the writes; afterWrite lets the desk client pull
+// them from the change log right away instead of waiting for the next poll.
+public class LibraryServiceClient implements LibraryService {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+    private final String baseUrl;
+    private final Runnable afterWrite;
+    private final HttpClient http = HttpClient.newBuilder().connectTimeout(TIMEOUT).build();
+
+    public LibraryServiceClient(String baseUrl, Runnable afterWrite) {
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+        this.afterWrite = afterWrite;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<BookRow> search(String query, String searchType, int limit) throws LibraryServiceException {
+        String path = "/api/books/search?q=" + encode(query) + "&type=" + encode(searchType) + "&limit=" + limit;
+        List<BookRow> rows = new ArrayList<>();
+        for (Object item : (List<Object>) send(HttpRequest.newBuilder(uri(path)).GET())) {
+            rows.add(BookRow.fromMap((Map<String, Object>) item));
+        }
+        return rows;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public LoanRow checkout(String isbn, String borrowerId, String borrowerName,
+            LocalDateTime loanDate, LocalDateTime returnDate) throws LibraryServiceException {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("isbn", isbn);
+        body.put("borrowerId", borrowerId);
+        body.put("borrowerName", borrowerName);
+        body.put("loanDate", loanDate.toString());
+        body.put("returnDate", returnDate.toString());
+
+        HttpRequest.Builder request = HttpRequest.newBuilder(uri("/api/loans"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(Json.write(body)));
+        LoanRow loan = LoanRow.fromMap((Map<String, Object>) send(request));
+        afterWrite.run();
+        return loan;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public LoanRow returnLoan(int loanId) throws LibraryServiceException {
+        HttpRequest.Builder request = HttpRequest.newBuilder(uri("/api/loans/" + loanId + "/return"))
+                .POST(HttpRequest.BodyPublishers.noBody());
+        LoanRow loan = LoanRow.fromMap((Map<String, Object>) send(request));
+        afterWrite.run();
+        return loan;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<CirculationResult> circulate(List<CirculationScan> scans) throws LibraryServiceException {
+        List<Object> items = new ArrayList<>();
+        for (CirculationScan scan : scans) {
+            items.add(scan.toMap());
+        }
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("scans", items);
+
+        HttpRequest.Builder request = HttpRequest.newBuilder(uri("/api/circulation"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(Json.write(body)));
+        List<CirculationResult> results = new ArrayList<>();
+        for (Object item : (List<Object>) send(request)) {
+            results.add(CirculationResult.fromMap((Map<String, Object>) item));
+        }
+        afterWrite.run();
+        return results;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Stats stats() throws LibraryServiceException {
+        Map<String, Object> map = (Map<String, Object>) send(HttpRequest.newBuilder(uri("/api/stats")).GET());
+        return new Stats(((Number) map.get("totalBooks")).longValue(), ((Number) map.get("onLoan")).longValue(),
+                ((Number) map.get("overdue")).longValue());
+    }
+
+    private Object send(HttpRequest.Builder request) throws LibraryServiceException {
+        HttpResponse<String> response;
+        try {
+            response = http.send(request.timeout(TIMEOUT).build(),
+                    HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new LibraryServiceException(LibraryServiceException.Reason.UNAVAILABLE,
+                    "Library server not reachable at " + baseUrl + ": " + e.getMessage(), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new LibraryServiceException(LibraryServiceException.Reason.UNAVAILABLE, "Request interrupted", e);
+        }
+
+        Object body;
+        try {
+            body = Json.parse(response.body());
+        } catch (IllegalArgumentException e) {
+            throw new LibraryServiceException(LibraryServiceException.Reason.fromHttpStatus(response.statusCode()),
+                    "Unexpected response from " + baseUrl + " (HTTP " + response.statusCode() + ")", e);
+        }
+        if (response.statusCode() != 200) {
+            String message = body instanceof Map<?, ?> map && map.get("error") != null
+                    ? map.get("error").toString() : "HTTP " + response.statusCode();
+            throw new LibraryServiceException(LibraryServiceException.Reason.fromHttpStatus(response.statusCode()),
+                    message);
+        }
+        return body;
+    }
+
+    private URI uri(String path) {
+        return URI.create(baseUrl + path);
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value == null ? "" : value, StandardCharsets.UTF_8);
+    }
+}
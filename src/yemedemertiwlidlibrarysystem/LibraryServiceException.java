@@ -0,0 +1,50 @@
+package yemedemertiwlidlibrarysystem;
+
+// Failure of a LibraryService operation. The reason tells callers (and the HTTP
+// layer) whether the request itself was wrong or the backend failed.
+public class LibraryServiceException extends Exception {
+
+    private static final long serialVersionUID = 1L;
+
+    public enum Reason {
+        INVALID_REQUEST(400),
+        NOT_FOUND(404),
+        CONFLICT(409),
+        UNAVAILABLE(503);
+
+        private final int httpStatus;
+
+        Reason(int httpStatus) {
+            this.httpStatus = httpStatus;
+        }
+
+        public int getHttpStatus() {
+            return httpStatus;
+        }
+
+        public static Reason fromHttpStatus(int status) {
+            for (Reason reason : values()) {
+                if (reason.httpStatus == status) {
+                    return reason;
+                }
+            }
+            return UNAVAILABLE;
+        }
+    }
+
+    private final Reason reason;
+
+    public LibraryServiceException(Reason reason, String message) {
+        super(message);
+        this.reason = reason;
+    }
+
+    public LibraryServiceException(Reason reason, String message, Throwable cause) {
+        super(message, cause);
+        this.reason = reason;
+    }
+
+    public Reason getReason() {
+        return reason;
+    }
+}
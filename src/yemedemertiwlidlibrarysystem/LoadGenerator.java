@@ -0,0 +1,302 @@
+package yemedemertiwlidlibrarysystem;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+// Closed-loop load generator for a LibraryService: each of concurrency virtual
+// threads issues its next request as soon as the previous one answered, picking
+// operations from a weighted mix. Workers return the books they borrowed, so
+// long runs do not drain the catalog. Latencies from the warm-up are discarded.
+public class LoadGenerator {
+
+    public enum Operation {
+        SEARCH, CHECKOUT, RETURN, STATS
+    }
+
+    // Relative weights of the operations, e.g. "search=50,checkout=20,return=20,stats=10"
+    public static class Mix {
+
+        public static final Mix SEMESTER_START = parse("search=50,checkout=20,return=20,stats=10");
+
+        private final int[] weights = new int[Operation.values().length];
+        private int total;
+
+        public static Mix parse(String spec) {
+            Mix mix = new Mix();
+            for (String part : spec.split(",")) {
+                String[] pair = part.trim().split("=");
+                if (pair.length != 2) {
+                    throw new IllegalArgumentException("Expected operation=weight, got '" + part + "'");
+                }
+                int weight = Integer.parseInt(pair[1].trim());
+                mix.weights[Operation.valueOf(pair[0].trim().toUpperCase(Locale.ROOT)).ordinal()] = weight;
+                mix.total += weight;
+            }
+            if (mix.total <= 0) {
+                throw new IllegalArgumentException("The mix needs at least one positive weight");
+            }
+            return mix;
+        }
+
+        Operation pick(Random random) {
+            int value = random.nextInt(total);
+            for (Operation operation : Operation.values()) {
+                value -= weights[operation.ordinal()];
+                if (value < 0) {
+                    return operation;
+                }
+            }
+            return Operation.SEARCH;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            for (Operation operation : Operation.values()) {
+                if (weights[operation.ordinal()] > 0) {
+                    if (sb.length() > 0) {
+                        sb.append(',');
+                    }
+                    sb.append(operation.name().toLowerCase(Locale.ROOT)).append('=').append(weights[operation.ordinal()]);
+                }
+            }
+            return sb.toString();
+        }
+    }
+
+    public static class Report {
+
+        private final int concurrency;
+        private final double seconds;
+        private final Map<Operation, long[]> latencies = new EnumMap<>(Operation.class);
+        private final Map<Operation, Long> rejected = new EnumMap<>(Operation.class);
+        private final Map<Operation, Long> errors = new EnumMap<>(Operation.class);
+        private String firstError;
+
+        Report(int concurrency, double seconds) {
+            this.concurrency = concurrency;
+            this.seconds = seconds;
+        }
+
+        public long getCompleted() {
+            long completed = 0;
+            for (long[] values : latencies.values()) {
+                completed += values.length;
+            }
+            return completed;
+        }
+
+        public double getThroughput() {
+            return getCompleted() / seconds;
+        }
+
+        // Latency in milliseconds at the given fraction (0.5, 0.99, 0.999) over all operations
+        public double percentile(double fraction) {
+            long[] all = new long[(int) getCompleted()];
+            int offset = 0;
+            for (long[] values : latencies.values()) {
+                System.arraycopy(values, 0, all, offset, values.length);
+                offset += values.length;
+            }
+            Arrays.sort(all);
+            return percentile(all, fraction);
+        }
+
+        private static double percentile(long[] sorted, double fraction) {
+            if (sorted.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.ceil(fraction * sorted.length) - 1;
+            return sorted[Math.max(0, Math.min(index, sorted.length - 1))] / 1e6;
+        }
+
+        public String summary() {
+            StringBuilder sb = new StringBuilder(String.format(
+                    "concurrency %d: %,d requests in %.1f s, %,.0f req/s, p50 %.2f ms, p99 %.2f ms, p99.9 %.2f ms",
+                    concurrency, getCompleted(), seconds, getThroughput(),
+                    percentile(0.50), percentile(0.99), percentile(0.999)));
+            for (Map.Entry<Operation, long[]> entry : latencies.entrySet()) {
+                long[] sorted = entry.getValue();
+                sb.append(String.format("%n  %-8s %,9d ok %,7d rejected %,7d errors  p50 %7.2f  p99 %7.2f  p99.9 %7.2f  max %7.2f ms",
+                        entry.getKey(), sorted.length, rejected.getOrDefault(entry.getKey(), 0L),
+                        errors.getOrDefault(entry.getKey(), 0L), percentile(sorted, 0.50), percentile(sorted, 0.99),
+                        percentile(sorted, 0.999), percentile(sorted, 1.0)));
+            }
+            if (firstError != null) {
+                sb.append("\n  first error: ").append(firstError);
+            }
+            return sb.toString();
+        }
+    }
+
+    // Loans a single worker keeps open before it starts returning instead of borrowing
+    private static final int MAX_OPEN_LOANS = 3;
+
+    private final LibraryService service;
+    private final List<BookRow> sample;
+    private final Mix mix;
+    private final int concurrency;
+
+    public LoadGenerator(LibraryService service, List<BookRow> sample, Mix mix, int concurrency) {
+        if (sample.isEmpty()) {
+            throw new IllegalArgumentException("The load generator needs at least one book to work with");
+        }
+        this.service = service;
+        this.sample = sample;
+        this.mix = mix;
+        this.concurrency = concurrency;
+    }
+
+    public Report run(Duration warmup, Duration duration) throws InterruptedException {
+        long start = System.nanoTime();
+        long measureFrom = start + warmup.toNanos();
+        long stopAt = measureFrom + duration.toNanos();
+
+        Worker[] workers = new Worker[concurrency];
+        Thread[] threads = new Thread[concurrency];
+        for (int i = 0; i < concurrency; i++) {
+            workers[i] = new Worker(i, measureFrom, stopAt);
+            threads[i] = Thread.ofVirtual().name("load-worker-" + i).start(workers[i]);
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        Report report = new Report(concurrency, duration.toNanos() / 1e9);
+        for (Operation operation : Operation.values()) {
+            List<long[]> parts = new ArrayList<>();
+            int length = 0;
+            for (Worker worker : workers) {
+                long[] values = worker.latencies.get(operation).toArray();
+                parts.add(values);
+                length += values.length;
+                report.rejected.merge(operation, worker.rejected[operation.ordinal()], Long::sum);
+                report.errors.merge(operation, worker.errors[operation.ordinal()], Long::sum);
+                if (report.firstError == null) {
+                    report.firstError = worker.firstError;
+                }
+            }
+            if (length == 0) {
+                continue;
+            }
+            long[] merged = new long[length];
+            int offset = 0;
+            for (long[] part : parts) {
+                System.arraycopy(part, 0, merged, offset, part.length);
+                offset += part.length;
+            }
+            Arrays.sort(merged);
+            report.latencies.put(operation, merged);
+        }
+        return report;
+    }
+
+    private class Worker implements Runnable {
+
+        private final int index;
+        private final long measureFrom;
+        private final long stopAt;
+        private final Random random;
+        private final ArrayDeque<LoanRow> openLoans = new ArrayDeque<>();
+        private final Map<Operation, LongBuffer> latencies = new EnumMap<>(Operation.class);
+        private final long[] rejected = new long[Operation.values().length];
+        private final long[] errors = new long[Operation.values().length];
+        private String firstError;
+
+        Worker(int index, long measureFrom, long stopAt) {
+            this.index = index;
+            this.measureFrom = measureFrom;
+            this.stopAt = stopAt;
+            this.random = new Random(31L * index + 7);
+            for (Operation operation : Operation.values()) {
+                latencies.put(operation, new LongBuffer());
+            }
+        }
+
+        @Override
+        public void run() {
+            long now;
+            while ((now = System.nanoTime()) < stopAt) {
+                Operation operation = mix.pick(random);
+                if (operation == Operation.RETURN && openLoans.isEmpty()) {
+                    operation = Operation.CHECKOUT;
+                } else if (operation == Operation.CHECKOUT && openLoans.size() >= MAX_OPEN_LOANS) {
+                    operation = Operation.RETURN;
+                }
+
+                boolean measured = now >= measureFrom;
+                long begin = System.nanoTime();
+                try {
+                    execute(operation);
+                    if (measured) {
+                        latencies.get(operation).add(System.nanoTime() - begin);
+                    }
+                } catch (LibraryServiceException e) {
+                    if (!measured) {
+                        continue;
+                    }
+                    if (e.getReason() == LibraryServiceException.Reason.CONFLICT) {
+                        rejected[operation.ordinal()]++;
+                    } else {
+                        errors[operation.ordinal()]++;
+                        if (firstError == null) {
+                            firstError = operation + ": " + e.getMessage();
+                        }
+                    }
+                }
+            }
+
+            // Give the borrowed copies back so the next run starts from the same state
+            for (LoanRow loan : openLoans) {
+                try {
+                    service.returnLoan(loan.id());
+                } catch (LibraryServiceException ignored) {
+                    // Already returned or the service is gone; nothing left to clean up
+                }
+            }
+        }
+
+        private void execute(Operation operation) throws LibraryServiceException {
+            BookRow book = sample.get(random.nextInt(sample.size()));
+            switch (operation) {
+                case SEARCH -> {
+                    String title = book.title();
+                    service.search(title.substring(0, Math.min(title.length(), 3 + random.nextInt(8))), "Title", 50);
+                }
+                case CHECKOUT -> {
+                    LocalDateTime now = LocalDateTime.now();
+                    openLoans.add(service.checkout(book.isbn(), "LOAD-" + index, "Load Worker " + index,
+                            now, now.plusWeeks(2)));
+                }
+                case RETURN -> service.returnLoan(openLoans.poll().id());
+                case STATS -> service.stats();
+            }
+        }
+    }
+
+    // Growable list of primitive longs, so recording a latency does not box
+    private static class LongBuffer {
+
+        private long[] values = new long[1024];
+        private int size = 0;
+
+        void add(long value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        long[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package yemedemertiwlidlibrarysystem;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Immutable row of the loans table for the data and service layers
+public record LoanRow(int id, String isbn, String borrowerId, String borrowerName,
+        LocalDateTime loanDate, LocalDateTime returnDate, boolean returned) {
+
+    public static LoanRow fromResultSet(ResultSet rs) throws SQLException {
+        return new LoanRow(
+                rs.getInt("id"),
+                rs.getString("isbn"),
+                rs.getString("borrower_id"),
+                rs.getString("borrower_name"),
+                rs.getTimestamp("loan_date").toLocalDateTime(),
+                rs.getTimestamp("return_date").toLocalDateTime(),
+                rs.getBoolean("returned")
+        );
+    }
+
+    public boolean isOverdue(LocalDateTime now) {
+        return !returned && returnDate.isBefore(now);
+    }
+
+    public String status(LocalDateTime now) {
+        if (returned) {
+            return "Returned";
+        }
+        return isOverdue(now) ? "Overdue" : "On Loan";
+    }
+
+    public LoanRow asReturned() {
+        return new LoanRow(id, isbn, borrowerId, borrowerName, loanDate, returnDate, true);
+    }
+
+    // Field map for the server's JSON API, dates in ISO-8601
+    public Map<String, Object> toMap() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("id", id);
+        map.put("isbn", isbn);
+        map.put("borrowerId", borrowerId);
+        map.put("borrowerName", borrowerName);
+        map.put("loanDate", loanDate.toString());
+        map.put("returnDate", returnDate.toString());
+        map.put("returned", returned);
+        return map;
+    }
+
+    public static LoanRow fromMap(Map<String, Object> map) {
+        return new LoanRow(((Number) map.get("id")).intValue(), (String) map.get("isbn"),
+                (String) map.get("borrowerId"), (String) map.get("borrowerName"),
+                LocalDateTime.parse((String) map.get("loanDate")), LocalDateTime.parse((String) map.get("returnDate")),
+                Boolean.TRUE.equals(map.get("returned")));
+    }
+}
@@ -0,0 +1,214 @@
+package yemedemertiwlidlibrarysystem;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLTransactionRollbackException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+// LibraryService backed directly by the database. Reads are answered from the
+// in-memory catalog when one is attached; writes go through LibraryRepository so
+// they are logged and published like every other change.
+public class LocalLibraryService implements LibraryService {
+
+    public static final int MAX_CIRCULATION_BATCH = 200;
+
+    private final LibraryRepository repository;
+    private final LibraryRepository.ConnectionProvider connections;
+    // Stats are shared by every terminal asking within this window; 0 disables caching
+    private final long statsTtlMillis;
+
+    private volatile CatalogSnapshot catalog;
+    private volatile Stats cachedStats;
+    private volatile long statsExpiresAt;
+
+    public LocalLibraryService(LibraryRepository repository, LibraryRepository.ConnectionProvider connections,
+            long statsTtlMillis) {
+        this.repository = repository;
+        this.connections = connections;
+        this.statsTtlMillis = statsTtlMillis;
+    }
+
+    public void setCatalog(CatalogSnapshot catalog) {
+        this.catalog = catalog;
+    }
+
+    @Override
+    public List<BookRow> search(String query, String searchType, int limit) throws LibraryServiceException {
+        if (query == null || query.trim().isEmpty()) {
+            throw new LibraryServiceException(LibraryServiceException.Reason.INVALID_REQUEST, "Search text is empty");
+        }
+
+        CatalogSnapshot snapshot = catalog;
+        boolean inMemory = snapshot != null && snapshot.isReady();
+        Metrics.cacheHit("catalog.search", inMemory);
+        if (inMemory) {
+            return snapshot.search(query, searchType, limit);
+        }
+
+        String sql = "SELECT " + BookRow.COLUMNS + " FROM books WHERE " + searchColumn(searchType) + " LIKE ? LIMIT ?";
+        try {
+            Connection conn = connections.get();
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                pstmt.setString(1, "%" + query + "%");
+                pstmt.setInt(2, limit);
+                List<BookRow> results = new ArrayList<>();
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        results.add(BookRow.fromResultSet(rs, false));
+                    }
+                }
+                return results;
+            } finally {
+                connections.release(conn);
+            }
+        } catch (SQLException e) {
+            throw databaseError(e);
+        }
+    }
+
+    @Override
+    public LoanRow checkout(String isbn, String borrowerId, String borrowerName,
+            LocalDateTime loanDate, LocalDateTime returnDate) throws LibraryServiceException {
+        if (isBlank(isbn) || isBlank(borrowerId) || isBlank(borrowerName) || loanDate == null || returnDate == null) {
+            throw new LibraryServiceException(LibraryServiceException.Reason.INVALID_REQUEST,
+                    "ISBN, borrower ID, borrower name and both dates are required");
+        }
+        if (returnDate.isBefore(loanDate)) {
+            throw new LibraryServiceException(LibraryServiceException.Reason.INVALID_REQUEST,
+                    "Return date must be after the loan date");
+        }
+
+        // Availability is checked inside the loan's transaction, under a lock on the book
+        try {
+            return repository.createLoan(isbn, borrowerId, borrowerName, loanDate, returnDate);
+        } catch (SQLException e) {
+            throw databaseError(e);
+        }
+    }
+
+    @Override
+    public LoanRow returnLoan(int loanId) throws LibraryServiceException {
+        try {
+            LoanRow loan = repository.findLoan(loanId);
+            if (loan == null) {
+                throw new LibraryServiceException(LibraryServiceException.Reason.NOT_FOUND, "No loan with ID " + loanId);
+            }
+            if (loan.returned()) {
+                throw new LibraryServiceException(LibraryServiceException.Reason.CONFLICT,
+                        "This loan has already been returned");
+            }
+            return repository.returnLoan(loan);
+        } catch (SQLException e) {
+            throw databaseError(e);
+        }
+    }
+
+    @Override
+    public List<CirculationResult> circulate(List<CirculationScan> scans) throws LibraryServiceException {
+        if (scans == null || scans.isEmpty() || scans.size() > MAX_CIRCULATION_BATCH) {
+            throw new LibraryServiceException(LibraryServiceException.Reason.INVALID_REQUEST,
+                    "Send between 1 and " + MAX_CIRCULATION_BATCH + " scans at a time");
+        }
+        for (CirculationScan scan : scans) {
+            if (scan == null || scan.kind() == null || isBlank(scan.isbn()) || scan.scannedAt() == null) {
+                throw new LibraryServiceException(LibraryServiceException.Reason.INVALID_REQUEST,
+                        "Every scan needs a kind, an ISBN and the time it was scanned");
+            }
+            if (scan.kind() == CirculationScan.Kind.CHECKOUT
+                    && (isBlank(scan.borrowerId()) || scan.dueDate() == null || scan.dueDate().isBefore(scan.scannedAt()))) {
+                throw new LibraryServiceException(LibraryServiceException.Reason.INVALID_REQUEST,
+                        "A checkout needs a borrower ID and a due date after the scan");
+            }
+        }
+
+        long start = System.nanoTime();
+        try {
+            return repository.circulate(scans);
+        } catch (SQLException e) {
+            // A deadlock or serialization failure rolled the whole batch back; tell the
+            // caller it is safe to send the scans again
+            if (e instanceof SQLTransactionRollbackException || (e.getSQLState() != null && e.getSQLState().startsWith("40"))) {
+                throw new LibraryServiceException(LibraryServiceException.Reason.CONFLICT,
+                        "Batch rolled back: " + e.getMessage(), e);
+            }
+            throw databaseError(e);
+        } finally {
+            Metrics.timer("circulation.batch").recordSince(start);
+            Metrics.add("circulation.scans", scans.size());
+        }
+    }
+
+    @Override
+    public Stats stats() throws LibraryServiceException {
+        Stats stats = cachedStats;
+        boolean fresh = stats != null && System.currentTimeMillis() < statsExpiresAt;
+        Metrics.cacheHit("stats", fresh);
+        if (fresh) {
+            return stats;
+        }
+
+        try {
+            Connection conn = connections.get();
+            try {
+                stats = new Stats(
+                        count(conn, "SELECT SUM(quantity) FROM books", null),
+                        count(conn, "SELECT COUNT(*) FROM loans WHERE returned = 0", null),
+                        count(conn, "SELECT COUNT(*) FROM loans WHERE returned = 0 AND return_date < ?",
+                                Timestamp.valueOf(LocalDateTime.now())));
+            } finally {
+                connections.release(conn);
+            }
+        } catch (SQLException e) {
+            throw databaseError(e);
+        }
+
+        cachedStats = stats;
+        statsExpiresAt = System.currentTimeMillis() + statsTtlMillis;
+        return stats;
+    }
+
+    private static long count(Connection conn, String sql, Timestamp parameter) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            if (parameter != null) {
+                pstmt.setTimestamp(1, parameter);
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? rs.getLong(1) : 0;
+            }
+        }
+    }
+
+    public static String searchColumn(String searchType) {
+        if (searchType == null) {
+            return "title";
+        }
+        switch (searchType) {
+            case "Author":
+                return "author";
+            case "ISBN":
+                return "isbn";
+            case "Genre":
+                return "genre";
+            case "Shelf":
+                return "shelf_number";
+            case "Status":
+                return "status";
+            default:
+                return "title";
+        }
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.trim().isEmpty();
+    }
+
+    private static LibraryServiceException databaseError(SQLException e) {
+        return new LibraryServiceException(LibraryServiceException.Reason.UNAVAILABLE,
+                "Database error: " + e.getMessage(), e);
+    }
+}
@@ -0,0 +1,245 @@
+package yemedemertiwlidlibrarysystem;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+// Process-wide timers and counters. Recording is a few uncontended adds, so the
+// hot paths (every JDBC statement, pool checkout, HTTP request) are instrumented
+// unconditionally. Names are free-form; by convention:
+//   jdbc <normalized sql>   statement execution, see InstrumentedJdbc
+//   fx.jdbc                 JDBC time spent on the FX application thread
+//   pool.wait               waiting for a pooled connection
+//   service.wait            waiting for a BoundedLibraryService permit
+//   http <path>             server requests, including writing the response
+//   cache.<name>.hit/miss   hit rate is reported for each pair
+public final class Metrics {
+
+    // Latencies are bucketed by powers of two microseconds; percentiles report the bucket's upper bound
+    private static final int BUCKETS = 40;
+
+    public static final class Timer {
+
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+
+        public void record(long nanos) {
+            count.increment();
+            totalNanos.add(nanos);
+            maxNanos.accumulate(nanos);
+            long micros = Math.max(nanos / 1000, 1);
+            buckets.incrementAndGet(Math.min(63 - Long.numberOfLeadingZeros(micros), BUCKETS - 1));
+        }
+
+        // Records the time since a System.nanoTime() start value
+        public void recordSince(long startNanos) {
+            record(System.nanoTime() - startNanos);
+        }
+
+        public long getCount() {
+            return count.sum();
+        }
+
+        public double getTotalMillis() {
+            return totalNanos.sum() / 1e6;
+        }
+
+        public double getMeanMillis() {
+            long n = count.sum();
+            return n == 0 ? 0 : totalNanos.sum() / 1e6 / n;
+        }
+
+        public double getMaxMillis() {
+            return maxNanos.get() / 1e6;
+        }
+
+        public double percentileMillis(double p) {
+            long n = count.sum();
+            if (n == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(p / 100 * n);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += buckets.get(i);
+                if (seen >= rank) {
+                    return Math.min((2L << i) / 1000.0, getMaxMillis());
+                }
+            }
+            return getMaxMillis();
+        }
+    }
+
+    private static final ConcurrentHashMap<String, Timer> timers = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<String, LongAdder> counters = new ConcurrentHashMap<>();
+    private static final DateTimeFormatter TIMESTAMP = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final int DUMP_TOP_TIMERS = 40;
+
+    private static ScheduledExecutorService reporter;
+
+    private Metrics() {
+    }
+
+    public static Timer timer(String name) {
+        return timers.computeIfAbsent(name, key -> new Timer());
+    }
+
+    public static void increment(String name) {
+        counters.computeIfAbsent(name, key -> new LongAdder()).increment();
+    }
+
+    public static void add(String name, long delta) {
+        counters.computeIfAbsent(name, key -> new LongAdder()).add(delta);
+    }
+
+    public static long count(String name) {
+        LongAdder counter = counters.get(name);
+        return counter == null ? 0 : counter.sum();
+    }
+
+    public static void cacheHit(String cache, boolean hit) {
+        increment("cache." + cache + (hit ? ".hit" : ".miss"));
+    }
+
+    public static void reset() {
+        timers.clear();
+        counters.clear();
+    }
+
+    // Plain-text report: timers by total time, counters, cache hit rates and recent slow queries
+    public static String dump() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("Metrics at ").append(LocalDateTime.now().format(TIMESTAMP)).append('\n');
+
+        List<Map.Entry<String, Timer>> sorted = new ArrayList<>(timers.entrySet());
+        sorted.sort(Comparator.comparingDouble((Map.Entry<String, Timer> e) -> e.getValue().getTotalMillis()).reversed());
+        sb.append(String.format("%n%10s %10s %9s %9s %9s %9s  %s%n",
+                "count", "total ms", "mean ms", "p50 ms", "p99 ms", "max ms", "timer"));
+        for (int i = 0; i < sorted.size() && i < DUMP_TOP_TIMERS; i++) {
+            Timer t = sorted.get(i).getValue();
+            sb.append(String.format("%,10d %,10.1f %9.2f %9.2f %9.2f %9.2f  %s%n", t.getCount(), t.getTotalMillis(),
+                    t.getMeanMillis(), t.percentileMillis(50), t.percentileMillis(99), t.getMaxMillis(),
+                    sorted.get(i).getKey()));
+        }
+        if (sorted.size() > DUMP_TOP_TIMERS) {
+            sb.append("... ").append(sorted.size() - DUMP_TOP_TIMERS).append(" more timers\n");
+        }
+
+        sb.append('\n');
+        counters.entrySet().stream()
+                .sorted(Map.Entry.comparingByKey())
+                .forEach(e -> sb.append(String.format("%,14d  %s%n", e.getValue().sum(), e.getKey())));
+
+        for (Map.Entry<String, Double> rate : hitRates().entrySet()) {
+            sb.append(String.format("%13.1f%%  %s hit rate%n", rate.getValue() * 100, rate.getKey()));
+        }
+
+        List<String> slow = InstrumentedJdbc.recentSlowQueries();
+        if (!slow.isEmpty()) {
+            sb.append("\nSlow queries (over ").append(InstrumentedJdbc.getSlowQueryMillis()).append(" ms):\n");
+            for (String line : slow) {
+                sb.append(line).append('\n');
+            }
+        }
+        return sb.toString();
+    }
+
+    // Same data as dump(), for the server's JSON API
+    public static Map<String, Object> toMap() {
+        Map<String, Object> timerMap = new LinkedHashMap<>();
+        timers.entrySet().stream()
+                .sorted(Map.Entry.comparingByKey())
+                .forEach(e -> {
+                    Timer t = e.getValue();
+                    Map<String, Object> values = new LinkedHashMap<>();
+                    values.put("count", t.getCount());
+                    values.put("totalMs", t.getTotalMillis());
+                    values.put("meanMs", t.getMeanMillis());
+                    values.put("p50Ms", t.percentileMillis(50));
+                    values.put("p99Ms", t.percentileMillis(99));
+                    values.put("maxMs", t.getMaxMillis());
+                    timerMap.put(e.getKey(), values);
+                });
+
+        Map<String, Object> counterMap = new LinkedHashMap<>();
+        counters.entrySet().stream()
+                .sorted(Map.Entry.comparingByKey())
+                .forEach(e -> counterMap.put(e.getKey(), e.getValue().sum()));
+
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("timers", timerMap);
+        map.put("counters", counterMap);
+        map.put("cacheHitRates", new LinkedHashMap<String, Object>(hitRates()));
+        map.put("slowQueries", new ArrayList<Object>(InstrumentedJdbc.recentSlowQueries()));
+        return map;
+    }
+
+    private static Map<String, Double> hitRates() {
+        Map<String, Double> rates = new LinkedHashMap<>();
+        counters.keySet().stream()
+                .filter(name -> name.startsWith("cache.") && name.endsWith(".hit"))
+                .sorted()
+                .forEach(name -> {
+                    String cache = name.substring("cache.".length(), name.length() - ".hit".length());
+                    long hits = count(name);
+                    long total = hits + count("cache." + cache + ".miss");
+                    rates.put(cache, total == 0 ? 0 : (double) hits / total);
+                });
+        return rates;
+    }
+
+    // Rewrites the dump to file every interval; the file is replaced atomically so
+    // it can be tailed or copied at any time.
+    public static synchronized void startFileReporter(Path file, long intervalSeconds) {
+        if (reporter != null) {
+            return;
+        }
+        reporter = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "metrics-reporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        reporter.scheduleWithFixedDelay(() -> {
+            try {
+                Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+                Files.writeString(temp, dump(), StandardCharsets.UTF_8);
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                System.err.println("Could not write metrics to " + file + ": " + e.getMessage());
+            }
+        }, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    // Starts the file reporter when -Dlibrary.metrics.file is set (interval from -Dlibrary.metrics.interval, seconds)
+    public static void startFileReporterFromSystemProperties() {
+        String file = System.getProperty("library.metrics.file");
+        if (file != null && !file.isEmpty()) {
+            startFileReporter(Path.of(file), Long.getLong("library.metrics.interval", 60));
+        }
+    }
+
+    public static synchronized void stopFileReporter() {
+        if (reporter != null) {
+            reporter.shutdownNow();
+            reporter = null;
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package yemedemertiwlidlibrarysystem;
+
+import java.util.List;
+import java.util.function.Consumer;
+import javafx.concurrent.Task;
+
+// Pages through a result for infinite scroll. At most one fetch is in flight, each
+// page is fetched exactly once, and the page after the one just shown is fetched in
+// the background right away, so when the user reaches the bottom it is handed over
+// without waiting. A page shorter than the page size ends the data. start() and
+// cancel() bump a generation number so a fetch that completes after the view was
+// reset or left is dropped instead of being appended to the wrong list.
+//
+// Each fetch is given the last item of the page before it, so a source can page by
+// key (WHERE key > last) and rows inserted or deleted meanwhile do not shift later
+// pages the way an OFFSET would.
+//
+// All methods and callbacks run on the FX application thread.
+public class PageLoader<T> {
+
+    public enum State {
+        // Nothing in flight; the next page may be prefetched and waiting
+        IDLE,
+        LOADING,
+        // The last page has been delivered
+        EXHAUSTED,
+        CANCELLED
+    }
+
+    public interface PageSource<T> {
+
+        // after is the last item of the previous page, null for the first page
+        List<T> fetch(int page, T after, int pageSize) throws Exception;
+    }
+
+    private final int pageSize;
+    private final PageSource<T> source;
+    private final Consumer<List<T>> sink;
+    private Consumer<Boolean> onWaiting = waiting -> {
+    };
+    private Consumer<Throwable> onError = error -> {
+    };
+
+    private State state = State.CANCELLED;
+    private int generation = 0;
+    // Page the sink receives next
+    private int nextPage = 0;
+    // nextPage, when it has already been fetched
+    private List<T> prefetched;
+    // Last item of the most recently fetched page
+    private T lastFetched;
+    private Task<List<T>> inFlight;
+    // The sink asked for nextPage while it was still in flight
+    private boolean waiting = false;
+
+    public PageLoader(int pageSize, PageSource<T> source, Consumer<List<T>> sink) {
+        this.pageSize = pageSize;
+        this.source = source;
+        this.sink = sink;
+    }
+
+    // Called with true while the user waits for a page that is not fetched yet, false when it arrives
+    public void setOnWaiting(Consumer<Boolean> onWaiting) {
+        this.onWaiting = onWaiting;
+    }
+
+    public void setOnError(Consumer<Throwable> onError) {
+        this.onError = onError;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    // Starts over from the first page and delivers it as soon as it is fetched
+    public void start() {
+        cancel();
+        state = State.IDLE;
+        nextPage = 0;
+        lastFetched = null;
+        requestNext();
+    }
+
+    public void cancel() {
+        generation++;
+        if (inFlight != null) {
+            inFlight.cancel();
+            inFlight = null;
+        }
+        prefetched = null;
+        setWaiting(false);
+        state = State.CANCELLED;
+    }
+
+    // The user is near the end of what is shown; repeated calls for the same page are ignored
+    public void requestNext() {
+        if (state == State.EXHAUSTED || state == State.CANCELLED || waiting) {
+            return;
+        }
+        if (prefetched != null) {
+            Metrics.cacheHit("page.prefetch", true);
+            List<T> rows = prefetched;
+            prefetched = null;
+            deliver(rows);
+        } else if (inFlight != null) {
+            // Prefetch of this page is still running; hand it over when it completes
+            Metrics.cacheHit("page.prefetch", false);
+            setWaiting(true);
+        } else {
+            fetch(nextPage, true);
+        }
+    }
+
+    private void deliver(List<T> rows) {
+        nextPage++;
+        if (rows.size() < pageSize) {
+            state = State.EXHAUSTED;
+        } else {
+            fetch(nextPage, false);
+        }
+        sink.accept(rows);
+    }
+
+    private void fetch(int page, boolean userWaiting) {
+        int fetchGeneration = generation;
+        T after = lastFetched;
+        Task<List<T>> task = new Task<>() {
+            @Override
+            protected List<T> call() throws Exception {
+                return source.fetch(page, after, pageSize);
+            }
+        };
+        task.setOnSucceeded(e -> {
+            if (fetchGeneration != generation) {
+                return;
+            }
+            inFlight = null;
+            state = State.IDLE;
+            List<T> rows = task.getValue();
+            if (!rows.isEmpty()) {
+                lastFetched = rows.get(rows.size() - 1);
+            }
+            if (waiting) {
+                setWaiting(false);
+                deliver(rows);
+            } else if (rows.isEmpty()) {
+                // The previous page was exactly full and was the last one
+                state = State.EXHAUSTED;
+            } else {
+                prefetched = rows;
+            }
+        });
+        task.setOnFailed(e -> {
+            if (fetchGeneration != generation) {
+                return;
+            }
+            inFlight = null;
+            state = State.IDLE;
+            setWaiting(false);
+            onError.accept(task.getException());
+        });
+
+        inFlight = task;
+        state = State.LOADING;
+        setWaiting(userWaiting);
+        Metrics.increment("page.fetches");
+        Thread thread = new Thread(task, "page-loader");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void setWaiting(boolean value) {
+        if (waiting != value) {
+            waiting = value;
+            onWaiting.accept(value);
+        }
+    }
+}
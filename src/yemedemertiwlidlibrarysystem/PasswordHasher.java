@@ -0,0 +1,140 @@
+package yemedemertiwlidlibrarysystem;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.HexFormat;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+
+// Salted, deliberately slow password hashes: PBKDF2 with HMAC-SHA256, a random
+// 16-byte salt per user and a tunable iteration count (-Dlibrary.passwordIterations,
+// default 600,000). The password column holds "pbkdf2-sha256$<iterations>$<hash>" and
+// the salt goes in the password_salt column, both Base64. Rows from before salts have
+// no salt and an unsalted hex SHA-256 in the password column; they still verify and
+// needsRehash() reports them, so they are upgraded at the next login.
+//
+// Comparisons are constant time (MessageDigest.isEqual). Thread safe.
+public final class PasswordHasher {
+
+    public static final String ALGORITHM = "pbkdf2-sha256";
+    public static final int DEFAULT_ITERATIONS = 600_000;
+    private static final int SALT_BYTES = 16;
+    private static final int KEY_BITS = 256;
+
+    // Key factories and digests are not thread safe, but are reusable
+    private static final ThreadLocal<SecretKeyFactory> PBKDF2 = ThreadLocal.withInitial(() -> {
+        try {
+            return SecretKeyFactory.getInstance("PBKDF2WithHmacSHA256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("PBKDF2WithHmacSHA256 is not available", e);
+        }
+    });
+    private static final ThreadLocal<MessageDigest> SHA256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    });
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    public record Hash(String encoded, String salt) {
+    }
+
+    private final int iterations;
+
+    public PasswordHasher(int iterations) {
+        if (iterations < 1) {
+            throw new IllegalArgumentException("iterations must be positive: " + iterations);
+        }
+        this.iterations = iterations;
+    }
+
+    public static PasswordHasher fromSystemProperties() {
+        return new PasswordHasher(Integer.getInteger("library.passwordIterations", DEFAULT_ITERATIONS));
+    }
+
+    public int getIterations() {
+        return iterations;
+    }
+
+    // New hash with a fresh random salt at this hasher's cost
+    public Hash hash(String password) {
+        byte[] salt = new byte[SALT_BYTES];
+        RANDOM.nextBytes(salt);
+        byte[] key = derive(password, salt, iterations);
+        Base64.Encoder base64 = Base64.getEncoder();
+        return new Hash(ALGORITHM + "$" + iterations + "$" + base64.encodeToString(key), base64.encodeToString(salt));
+    }
+
+    // A well-formed hash at this hasher's cost that no password is expected to match;
+    // verifying against it costs as much as verifying a real one
+    public Hash decoy() {
+        byte[] salt = new byte[SALT_BYTES];
+        RANDOM.nextBytes(salt);
+        byte[] key = new byte[KEY_BITS / 8];
+        RANDOM.nextBytes(key);
+        Base64.Encoder base64 = Base64.getEncoder();
+        return new Hash(ALGORITHM + "$" + iterations + "$" + base64.encodeToString(key), base64.encodeToString(salt));
+    }
+
+    // salt is null for unsalted rows from before salts were stored
+    public boolean verify(String password, String encoded, String salt) {
+        if (encoded == null) {
+            return false;
+        }
+        if (salt == null) {
+            byte[] expected = encoded.getBytes(StandardCharsets.US_ASCII);
+            return MessageDigest.isEqual(legacySha256(password).getBytes(StandardCharsets.US_ASCII), expected);
+        }
+
+        String[] parts = encoded.split("\\$");
+        if (parts.length != 3 || !ALGORITHM.equals(parts[0])) {
+            return false;
+        }
+        try {
+            int storedIterations = Integer.parseInt(parts[1]);
+            byte[] expected = Base64.getDecoder().decode(parts[2]);
+            byte[] actual = derive(password, Base64.getDecoder().decode(salt), storedIterations);
+            return MessageDigest.isEqual(actual, expected);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    // True for unsalted rows and for hashes made with fewer iterations than this hasher uses
+    public boolean needsRehash(String encoded, String salt) {
+        if (salt == null || encoded == null) {
+            return true;
+        }
+        String[] parts = encoded.split("\\$");
+        try {
+            return parts.length != 3 || !ALGORITHM.equals(parts[0]) || Integer.parseInt(parts[1]) < iterations;
+        } catch (NumberFormatException e) {
+            return true;
+        }
+    }
+
+    // The hex SHA-256 stored by earlier versions
+    static String legacySha256(String password) {
+        byte[] digest = SHA256.get().digest(password.getBytes(StandardCharsets.UTF_8));
+        return HexFormat.of().formatHex(digest);
+    }
+
+    private static byte[] derive(String password, byte[] salt, int iterations) {
+        long start = System.nanoTime();
+        PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), salt, iterations, KEY_BITS);
+        try {
+            return PBKDF2.get().generateSecret(spec).getEncoded();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Password hashing failed", e);
+        } finally {
+            spec.clearPassword();
+            Metrics.timer("auth.kdf").recordSince(start);
+        }
+    }
+}
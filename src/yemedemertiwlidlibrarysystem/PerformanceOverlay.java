@@ -0,0 +1,156 @@
+package yemedemertiwlidlibrarysystem;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Supplier;
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
+import javafx.beans.InvalidationListener;
+import javafx.geometry.Insets;
+import javafx.scene.Node;
+import javafx.scene.Parent;
+import javafx.scene.Scene;
+import javafx.scene.control.Label;
+import javafx.scene.image.Image;
+import javafx.scene.image.ImageView;
+import javafx.scene.layout.VBox;
+import javafx.scene.text.Font;
+import javafx.stage.Popup;
+import javafx.stage.Stage;
+import javafx.util.Duration;
+
+// Small always-on-top readout in the corner of the main window: frame time, live
+// scene graph size, book card cache size, decoded image memory, JDBC statements in
+// flight and the last FX thread stall. It lives in a Popup rather than the scene so
+// the screens that replace the root's children do not remove it, and it ignores the
+// mouse so it never gets in the way of the controls underneath.
+public class PerformanceOverlay {
+
+    private static final Duration REFRESH_INTERVAL = Duration.millis(500);
+    private static final double MARGIN = 12;
+
+    private final Stage owner;
+    private final FxStallDetector stallDetector;
+    private final Supplier<Collection<Node>> cachedCards;
+    private final Popup popup = new Popup();
+    private final Label text = new Label();
+    private final Timeline refresh;
+    private final InvalidationListener reposition = observable -> position();
+
+    public PerformanceOverlay(Stage owner, FxStallDetector stallDetector, Supplier<Collection<Node>> cachedCards) {
+        this.owner = owner;
+        this.stallDetector = stallDetector;
+        this.cachedCards = cachedCards;
+
+        text.setFont(Font.font("Monospaced", 12));
+        text.setStyle("-fx-text-fill: #e8f5e9;");
+        VBox box = new VBox(text);
+        box.setPadding(new Insets(8, 10, 8, 10));
+        box.setStyle("-fx-background-color: rgba(0, 0, 0, 0.72); -fx-background-radius: 6;");
+        box.setMouseTransparent(true);
+        popup.getContent().add(box);
+        popup.setAutoHide(false);
+        popup.setHideOnEscape(false);
+
+        refresh = new Timeline(new KeyFrame(REFRESH_INTERVAL, e -> update()));
+        refresh.setCycleCount(Timeline.INDEFINITE);
+    }
+
+    public boolean isShowing() {
+        return popup.isShowing();
+    }
+
+    public void show() {
+        if (popup.isShowing()) {
+            return;
+        }
+        update();
+        popup.show(owner);
+        position();
+        owner.xProperty().addListener(reposition);
+        owner.yProperty().addListener(reposition);
+        owner.widthProperty().addListener(reposition);
+        popup.widthProperty().addListener(reposition);
+        refresh.play();
+    }
+
+    public void hide() {
+        refresh.stop();
+        owner.xProperty().removeListener(reposition);
+        owner.yProperty().removeListener(reposition);
+        owner.widthProperty().removeListener(reposition);
+        popup.widthProperty().removeListener(reposition);
+        popup.hide();
+    }
+
+    // Top-right corner of the window's content area
+    private void position() {
+        Scene scene = owner.getScene();
+        if (scene == null) {
+            return;
+        }
+        popup.setX(owner.getX() + scene.getX() + scene.getWidth() - popup.getWidth() - MARGIN);
+        popup.setY(owner.getY() + scene.getY() + MARGIN);
+    }
+
+    private void update() {
+        Scene scene = owner.getScene();
+        Set<Image> images = Collections.newSetFromMap(new IdentityHashMap<>());
+        int liveNodes = scene == null ? 0 : walk(scene.getRoot(), images);
+        Collection<Node> cards = cachedCards.get();
+        for (Node card : cards) {
+            // Cached cards are mostly detached from the scene but still hold their decoded covers
+            if (card.getScene() == null) {
+                walk(card, images);
+            }
+        }
+        long imageBytes = 0;
+        for (Image image : images) {
+            imageBytes += (long) image.getWidth() * (long) image.getHeight() * 4;
+        }
+
+        StringBuilder sb = new StringBuilder();
+        double frame = stallDetector.getMeanFrameMillis();
+        sb.append(String.format("frame    %5.1f ms avg  %5.1f max  (%.0f fps)%n", frame,
+                stallDetector.getMaxFrameMillis(), frame > 0 ? 1000 / frame : 0));
+        sb.append(String.format("nodes    %,d live%n", liveNodes));
+        sb.append(String.format("cards    %,d cached%n", cards.size()));
+        sb.append(String.format("images   %,d decoded, %.1f MB%n", images.size(), imageBytes / (1024.0 * 1024.0)));
+        sb.append(String.format("queries  %d in flight%n", InstrumentedJdbc.getInFlight()));
+        List<FxStallDetector.Stall> stalls = stallDetector.getRecentStalls();
+        if (stalls.isEmpty()) {
+            sb.append("stalls   none");
+        } else {
+            FxStallDetector.Stall last = stalls.get(stalls.size() - 1);
+            long secondsAgo = (System.currentTimeMillis() - last.getEndedAt()) / 1000;
+            sb.append(String.format("stalls   %d, last %,d ms %ds ago", Metrics.timer("fx.stall").getCount(),
+                    last.getMillis(), secondsAgo));
+        }
+        text.setText(sb.toString());
+    }
+
+    // Counts the nodes under start and collects the images shown by ImageViews
+    private static int walk(Node start, Set<Image> images) {
+        int count = 0;
+        Deque<Node> pending = new ArrayDeque<>();
+        pending.push(start);
+        while (!pending.isEmpty()) {
+            Node node = pending.pop();
+            count++;
+            if (node instanceof ImageView && ((ImageView) node).getImage() != null) {
+                images.add(((ImageView) node).getImage());
+            }
+            if (node instanceof Parent) {
+                for (Node child : ((Parent) node).getChildrenUnmodifiable()) {
+                    pending.push(child);
+                }
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,183 @@
+package yemedemertiwlidlibrarysystem;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import javafx.application.Platform;
+import javafx.beans.property.ReadOnlyBooleanProperty;
+import javafx.beans.property.ReadOnlyBooleanWrapper;
+import javafx.beans.property.ReadOnlyStringProperty;
+import javafx.beans.property.ReadOnlyStringWrapper;
+
+// Runs the startup work that needs the database off the FX thread, so the login
+// screen is shown before any connection is attempted. The steps of an attempt run in
+// parallel, each on its own virtual thread; a step that succeeded is not run again.
+// When a step fails the remaining ones are retried after a backoff that starts at
+// half a second and doubles up to ten seconds, for as long as the application runs.
+// retryNow() cuts the wait short. Nothing in here exits the application.
+//
+// ready and status are updated on the FX thread, and work queued with whenReady()
+// runs there, in order, once every step has succeeded.
+public class StartupGate {
+
+    public interface Step {
+
+        void run() throws Exception;
+    }
+
+    private static final long INITIAL_BACKOFF_MS = 500;
+    private static final long MAX_BACKOFF_MS = 10_000;
+
+    private final Map<String, Step> pending = new LinkedHashMap<>();
+    private final ReadOnlyBooleanWrapper ready = new ReadOnlyBooleanWrapper(false);
+    private final ReadOnlyBooleanWrapper retrying = new ReadOnlyBooleanWrapper(false);
+    private final ReadOnlyStringWrapper status = new ReadOnlyStringWrapper("Starting…");
+    private final List<Runnable> whenReady = new ArrayList<>();
+    private final Object retrySignal = new Object();
+    private boolean retryRequested = false;
+    private Thread thread;
+
+    // Add every step before start()
+    public void addStep(String name, Step step) {
+        pending.put(name, step);
+    }
+
+    public ReadOnlyBooleanProperty readyProperty() {
+        return ready.getReadOnlyProperty();
+    }
+
+    public boolean isReady() {
+        return ready.get();
+    }
+
+    // True while waiting out a backoff after a failed attempt
+    public ReadOnlyBooleanProperty retryingProperty() {
+        return retrying.getReadOnlyProperty();
+    }
+
+    // What startup is doing or waiting for, for the login screen
+    public ReadOnlyStringProperty statusProperty() {
+        return status.getReadOnlyProperty();
+    }
+
+    // Runs action now if startup has finished, otherwise as soon as it does; call on the FX thread
+    public void whenReady(Runnable action) {
+        if (ready.get()) {
+            action.run();
+        } else {
+            whenReady.add(action);
+        }
+    }
+
+    public synchronized void start() {
+        if (thread != null) {
+            return;
+        }
+        thread = new Thread(this::run, "startup");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    // Skips the rest of the current backoff wait
+    public void retryNow() {
+        synchronized (retrySignal) {
+            retryRequested = true;
+            retrySignal.notifyAll();
+        }
+    }
+
+    private void run() {
+        long start = System.nanoTime();
+        long backoff = INITIAL_BACKOFF_MS;
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            while (true) {
+                setStatus("Connecting to the database…");
+                String failure = runAttempt(executor);
+                if (failure == null) {
+                    break;
+                }
+                Metrics.increment("startup.retries");
+                System.err.println("Startup attempt failed, retrying in " + backoff + " ms: " + failure);
+                waitBeforeRetry(failure, backoff);
+                backoff = Math.min(backoff * 2, MAX_BACKOFF_MS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        Metrics.timer("startup.ready").recordSince(start);
+        Platform.runLater(() -> {
+            status.set("");
+            ready.set(true);
+            List<Runnable> actions = new ArrayList<>(whenReady);
+            whenReady.clear();
+            actions.forEach(Runnable::run);
+        });
+    }
+
+    // Runs the pending steps in parallel and returns the first failure message, or null when all succeeded
+    private String runAttempt(ExecutorService executor) throws InterruptedException {
+        Map<String, CompletableFuture<Void>> running = new LinkedHashMap<>();
+        for (Map.Entry<String, Step> entry : pending.entrySet()) {
+            String name = entry.getKey();
+            Step step = entry.getValue();
+            running.put(name, CompletableFuture.runAsync(() -> {
+                long stepStart = System.nanoTime();
+                try {
+                    step.run();
+                } catch (Exception e) {
+                    throw new StepFailedException(e);
+                } finally {
+                    Metrics.timer("startup." + name).recordSince(stepStart);
+                }
+            }, executor));
+        }
+
+        String failure = null;
+        for (Map.Entry<String, CompletableFuture<Void>> entry : running.entrySet()) {
+            try {
+                entry.getValue().get();
+                pending.remove(entry.getKey());
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause() instanceof StepFailedException ? e.getCause().getCause() : e.getCause();
+                if (failure == null) {
+                    failure = entry.getKey() + ": " + cause.getMessage();
+                }
+            }
+        }
+        return failure;
+    }
+
+    private void waitBeforeRetry(String failure, long backoffMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + backoffMillis;
+        synchronized (retrySignal) {
+            retryRequested = false;
+            Platform.runLater(() -> retrying.set(true));
+            long remaining;
+            while (!retryRequested && (remaining = deadline - System.currentTimeMillis()) > 0) {
+                setStatus("Database unavailable (" + failure + "). Retrying in "
+                        + (remaining + 999) / 1000 + " s…");
+                retrySignal.wait(Math.min(remaining, 1000));
+            }
+        }
+        Platform.runLater(() -> retrying.set(false));
+    }
+
+    private void setStatus(String message) {
+        Platform.runLater(() -> status.set(message));
+    }
+
+    private static final class StepFailedException extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        StepFailedException(Exception cause) {
+            super(cause);
+        }
+    }
+}
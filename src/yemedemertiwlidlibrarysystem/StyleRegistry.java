@@ -0,0 +1,233 @@
+package yemedemertiwlidlibrarysystem;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Locale;
+import javafx.animation.ScaleTransition;
+import javafx.event.EventHandler;
+import javafx.event.EventType;
+import javafx.scene.Node;
+import javafx.scene.Parent;
+import javafx.scene.Scene;
+import javafx.scene.control.Button;
+import javafx.scene.control.ComboBox;
+import javafx.scene.control.Spinner;
+import javafx.scene.control.TextField;
+import javafx.scene.input.MouseEvent;
+import javafx.scene.paint.Color;
+import javafx.util.Duration;
+
+// Control styles shared by every window. The base, hover and pressed backgrounds of
+// each button variant are computed once, when the class loads, into one generated
+// stylesheet. Controls only receive style classes and their hover, pressed and
+// focused looks are CSS pseudo-class rules, so mouse and focus events neither build
+// style strings nor make the node parse a new inline style. Theme colors stay in
+// library.css as looked-up colors; nothing here depends on the theme.
+//
+// Hover and press scaling uses one ScaleTransition per node, created when the node is
+// styled and driven by that node's handler, so hovering allocates nothing either. It is
+// skipped while AnimationCoordinator's reduced motion is on.
+public final class StyleRegistry {
+
+    public enum Variant {
+        PRIMARY("#2a9df4", "#3aa8ff", "#1a7bc8"),
+        SECONDARY("#6c757d", "#5a6268", "#4e555b"),
+        SUCCESS("#28a745", "#34ce57", "#218838"),
+        INFO("#17a2b8", "#138496", "#117a8b"),
+        WARNING("#ffc107", "#e0a800", "#d39e00"),
+        DANGER("#dc3545", "#c82333", "#bd2130");
+
+        private final String base;
+        private final String hover;
+        private final String pressed;
+        private final String styleClass;
+
+        Variant(String base, String hover, String pressed) {
+            this.base = base;
+            this.hover = hover;
+            this.pressed = pressed;
+            this.styleClass = "variant-" + name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    private static final Duration HOVER_DURATION = Duration.millis(150);
+    private static final Duration PRESS_DURATION = Duration.millis(100);
+    private static final double BUTTON_HOVER_SCALE = 1.03;
+    private static final double BUTTON_PRESS_SCALE = 0.97;
+
+    private static final String STYLESHEET_URL = "data:text/css;base64," + Base64.getEncoder()
+            .encodeToString(buildStylesheet().getBytes(StandardCharsets.UTF_8));
+
+    private StyleRegistry() {
+    }
+
+    // For scenes whose root is styled with library.css as well
+    public static void install(Scene scene) {
+        if (!scene.getStylesheets().contains(STYLESHEET_URL)) {
+            scene.getStylesheets().add(STYLESHEET_URL);
+        }
+    }
+
+    // For dialogs and other windows that only need the control styles
+    public static void install(Parent parent) {
+        if (!parent.getStylesheets().contains(STYLESHEET_URL)) {
+            parent.getStylesheets().add(STYLESHEET_URL);
+        }
+    }
+
+    public static void button(Button button, Variant variant) {
+        button.getStyleClass().addAll("library-button", variant.styleClass);
+        scaleOnHover(button, HOVER_DURATION, BUTTON_HOVER_SCALE, BUTTON_PRESS_SCALE);
+    }
+
+    // Underlined link-style button in the variant's base color
+    public static void textButton(Button button, Variant variant) {
+        button.getStyleClass().addAll("text-button", variant.styleClass);
+    }
+
+    public static void textField(TextField textField) {
+        textField.getStyleClass().add("library-field");
+    }
+
+    public static void comboBox(ComboBox<?> comboBox) {
+        comboBox.getStyleClass().add("library-combo");
+    }
+
+    public static void spinner(Spinner<?> spinner) {
+        spinner.getStyleClass().add("library-combo");
+    }
+
+    // Grows the node while hovered; pressScale of 1 leaves presses alone
+    public static void scaleOnHover(Node node, Duration duration, double hoverScale, double pressScale) {
+        HoverScale handler = new HoverScale(new ScaleTransition(duration, node), duration, hoverScale, pressScale);
+        node.addEventHandler(MouseEvent.MOUSE_ENTERED, handler);
+        node.addEventHandler(MouseEvent.MOUSE_EXITED, handler);
+        if (pressScale != 1) {
+            node.addEventHandler(MouseEvent.MOUSE_PRESSED, handler);
+            node.addEventHandler(MouseEvent.MOUSE_RELEASED, handler);
+        }
+    }
+
+    private static final class HoverScale implements EventHandler<MouseEvent> {
+
+        private final ScaleTransition transition;
+        private final Duration hoverDuration;
+        private final double hoverScale;
+        private final double pressScale;
+
+        HoverScale(ScaleTransition transition, Duration hoverDuration, double hoverScale, double pressScale) {
+            this.transition = transition;
+            this.hoverDuration = hoverDuration;
+            this.hoverScale = hoverScale;
+            this.pressScale = pressScale;
+        }
+
+        @Override
+        public void handle(MouseEvent event) {
+            if (AnimationCoordinator.isReducedMotion()) {
+                // Also settles a node that was scaled when reduced motion was switched on
+                transition.stop();
+                transition.getNode().setScaleX(1);
+                transition.getNode().setScaleY(1);
+                return;
+            }
+            EventType<? extends MouseEvent> type = event.getEventType();
+            double target;
+            Duration duration;
+            if (type == MouseEvent.MOUSE_ENTERED) {
+                target = hoverScale;
+                duration = hoverDuration;
+            } else if (type == MouseEvent.MOUSE_EXITED) {
+                target = 1;
+                duration = hoverDuration;
+            } else if (type == MouseEvent.MOUSE_PRESSED) {
+                target = pressScale;
+                duration = PRESS_DURATION;
+            } else {
+                target = hoverScale;
+                duration = PRESS_DURATION;
+            }
+            // Restart from the current scale so an interrupted transition does not jump
+            transition.stop();
+            transition.setDuration(duration);
+            transition.setToX(target);
+            transition.setToY(target);
+            transition.playFromStart();
+        }
+    }
+
+    static String buildStylesheet() {
+        StringBuilder css = new StringBuilder();
+        css.append(".library-button {\n"
+                + "    -fx-text-fill: white;\n"
+                + "    -fx-font-weight: bold;\n"
+                + "    -fx-background-radius: 5;\n"
+                + "    -fx-padding: 8 15 8 15;\n"
+                + "    -fx-cursor: hand;\n"
+                + "    -fx-effect: dropshadow(three-pass-box, rgba(0,0,0,0.2), 5, 0, 0, 1);\n"
+                + "}\n"
+                + ".library-button:hover {\n"
+                + "    -fx-effect: dropshadow(three-pass-box, rgba(0,0,0,0.3), 8, 0, 0, 2);\n"
+                + "}\n"
+                + ".library-button:pressed {\n"
+                + "    -fx-effect: dropshadow(three-pass-box, rgba(0,0,0,0.1), 3, 0, 0, 1);\n"
+                + "}\n"
+                + ".text-button {\n"
+                + "    -fx-background-color: transparent;\n"
+                + "    -fx-underline: true;\n"
+                + "    -fx-cursor: hand;\n"
+                + "    -fx-font-size: 14;\n"
+                + "}\n"
+                + ".library-field {\n"
+                + "    -fx-background-color: white;\n"
+                + "    -fx-border-color: #ccc;\n"
+                + "    -fx-border-radius: 5;\n"
+                + "    -fx-padding: 8;\n"
+                + "    -fx-font-size: 14;\n"
+                + "}\n"
+                + ".library-field:focused {\n"
+                + "    -fx-border-color: #2a9df4;\n"
+                + "}\n"
+                + ".library-combo {\n"
+                + "    -fx-background-color: white;\n"
+                + "    -fx-border-color: #ccc;\n"
+                + "    -fx-border-radius: 5;\n"
+                + "    -fx-padding: 5;\n"
+                + "    -fx-font-size: 14;\n"
+                + "}\n"
+                + ".library-combo .list-cell:hover {\n"
+                + "    -fx-background-color: #f0f0f0;\n"
+                + "}\n");
+
+        for (Variant variant : Variant.values()) {
+            String selector = ".library-button." + variant.styleClass;
+            css.append(selector).append(" {\n    -fx-background-color: linear-gradient(to bottom, ")
+                    .append(variant.base).append(", ").append(darken(variant.base, 0.2)).append(");\n}\n");
+            css.append(selector).append(":hover {\n    -fx-background-color: linear-gradient(to bottom, ")
+                    .append(variant.hover).append(", ").append(darken(variant.hover, 0.2)).append(");\n}\n");
+            // After :hover so a pressed button, which is also hovered, shows the pressed colors
+            css.append(selector).append(":pressed {\n    -fx-background-color: linear-gradient(to bottom, ")
+                    .append(darken(variant.pressed, 0.1)).append(", ").append(variant.pressed).append(");\n}\n");
+
+            String link = ".text-button." + variant.styleClass;
+            css.append(link).append(" {\n    -fx-text-fill: ").append(variant.base).append(";\n}\n");
+            css.append(link).append(":hover {\n    -fx-background-color: ").append(withAlpha(variant.base, 0.1))
+                    .append(";\n    -fx-text-fill: ").append(darken(variant.base, 0.2)).append(";\n}\n");
+        }
+        return css.toString();
+    }
+
+    private static String darken(String hexColor, double factor) {
+        Color color = Color.web(hexColor);
+        return String.format("#%02x%02x%02x",
+                (int) (color.getRed() * 255 * (1 - factor)),
+                (int) (color.getGreen() * 255 * (1 - factor)),
+                (int) (color.getBlue() * 255 * (1 - factor)));
+    }
+
+    private static String withAlpha(String hexColor, double alpha) {
+        Color color = Color.web(hexColor);
+        return "rgba(" + (int) (color.getRed() * 255) + "," + (int) (color.getGreen() * 255) + ","
+                + (int) (color.getBlue() * 255) + "," + alpha + ")";
+    }
+}
@@ -0,0 +1,58 @@
+package yemedemertiwlidlibrarysystem;
+
+import java.util.ArrayList;
+import java.util.List;
+import javafx.animation.PauseTransition;
+import javafx.application.Platform;
+import javafx.util.Duration;
+
+// A scripted session for the AppCDS training run (ant cds-archive): each step runs on
+// the FX thread after its delay, so the JVM loads the classes a desk needs for login,
+// the dashboard and the catalog before the archive is written at exit. A step that
+// fails is logged and the script carries on; the archive is still useful without it.
+public class TrainingRun {
+
+    private static final class Step {
+
+        final String name;
+        final Duration delay;
+        final Runnable action;
+
+        Step(String name, Duration delay, Runnable action) {
+            this.name = name;
+            this.delay = delay;
+            this.action = action;
+        }
+    }
+
+    private final List<Step> steps = new ArrayList<>();
+
+    // Runs action delay after the previous step ran
+    public TrainingRun then(String name, Duration delay, Runnable action) {
+        steps.add(new Step(name, delay, action));
+        return this;
+    }
+
+    public void start() {
+        runFrom(0);
+    }
+
+    private void runFrom(int index) {
+        if (index >= steps.size()) {
+            return;
+        }
+        Step step = steps.get(index);
+        PauseTransition pause = new PauseTransition(step.delay);
+        // Steps may open dialogs, which cannot be shown from an animation handler
+        pause.setOnFinished(e -> Platform.runLater(() -> {
+            System.out.println("[training] " + step.name);
+            try {
+                step.action.run();
+            } catch (RuntimeException ex) {
+                System.err.println("[training] " + step.name + " failed: " + ex.getMessage());
+            }
+            runFrom(index + 1);
+        }));
+        pause.play();
+    }
+}
@@ -0,0 +1,81 @@
+package yemedemertiwlidlibrarysystem;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Dictionary encoding for low-cardinality columns. Each distinct value is stored
+// once and identified by a small int code, so rows hold an int instead of their
+// own String copy and filters compare codes instead of strings. Codes are only
+// meaningful within one running process and are never written to the database.
+public final class ValueDictionary {
+
+    public static final ValueDictionary GENRE = new ValueDictionary("genre");
+    public static final ValueDictionary STATUS = new ValueDictionary("status");
+    public static final ValueDictionary SHELF = new ValueDictionary("shelf_number");
+
+    // Code used for null values
+    public static final int NONE = -1;
+
+    private final String name;
+    private final ConcurrentHashMap<String, Integer> codes = new ConcurrentHashMap<>();
+    private volatile String[] values = new String[32];
+    private int size = 0;
+
+    public ValueDictionary(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    // Returns the code for the value, adding it to the dictionary if needed
+    public int encode(String value) {
+        if (value == null) {
+            return NONE;
+        }
+        Integer code = codes.get(value);
+        return code != null ? code : add(value);
+    }
+
+    // Returns the code for the value without adding it, or NONE if it was never seen
+    public int lookup(String value) {
+        if (value == null) {
+            return NONE;
+        }
+        Integer code = codes.get(value);
+        return code != null ? code : NONE;
+    }
+
+    public String decode(int code) {
+        return code == NONE ? null : values[code];
+    }
+
+    // Returns the shared instance equal to the value
+    public String canonical(String value) {
+        return decode(encode(value));
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    // Snapshot of all values, indexed by code
+    public synchronized String[] values() {
+        return Arrays.copyOf(values, size);
+    }
+
+    private synchronized int add(String value) {
+        Integer existing = codes.get(value);
+        if (existing != null) {
+            return existing;
+        }
+
+        String[] table = size == values.length ? Arrays.copyOf(values, size * 2) : values;
+        table[size] = value;
+        // Publish the table before the code so a reader that sees the code also sees the value
+        values = table;
+        codes.put(value, size);
+        return size++;
+    }
+}
@@ -0,0 +1,147 @@
+package yemedemertiwlidlibrarysystem;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+import javafx.scene.Node;
+
+// The sidebar's views, each built on its first visit and shown again from then on.
+// Switching to a view that was built before only swaps the node on screen; its data
+// is refreshed on re-entry only if something marked it dirty while it was hidden.
+// Views that cannot be brought up to date in place are invalidated instead and
+// rebuilt on their next visit.
+//
+// Hidden views stay cached while the heap has room. After each switch, if more than
+// EVICT_HEAP_FRACTION of the maximum heap is in use, the least recently shown hidden
+// view is dropped; one per switch, because used heap includes garbage that has not
+// been collected yet. The view on screen is never evicted.
+//
+// All methods run on the FX application thread.
+public class ViewRegistry {
+
+    public interface ViewController {
+
+        // Builds the node tree and loads its data; called on the first visit and after eviction
+        Node build();
+
+        // Called every time the view is put on screen, before refresh()
+        default void onShown() {
+        }
+
+        // Re-reads the data that changed while the view was hidden and was marked dirty
+        default void refresh() {
+        }
+
+        // The view was dropped from the cache; stop any work it still has running
+        default void onEvicted() {
+        }
+    }
+
+    private static final double EVICT_HEAP_FRACTION = 0.7;
+
+    private static final class Entry {
+
+        final ViewController controller;
+        final Node node;
+        boolean dirty = false;
+
+        Entry(ViewController controller, Node node) {
+            this.controller = controller;
+            this.node = node;
+        }
+    }
+
+    private final Map<String, Supplier<ViewController>> factories = new HashMap<>();
+    // Least recently shown first; show() moves a view to the end
+    private final LinkedHashMap<String, Entry> cached = new LinkedHashMap<>();
+    private String current;
+
+    public void register(String name, Supplier<ViewController> factory) {
+        factories.put(name, factory);
+    }
+
+    // Returns the node for the view, building it or refreshing it first if needed
+    public Node show(String name) {
+        Entry entry = cached.remove(name);
+        boolean hit = entry != null;
+        Metrics.cacheHit("view", hit);
+        if (entry == null) {
+            Supplier<ViewController> factory = factories.get(name);
+            if (factory == null) {
+                throw new IllegalArgumentException("Unknown view " + name);
+            }
+            ViewController controller = factory.get();
+            long start = System.nanoTime();
+            entry = new Entry(controller, controller.build());
+            Metrics.timer("view.build").recordSince(start);
+        }
+        cached.put(name, entry);
+        current = name;
+        entry.controller.onShown();
+        if (hit && entry.dirty) {
+            entry.dirty = false;
+            long start = System.nanoTime();
+            entry.controller.refresh();
+            Metrics.timer("view.refresh").recordSince(start);
+        }
+        evictIfLow();
+        return entry.node;
+    }
+
+    public boolean isCurrent(String name) {
+        return name.equals(current);
+    }
+
+    // The view's data changed while it was hidden; it refreshes on its next visit. The
+    // view on screen is expected to have applied the change itself and is not marked.
+    public void markDirty(String name) {
+        Entry entry = cached.get(name);
+        if (entry != null && !isCurrent(name)) {
+            entry.dirty = true;
+        }
+    }
+
+    // Drops the view so its next visit builds it again
+    public void invalidate(String name) {
+        Entry entry = cached.remove(name);
+        if (entry != null) {
+            entry.controller.onEvicted();
+        }
+        if (isCurrent(name)) {
+            current = null;
+        }
+    }
+
+    // Drops every view, e.g. on logout
+    public void clear() {
+        for (Entry entry : cached.values()) {
+            entry.controller.onEvicted();
+        }
+        cached.clear();
+        current = null;
+    }
+
+    public int size() {
+        return cached.size();
+    }
+
+    private void evictIfLow() {
+        Runtime runtime = Runtime.getRuntime();
+        long used = runtime.totalMemory() - runtime.freeMemory();
+        if (used <= runtime.maxMemory() * EVICT_HEAP_FRACTION) {
+            return;
+        }
+        Iterator<Map.Entry<String, Entry>> iterator = cached.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, Entry> eldest = iterator.next();
+            if (!eldest.getKey().equals(current)) {
+                iterator.remove();
+                eldest.getValue().controller.onEvicted();
+                Metrics.increment("view.evictions");
+                return;
+            }
+        }
+    }
+}
@@ -3,23 +3,31 @@ package yemedemertiwlidlibrarysystem;
 import javafx.animation.*;
 import javafx.application.Application;
 import javafx.application.Platform;
+import javafx.beans.property.BooleanProperty;
+import javafx.beans.property.SimpleBooleanProperty;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.beans.property.StringProperty;
 import javafx.collections.FXCollections;
+import javafx.collections.ListChangeListener;
 import javafx.collections.ObservableList;
 import javafx.concurrent.Task;
+import javafx.css.PseudoClass;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
-import javafx.scene.Cursor;
 import javafx.scene.Scene;
 import javafx.scene.chart.*;
 import javafx.scene.control.*;
 import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
+import javafx.scene.input.Clipboard;
+import javafx.scene.input.ClipboardContent;
+import javafx.scene.input.KeyCode;
+import javafx.scene.input.KeyEvent;
 import javafx.scene.layout.*;
 import javafx.scene.paint.Color;
 import javafx.scene.text.Font;
 import javafx.scene.text.FontWeight;
+import javafx.stage.DirectoryChooser;
 import javafx.stage.FileChooser;
 import javafx.stage.Modality;
 import javafx.stage.Stage;
@@ -27,24 +35,31 @@ import javafx.util.Duration;
 
 import java.io.*;
 import java.nio.file.Files;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
+import java.nio.file.Path;
+import java.text.ParseException;
 import java.sql.*;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 import javafx.beans.binding.Bindings;
 import javafx.beans.property.IntegerProperty;
 import javafx.beans.property.ObjectProperty;
 import javafx.beans.property.SimpleIntegerProperty;
 import javafx.beans.property.SimpleObjectProperty;
 import javafx.beans.value.ChangeListener;
+import javafx.beans.value.WeakChangeListener;
 import javafx.scene.Node;
 import javafx.scene.SnapshotParameters;
 import javafx.scene.canvas.Canvas;
 import javafx.scene.canvas.GraphicsContext;
+import yemedemertiwlidlibrarysystem.StyleRegistry.Variant;
 
 public class YemeDemerTiwlidLibrarySystem extends Application {
 
@@ -53,23 +68,15 @@ public class YemeDemerTiwlidLibrarySystem extends Application {
     private static final String DB_USER = "root";
     private static final String DB_PASSWORD = "";
 
-// UI Colors
-    private static final String LIGHT_BG = "#f5f5f5";
-    private static final String LIGHT_CARD = "#ffffff";
-    private static final String LIGHT_HOVER = "#f0f0f0";
-    private static final String LIGHT_TEXT = "#333333";
-    private static final String LIGHT_SECONDARY = "#e6e6e6";
-
-    private static final String DARK_BG = "#162843";
-    private static final String DARK_CARD = "#3A4D6E";
-    private static final String DARK_HOVER = "#4A5D7E";
-    private static final String DARK_TEXT = "#e0e0e0";
-    private static final String DARK_SECONDARY = "#2D304A";
+    // UI theme: colors live in library.css; dark mode is the :dark pseudo-class on each scene root
+    private static final String STYLESHEET = "library.css";
+    private static final PseudoClass DARK_THEME = PseudoClass.getPseudoClass("dark");
 
     // Application state
-    private Connection connection;
+    // Opened by the startup thread, then used for the FX thread's own queries
+    private volatile Connection connection;
     private User currentUser;
-    private boolean darkMode = false;
+    private final BooleanProperty darkMode = new SimpleBooleanProperty(false);
 
     // Secret code for librarian registration
     private static final String SECRET_CODE = "YDT-library-mgmt-code";
@@ -83,27 +90,201 @@ public class YemeDemerTiwlidLibrarySystem extends Application {
     private FlowPane booksFlowPane;
     private ComboBox<String> searchTypeCombo;
     private TextField searchField;
-    private static final int BOOKS_PER_PAGE = 50;
-    private int currentPage = 0;
+    static final int BOOKS_PER_PAGE = 50;
+    // Same cap as the server's search endpoint; covers are fetched for every result shown
+    private static final int MAX_SEARCH_RESULTS = 500;
+    // Bumped by every search, so a slow one that finishes after a newer one is dropped
+    private int searchGeneration = 0;
     private final Map<String, Node> bookCardCache = new HashMap<>();
+    private Image placeholderImage;
+    private CardInsertionScheduler<BookRow> cardInserter;
+    private PageLoader<BookRow> pageLoader;
+    private final Map<String, Book> bookViewModels = new HashMap<>();
+    // Available copies read with a page or search on its loader thread, taken by createBookCard
+    private final Map<String, Integer> loadedAvailability = new ConcurrentHashMap<>();
+    private CatalogSnapshot catalogSnapshot;
+    private final LibraryEventBus eventBus = new LibraryEventBus();
+    // Writes, logins and the page and search loaders take connections from here, so a
+    // background read never runs inside a write transaction and never shares the
+    // connection the FX thread queries on
+    private static final int DATA_POOL_SIZE = 4;
+    private final ConnectionPool dataPool = new ConnectionPool(
+            () -> InstrumentedJdbc.wrap(DriverManager.getConnection(DB_URL, connectionProperties())),
+            DATA_POOL_SIZE, SERVICE_TIMEOUT_MS);
+    private final LibraryRepository repository = new LibraryRepository(dataPool, eventBus, ChangeLog.newOrigin());
+    private ChangeLogTailer changeLogTailer;
+    private final AuthenticationService authenticationService = AuthenticationService.fromSystemProperties(dataPool);
+    private LibraryService libraryService;
+    private LocalLibraryService localLibraryService;
+    private ConnectionPool servicePool;
+    private final StartupGate startupGate = new StartupGate();
+    // Service calls run on virtual threads, at most SERVICE_CONCURRENCY at a time on their own connections
+    private final ExecutorService serviceExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    private static final int SERVICE_CONCURRENCY = 2;
+    private static final long SERVICE_TIMEOUT_MS = 10_000;
+    private static final long CHANGE_LOG_POLL_INTERVAL_MS = 500;
+    // Sidebar views are built once per login and kept while the heap has room
+    private final ViewRegistry viewRegistry = new ViewRegistry();
+    private static final String DASHBOARD_VIEW = "Dashboard";
+    private static final String BOOKS_VIEW = "Books";
+    private static final String LOANS_VIEW = "Loans";
+    private static final String CIRCULATION_VIEW = "Circulation";
+    private static final String SEARCH_VIEW = "Search";
+    private static final String ANALYSIS_VIEW = "Analysis";
+    private static final String SETTINGS_VIEW = "Settings";
+    private ListView<String> recentActivityList;
+    private Label totalBooksValueLabel;
+    private Label onLoanValueLabel;
+    private Label overdueValueLabel;
+    private TableView<LoanRow> loanTable;
+    private TextField circulationScanField;
+    private static final int CIRCULATION_LOG_SIZE = 200;
+    private static final int DEFAULT_LOAN_DAYS = 14;
+    private static final PseudoClass REFUSED = PseudoClass.getPseudoClass("refused");
+    private static final long CATALOG_POLL_INTERVAL_MS = 2000;
     private Timeline searchTimeline;
+    private final FxStallDetector stallDetector = new FxStallDetector(FxStallDetector.thresholdFromSystemProperties());
+    private PerformanceOverlay performanceOverlay;
 
     // Animation constants
-    private static final Duration HOVER_ANIM_DURATION = Duration.millis(150);
-    private static final Duration PRESS_ANIM_DURATION = Duration.millis(100);
     private static final Duration CARD_HOVER_ANIM_DURATION = Duration.millis(200);
     private static final Duration TRANSITION_DURATION = Duration.millis(300);
 
+    private static final DateTimeFormatter LOAN_DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+
+    // Startup is timed from here to the first frame of the login screen
+    private static long mainStartedNanos = System.nanoTime();
+    // Longest the CDS training run waits for the database before it exits with only startup trained
+    private static final Duration TRAINING_CONNECT_TIMEOUT = Duration.seconds(60);
+
+    // --server [--port=8085] [--pool-size=10] [--bind=0.0.0.0] runs the headless library server instead
+    // of the UI, on loopback unless --bind names another address;
+    // --server-url=http://host:8085 makes this desk a client of such a server;
+    // --cds-training runs the scripted session used to build the class data sharing archive
     public static void main(String[] args) {
+        mainStartedNanos = System.nanoTime();
+        // -Dlibrary.metrics.file=metrics.txt [-Dlibrary.metrics.interval=60] writes Metrics.dump() periodically
+        Metrics.startFileReporterFromSystemProperties();
+        // --record=library.jfr records a flight recording with the bundled profile until exit
+        String recording = stringOption(args, "--record=", null);
+        if (recording != null) {
+            try {
+                FlightEvents.startRecording(Path.of(recording));
+            } catch (IOException | ParseException | RuntimeException e) {
+                System.err.println("Could not start the flight recording: " + e.getMessage());
+            }
+        }
+        if (Arrays.asList(args).contains("--load-test")) {
+            runLoadTest(args);
+            return;
+        }
+        if (Arrays.asList(args).contains("--generate-data")) {
+            runDataGenerator(args);
+            return;
+        }
+        if (Arrays.asList(args).contains("--server")) {
+            try {
+                LibraryServer.runHeadless(DB_URL, connectionProperties(), stringOption(args, "--bind=", null),
+                        intOption(args, "--port=", LibraryServer.DEFAULT_PORT),
+                        intOption(args, "--pool-size=", LibraryServer.DEFAULT_POOL_SIZE));
+            } catch (Exception e) {
+                System.err.println("Could not start the library server: " + e.getMessage());
+                System.exit(1);
+            }
+            return;
+        }
         launch(args);
     }
 
+    // --load-test [--server-url=http://localhost:8085] [--concurrency=64] [--seconds=30] [--mix=search=50,...]
+    private static void runLoadTest(String[] args) {
+        String serverUrl = stringOption(args, "--server-url=", "http://localhost:" + LibraryServer.DEFAULT_PORT);
+        LibraryService client = new LibraryServiceClient(serverUrl, () -> {
+        });
+        try {
+            // Any common letter finds a spread of titles to borrow and search for
+            List<BookRow> sample = client.search("e", "Title", 500);
+            LoadGenerator.Mix mix = LoadGenerator.Mix.parse(stringOption(args, "--mix=",
+                    LoadGenerator.Mix.SEMESTER_START.toString()));
+            LoadGenerator generator = new LoadGenerator(client, sample, mix, intOption(args, "--concurrency=", 64));
+            LoadGenerator.Report report = generator.run(java.time.Duration.ofSeconds(5),
+                    java.time.Duration.ofSeconds(intOption(args, "--seconds=", 30)));
+            System.out.println("Load test against " + serverUrl + ", mix " + mix);
+            System.out.println(report.summary());
+        } catch (LibraryServiceException | InterruptedException | IllegalArgumentException e) {
+            System.err.println("Load test failed: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    // --generate-data [--books=100000] [--users=10000] [--loans=500000] [--seed=42] [--covers=0.1]
+    //                 [--years=3] [--overdue=0.02] [--replace]
+    // Run the application once first so the tables exist.
+    private static void runDataGenerator(String[] args) {
+        try (Connection bulk = openBulkConnection()) {
+            DatasetGenerator generator = new DatasetGenerator(bulk, intOption(args, "--seed=", 42));
+            generator.setCoverFraction(doubleOption(args, "--covers=", 0));
+            generator.setHistoryYears(intOption(args, "--years=", 3));
+            generator.setOverdueFraction(doubleOption(args, "--overdue=", 0.02));
+            if (Arrays.asList(args).contains("--replace")) {
+                System.out.printf("Removed %,d previously generated rows%n", generator.clear());
+            }
+
+            DatasetGenerator.Report report = generator.generate(intOption(args, "--books=", 100_000),
+                    intOption(args, "--users=", 10_000), intOption(args, "--loans=", 500_000),
+                    (table, rows, total) -> System.out.printf("%s: %,d / %,d%n", table, rows, total));
+            System.out.println(report.summary());
+        } catch (SQLException | IOException | RuntimeException e) {
+            System.err.println("Data generation failed: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    private static String stringOption(String[] args, String prefix, String defaultValue) {
+        for (String arg : args) {
+            if (arg.startsWith(prefix)) {
+                return arg.substring(prefix.length());
+            }
+        }
+        return defaultValue;
+    }
+
+    private static int intOption(String[] args, String prefix, int defaultValue) {
+        for (String arg : args) {
+            if (arg.startsWith(prefix)) {
+                return Integer.parseInt(arg.substring(prefix.length()));
+            }
+        }
+        return defaultValue;
+    }
+
+    private static double doubleOption(String[] args, String prefix, double defaultValue) {
+        for (String arg : args) {
+            if (arg.startsWith(prefix)) {
+                return Double.parseDouble(arg.substring(prefix.length()));
+            }
+        }
+        return defaultValue;
+    }
+
     @Override
     public void start(Stage primaryStage) {
         this.primaryStage = primaryStage;
-        initializeDatabase();
+        if (FxStallDetector.isEnabledBySystemProperties()) {
+            stallDetector.start();
+        }
+        // The stage is shown before any database work; connecting happens behind startupGate
         initializeUI();
+        registerEventSubscribers();
+        registerViews();
+        createChangeLogTailer();
+        createLibraryService();
         showLoginScreen();
+        startDatabaseInBackground();
+        reportFirstFrame(primaryStage.getScene());
+        if (getParameters().getRaw().contains("--cds-training")) {
+            startTrainingRun();
+        }
 
         // Add fade-in animation for the initial screen
         FadeTransition fadeIn = new FadeTransition(Duration.seconds(0.5), root);
@@ -112,123 +293,121 @@ public class YemeDemerTiwlidLibrarySystem extends Application {
         fadeIn.play();
     }
 
-    private void initializeDatabase() {
-        try {
-            Class.forName("com.mysql.cj.jdbc.Driver");
-            connection = DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD);
-            System.out.println("Database connection successful!");
-            createTables();
-        } catch (ClassNotFoundException e) {
-            System.err.println("MySQL JDBC driver not found: " + e.getMessage());
-            showAlert("Database Error", "MySQL JDBC driver not found: " + e.getMessage());
-            System.exit(1);
-        } catch (SQLException e) {
-            System.err.println("Could not connect to MySQL: " + e.getMessage());
-            showAlert("Database Error", "Could not connect to MySQL: " + e.getMessage());
-            System.exit(1);
+    // Connects, checks the schema and warms the service pool in parallel on background
+    // threads, retrying with backoff while MySQL is unreachable. The login screen shows
+    // the progress and queues a login until this is done.
+    private void startDatabaseInBackground() {
+        startupGate.addStep("database", this::initializeDatabase);
+        // Logins and the first page read through dataPool; open its first connection now
+        startupGate.addStep("dataPool", () -> dataPool.release(dataPool.get()));
+        if (servicePool != null) {
+            // Opens the service pool's first connection so the first dashboard query does not pay for it
+            startupGate.addStep("servicePool", () -> servicePool.release(servicePool.get()));
         }
+        startupGate.whenReady(() -> changeLogTailer.start(CHANGE_LOG_POLL_INTERVAL_MS));
+        startupGate.start();
     }
 
-    private void createTables() throws SQLException {
-        // Users table
-        String usersTable = "CREATE TABLE IF NOT EXISTS users ("
-                + "id INT AUTO_INCREMENT PRIMARY KEY,"
-                + "full_name VARCHAR(100) NOT NULL,"
-                + "username VARCHAR(50) UNIQUE NOT NULL,"
-                + "password VARCHAR(255) NOT NULL,"
-                + "is_admin BOOLEAN DEFAULT FALSE)";
-
-        // Books table
-        String booksTable = "CREATE TABLE IF NOT EXISTS books ("
-                + "isbn VARCHAR(20) PRIMARY KEY,"
-                + "title VARCHAR(255) NOT NULL,"
-                + "author VARCHAR(100) NOT NULL,"
-                + "genre VARCHAR(50) NOT NULL,"
-                + "shelf_number VARCHAR(20) NOT NULL,"
-                + "status VARCHAR(20) NOT NULL,"
-                + "quantity INT NOT NULL,"
-                + "cover_image LONGBLOB)";
-
-        // Loans table
-        String loansTable = "CREATE TABLE IF NOT EXISTS loans ("
-                + "id INT AUTO_INCREMENT PRIMARY KEY,"
-                + "isbn VARCHAR(20) NOT NULL,"
-                + "borrower_id VARCHAR(50) NOT NULL,"
-                + "borrower_name VARCHAR(100) NOT NULL,"
-                + "loan_date DATETIME NOT NULL,"
-                + "return_date DATETIME NOT NULL,"
-                + "returned BOOLEAN DEFAULT FALSE,"
-                + "FOREIGN KEY (isbn) REFERENCES books(isbn))";
-
-        try (Statement stmt = connection.createStatement()) {
-            stmt.execute(usersTable);
-            stmt.execute(booksTable);
-            stmt.execute(loansTable);
+    // Prints and records the time from main() to the first login frame: the first pulse
+    // that lays the scene out, measured once that pulse has handed the frame to the
+    // renderer. -Dlibrary.exitAfterFirstFrame=true exits right after, for the startup
+    // benchmark.
+    private void reportFirstFrame(Scene scene) {
+        Runnable listener = new Runnable() {
+            private boolean reported = false;
 
-            if (isTableEmpty("users")) {
-                insertSampleUsers();
+            @Override
+            public void run() {
+                if (reported) {
+                    return;
+                }
+                reported = true;
+                // Listeners cannot be removed while the scene is running them
+                Platform.runLater(() -> {
+                    scene.removePostLayoutPulseListener(this);
+                    long nanos = System.nanoTime() - mainStartedNanos;
+                    Metrics.timer("startup.firstFrame").record(nanos);
+                    System.out.printf("[startup] first login frame %.1f ms after main%n", nanos / 1e6);
+                    if (Boolean.getBoolean("library.exitAfterFirstFrame")) {
+                        Platform.exit();
+                    }
+                });
             }
-        }
-    }
-
-    private boolean isTableEmpty(String tableName) throws SQLException {
-        String query = "SELECT COUNT(*) FROM " + tableName;
-        try (Statement stmt = connection.createStatement(); ResultSet rs = stmt.executeQuery(query)) {
-            return rs.next() && rs.getInt(1) == 0;
-        }
+        };
+        scene.addPostLayoutPulseListener(listener);
+    }
+
+    // --cds-training: signs in as library.training.user (the sample admin by default), walks
+    // through the dashboard, catalog, search and loans, then exits so the JVM can write
+    // the archive requested with -XX:ArchiveClassesAtExit. See the cds-archive target.
+    private void startTrainingRun() {
+        String user = System.getProperty("library.training.user", "admin");
+        String password = System.getProperty("library.training.password", "admin123");
+        TrainingRun run = new TrainingRun()
+                .then("login", Duration.millis(500), () -> login(user, password, null))
+                .then("catalog", Duration.seconds(3), this::showBooksContent)
+                .then("search", Duration.seconds(3), () -> {
+                    showSearchContent();
+                    performSearch("a", "Title");
+                })
+                .then("loans", Duration.seconds(3), this::showLoansContent)
+                .then("settings", Duration.seconds(2), this::showSettingsContent)
+                .then("exit", Duration.seconds(2), Platform::exit);
+        startupGate.whenReady(run::start);
+
+        PauseTransition timeout = new PauseTransition(TRAINING_CONNECT_TIMEOUT);
+        timeout.setOnFinished(e -> {
+            if (!startupGate.isReady()) {
+                System.err.println("[training] database not reachable; only startup and login were trained");
+                Platform.exit();
+            }
+        });
+        timeout.play();
     }
 
-    private void insertSampleUsers() throws SQLException {
-        String sql = "INSERT INTO users (full_name, username, password, is_admin) VALUES (?, ?, ?, ?)";
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-            // Admin user
-            pstmt.setString(1, "Admin User");
-            pstmt.setString(2, "admin");
-            pstmt.setString(3, hashPassword("admin123"));
-            pstmt.setBoolean(4, true);
-            pstmt.executeUpdate();
-
-            // Librarian user
-            pstmt.setString(1, "Library Staff");
-            pstmt.setString(2, "librarian");
-            pstmt.setString(3, hashPassword("lib123"));
-            pstmt.setBoolean(4, false);
-            pstmt.executeUpdate();
+    // Runs on the startup thread; a failed attempt is retried from the top
+    private void initializeDatabase() throws ClassNotFoundException, SQLException {
+        Class.forName("com.mysql.cj.jdbc.Driver");
+        if (connection == null || connection.isClosed()) {
+            connection = InstrumentedJdbc.wrap(DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD));
+            System.out.println("Database connection successful!");
         }
-    }
-
-    private String hashPassword(String password) {
+        LibrarySchema.create(connection, authenticationService);
         try {
-            MessageDigest md = MessageDigest.getInstance("SHA-256");
-            byte[] hashedBytes = md.digest(password.getBytes());
-            StringBuilder sb = new StringBuilder();
-            for (byte b : hashedBytes) {
-                sb.append(String.format("%02x", b));
-            }
-            return sb.toString();
-        } catch (NoSuchAlgorithmException e) {
-            throw new RuntimeException("Password hashing failed", e);
+            changeLogTailer.seekToEnd();
+        } catch (SQLException e) {
+            System.err.println("Could not read the change log position: " + e.getMessage());
         }
     }
 
     private void initializeUI() {
         root = new StackPane();
-        root.setStyle("-fx-background-color: " + (darkMode ? DARK_BG : LIGHT_BG) + ";");
 
         Scene scene = new Scene(root, 1280, 800);
+        applyTheme(scene);
         primaryStage.setTitle("Yemedemer Tiwlid Library Management System");
         primaryStage.setScene(scene);
         primaryStage.show();
     }
 
+    // Adds the stylesheet and keeps the scene root's :dark state in step with the theme setting
+    private void applyTheme(Scene scene) {
+        scene.getStylesheets().add(getClass().getResource(STYLESHEET).toExternalForm());
+        StyleRegistry.install(scene);
+        Node sceneRoot = scene.getRoot();
+        sceneRoot.pseudoClassStateChanged(DARK_THEME, darkMode.get());
+        // Held by the root and registered weakly, so closed windows are not kept alive by the setting
+        ChangeListener<Boolean> listener = (obs, wasDark, isDark) -> sceneRoot.pseudoClassStateChanged(DARK_THEME, isDark);
+        sceneRoot.getProperties().put(DARK_THEME, listener);
+        darkMode.addListener(new WeakChangeListener<>(listener));
+    }
+
     private void showLoginScreen() {
         VBox loginBox = new VBox(20);
         loginBox.setAlignment(Pos.CENTER);
         loginBox.setPadding(new Insets(40));
         loginBox.setMaxWidth(400);
-        loginBox.setStyle("-fx-background-color: " + (darkMode ? DARK_CARD : LIGHT_CARD) + "; "
-                + "-fx-background-radius: 10; -fx-padding: 30; "
-                + "-fx-effect: dropshadow(three-pass-box, rgba(0,0,0,0.2), 10, 0, 0, 0);");
+        loginBox.getStyleClass().add("panel");
 
         // Add scale animation on appearance
         ScaleTransition scaleIn = new ScaleTransition(Duration.millis(500), loginBox);
@@ -239,7 +418,7 @@ public class YemeDemerTiwlidLibrarySystem extends Application {
 
         Label loginTitle = new Label("Yemedemer Tiwlid Library Login");
         loginTitle.setFont(Font.font("Arial", FontWeight.BOLD, 24));
-        loginTitle.setTextFill(darkMode ? Color.web(DARK_TEXT) : Color.web(LIGHT_TEXT));
+        loginTitle.getStyleClass().add("themed-text");
 
         TextField usernameInput = new TextField();
         usernameInput.setPromptText("Username");
@@ -250,7 +429,7 @@ public class YemeDemerTiwlidLibrarySystem extends Application {
         styleTextField(passwordInput);
 
         Button loginButton = new Button("Login");
-        styleButton(loginButton, "#2a9df4", "#3aa8ff", "#1a7bc8");
+        styleButton(loginButton, Variant.PRIMARY);
         loginButton.setMaxWidth(300);
 
         loginButton.setOnAction(e -> {
@@ -264,25 +443,45 @@ public class YemeDemerTiwlidLibrarySystem extends Application {
                     return;
                 }
 
-                try {
-                    if (authenticateUser(username, password)) {
-                        if (currentUser != null) {
-                            showMainDashboard();
+                if (!startupGate.isReady()) {
+                    // Signs in as soon as the database is connected
+                    loginButton.setDisable(true);
+                    loginButton.setText("Signing in when connected…");
+                    startupGate.whenReady(() -> {
+                        loginButton.setDisable(false);
+                        loginButton.setText("Login");
+                        if (loginBox.getScene() != null) {
+                            loginButton.fire();
                         }
-                    }
-                    // Error message is now handled in authenticateUser
-                } catch (Exception ex) {
-                    showAlert("Error", "Authentication failed: " + ex.getMessage());
-                    shakeLoginBox(loginBox);
+                    });
+                    return;
                 }
+
+                Task<Boolean> login = login(username, password, loginBox);
+                login.runningProperty().addListener((obs, wasRunning, running) -> loginButton.setDisable(running));
             });
         });
 
         Button signUpButton = new Button("Librarian Sign Up");
-        styleTextButton(signUpButton, "#2a9df4");
+        styleTextButton(signUpButton, Variant.PRIMARY);
         signUpButton.setOnAction(e -> showSignUpScreen());
 
-        loginBox.getChildren().addAll(loginTitle, usernameInput, passwordInput, loginButton, signUpButton);
+        // Connection progress while the database is still being set up in the background
+        Label startupStatus = new Label();
+        startupStatus.getStyleClass().add("themed-text");
+        startupStatus.setWrapText(true);
+        startupStatus.textProperty().bind(startupGate.statusProperty());
+        startupStatus.visibleProperty().bind(startupGate.readyProperty().not());
+        startupStatus.managedProperty().bind(startupStatus.visibleProperty());
+
+        Button retryButton = new Button("Retry now");
+        styleTextButton(retryButton, Variant.SECONDARY);
+        retryButton.setOnAction(e -> startupGate.retryNow());
+        retryButton.visibleProperty().bind(startupGate.retryingProperty());
+        retryButton.managedProperty().bind(retryButton.visibleProperty());
+
+        loginBox.getChildren().addAll(loginTitle, usernameInput, passwordInput, loginButton, signUpButton,
+                startupStatus, retryButton);
         root.getChildren().clear();
         root.getChildren().add(loginBox);
 
@@ -310,43 +509,41 @@ public class YemeDemerTiwlidLibrarySystem extends Application {
 
     private void styleTextField(TextField textField) {
         textField.setMaxWidth(300);
-        textField.setStyle("-fx-background-color: white; -fx-border-color: #ccc; "
-                + "-fx-border-radius: 5; -fx-padding: 8; -fx-font-size: 14;");
-
-        // Add focus animation
-        textField.focusedProperty().addListener((obs, oldVal, newVal) -> {
-            if (newVal) {
-                textField.setStyle("-fx-background-color: white; -fx-border-color: #2a9df4; "
-                        + "-fx-border-radius: 5; -fx-padding: 8; -fx-font-size: 14;");
-            } else {
-                textField.setStyle("-fx-background-color: white; -fx-border-color: #ccc; "
-                        + "-fx-border-radius: 5; -fx-padding: 8; -fx-font-size: 14;");
-            }
-        });
+        // Focus border is the .library-field:focused rule
+        StyleRegistry.textField(textField);
     }
 
     private Image createPlaceholderImage() {
-        Canvas canvas = new Canvas(200, 150);
-        GraphicsContext gc = canvas.getGraphicsContext2D();
-
-        // Use card color as background
-        gc.setFill(darkMode ? Color.web(DARK_CARD) : Color.WHITE);
-        gc.fillRect(0, 0, 200, 150);
+        if (placeholderImage == null) {
+            Canvas canvas = new Canvas(200, 150);
+            GraphicsContext gc = canvas.getGraphicsContext2D();
 
-        // Use appropriate text color
-        gc.setFill(darkMode ? Color.web(DARK_TEXT) : Color.BLACK);
-        gc.setFont(Font.font("Arial", FontWeight.BOLD, 14));
-        gc.fillText("No Cover", 70, 75);
+            // Transparent background so the card color shows through, gray text readable in either theme
+            gc.setFill(Color.GRAY);
+            gc.setFont(Font.font("Arial", FontWeight.BOLD, 14));
+            gc.fillText("No Cover", 70, 75);
 
-        SnapshotParameters params = new SnapshotParameters();
-        params.setFill(Color.TRANSPARENT);
-        return canvas.snapshot(params, null);
+            SnapshotParameters params = new SnapshotParameters();
+            params.setFill(Color.TRANSPARENT);
+            placeholderImage = canvas.snapshot(params, null);
+        }
+        return placeholderImage;
     }
 
     private void setBookCoverImage(ImageView imageView, byte[] imageData) {
         try {
             if (imageData != null && imageData.length > 0) {
+                FlightEvents.CoverDecode decode = new FlightEvents.CoverDecode();
+                decode.begin();
                 Image image = new Image(new ByteArrayInputStream(imageData));
+                decode.end();
+                if (decode.shouldCommit()) {
+                    decode.bytes = imageData.length;
+                    decode.width = (int) image.getWidth();
+                    decode.height = (int) image.getHeight();
+                    decode.failed = image.isError();
+                    decode.commit();
+                }
                 imageView.setImage(image);
             } else {
                 imageView.setImage(createPlaceholderImage());
@@ -356,89 +553,21 @@ public class YemeDemerTiwlidLibrarySystem extends Application {
         }
     }
 
-    private void styleButton(Button button, String baseColor, String hoverColor, String pressedColor) {
-        // Base style with gradient
-        String baseStyle = "-fx-background-color: linear-gradient(to bottom, " + baseColor + ", " + darkenColor(baseColor, 0.2) + "); "
-                + "-fx-text-fill: white; -fx-font-weight: bold; -fx-background-radius: 5; "
-                + "-fx-padding: 8 15 8 15; -fx-cursor: hand; "
-                + "-fx-effect: dropshadow(three-pass-box, rgba(0,0,0,0.2), 5, 0, 0, 1);";
-
-        // Hover style
-        String hoverStyle = "-fx-background-color: linear-gradient(to bottom, " + hoverColor + ", " + darkenColor(hoverColor, 0.2) + "); "
-                + "-fx-effect: dropshadow(three-pass-box, rgba(0,0,0,0.3), 8, 0, 0, 2);";
-
-        // Pressed style
-        String pressedStyle = "-fx-background-color: linear-gradient(to bottom, " + darkenColor(pressedColor, 0.1) + ", " + pressedColor + "); "
-                + "-fx-effect: dropshadow(three-pass-box, rgba(0,0,0,0.1), 3, 0, 0, 1);";
-
-        button.setStyle(baseStyle);
-
-        // Hover animation
-        final ScaleTransition hoverScale = new ScaleTransition(HOVER_ANIM_DURATION, button);
-        button.setOnMouseEntered(e -> {
-            button.setStyle(baseStyle + hoverStyle);
-            hoverScale.setToX(1.03);
-            hoverScale.setToY(1.03);
-            hoverScale.play();
-        });
-
-        button.setOnMouseExited(e -> {
-            button.setStyle(baseStyle);
-            hoverScale.setToX(1);
-            hoverScale.setToY(1);
-            hoverScale.play();
-        });
-
-        // Press animation
-        button.setOnMousePressed(e -> {
-            button.setStyle(baseStyle + pressedStyle);
-            ScaleTransition pressScale = new ScaleTransition(PRESS_ANIM_DURATION, button);
-            pressScale.setToX(0.97);
-            pressScale.setToY(0.97);
-            pressScale.play();
-        });
-
-        button.setOnMouseReleased(e -> {
-            button.setStyle(baseStyle + hoverStyle);
-            ScaleTransition releaseScale = new ScaleTransition(PRESS_ANIM_DURATION, button);
-            releaseScale.setToX(1.03);
-            releaseScale.setToY(1.03);
-            releaseScale.play();
-        });
+    private void styleButton(Button button, Variant variant) {
+        // Colors for every state are precomputed in StyleRegistry; hover and press only change pseudo-classes
+        StyleRegistry.button(button, variant);
     }
 
-    private void styleTextButton(Button button, String color) {
-        String baseStyle = "-fx-background-color: transparent; "
-                + "-fx-text-fill: " + color + "; "
-                + "-fx-underline: true; "
-                + "-fx-cursor: hand; "
-                + "-fx-font-size: 14;";
-
-        String hoverStyle = "-fx-background-color: rgba(" + hexToRgb(color) + ",0.1); "
-                + "-fx-text-fill: " + darkenColor(color, 0.2) + ";";
-
-        button.setStyle(baseStyle);
-
-        button.setOnMouseEntered(e -> button.setStyle(baseStyle + hoverStyle));
-        button.setOnMouseExited(e -> button.setStyle(baseStyle));
-    }
-
-    private String darkenColor(String hexColor, double factor) {
-        Color color = Color.web(hexColor);
-        return String.format("#%02x%02x%02x",
-                (int) (color.getRed() * 255 * (1 - factor)),
-                (int) (color.getGreen() * 255 * (1 - factor)),
-                (int) (color.getBlue() * 255 * (1 - factor)));
-    }
-
-    private String hexToRgb(String hexColor) {
-        Color color = Color.web(hexColor);
-        return (int) (color.getRed() * 255) + ","
-                + (int) (color.getGreen() * 255) + ","
-                + (int) (color.getBlue() * 255);
+    private void styleTextButton(Button button, Variant variant) {
+        StyleRegistry.textButton(button, variant);
     }
 
     private void animateButtonPress(Button button, Runnable action) {
+        if (AnimationCoordinator.isReducedMotion()) {
+            action.run();
+            return;
+        }
+
         ScaleTransition press = new ScaleTransition(Duration.millis(100), button);
         press.setToX(0.95);
         press.setToY(0.95);
@@ -454,48 +583,47 @@ public class YemeDemerTiwlidLibrarySystem extends Application {
         press.play();
     }
 
-    private boolean authenticateUser(String username, String password) throws SQLException {
-        validateConnection();
-
-        String sql = "SELECT * FROM users WHERE username = ? AND password = ?";
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-            pstmt.setString(1, username);
-            pstmt.setString(2, hashPassword(password));
-
-            ResultSet rs = pstmt.executeQuery();
-
-            if (rs.next()) {
-                currentUser = new User(
-                        rs.getString("full_name"),
-                        rs.getString("username"),
-                        rs.getString("password"),
-                        rs.getBoolean("is_admin")
-                );
-                return true;
-            } else {
-                Platform.runLater(() -> {
-                    showAlert("Login Failed", "Invalid username or password");
-                    shakeLoginBox((VBox) root.getChildren().get(0));
-                    // Clear password field
-                    if (root.getChildren().get(0) instanceof VBox) {
-                        VBox loginBox = (VBox) root.getChildren().get(0);
-                        for (Node node : loginBox.getChildren()) {
-                            if (node instanceof PasswordField) {
-                                ((PasswordField) node).clear();
-                            }
-                        }
+    // Verifies the credentials on a service thread, since the key derivation is deliberately
+    // slow, and opens the dashboard on success. loginBox, when given, is shaken and its
+    // password cleared on failure.
+    private Task<Boolean> login(String username, String password, VBox loginBox) {
+        Task<Boolean> task = new Task<>() {
+            @Override
+            protected Boolean call() throws Exception {
+                Optional<AuthenticationService.Account> account = authenticationService.authenticate(username, password);
+                account.ifPresent(a -> currentUser = new User(a.fullName(), a.username(), a.admin()));
+                return account.isPresent();
+            }
+        };
+        task.setOnSucceeded(e -> {
+            if (task.getValue()) {
+                showMainDashboard();
+                return;
+            }
+            showAlert("Login Failed", "Invalid username or password");
+            if (loginBox != null) {
+                shakeLoginBox(loginBox);
+                for (Node node : loginBox.getChildren()) {
+                    if (node instanceof PasswordField) {
+                        ((PasswordField) node).clear();
                     }
-                });
-                return false;
+                }
             }
-        }
+        });
+        task.setOnFailed(e -> {
+            showAlert("Error", "Authentication failed: " + task.getException().getMessage());
+            if (loginBox != null) {
+                shakeLoginBox(loginBox);
+            }
+        });
+        serviceExecutor.execute(task);
+        return task;
     }
-    
 
     private void validateConnection() throws SQLException {
         if (connection == null || connection.isClosed()) {
             try {
-                connection = DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD);
+                connection = InstrumentedJdbc.wrap(DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD));
             } catch (SQLException e) {
                 showAlert("Database Error", "Could not connect to database: " + e.getMessage());
                 throw e;
@@ -503,13 +631,64 @@ public class YemeDemerTiwlidLibrarySystem extends Application {
         }
     }
 
+    // Follows the writes of the other terminals on this database; their changes arrive
+    // on the event bus like local ones. It is positioned and started once the database is up.
+    private void createChangeLogTailer() {
+        changeLogTailer = new ChangeLogTailer(() -> InstrumentedJdbc.wrap(DriverManager.getConnection(DB_URL, connectionProperties())),
+                repository.getOrigin(), eventBus::publish);
+    }
+
+    private void createLibraryService() {
+        String serverUrl = getParameters().getNamed().get("server-url");
+        if (serverUrl != null) {
+            libraryService = new BoundedLibraryService(new LibraryServiceClient(serverUrl, this::pollChangeLogNow),
+                    SERVICE_CONCURRENCY, SERVICE_TIMEOUT_MS);
+            return;
+        }
+
+        // Own pool, sized to the service's concurrency limit, apart from the UI's connection and dataPool
+        servicePool = new ConnectionPool(() -> InstrumentedJdbc.wrap(DriverManager.getConnection(DB_URL, connectionProperties())),
+                SERVICE_CONCURRENCY, SERVICE_TIMEOUT_MS);
+        LibraryRepository serviceRepository = new LibraryRepository(servicePool, eventBus, repository.getOrigin());
+        localLibraryService = new LocalLibraryService(serviceRepository, servicePool, 0);
+        localLibraryService.setCatalog(catalogSnapshot);
+        libraryService = new BoundedLibraryService(localLibraryService, SERVICE_CONCURRENCY, SERVICE_TIMEOUT_MS);
+    }
+
+    // Writes made through the server come back through the change log; fetch them now
+    private void pollChangeLogNow() {
+        Thread pollThread = new Thread(() -> {
+            try {
+                changeLogTailer.poll();
+            } catch (SQLException e) {
+                System.err.println("Change log poll failed: " + e.getMessage());
+            }
+        }, "change-log-poll");
+        pollThread.setDaemon(true);
+        pollThread.start();
+    }
+
+    // Stats can be an HTTP round trip or a wait for a service permit, so they are
+    // fetched on the service executor and handed to onLoaded on the FX thread
+    private void loadStats(Consumer<LibraryService.Stats> onLoaded) {
+        Task<LibraryService.Stats> statsTask = new Task<>() {
+            @Override
+            protected LibraryService.Stats call() throws Exception {
+                return libraryService.stats();
+            }
+        };
+        statsTask.setOnSucceeded(e -> onLoaded.accept(statsTask.getValue()));
+        statsTask.setOnFailed(e -> showAlert("Error",
+                "Could not retrieve library statistics: " + statsTask.getException().getMessage()));
+        serviceExecutor.execute(statsTask);
+    }
+
     private void showSignUpScreen() {
         VBox signUpBox = new VBox(15);
         signUpBox.setAlignment(Pos.CENTER);
         signUpBox.setPadding(new Insets(30));
         signUpBox.setMaxWidth(500);
-        signUpBox.setStyle("-fx-background-color: white; -fx-background-radius: 10; -fx-padding: 30; "
-                + "-fx-effect: dropshadow(three-pass-box, rgba(0,0,0,0.2), 10, 0, 0, 0);");
+        signUpBox.getStyleClass().add("panel");
 
         // Add animation
         FadeTransition fadeIn = new FadeTransition(TRANSITION_DURATION, signUpBox);
@@ -518,7 +697,7 @@ public class YemeDemerTiwlidLibrarySystem extends Application {
 
         Label signUpTitle = new Label("Librarian Sign Up");
         signUpTitle.setFont(Font.font("Arial", FontWeight.BOLD, 22));
-        signUpTitle.setTextFill(darkMode ? Color.web(DARK_TEXT) : Color.BLACK);
+        signUpTitle.getStyleClass().add("themed-text");
 
         TextField fullNameField = new TextField();
         fullNameField.setPromptText("Full Name");
@@ -541,8 +720,12 @@ public class YemeDemerTiwlidLibrarySystem extends Application {
         styleTextField(secretCodeField);
 
         Button signUpButton = new Button("Sign Up");
-        styleButton(signUpButton, "#2a9df4", "#3aa8ff", "#1a7bc8");
+        styleButton(signUpButton, Variant.PRIMARY);
         signUpButton.setOnAction(e -> {
+            if (!startupGate.isReady()) {
+                showAlert("Not Connected", "The database is not connected yet. Please try again in a moment.");
+                return;
+            }
             try {
                 String fullName = fullNameField.getText();
                 String username = usernameField.getText();
@@ -581,7 +764,7 @@ public class YemeDemerTiwlidLibrarySystem extends Application {
         });
 
         Button backButton = new Button("Back to Login");
-        styleTextButton(backButton, "#2a9df4");
+        styleTextButton(backButton, Variant.PRIMARY);
         backButton.setOnAction(e -> showLoginScreen());
 
         signUpBox.getChildren().addAll(
@@ -608,15 +791,7 @@ public class YemeDemerTiwlidLibrarySystem extends Application {
     }
 
     private void registerUser(String fullName, String username, String password) throws SQLException {
-        validateConnection();
-
-        String sql = "INSERT INTO users (full_name, username, password) VALUES (?, ?, ?)";
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-            pstmt.setString(1, fullName);
-            pstmt.setString(2, username);
-            pstmt.setString(3, hashPassword(password));
-            pstmt.executeUpdate();
-        }
+        authenticationService.addUser(fullName, username, password, false);
     }
 
     private void showMainDashboard() {
@@ -624,9 +799,9 @@ public class YemeDemerTiwlidLibrarySystem extends Application {
             // Clear existing content
             root.getChildren().clear();
 
-            // Initialize main layout
+            // Initialize main layout; views built for a previous login are not reused
+            viewRegistry.clear();
             mainLayout = new BorderPane();
-            updateTheme(); // Apply current theme
 
             // Create components
             createHeader();
@@ -653,7 +828,7 @@ public class YemeDemerTiwlidLibrarySystem extends Application {
     private void createHeader() {
         HBox header = new HBox();
         header.setPadding(new Insets(15));
-        header.setStyle("-fx-background-color: " + (darkMode ? DARK_CARD : "#2a9df4") + ";");
+        header.getStyleClass().add("header");
         header.setAlignment(Pos.CENTER_LEFT);
 
         titleLabel = new Label("Dashboard - Yemedemer Tiwlid Library");
@@ -664,8 +839,9 @@ public class YemeDemerTiwlidLibrarySystem extends Application {
         HBox rightControls = new HBox(10);
         rightControls.setAlignment(Pos.CENTER_RIGHT);
 
-        Button themeButton = new Button(darkMode ? "☀️ Light" : "🌙 Dark");
-        styleButton(themeButton, "#6c757d", "#5a6268", "#4e555b");
+        Button themeButton = new Button();
+        themeButton.textProperty().bind(Bindings.when(darkMode).then("☀️ Light").otherwise("🌙 Dark"));
+        styleButton(themeButton, Variant.SECONDARY);
         themeButton.setOnAction(e -> {
             // Add scale animation
             ScaleTransition st = new ScaleTransition(Duration.millis(200), themeButton);
@@ -678,19 +854,18 @@ public class YemeDemerTiwlidLibrarySystem extends Application {
             st.play();
 
             // Toggle dark mode after animation
-            st.setOnFinished(ev -> {
-                darkMode = !darkMode;
-                themeButton.setText(darkMode ? "☀️ Light" : "🌙 Dark");
-                updateTheme(); // Use our new comprehensive update method
-            });
+            st.setOnFinished(ev -> darkMode.set(!darkMode.get()));
         });
 
         Label userLabel = new Label("Logged in as: " + currentUser.getFullName());
         userLabel.setTextFill(Color.WHITE);
 
         Button logoutButton = new Button("Logout");
-        styleButton(logoutButton, "#dc3545", "#c82333", "#bd2130");
-        logoutButton.setOnAction(e -> showLoginScreen());
+        styleButton(logoutButton, Variant.DANGER);
+        logoutButton.setOnAction(e -> {
+            viewRegistry.clear();
+            showLoginScreen();
+        });
 
         rightControls.getChildren().addAll(userLabel, themeButton, logoutButton);
         HBox.setHgrow(rightControls, Priority.ALWAYS);
@@ -702,12 +877,12 @@ public class YemeDemerTiwlidLibrarySystem extends Application {
     private void createSidebar() {
         sidebar = new VBox(10);
         sidebar.setPadding(new Insets(20));
-        sidebar.setStyle("-fx-background-color: " + (darkMode ? DARK_SECONDARY : LIGHT_SECONDARY) + ";");
+        sidebar.getStyleClass().add("sidebar");
         sidebar.setPrefWidth(200);
 
         Label menuLabel = new Label("Menu");
         menuLabel.setFont(Font.font("Arial", FontWeight.BOLD, 16));
-        menuLabel.setTextFill(darkMode ? Color.web(DARK_TEXT) : Color.web(LIGHT_TEXT));
+        menuLabel.getStyleClass().add("themed-text");
 
         Button dashboardBtn = createMenuButton("Dashboard", "📊");
         dashboardBtn.setOnAction(e -> showDashboardContent());
@@ -718,6 +893,9 @@ public class YemeDemerTiwlidLibrarySystem extends Application {
         Button loansBtn = createMenuButton("Loans", "📖");
         loansBtn.setOnAction(e -> showLoansContent());
 
+        Button circulationBtn = createMenuButton("Circulation", "🔖");
+        circulationBtn.setOnAction(e -> showCirculationContent());
+
         Button searchBtn = createMenuButton("Search", "🔍");
         searchBtn.setOnAction(e -> showSearchContent());
 
@@ -730,10 +908,10 @@ public class YemeDemerTiwlidLibrarySystem extends Application {
         if (currentUser.isAdmin()) {
             Button settingsBtn = createMenuButton("Settings", "⚙️");
             settingsBtn.setOnAction(e -> showSettingsContent());
-            sidebar.getChildren().addAll(menuLabel, dashboardBtn, booksBtn, loansBtn,
+            sidebar.getChildren().addAll(menuLabel, dashboardBtn, booksBtn, loansBtn, circulationBtn,
                     searchBtn, analysisBtn, settingsBtn, developersBtn);
         } else {
-            sidebar.getChildren().addAll(menuLabel, dashboardBtn, booksBtn, loansBtn,
+            sidebar.getChildren().addAll(menuLabel, dashboardBtn, booksBtn, loansBtn, circulationBtn,
                     searchBtn, analysisBtn, developersBtn);
         }
         mainLayout.setLeft(sidebar);
@@ -743,46 +921,138 @@ public class YemeDemerTiwlidLibrarySystem extends Application {
         Button button = new Button(emoji + " " + text);
         button.setMaxWidth(Double.MAX_VALUE);
         button.setAlignment(Pos.BASELINE_LEFT);
-
-        // Base style
-        String baseStyle = "-fx-background-color: transparent; "
-                + "-fx-text-fill: " + (darkMode ? DARK_TEXT : "black") + "; "
-                + "-fx-font-size: 14px; "
-                + "-fx-padding: 10 15 10 15; "
-                + "-fx-background-radius: 5; "
-                + "-fx-border-radius: 5; "
-                + "-fx-cursor: hand;";
-
-        // Hover style
-        String hoverStyle = "-fx-background-color: " + (darkMode ? "rgba(255,255,255,0.1)" : "rgba(0,0,0,0.05)") + "; "
-                + "-fx-text-fill: " + (darkMode ? "white" : "black") + ";";
-
-    button.setOnAction(e -> {
-        switch (text) {
-            case "Books":
-                refreshBooksContent(); // Force refresh when Books button is clicked
-                showBooksContent();
-                break;
-            case "Dashboard":
-                showDashboardContent();
-                break;
-            case "Loans":
-                showLoansContent();
-                break;
-            // ... other cases ...
-        }
-    });
-        button.setStyle(baseStyle);
-
-        button.setOnMouseEntered(e -> button.setStyle(baseStyle + hoverStyle));
-        button.setOnMouseExited(e -> button.setStyle(baseStyle));
-
+        button.getStyleClass().add("sidebar-button");
         return button;
     }
 
+    private void registerViews() {
+        viewRegistry.register(DASHBOARD_VIEW, () -> new SidebarView(DASHBOARD_VIEW, "Dashboard - Yemedemer Tiwlid Library",
+                this::buildDashboardContent, this::refreshDashboardContent));
+        viewRegistry.register(BOOKS_VIEW, () -> new SidebarView(BOOKS_VIEW, "Book Management - Yeme Demer Tiwlid Library",
+                this::buildBooksContent, this::refreshBooksContent));
+        viewRegistry.register(LOANS_VIEW, () -> new SidebarView(LOANS_VIEW, "Loan Management - Yemedemer Tiwlid Library",
+                this::buildLoansContent, this::loadLoans));
+        viewRegistry.register(CIRCULATION_VIEW, () -> new SidebarView(CIRCULATION_VIEW,
+                "Circulation Desk - Yemedemer Tiwlid Library", this::buildCirculationContent, () -> {
+                }));
+        viewRegistry.register(SEARCH_VIEW, () -> new SidebarView(SEARCH_VIEW, "Search Books - Yemedemer Tiwlid Library",
+                this::buildSearchContent, this::repeatSearch));
+        // Charts are rebuilt rather than refreshed; changes invalidate the view instead of marking it
+        viewRegistry.register(ANALYSIS_VIEW, () -> new SidebarView(ANALYSIS_VIEW, "Library Analysis - Yemedemer Tiwlid Library",
+                this::buildAnalysisContent, () -> {
+                }));
+        viewRegistry.register(SETTINGS_VIEW, () -> new SidebarView(SETTINGS_VIEW, "Settings", this::buildSettingsContent, () -> {
+        }));
+    }
+
+    private void showView(String name) {
+        FlightEvents.ViewShown view = FlightEvents.beginView(name);
+        mainLayout.setCenter(viewRegistry.show(name));
+        view.commit();
+    }
+
     private void showDashboardContent() {
-        titleLabel.setText("Dashboard - Yemedemer Tiwlid Library");
+        showView(DASHBOARD_VIEW);
+    }
+
+    private void showBooksContent() {
+        showView(BOOKS_VIEW);
+    }
+
+    private void showLoansContent() {
+        showView(LOANS_VIEW);
+    }
+
+    private void showCirculationContent() {
+        showView(CIRCULATION_VIEW);
+        // The scanner types into whatever has focus
+        Platform.runLater(circulationScanField::requestFocus);
+    }
+
+    private void showSearchContent() {
+        showView(SEARCH_VIEW);
+    }
+
+    private void showAnalysisContent() {
+        showView(ANALYSIS_VIEW);
+    }
+
+    private void showSettingsContent() {
+        showView(SETTINGS_VIEW);
+    }
+
+    // A sidebar view: builds its content once, sets the header title whenever it is shown
+    // and refreshes its data when it was marked dirty. The Books and Search views each
+    // own a books pane with its card scheduler, page loader and search controls; the
+    // shared fields the event subscribers use point at the one shown last.
+    private final class SidebarView implements ViewRegistry.ViewController {
+
+        private final String name;
+        private final String title;
+        private final Supplier<Node> builder;
+        private final Runnable refresher;
+        private FlowPane pane;
+        private CardInsertionScheduler<BookRow> inserter;
+        private PageLoader<BookRow> loader;
+        private TextField field;
+        private ComboBox<String> type;
+
+        SidebarView(String name, String title, Supplier<Node> builder, Runnable refresher) {
+            this.name = name;
+            this.title = title;
+            this.builder = builder;
+            this.refresher = refresher;
+        }
+
+        @Override
+        public Node build() {
+            FlowPane previousPane = booksFlowPane;
+            Node content = builder.get();
+            if (booksFlowPane != previousPane) {
+                pane = booksFlowPane;
+                inserter = cardInserter;
+                loader = pageLoader;
+                field = searchField;
+                type = searchTypeCombo;
+                // Cards are cached per book and a node has only one parent, so filling the other
+                // books pane can take cards out of this one while it is hidden
+                FlowPane ownPane = pane;
+                ownPane.getChildren().addListener((ListChangeListener<Node>) change -> {
+                    if (ownPane.getScene() == null) {
+                        viewRegistry.markDirty(name);
+                    }
+                });
+            }
+            return content;
+        }
+
+        @Override
+        public void onShown() {
+            titleLabel.setText(title);
+            if (pane != null) {
+                booksFlowPane = pane;
+                cardInserter = inserter;
+                pageLoader = loader;
+                searchField = field;
+                searchTypeCombo = type;
+            }
+        }
+
+        @Override
+        public void refresh() {
+            refresher.run();
+        }
+
+        @Override
+        public void onEvicted() {
+            if (pane != null) {
+                inserter.cancel();
+                loader.cancel();
+            }
+        }
+    }
 
+    private Node buildDashboardContent() {
         VBox content = new VBox(20);
         content.setPadding(new Insets(20));
 
@@ -790,42 +1060,57 @@ public class YemeDemerTiwlidLibrarySystem extends Application {
         HBox summaryCards = new HBox(15);
         summaryCards.setAlignment(Pos.CENTER);
 
-        int totalBooks = getTotalBooksCount();
-        int onLoan = getOnLoanCount();
-        int overdue = getOverdueCount();
+        // Counters show a placeholder until the stats arrive
+        VBox totalCard = createSummaryCard("Total Books", "…", "#2a9df4");
+        VBox onLoanCard = createSummaryCard("On Loan", "…", "#17a2b8");
+        VBox overdueCard = createSummaryCard("Overdue", "…", "#dc3545");
+        summaryCards.getChildren().addAll(totalCard, onLoanCard, overdueCard);
 
-        summaryCards.getChildren().addAll(
-                createSummaryCard("Total Books", String.valueOf(totalBooks), "#2a9df4"),
-                createSummaryCard("On Loan", String.valueOf(onLoan), "#17a2b8"),
-                createSummaryCard("Overdue", String.valueOf(overdue), "#dc3545")
-        );
+        // Kept so change events can adjust the counters without re-running the count queries
+        totalBooksValueLabel = (Label) totalCard.getChildren().get(1);
+        onLoanValueLabel = (Label) onLoanCard.getChildren().get(1);
+        overdueValueLabel = (Label) overdueCard.getChildren().get(1);
+        loadStats(this::showStats);
 
         // Recent activity
         Label activityLabel = new Label("Recent Activity");
         activityLabel.setFont(Font.font("Arial", FontWeight.BOLD, 16));
-        activityLabel.setTextFill(darkMode ? Color.web(DARK_TEXT) : Color.BLACK);
+        activityLabel.getStyleClass().add("themed-text");
 
         ListView<String> activityList = new ListView<>();
         activityList.getItems().addAll(getRecentActivities());
         activityList.setPrefHeight(200);
-        activityList.setStyle("-fx-control-inner-background: " + (darkMode ? DARK_CARD : "white") + ";");
+        activityList.getStyleClass().add("card-list");
+        recentActivityList = activityList;
 
         // Quick actions
         HBox quickActions = new HBox(15);
         quickActions.setAlignment(Pos.CENTER);
 
         Button addBookBtn = new Button("Add New Book");
-        styleButton(addBookBtn, "#28a745", "#34ce57", "#218838");
+        styleButton(addBookBtn, Variant.SUCCESS);
         addBookBtn.setOnAction(e -> showAddBookDialog());
 
         Button viewLoansBtn = new Button("View All Loans");
-        styleButton(viewLoansBtn, "#17a2b8", "#138496", "#117a8b");
+        styleButton(viewLoansBtn, Variant.INFO);
         viewLoansBtn.setOnAction(e -> showLoansContent());
 
         quickActions.getChildren().addAll(addBookBtn, viewLoansBtn);
 
         content.getChildren().addAll(summaryCards, activityLabel, activityList, quickActions);
-        mainLayout.setCenter(content);
+        return content;
+    }
+
+    // Re-runs the count and activity queries for a dashboard that was hidden while they changed
+    private void refreshDashboardContent() {
+        loadStats(this::showStats);
+        recentActivityList.getItems().setAll(getRecentActivities());
+    }
+
+    private void showStats(LibraryService.Stats stats) {
+        totalBooksValueLabel.setText(String.valueOf(stats.totalBooks()));
+        onLoanValueLabel.setText(String.valueOf(stats.onLoan()));
+        overdueValueLabel.setText(String.valueOf(stats.overdue()));
     }
 
     private VBox createSummaryCard(String title, String value, String color) {
@@ -833,86 +1118,25 @@ public class YemeDemerTiwlidLibrarySystem extends Application {
         card.setAlignment(Pos.CENTER);
         card.setPadding(new Insets(15));
 
-        // Use proper colors for both modes
-        String cardColor = darkMode ? DARK_CARD : LIGHT_CARD;
-        String hoverColor = darkMode ? DARK_HOVER : LIGHT_HOVER;
-        String textColor = darkMode ? DARK_TEXT : LIGHT_TEXT;
-
-        card.setStyle("-fx-background-color: " + cardColor
-                + "; -fx-background-radius: 10; "
-                + "-fx-effect: dropshadow(three-pass-box, rgba(0,0,0,0.1), 5, 0, 0, 0);");
+        // Background and hover colors come from the .card rule
+        card.getStyleClass().add("card");
         card.setPrefWidth(200);
 
         Label titleLabel = new Label(title);
         titleLabel.setFont(Font.font("Arial", FontWeight.BOLD, 14));
-        titleLabel.setTextFill(Color.web(textColor));
+        titleLabel.getStyleClass().add("themed-text");
 
         Label valueLabel = new Label(value);
         valueLabel.setFont(Font.font("Arial", FontWeight.BOLD, 24));
         valueLabel.setTextFill(Color.web(color));
 
         // Hover effects
-        String cardStyle = card.getStyle();
-        card.setOnMouseEntered(e -> {
-            card.setStyle("-fx-background-color: " + hoverColor
-                    + "; -fx-background-radius: 10; "
-                    + "-fx-effect: dropshadow(three-pass-box, "
-                    + (darkMode ? "rgba(255,255,255,0.2)" : "rgba(0,0,0,0.2)")
-                    + ", 10, 0, 0, 0);");
-            card.setCursor(Cursor.HAND);
-
-            ScaleTransition hoverScale = new ScaleTransition(CARD_HOVER_ANIM_DURATION, card);
-            hoverScale.setToX(1.02);
-            hoverScale.setToY(1.02);
-            hoverScale.play();
-        });
-
-        card.setOnMouseExited(e -> {
-            card.setStyle(cardStyle);
-            ScaleTransition exitScale = new ScaleTransition(CARD_HOVER_ANIM_DURATION, card);
-            exitScale.setToX(1);
-            exitScale.setToY(1);
-            exitScale.play();
-        });
+        StyleRegistry.scaleOnHover(card, CARD_HOVER_ANIM_DURATION, 1.02, 1);
 
         card.getChildren().addAll(titleLabel, valueLabel);
         return card;
     }
 
-    private int getTotalBooksCount() {
-        String sql = "SELECT SUM(quantity) FROM books";
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-            ResultSet rs = pstmt.executeQuery();
-            return rs.next() ? rs.getInt(1) : 0;
-        } catch (SQLException e) {
-            showAlert("Error", "Could not retrieve book count");
-            return 0;
-        }
-    }
-
-    private int getOnLoanCount() {
-        String sql = "SELECT COUNT(*) FROM loans WHERE returned = 0";
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-            ResultSet rs = pstmt.executeQuery();
-            return rs.next() ? rs.getInt(1) : 0;
-        } catch (SQLException e) {
-            showAlert("Error", "Could not retrieve loan count");
-            return 0;
-        }
-    }
-
-    private int getOverdueCount() {
-        String sql = "SELECT COUNT(*) FROM loans WHERE returned = 0 AND return_date < ?";
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-            pstmt.setTimestamp(1, Timestamp.valueOf(LocalDateTime.now()));
-            ResultSet rs = pstmt.executeQuery();
-            return rs.next() ? rs.getInt(1) : 0;
-        } catch (SQLException e) {
-            showAlert("Error", "Could not retrieve overdue count");
-            return 0;
-        }
-    }
-
     private List<String> getRecentActivities() {
         List<String> activities = new ArrayList<>();
         String sql = "SELECT b.title, l.borrower_name, l.loan_date "
@@ -939,9 +1163,7 @@ public class YemeDemerTiwlidLibrarySystem extends Application {
         return activities;
     }
 
-  private void showBooksContent() {
-    titleLabel.setText("Book Management - Yeme Demer Tiwlid Library");
-
+  private Node buildBooksContent() {
     VBox content = new VBox(20);
     content.setPadding(new Insets(20));
 
@@ -958,49 +1180,53 @@ public class YemeDemerTiwlidLibrarySystem extends Application {
     styleComboBox(searchTypeCombo);
 
     Button refreshButton = new Button("Refresh");
-    styleButton(refreshButton, "#17a2b8", "#138496", "#117a8b");
+    styleButton(refreshButton, Variant.INFO);
     refreshButton.setOnAction(e -> refreshBooksContent());
 
     Button addBookButton = new Button("+ Add Book");
-    styleButton(addBookButton, "#28a745", "#34ce57", "#218838");
+    styleButton(addBookButton, Variant.SUCCESS);
     addBookButton.setOnAction(e -> showAddBookDialog());
 
-    searchBox.getChildren().addAll(searchField, searchTypeCombo, refreshButton, addBookButton);
+    Button importButton = new Button("Import CSV");
+    styleButton(importButton, Variant.SECONDARY);
+    importButton.setOnAction(e -> importBooksFromCsv());
+
+    Button importCoversButton = new Button("Import Covers");
+    styleButton(importCoversButton, Variant.SECONDARY);
+    importCoversButton.setOnAction(e -> importCoversFromDirectory());
+
+    searchBox.getChildren().addAll(searchField, searchTypeCombo, refreshButton, addBookButton,
+            importButton, importCoversButton);
 
     // Books display
     booksFlowPane = new FlowPane();
     booksFlowPane.setPadding(new Insets(15));
     booksFlowPane.setHgap(20);
     booksFlowPane.setVgap(20);
-    booksFlowPane.setStyle("-fx-background-color: " + (darkMode ? DARK_BG : LIGHT_BG) + ";");
+    booksFlowPane.getStyleClass().add("book-grid");
+    resetCardInserter();
 
     ScrollPane scrollPane = createBookScrollPane();
-    scrollPane.setStyle("-fx-background: " + (darkMode ? DARK_BG : LIGHT_BG) + ";");
+    scrollPane.getStyleClass().add("content-scroll");
 
     content.getChildren().addAll(searchBox, scrollPane);
-    mainLayout.setCenter(content);
 
     // Load books with reset pagination
-    currentPage = 0;
     booksFlowPane.getChildren().clear();
-    bookCardCache.clear();
+    clearBookCardCache();
     loadBooksFromDatabase();
+    return content;
 }
   
   private void refreshBooksContent() {
-    // Reset pagination
-    currentPage = 0;
-    
     // Clear existing books and cache
+    cardInserter.cancel();
     booksFlowPane.getChildren().clear();
-    bookCardCache.clear();
+    clearBookCardCache();
     
-    // Reload books
+    // Reload books from the first page; the loader shows the loading indicator while it waits
     loadBooksFromDatabase();
     
-    // Show loading indicator
-    showLoadingIndicator(true);
-    
     // If there's a search term, reapply it
     if (searchField != null && !searchField.getText().isEmpty()) {
         performSearch(searchField.getText(), searchTypeCombo.getValue());
@@ -1009,22 +1235,8 @@ public class YemeDemerTiwlidLibrarySystem extends Application {
   
   
     private void styleComboBox(ComboBox<String> comboBox) {
-        comboBox.setStyle("-fx-background-color: white; -fx-border-color: #ccc; "
-                + "-fx-border-radius: 5; -fx-padding: 5; -fx-font-size: 14;");
-
-        comboBox.setCellFactory(lv -> {
-            ListCell<String> cell = new ListCell<>() {
-                @Override
-                protected void updateItem(String item, boolean empty) {
-                    super.updateItem(item, empty);
-                    setText(empty ? null : item);
-                }
-            };
-
-            cell.setOnMouseEntered(e -> cell.setStyle("-fx-background-color: #f0f0f0;"));
-            cell.setOnMouseExited(e -> cell.setStyle(""));
-            return cell;
-        });
+        // Popup cell hover is the .library-combo .list-cell:hover rule
+        StyleRegistry.comboBox(comboBox);
     }
 
     private ScrollPane createBookScrollPane() {
@@ -1033,92 +1245,140 @@ public class YemeDemerTiwlidLibrarySystem extends Application {
         scrollPane.setHbarPolicy(ScrollPane.ScrollBarPolicy.NEVER);
         scrollPane.setVbarPolicy(ScrollPane.ScrollBarPolicy.AS_NEEDED);
 
-        // Load more when scrolling near bottom
-        scrollPane.vvalueProperty().addListener((obs, oldVal, newVal) -> {
-            if (newVal.doubleValue() > 0.9) { // 90% scrolled
-                currentPage++;
-                loadBooksFromDatabase();
-            }
-        });
+        // Load more when the end of the cards is within a screen of the viewport; the page is usually
+        // prefetched already. Height changes matter too: a first page shorter than the viewport cannot scroll.
+        scrollPane.vvalueProperty().addListener((obs, oldVal, newVal) -> maybeLoadNextPage(scrollPane));
+        scrollPane.viewportBoundsProperty().addListener((obs, oldVal, newVal) -> maybeLoadNextPage(scrollPane));
+        booksFlowPane.heightProperty().addListener((obs, oldVal, newVal) -> maybeLoadNextPage(scrollPane));
 
         return scrollPane;
     }
 
+    private void maybeLoadNextPage(ScrollPane scrollPane) {
+        // A kept books pane can still grow while another view is shown; only the current one pages
+        if (scrollPane.getContent() != booksFlowPane) {
+            return;
+        }
+        // Wait until the previous page is on screen, so its height counts; the loader ignores repeats
+        if (!cardInserter.isIdle()) {
+            return;
+        }
+        double viewportHeight = scrollPane.getViewportBounds().getHeight();
+        double contentHeight = booksFlowPane.getHeight();
+        double range = scrollPane.getVmax() - scrollPane.getVmin();
+        double position = range <= 0 ? 0 : (scrollPane.getVvalue() - scrollPane.getVmin()) / range;
+        double visibleBottom = position * Math.max(0, contentHeight - viewportHeight) + viewportHeight;
+        if (contentHeight - visibleBottom < viewportHeight) {
+            pageLoader.requestNext();
+        }
+    }
+
+    // Restarts paging at the first page; later pages load as the user scrolls
     private void loadBooksFromDatabase() {
-    showLoadingIndicator(true);
+        pageLoader.start();
+    }
 
-    Task<List<Book>> loadTask = new Task<>() {
-        @Override
-        protected List<Book> call() throws Exception {
-            List<Book> batch = new ArrayList<>();
-            String sql = "SELECT * FROM books LIMIT ? OFFSET ?";
+    // Runs on the page loader's thread. Pages by ISBN after the last row delivered, in
+    // the snapshot's order, so books added or deleted while paging do not shift pages.
+    private List<BookRow> fetchBookPage(int page, BookRow after, int pageSize) throws SQLException {
+        Connection conn = dataPool.get();
+        try {
+            if (isCatalogInMemory()) {
+                return withAvailability(conn,
+                        withCovers(conn, catalogSnapshot.pageAfter(after == null ? null : after.isbn(), pageSize)));
+            }
 
-            try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-                pstmt.setInt(1, BOOKS_PER_PAGE);
-                pstmt.setInt(2, currentPage * BOOKS_PER_PAGE);
+            List<BookRow> batch = new ArrayList<>();
+            String sql = "SELECT " + BookRow.COLUMNS_WITH_COVER + " FROM books WHERE isbn > ? ORDER BY isbn LIMIT ?";
 
-                ResultSet rs = pstmt.executeQuery();
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                // Every ISBN sorts after the empty string
+                pstmt.setString(1, after == null ? "" : after.isbn());
+                pstmt.setInt(2, pageSize);
 
-                while (rs.next()) {
-                    Book book = new Book(
-                            rs.getString("title"),
-                            rs.getString("author"),
-                            rs.getString("isbn"),
-                            rs.getString("genre"),
-                            rs.getString("shelf_number"),
-                            rs.getString("status"),
-                            rs.getInt("quantity"),
-                            rs.getBytes("cover_image")
-                    );
-                    batch.add(book);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        batch.add(BookRow.fromResultSet(rs, true));
+                    }
                 }
             }
-            return batch;
+            return withAvailability(conn, batch);
+        } finally {
+            dataPool.release(conn);
         }
-    };
+    }
 
-    loadTask.setOnSucceeded(e -> {
-        List<Book> books = loadTask.getValue();
-        Platform.runLater(() -> {
-            for (Book book : books) {
-                addBookCardWithAnimation(book);
+    // Reads the available copies of the rows' books in one query, off the FX thread,
+    // so their cards are built without a query each
+    private List<BookRow> withAvailability(Connection conn, List<BookRow> rows) throws SQLException {
+        if (isCatalogInMemory()) {
+            for (BookRow row : rows) {
+                loadedAvailability.put(row.isbn(), catalogSnapshot.getAvailableCount(row.isbn()));
             }
-            showLoadingIndicator(false);
-        });
-    });
+            return rows;
+        }
 
-    loadTask.setOnFailed(e -> {
-        Platform.runLater(() -> {
-            showLoadingIndicator(false);
-            showAlert("Error", "Failed to load books: " + loadTask.getException().getMessage());
-        });
-    });
+        Map<String, Integer> onLoan = new HashMap<>();
+        for (int from = 0; from < rows.size(); from += BOOKS_PER_PAGE) {
+            List<BookRow> chunk = rows.subList(from, Math.min(from + BOOKS_PER_PAGE, rows.size()));
+            String sql = "SELECT isbn, COUNT(*) FROM loans WHERE returned = 0 AND isbn IN ("
+                    + String.join(",", Collections.nCopies(chunk.size(), "?")) + ") GROUP BY isbn";
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                for (int i = 0; i < chunk.size(); i++) {
+                    pstmt.setString(i + 1, chunk.get(i).isbn());
+                }
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        onLoan.put(rs.getString(1), rs.getInt(2));
+                    }
+                }
+            }
+        }
+        for (BookRow row : rows) {
+            loadedAvailability.put(row.isbn(), row.quantity() - onLoan.getOrDefault(row.isbn(), 0));
+        }
+        return rows;
+    }
 
-    new Thread(loadTask).start();
-}
+    private void addBookCardWithAnimation(BookRow row) {
+        addBookCards(List.of(row));
+    }
 
-    private void addBookCardWithAnimation(Book book) {
-        Node card = createBookCard(book);
-        booksFlowPane.getChildren().add(card);
+    // Cards are built and added a time-budgeted chunk per pulse, in order, with one addAll per chunk
+    private void addBookCards(List<BookRow> rows) {
+        cardInserter.enqueue(rows);
+    }
 
-        // Fade-in animation
-        FadeTransition fadeIn = new FadeTransition(Duration.millis(300), card);
-        fadeIn.setFromValue(0);
-        fadeIn.setToValue(1);
+    private Node bookCard(BookRow row) {
+        // Only wrap the row in a property-backed Book when no card exists for it yet
+        Node card = bookCardCache.get(row.isbn());
+        return card != null ? card : createBookCard(new Book(row));
+    }
 
-        // Scale animation
-        ScaleTransition scaleIn = new ScaleTransition(Duration.millis(300), card);
-        scaleIn.setFromX(0.95);
-        scaleIn.setFromY(0.95);
-        scaleIn.setToX(1);
-        scaleIn.setToY(1);
+    // Each books pane gets its own scheduler and page loader. They belong to the view that owns the
+    // pane and keep their place while it is hidden, so paging resumes where it was on the next visit;
+    // evicting the view cancels both (SidebarView.onEvicted).
+    private void resetCardInserter() {
+        cardInserter = new CardInsertionScheduler<>(booksFlowPane, this::bookCard);
+        pageLoader = new PageLoader<>(BOOKS_PER_PAGE, this::fetchBookPage, this::addBookCards);
+        pageLoader.setOnWaiting(this::showLoadingIndicator);
+        pageLoader.setOnError(error -> showAlert("Error", "Failed to load books: " + error.getMessage()));
+    }
 
-        // Play animations in parallel
-        ParallelTransition transition = new ParallelTransition(fadeIn, scaleIn);
-        transition.play();
+    // A search view that became dirty runs its query again; without one it shows nothing to refresh
+    private void repeatSearch() {
+        if (searchField != null && !searchField.getText().isEmpty()) {
+            performSearch(searchField.getText(), searchTypeCombo.getValue());
+        }
     }
 
     private int getAvailableCount(String isbn) {
+        boolean inMemory = isCatalogInMemory();
+        Metrics.cacheHit("catalog.availability", inMemory);
+        if (inMemory) {
+            return catalogSnapshot.getAvailableCount(isbn);
+        }
+
         String sql = "SELECT quantity FROM books WHERE isbn = ?";
         try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
             pstmt.setString(1, isbn);
@@ -1138,7 +1398,83 @@ public class YemeDemerTiwlidLibrarySystem extends Application {
         } catch (SQLException e) {
             showAlert("Error", "Could not check availability");
         }
-        return 0;
+        return 0;
+    }
+
+    private boolean isCatalogInMemory() {
+        return catalogSnapshot != null && catalogSnapshot.isReady();
+    }
+
+    // Rows from the in-memory catalog carry no covers; fetch them for one page in a single query
+    private List<BookRow> withCovers(Connection conn, List<BookRow> rows) throws SQLException {
+        if (rows.isEmpty()) {
+            return rows;
+        }
+
+        Map<String, byte[]> covers = new HashMap<>();
+        for (int from = 0; from < rows.size(); from += BOOKS_PER_PAGE) {
+            List<BookRow> chunk = rows.subList(from, Math.min(from + BOOKS_PER_PAGE, rows.size()));
+            String sql = "SELECT isbn, cover_image FROM books WHERE isbn IN ("
+                    + String.join(",", Collections.nCopies(chunk.size(), "?")) + ")";
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                for (int i = 0; i < chunk.size(); i++) {
+                    pstmt.setString(i + 1, chunk.get(i).isbn());
+                }
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        covers.put(rs.getString(1), rs.getBytes(2));
+                    }
+                }
+            }
+        }
+
+        List<BookRow> result = new ArrayList<>(rows.size());
+        for (BookRow row : rows) {
+            result.add(row.withCoverImage(covers.get(row.isbn())));
+        }
+        return result;
+    }
+
+    private void setCatalogInMemory(boolean enabled) {
+        if (!enabled) {
+            if (catalogSnapshot != null) {
+                catalogSnapshot.stop();
+                useCatalog(null);
+            }
+            return;
+        }
+        if (catalogSnapshot != null) {
+            return;
+        }
+
+        CatalogSnapshot snapshot = new CatalogSnapshot(() -> InstrumentedJdbc.wrap(DriverManager.getConnection(DB_URL, connectionProperties())));
+        useCatalog(snapshot);
+
+        Task<Void> loadTask = new Task<>() {
+            @Override
+            protected Void call() throws Exception {
+                snapshot.load();
+                snapshot.startPolling(CATALOG_POLL_INTERVAL_MS);
+                return null;
+            }
+        };
+        loadTask.setOnFailed(e -> {
+            if (catalogSnapshot == snapshot) {
+                useCatalog(null);
+            }
+            showAlert("Error", "Could not load the in-memory catalog: " + loadTask.getException().getMessage());
+        });
+
+        Thread loadThread = new Thread(loadTask, "catalog-snapshot-load");
+        loadThread.setDaemon(true);
+        loadThread.start();
+    }
+
+    private void useCatalog(CatalogSnapshot snapshot) {
+        catalogSnapshot = snapshot;
+        if (localLibraryService != null) {
+            localLibraryService.setCatalog(snapshot);
+        }
     }
 
     private Node createBookCard(Book book) {
@@ -1146,19 +1482,15 @@ public class YemeDemerTiwlidLibrarySystem extends Application {
             return bookCardCache.get(book.getIsbn());
         }
 
+        FlightEvents.BookCardCreated created = new FlightEvents.BookCardCreated();
+        created.begin();
+        created.isbn = book.getIsbn();
+
         VBox card = new VBox(10);
         card.setPadding(new Insets(15));
 
-        // Dynamic properties for theme
-        StringProperty normalColor = new SimpleStringProperty();
-        StringProperty hoverColor = new SimpleStringProperty();
-        ObjectProperty<Color> textColor = new SimpleObjectProperty<>();
-        updateCardColors(normalColor, hoverColor, textColor);
-
-        // Bind card style
-        card.setStyle("-fx-background-color: " + (darkMode ? DARK_CARD : "white")
-                + "; -fx-background-radius: 10; "
-                + "-fx-effect: dropshadow(three-pass-box, rgba(0,0,0,0.1), 5, 0, 0, 0);");
+        // Colors, including hover, come from the .card rule and follow the theme without rebuilding
+        card.getStyleClass().add("card");
 
         card.setPrefWidth(250);
 
@@ -1179,203 +1511,208 @@ public class YemeDemerTiwlidLibrarySystem extends Application {
         titleLabel.textProperty().bind(book.titleProperty());
         titleLabel.setFont(Font.font("Arial", FontWeight.BOLD, 16));
         titleLabel.setWrapText(true);
-        titleLabel.textFillProperty().bind(textColor);
+        titleLabel.getStyleClass().add("themed-text");
 
         Label authorLabel = new Label();
         authorLabel.textProperty().bind(Bindings.concat("by ", book.authorProperty()));
         authorLabel.setFont(Font.font("Arial", 12));
-        authorLabel.textFillProperty().bind(textColor);
+        authorLabel.getStyleClass().add("themed-text");
 
+        Integer available = loadedAvailability.remove(book.getIsbn());
+        book.setAvailable(available != null ? available : getAvailableCount(book.getIsbn()));
         Label detailsLabel = new Label();
         detailsLabel.textProperty().bind(Bindings.createStringBinding(()
                 -> String.format("ISBN: %s\nGenre: %s\nShelf: %s\nStatus: %s\nAvailable: %d",
                         book.getIsbn(), book.getGenre(), book.getShelfNumber(),
-                        book.getStatus(), getAvailableCount(book.getIsbn())),
+                        book.getStatus(), book.getAvailable()),
                 book.isbnProperty(), book.genreProperty(), book.shelfNumberProperty(),
-                book.statusProperty()));
+                book.statusProperty(), book.availableProperty()));
         detailsLabel.setFont(Font.font("Arial", 12));
-        detailsLabel.textFillProperty().bind(textColor);
+        detailsLabel.getStyleClass().add("themed-text");
 
         // Action buttons
         HBox buttonBox = new HBox(10);
         buttonBox.setAlignment(Pos.CENTER);
 
         Button loanButton = new Button("Loan");
-        styleButton(loanButton, "#17a2b8", "#138496", "#117a8b");
+        styleButton(loanButton, Variant.INFO);
         loanButton.setOnAction(e -> showLoanBookDialog(book));
 
         Button editButton = new Button("Edit");
-        styleButton(editButton, "#ffc107", "#e0a800", "#d39e00");
+        styleButton(editButton, Variant.WARNING);
         editButton.setOnAction(e -> showEditBookDialog(book));
 
         Button deleteButton = new Button("Delete");
-        styleButton(deleteButton, "#dc3545", "#c82333", "#bd2130");
+        styleButton(deleteButton, Variant.DANGER);
         deleteButton.setOnAction(e -> deleteBook(book));
 
         buttonBox.getChildren().addAll(loanButton, editButton, deleteButton);
         card.getChildren().addAll(coverImage, titleLabel, authorLabel, detailsLabel, buttonBox);
 
-        // Hover effects
-        card.hoverProperty().addListener((obs, wasHovered, isHovered) -> {
-            if (isHovered) {
-                card.setStyle("-fx-background-color: " + hoverColor.get()
-                        + "; -fx-background-radius: 10; "
-                        + "-fx-effect: dropshadow(three-pass-box, "
-                        + (darkMode ? "rgba(255,255,255,0.2)" : "rgba(0,0,0,0.2)")
-                        + ", 10, 0, 0, 0);");
-                card.setCursor(Cursor.HAND);
-            } else {
-                card.setStyle("-fx-background-color: " + normalColor.get()
-                        + "; -fx-background-radius: 10; "
-                        + "-fx-effect: dropshadow(three-pass-box, rgba(0,0,0,0.1), 5, 0, 0, 0);");
-            }
-        });
-
-        // Add listener to update colors when darkMode changes
-        primaryStage.getScene().getRoot().styleProperty().addListener((obs, oldVal, newVal) -> {
-            updateCardColors(normalColor, hoverColor, textColor);
-        });
-
         bookCardCache.put(book.getIsbn(), card);
+        bookViewModels.put(book.getIsbn(), book);
+        created.commit();
         return card;
     }
 
-    private void updateTheme() {
-        // Update root background
-        root.setStyle("-fx-background-color: " + (darkMode ? DARK_BG : LIGHT_BG) + ";");
-
-        // Update main layout
-        if (mainLayout != null) {
-            mainLayout.setStyle("-fx-background-color: " + (darkMode ? DARK_BG : LIGHT_BG) + ";");
+    private void clearBookCardCache() {
+        bookCardCache.clear();
+        bookViewModels.clear();
+        loadedAvailability.clear();
+    }
 
-            // Update header
-            Node header = mainLayout.getTop();
-            if (header instanceof HBox) {
-                header.setStyle("-fx-background-color: " + (darkMode ? DARK_CARD : "#2a9df4") + ";");
+    // Subscribers that keep caches, dashboard counters, visible cards and loan rows
+    // in step with committed changes, so a mutation never reloads a whole view
+    private void registerEventSubscribers() {
+        // The in-memory catalog goes first so the view subscribers below read updated counts
+        eventBus.subscribeAll(event -> {
+            if (catalogSnapshot != null) {
+                catalogSnapshot.apply(event);
             }
+        });
 
-            // Update sidebar
-            Node sidebar = mainLayout.getLeft();
-            if (sidebar instanceof VBox) {
-                sidebar.setStyle("-fx-background-color: " + (darkMode ? DARK_SECONDARY : LIGHT_SECONDARY) + ";");
-                updateSidebarColors((VBox) sidebar);
+        // Kept views are updated in place where that is cheap; otherwise they are marked
+        // dirty and re-read on their next visit. Counters and book view models are live.
+        eventBus.subscribe(LibraryEvent.BookAdded.class, onFxThread(event -> {
+            adjustCounter(totalBooksValueLabel, event.book().quantity());
+            if (isShowing(booksFlowPane) && !bookCardCache.containsKey(event.book().isbn())
+                    && (searchField == null || searchField.getText().isEmpty())) {
+                // A new book has no loans yet
+                loadedAvailability.put(event.book().isbn(), event.book().quantity());
+                addBookCardWithAnimation(event.book());
+            } else {
+                viewRegistry.markDirty(BOOKS_VIEW);
             }
+            invalidateHiddenAnalysis();
+        }));
 
-            // Update center content
-            updateCenterContent(mainLayout.getCenter());
-        }
-
-        if (titleLabel != null) {
-            String currentTitle = titleLabel.getText();
-            if (currentTitle.contains("Book") || currentTitle.contains("Search")) {
-                showBooksContent();
-            } else if (currentTitle.contains("Dashboard")) {
-                showDashboardContent();
-            } else if (currentTitle.contains("Loan")) {
-                showLoansContent();
+        eventBus.subscribe(LibraryEvent.BookUpdated.class, onFxThread(event -> {
+            if (event.previous() != null) {
+                adjustCounter(totalBooksValueLabel, event.book().quantity() - event.previous().quantity());
             }
-
-            // Clear book card cache to force recreation with new colors
-            bookCardCache.clear();
-
-            // Refresh current view if it's book-related
-            if (titleLabel != null && titleLabel.getText().contains("Book")) {
-                showBooksContent();
+            Book book = bookViewModels.get(event.book().isbn());
+            if (book != null) {
+                book.apply(event.book());
+                if (event.previous() == null) {
+                    book.setAvailable(getAvailableCount(book.getIsbn()));
+                } else {
+                    book.setAvailable(book.getAvailable() + event.book().quantity() - event.previous().quantity());
+                }
             }
-        }
-
-    
+            // Loan rows show book titles
+            viewRegistry.markDirty(LOANS_VIEW);
+            invalidateHiddenAnalysis();
+        }));
+
+        eventBus.subscribe(LibraryEvent.BookDeleted.class, onFxThread(event -> {
+            adjustCounter(totalBooksValueLabel, -event.book().quantity());
+            bookViewModels.remove(event.book().isbn());
+            Node card = bookCardCache.remove(event.book().isbn());
+            if (card != null && booksFlowPane != null) {
+                booksFlowPane.getChildren().remove(card);
+            }
+            invalidateHiddenAnalysis();
+        }));
+
+        eventBus.subscribe(LibraryEvent.LoanCreated.class, onFxThread(event -> {
+            LoanRow loan = event.loan();
+            adjustCounter(onLoanValueLabel, 1);
+            if (loan.isOverdue(LocalDateTime.now())) {
+                adjustCounter(overdueValueLabel, 1);
+            }
+            adjustAvailable(loan.isbn(), -1);
+            if (loanTable != null) {
+                loanTable.getItems().add(loan);
+            }
+            viewRegistry.markDirty(DASHBOARD_VIEW);
+            invalidateHiddenAnalysis();
+        }));
+
+        eventBus.subscribe(LibraryEvent.LoanReturned.class, onFxThread(event -> {
+            LoanRow loan = event.loan();
+            adjustCounter(onLoanValueLabel, -1);
+            if (loan.returnDate().isBefore(LocalDateTime.now())) {
+                adjustCounter(overdueValueLabel, -1);
+            }
+            adjustAvailable(loan.isbn(), 1);
+            if (loanTable != null) {
+                ObservableList<LoanRow> rows = loanTable.getItems();
+                for (int i = 0; i < rows.size(); i++) {
+                    if (rows.get(i).id() == loan.id()) {
+                        rows.set(i, loan);
+                        break;
+                    }
+                }
+            }
+            invalidateHiddenAnalysis();
+        }));
 
+        // Bulk jobs change too many rows to apply one by one; re-read what is on screen
+        eventBus.subscribe(LibraryEvent.CatalogReloaded.class, onFxThread(event -> {
+            if (isShowing(totalBooksValueLabel)) {
+                loadStats(stats -> totalBooksValueLabel.setText(String.valueOf(stats.totalBooks())));
+            } else {
+                viewRegistry.markDirty(DASHBOARD_VIEW);
+            }
+            if (isShowing(booksFlowPane)) {
+                refreshBooksContent();
+            }
+            viewRegistry.markDirty(BOOKS_VIEW);
+            viewRegistry.markDirty(SEARCH_VIEW);
+            viewRegistry.markDirty(LOANS_VIEW);
+            invalidateHiddenAnalysis();
+        }));
     }
 
-    private void updateSidebarColors(VBox sidebar) {
-        for (Node node : sidebar.getChildren()) {
-            if (node instanceof Button) {
-                Button button = (Button) node;
-                if (button.getText().startsWith("📊") || button.getText().startsWith("📚")
-                        || button.getText().startsWith("📖") || button.getText().startsWith("🔍")
-                        || button.getText().startsWith("📈") || button.getText().startsWith("⚙️")
-                        || button.getText().startsWith("👨‍💻")) {
+    // Charts are not updated in place; one on screen keeps its data until Refresh Charts
+    private void invalidateHiddenAnalysis() {
+        if (!viewRegistry.isCurrent(ANALYSIS_VIEW)) {
+            viewRegistry.invalidate(ANALYSIS_VIEW);
+        }
+    }
 
-                    String baseStyle = "-fx-background-color: transparent; "
-                            + "-fx-text-fill: " + (darkMode ? DARK_TEXT : "black") + "; "
-                            + "-fx-font-size: 14px; "
-                            + "-fx-padding: 10 15 10 15; "
-                            + "-fx-background-radius: 5; "
-                            + "-fx-border-radius: 5; "
-                            + "-fx-cursor: hand;";
+    private <T extends LibraryEvent> Consumer<T> onFxThread(Consumer<T> handler) {
+        return event -> {
+            if (Platform.isFxApplicationThread()) {
+                handler.accept(event);
+            } else {
+                Platform.runLater(() -> handler.accept(event));
+            }
+        };
+    }
 
-                    String hoverStyle = "-fx-background-color: " + (darkMode ? "rgba(255,255,255,0.1)" : "rgba(0,0,0,0.05)") + "; "
-                            + "-fx-text-fill: " + (darkMode ? "white" : "black") + ";";
+    private boolean isShowing(Node node) {
+        return node != null && node.getScene() != null;
+    }
 
-                    button.setStyle(baseStyle);
-                    button.setOnMouseEntered(e -> button.setStyle(baseStyle + hoverStyle));
-                    button.setOnMouseExited(e -> button.setStyle(baseStyle));
-                }
-            } else if (node instanceof Label) {
-                ((Label) node).setTextFill(darkMode ? Color.web(DARK_TEXT) : Color.BLACK);
-            }
-        }
-    }
-
-    private void updateCenterContent(Node center) {
-        if (center instanceof VBox) {
-            VBox vbox = (VBox) center;
-            for (Node node : vbox.getChildren()) {
-                if (node instanceof HBox) {
-                    // Update summary cards
-                    for (Node card : ((HBox) node).getChildren()) {
-                        if (card instanceof VBox) {
-                            card.setStyle("-fx-background-color: " + (darkMode ? DARK_CARD : "white") + ";");
-                            for (Node cardContent : ((VBox) card).getChildren()) {
-                                if (cardContent instanceof Label) {
-                                    Label label = (Label) cardContent;
-                                    if (label.getFont().getStyle().contains("Bold") && label.getFont().getSize() == 24) {
-                                        // This is the value label - keep its accent color
-                                        continue;
-                                    }
-                                    label.setTextFill(darkMode ? Color.web(DARK_TEXT) : Color.BLACK);
-                                }
-                            }
-                        }
-                    }
-                } else if (node instanceof ListView) {
-                    ((ListView<?>) node).setStyle("-fx-control-inner-background: " + (darkMode ? DARK_CARD : "white") + ";");
-                } else if (node instanceof Label) {
-                    ((Label) node).setTextFill(darkMode ? Color.web(DARK_TEXT) : Color.BLACK);
-                }
-            }
-        } else if (center instanceof ScrollPane) {
-            ScrollPane scrollPane = (ScrollPane) center;
-            scrollPane.setStyle("-fx-background: " + (darkMode ? DARK_BG : LIGHT_BG) + ";");
-            if (scrollPane.getContent() instanceof FlowPane) {
-                // This is the books flow pane
-                ((FlowPane) scrollPane.getContent()).setStyle("-fx-background-color: " + (darkMode ? DARK_BG : LIGHT_BG) + ";");
+    private void adjustCounter(Label counter, int delta) {
+        if (counter != null && delta != 0) {
+            try {
+                counter.setText(String.valueOf(Integer.parseInt(counter.getText()) + delta));
+            } catch (NumberFormatException ignored) {
+                // Leave a counter that is not a plain number alone; it is recomputed on the next visit
             }
         }
     }
 
-    private void updateCardColors(StringProperty normalColor, StringProperty hoverColor,
-            ObjectProperty<Color> textColor) {
-        normalColor.set(darkMode ? DARK_CARD : "white");
-        hoverColor.set(darkMode ? DARK_HOVER : "#f0f0f0");
-        textColor.set(darkMode ? Color.web(DARK_TEXT) : Color.BLACK);
+    private void adjustAvailable(String isbn, int delta) {
+        Book book = bookViewModels.get(isbn);
+        if (book != null) {
+            book.setAvailable(book.getAvailable() + delta);
+        }
+        // A count loaded for a card that is not built yet
+        loadedAvailability.computeIfPresent(isbn, (key, available) -> available + delta);
     }
 
     private void scheduleOverdueCheck() {
         Timeline timeline = new Timeline(
                 new KeyFrame(Duration.minutes(5), e -> {
                     Platform.runLater(() -> {
-                        if (mainLayout != null && mainLayout.getCenter() instanceof VBox) {
-                            VBox center = (VBox) mainLayout.getCenter();
-                            if (center.getChildren().get(0) instanceof HBox) {
-                                HBox summaryCards = (HBox) center.getChildren().get(0);
-                                if (summaryCards.getChildren().size() >= 3) {
-                                    VBox overdueCard = (VBox) summaryCards.getChildren().get(2);
-                                    Label overdueLabel = (Label) overdueCard.getChildren().get(1);
-                                    overdueLabel.setText(String.valueOf(getOverdueCount()));
-                                }
-                            }
+                        // Loans become overdue without an event; a hidden dashboard recounts on its next visit
+                        if (isShowing(overdueValueLabel)) {
+                            loadStats(stats -> overdueValueLabel.setText(String.valueOf(stats.overdue())));
+                        } else {
+                            viewRegistry.markDirty(DASHBOARD_VIEW);
                         }
                     });
                 })
@@ -1385,84 +1722,58 @@ public class YemeDemerTiwlidLibrarySystem extends Application {
     }
 
     private void performSearch(String query, String searchType) {
+        int generation = ++searchGeneration;
         if (query == null || query.trim().isEmpty()) {
+            cardInserter.cancel();
+            booksFlowPane.getChildren().clear();
             loadBooksFromDatabase();
             return;
         }
 
+        // Results replace the pages; stop paging until the search is cleared
+        pageLoader.cancel();
         showLoadingIndicator(true);
+        cardInserter.cancel();
         booksFlowPane.getChildren().clear();
 
-        Task<List<Book>> searchTask = new Task<>() {
+        Task<List<BookRow>> searchTask = new Task<>() {
             @Override
-            protected List<Book> call() throws Exception {
-                List<Book> results = new ArrayList<>();
-                String sql = "SELECT * FROM books WHERE " + getSearchCondition(searchType) + " LIKE ?";
-
-                try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-                    pstmt.setString(1, "%" + query + "%");
-                    ResultSet rs = pstmt.executeQuery();
-
-                    while (rs.next()) {
-                        results.add(new Book(
-                                rs.getString("title"),
-                                rs.getString("author"),
-                                rs.getString("isbn"),
-                                rs.getString("genre"),
-                                rs.getString("shelf_number"),
-                                rs.getString("status"),
-                                rs.getInt("quantity"),
-                                rs.getBytes("cover_image")
-                        ));
-                    }
+            protected List<BookRow> call() throws Exception {
+                List<BookRow> rows = libraryService.search(query, searchType, MAX_SEARCH_RESULTS);
+                Connection conn = dataPool.get();
+                try {
+                    return withAvailability(conn, withCovers(conn, rows));
+                } finally {
+                    dataPool.release(conn);
                 }
-                return results;
             }
         };
 
         searchTask.setOnSucceeded(e -> {
-            List<Book> results = searchTask.getValue();
-            Platform.runLater(() -> {
-                booksFlowPane.getChildren().clear();
-                for (Book book : results) {
-                    addBookCardWithAnimation(book);
-                }
-                showLoadingIndicator(false);
-            });
+            if (generation != searchGeneration) {
+                return;
+            }
+            cardInserter.cancel();
+            booksFlowPane.getChildren().clear();
+            addBookCards(searchTask.getValue());
+            showLoadingIndicator(false);
         });
 
         searchTask.setOnFailed(e -> {
-            Platform.runLater(() -> {
-                showLoadingIndicator(false);
-                showAlert("Error", "Search failed: " + searchTask.getException().getMessage());
-            });
+            if (generation != searchGeneration) {
+                return;
+            }
+            showLoadingIndicator(false);
+            showAlert("Error", "Search failed: " + searchTask.getException().getMessage());
         });
 
-        new Thread(searchTask).start();
-    }
-
-    private String getSearchCondition(String searchType) {
-        switch (searchType) {
-            case "Title":
-                return "title";
-            case "Author":
-                return "author";
-            case "ISBN":
-                return "isbn";
-            case "Genre":
-                return "genre";
-            case "Shelf":
-                return "shelf_number";
-            case "Status":
-                return "status";
-            default:
-                return "title";
-        }
+        serviceExecutor.execute(searchTask);
     }
 
     private void showAddBookDialog() {
         Dialog<Book> dialog = new Dialog<>();
         dialog.setTitle("Add New Book");
+        StyleRegistry.install(dialog.getDialogPane());
         dialog.setHeaderText("Enter book details");
 
         final byte[][] coverImageHolder = new byte[1][];
@@ -1499,7 +1810,7 @@ public class YemeDemerTiwlidLibrarySystem extends Application {
         styleSpinner(quantityField);
 
         Button uploadButton = new Button("Upload Cover");
-        styleButton(uploadButton, "#6c757d", "#5a6268", "#4e555b");
+        styleButton(uploadButton, Variant.SECONDARY);
         ImageView coverPreview = new ImageView();
         coverPreview.setFitWidth(150);
         coverPreview.setFitHeight(200);
@@ -1560,8 +1871,7 @@ public class YemeDemerTiwlidLibrarySystem extends Application {
 
         result.ifPresent(book -> {
             try {
-                addBookToDatabase(book);
-                showBooksContent();
+                repository.addBook(book.toRow());
                 showAlert("Success", "Book added successfully!");
             } catch (SQLException ex) {
                 showAlert("Error", "Could not add book: " + ex.getMessage());
@@ -1569,31 +1879,95 @@ public class YemeDemerTiwlidLibrarySystem extends Application {
         });
     }
 
-    private void styleSpinner(Spinner<Integer> spinner) {
-        spinner.setStyle("-fx-background-color: white; -fx-border-color: #ccc; "
-                + "-fx-border-radius: 5; -fx-padding: 5; -fx-font-size: 14;");
+    private void importBooksFromCsv() {
+        FileChooser fileChooser = new FileChooser();
+        fileChooser.setTitle("Import Books from CSV");
+        fileChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("CSV Files", "*.csv"));
+
+        File file = fileChooser.showOpenDialog(primaryStage);
+        if (file == null) {
+            return;
+        }
+
+        Task<String> importTask = new Task<>() {
+            @Override
+            protected String call() throws Exception {
+                try (Connection importConnection = openBulkConnection()) {
+                    CatalogImporter importer = new CatalogImporter(importConnection);
+
+                    CatalogImporter.ImportReport report = importer.importFile(file, (bytesRead, totalBytes, imported) -> {
+                        if (isCancelled()) {
+                            importer.cancel();
+                        }
+                        updateProgress(bytesRead, totalBytes);
+                        updateMessage(String.format("%,d rows imported", imported));
+                    });
+                    return report.summary();
+                }
+            }
+        };
+
+        showJobProgress(importTask, "Importing " + file.getName() + "...",
+                "Import cancelled, rows committed before cancelling were kept.",
+                this::announceCatalogReload);
+
+        Thread importThread = new Thread(importTask, "catalog-import");
+        importThread.setDaemon(true);
+        importThread.start();
     }
 
-    private void addBookToDatabase(Book book) throws SQLException {
-        String sql = "INSERT INTO books (title, author, isbn, genre, shelf_number, status, quantity, cover_image) "
-                + "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+    private void importCoversFromDirectory() {
+        DirectoryChooser directoryChooser = new DirectoryChooser();
+        directoryChooser.setTitle("Select Folder of <isbn>.jpg / <isbn>.png Covers");
 
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-            pstmt.setString(1, book.getTitle());
-            pstmt.setString(2, book.getAuthor());
-            pstmt.setString(3, book.getIsbn());
-            pstmt.setString(4, book.getGenre());
-            pstmt.setString(5, book.getShelfNumber());
-            pstmt.setString(6, book.getStatus());
-            pstmt.setInt(7, book.getQuantity());
-            pstmt.setBytes(8, book.getCoverImage());
-            pstmt.executeUpdate();
+        File directory = directoryChooser.showDialog(primaryStage);
+        if (directory == null) {
+            return;
+        }
+
+        Task<String> ingestTask = new Task<>() {
+            @Override
+            protected String call() throws Exception {
+                try (Connection ingestConnection = openBulkConnection()) {
+                    CoverIngestJob job = new CoverIngestJob(ingestConnection);
+
+                    CoverIngestJob.IngestReport report = job.ingest(directory.toPath(), (processed, total) -> {
+                        if (isCancelled()) {
+                            job.cancel();
+                        }
+                        updateProgress(processed, total);
+                        updateMessage(String.format("%,d of %,d covers processed", processed, total));
+                    });
+                    return report.summary();
+                }
+            }
+        };
+
+        showJobProgress(ingestTask, "Importing covers from " + directory.getName() + "...",
+                "Cover import cancelled, covers stored before cancelling were kept.",
+                this::announceCatalogReload);
+
+        Thread ingestThread = new Thread(ingestTask, "cover-ingest");
+        ingestThread.setDaemon(true);
+        ingestThread.start();
+    }
+
+    private void announceCatalogReload() {
+        try {
+            repository.catalogReloaded();
+        } catch (SQLException e) {
+            showAlert("Error", "Could not record the catalog change: " + e.getMessage());
         }
     }
 
+    private void styleSpinner(Spinner<Integer> spinner) {
+        StyleRegistry.spinner(spinner);
+    }
+
     private void showEditBookDialog(Book book) {
         Dialog<Book> dialog = new Dialog<>();
         dialog.setTitle("Edit Book");
+        StyleRegistry.install(dialog.getDialogPane());
         dialog.setHeaderText("Edit book details");
 
         // Create a copy of the book to edit
@@ -1633,12 +2007,12 @@ public class YemeDemerTiwlidLibrarySystem extends Application {
         styleSpinner(quantityField);
 
         ComboBox<String> statusCombo = new ComboBox<>();
-        statusCombo.getItems().addAll("Available", "On Loan", "Reserved", "Damaged", "Lost");
+        statusCombo.getItems().addAll(BookRow.STATUSES);
         statusCombo.setValue(book.getStatus());
         styleComboBox(statusCombo);
 
         Button uploadButton = new Button("Change Cover");
-        styleButton(uploadButton, "#6c757d", "#5a6268", "#4e555b");
+        styleButton(uploadButton, Variant.SECONDARY);
         ImageView coverPreview = new ImageView();
         coverPreview.setFitWidth(150);
         coverPreview.setFitHeight(200);
@@ -1687,6 +2061,8 @@ public class YemeDemerTiwlidLibrarySystem extends Application {
 
         dialog.setResultConverter(dialogButton -> {
             if (dialogButton == saveButtonType) {
+                BookRow previous = book.toRow();
+
                 // Update the original book with edited values
                 book.setTitle(titleField.getText());
                 book.setAuthor(authorField.getText());
@@ -1697,7 +2073,7 @@ public class YemeDemerTiwlidLibrarySystem extends Application {
                 book.setCoverImage(newCoverImageHolder[0]);
 
                 try {
-                    updateBookInDatabase(book);
+                    repository.updateBook(previous, book.toRow());
                     return book;
                 } catch (SQLException ex) {
                     showAlert("Error", "Could not update book: " + ex.getMessage());
@@ -1713,23 +2089,6 @@ public class YemeDemerTiwlidLibrarySystem extends Application {
         });
     }
 
-    private void updateBookInDatabase(Book book) throws SQLException {
-        String sql = "UPDATE books SET title = ?, author = ?, genre = ?, shelf_number = ?, "
-                + "status = ?, quantity = ?, cover_image = ? WHERE isbn = ?";
-
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-            pstmt.setString(1, book.getTitle());
-            pstmt.setString(2, book.getAuthor());
-            pstmt.setString(3, book.getGenre());
-            pstmt.setString(4, book.getShelfNumber());
-            pstmt.setString(5, book.getStatus());
-            pstmt.setInt(6, book.getQuantity());
-            pstmt.setBytes(7, book.getCoverImage());
-            pstmt.setString(8, book.getIsbn());
-            pstmt.executeUpdate();
-        }
-    }
-
     private void deleteBook(Book book) {
         Alert alert = new Alert(Alert.AlertType.CONFIRMATION);
         alert.setTitle("Confirm Delete");
@@ -1739,8 +2098,7 @@ public class YemeDemerTiwlidLibrarySystem extends Application {
         Optional<ButtonType> result = alert.showAndWait();
         if (result.isPresent() && result.get() == ButtonType.OK) {
             try {
-                deleteBookFromDatabase(book.getIsbn());
-                showBooksContent();
+                repository.deleteBook(book.toRow());
                 showAlert("Success", "Book deleted successfully!");
             } catch (SQLException ex) {
                 showAlert("Error", "Could not delete book: " + ex.getMessage());
@@ -1748,14 +2106,6 @@ public class YemeDemerTiwlidLibrarySystem extends Application {
         }
     }
 
-    private void deleteBookFromDatabase(String isbn) throws SQLException {
-        String sql = "DELETE FROM books WHERE isbn = ?";
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-            pstmt.setString(1, isbn);
-            pstmt.executeUpdate();
-        }
-    }
-
     private void showLoanBookDialog(Book book) {
         int available = getAvailableCount(book.getIsbn());
         if (available <= 0) {
@@ -1765,6 +2115,7 @@ public class YemeDemerTiwlidLibrarySystem extends Application {
 
         Dialog<Loan> dialog = new Dialog<>();
         dialog.setTitle("Loan Book");
+        StyleRegistry.install(dialog.getDialogPane());
         dialog.setHeaderText("Loan '" + book.getTitle() + "' to a borrower");
 
         ButtonType loanButtonType = new ButtonType("Loan", ButtonBar.ButtonData.OK_DONE);
@@ -1857,52 +2208,31 @@ public class YemeDemerTiwlidLibrarySystem extends Application {
         Optional<Loan> result = dialog.showAndWait();
 
         result.ifPresent(loan -> {
-            try {
-                addLoanToDatabase(loan);
-                updateBookStatus(book.getIsbn(), "On Loan");
-                showBooksContent();
-                showAlert("Success", "Book loan recorded successfully!");
-            } catch (SQLException ex) {
-                showAlert("Error", "Could not record loan: " + ex.getMessage());
-            }
+            Task<LoanRow> checkoutTask = new Task<>() {
+                @Override
+                protected LoanRow call() throws Exception {
+                    return libraryService.checkout(loan.getIsbn(), loan.getBorrowerId(), loan.getBorrowerName(),
+                            loan.getLoanDate(), loan.getReturnDate());
+                }
+            };
+            checkoutTask.setOnSucceeded(e -> showAlert("Success", "Book loan recorded successfully!"));
+            checkoutTask.setOnFailed(e
+                    -> showAlert("Error", "Could not record loan: " + checkoutTask.getException().getMessage()));
+            serviceExecutor.execute(checkoutTask);
         });
     }
 
-    private void addLoanToDatabase(Loan loan) throws SQLException {
-        String sql = "INSERT INTO loans (isbn, borrower_id, borrower_name, loan_date, return_date) "
-                + "VALUES (?, ?, ?, ?, ?)";
-
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-            pstmt.setString(1, loan.getIsbn());
-            pstmt.setString(2, loan.getBorrowerId());
-            pstmt.setString(3, loan.getBorrowerName());
-            pstmt.setTimestamp(4, Timestamp.valueOf(loan.getLoanDate()));
-            pstmt.setTimestamp(5, Timestamp.valueOf(loan.getReturnDate()));
-            pstmt.executeUpdate();
-        }
-    }
-
-    private void updateBookStatus(String isbn, String status) throws SQLException {
-        String sql = "UPDATE books SET status = ? WHERE isbn = ?";
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-            pstmt.setString(1, status);
-            pstmt.setString(2, isbn);
-            pstmt.executeUpdate();
-        }
-    }
-
-    private void showLoansContent() {
-        titleLabel.setText("Loan Management - Yemedemer Tiwlid Library");
-
+    private Node buildLoansContent() {
         VBox content = new VBox(20);
         content.setPadding(new Insets(20));
 
-        TableView<Loan> loanTable = new TableView<>();
+        loanTable = new TableView<>();
         loanTable.setColumnResizePolicy(TableView.CONSTRAINED_RESIZE_POLICY);
 
-        TableColumn<Loan, String> bookCol = new TableColumn<>("Book");
+        // Rows stay plain LoanRow records; cell values are wrapped only for the visible cells
+        TableColumn<LoanRow, String> bookCol = new TableColumn<>("Book");
         bookCol.setCellValueFactory(cellData -> {
-            String isbn = cellData.getValue().getIsbn();
+            String isbn = cellData.getValue().isbn();
             try {
                 return getBookTitleProperty(isbn);
             } catch (SQLException e) {
@@ -1910,35 +2240,29 @@ public class YemeDemerTiwlidLibrarySystem extends Application {
             }
         });
 
-        TableColumn<Loan, String> borrowerCol = new TableColumn<>("Borrower");
-        borrowerCol.setCellValueFactory(cellData -> cellData.getValue().borrowerNameProperty());
+        TableColumn<LoanRow, String> borrowerCol = new TableColumn<>("Borrower");
+        borrowerCol.setCellValueFactory(cellData -> new SimpleStringProperty(cellData.getValue().borrowerName()));
 
-        TableColumn<Loan, String> loanDateCol = new TableColumn<>("Loan Date");
-        loanDateCol.setCellValueFactory(cellData -> cellData.getValue().loanDateProperty());
+        TableColumn<LoanRow, String> loanDateCol = new TableColumn<>("Loan Date");
+        loanDateCol.setCellValueFactory(cellData
+                -> new SimpleStringProperty(cellData.getValue().loanDate().format(LOAN_DATE_FORMAT)));
 
-        TableColumn<Loan, String> returnDateCol = new TableColumn<>("Return Date");
-        returnDateCol.setCellValueFactory(cellData -> cellData.getValue().returnDateProperty());
+        TableColumn<LoanRow, String> returnDateCol = new TableColumn<>("Return Date");
+        returnDateCol.setCellValueFactory(cellData
+                -> new SimpleStringProperty(cellData.getValue().returnDate().format(LOAN_DATE_FORMAT)));
 
-        TableColumn<Loan, String> statusCol = new TableColumn<>("Status");
-        statusCol.setCellValueFactory(cellData -> {
-            Loan loan = cellData.getValue();
-            if (loan.isReturned()) {
-                return new SimpleStringProperty("Returned");
-            } else if (loan.getReturnDate().isBefore(LocalDateTime.now())) {
-                return new SimpleStringProperty("Overdue");
-            } else {
-                return new SimpleStringProperty("On Loan");
-            }
-        });
+        TableColumn<LoanRow, String> statusCol = new TableColumn<>("Status");
+        statusCol.setCellValueFactory(cellData
+                -> new SimpleStringProperty(cellData.getValue().status(LocalDateTime.now())));
 
-        TableColumn<Loan, Void> actionsCol = new TableColumn<>("Actions");
+        TableColumn<LoanRow, Void> actionsCol = new TableColumn<>("Actions");
         actionsCol.setCellFactory(param -> new TableCell<>() {
             private final Button returnButton = new Button("Return");
 
             {
-                styleButton(returnButton, "#28a745", "#34ce57", "#218838");
+                styleButton(returnButton, Variant.SUCCESS);
                 returnButton.setOnAction(event -> {
-                    Loan loan = getTableView().getItems().get(getIndex());
+                    LoanRow loan = getTableView().getItems().get(getIndex());
                     returnBook(loan);
                 });
             }
@@ -1946,7 +2270,7 @@ public class YemeDemerTiwlidLibrarySystem extends Application {
             @Override
             protected void updateItem(Void item, boolean empty) {
                 super.updateItem(item, empty);
-                if (empty || getTableView().getItems().get(getIndex()).isReturned()) {
+                if (empty || getTableView().getItems().get(getIndex()).returned()) {
                     setGraphic(null);
                 } else {
                     setGraphic(returnButton);
@@ -1955,7 +2279,13 @@ public class YemeDemerTiwlidLibrarySystem extends Application {
         });
 
         loanTable.getColumns().addAll(bookCol, borrowerCol, loanDateCol, returnDateCol, statusCol, actionsCol);
+        loadLoans();
+
+        content.getChildren().add(loanTable);
+        return content;
+    }
 
+    private void loadLoans() {
         String sql = "SELECT * FROM loans ORDER BY returned, return_date";
 
         try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
@@ -1963,24 +2293,14 @@ public class YemeDemerTiwlidLibrarySystem extends Application {
 
             loanTable.getItems().clear();
 
+            List<LoanRow> loans = new ArrayList<>();
             while (rs.next()) {
-                Loan loan = new Loan(
-                        rs.getString("isbn"),
-                        rs.getString("borrower_id"),
-                        rs.getString("borrower_name"),
-                        rs.getTimestamp("loan_date").toLocalDateTime(),
-                        rs.getTimestamp("return_date").toLocalDateTime(),
-                        rs.getBoolean("returned")
-                );
-                loan.setId(rs.getInt("id"));
-                loanTable.getItems().add(loan);
+                loans.add(LoanRow.fromResultSet(rs));
             }
+            loanTable.getItems().setAll(loans);
         } catch (SQLException e) {
             showAlert("Error", "Could not load loans: " + e.getMessage());
         }
-
-        content.getChildren().add(loanTable);
-        mainLayout.setCenter(content);
     }
 
     private StringProperty getBookTitleProperty(String isbn) throws SQLException {
@@ -1992,7 +2312,7 @@ public class YemeDemerTiwlidLibrarySystem extends Application {
         }
     }
 
-    private void returnBook(Loan loan) {
+    private void returnBook(LoanRow loan) {
         Alert alert = new Alert(Alert.AlertType.CONFIRMATION);
         alert.setTitle("Confirm Return");
         alert.setHeaderText("Return Book");
@@ -2000,59 +2320,169 @@ public class YemeDemerTiwlidLibrarySystem extends Application {
 
         Optional<ButtonType> result = alert.showAndWait();
         if (result.isPresent() && result.get() == ButtonType.OK) {
-            try {
-                markLoanAsReturned(loan.getId());
-                updateBookStatusIfAvailable(loan.getIsbn());
-                showLoansContent();
-
-                if (mainLayout.getCenter() instanceof VBox) {
-                    VBox center = (VBox) mainLayout.getCenter();
-                    if (center.getChildren().size() > 0
-                            && center.getChildren().get(0) instanceof Button
-                            && ((Button) center.getChildren().get(0)).getText().equals("Refresh Charts")) {
-                        showAnalysisContent();
-                    }
-                }
-
-                if (booksFlowPane != null) {
-                    loadBooksFromDatabase();
+            Task<LoanRow> returnTask = new Task<>() {
+                @Override
+                protected LoanRow call() throws Exception {
+                    return libraryService.returnLoan(loan.id());
                 }
-                showAlert("Success", "Book returned successfully!");
-            } catch (SQLException ex) {
-                showAlert("Error", "Could not return book: " + ex.getMessage());
-            }
+            };
+            returnTask.setOnSucceeded(e -> showAlert("Success", "Book returned successfully!"));
+            returnTask.setOnFailed(e
+                    -> showAlert("Error", "Could not return book: " + returnTask.getException().getMessage()));
+            serviceExecutor.execute(returnTask);
         }
     }
 
-    private void markLoanAsReturned(int loanId) throws SQLException {
-        String sql = "UPDATE loans SET returned = TRUE WHERE id = ?";
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-            pstmt.setInt(1, loanId);
-            pstmt.executeUpdate();
-        }
-    }
+    // Scanner-driven checkout and return. A keyboard-wedge scanner types each code and
+    // Enter into the scan field, which keeps the focus. A borrower card picks who the
+    // following books are lent to; a book is queued on the CirculationStation at once
+    // and its result is added to the log when its batch commits, so the desk never
+    // waits on a dialog or a reload between items. Tables and counters elsewhere follow
+    // through the usual loan events.
+    private Node buildCirculationContent() {
+        VBox content = new VBox(15);
+        content.setPadding(new Insets(20));
 
-    private void updateBookStatusIfAvailable(String isbn) throws SQLException {
-        validateConnection();
+        ToggleGroup modeGroup = new ToggleGroup();
+        ToggleButton checkoutToggle = new ToggleButton("Check Out (F2)");
+        ToggleButton returnToggle = new ToggleButton("Return (F3)");
+        checkoutToggle.setToggleGroup(modeGroup);
+        returnToggle.setToggleGroup(modeGroup);
+        checkoutToggle.setSelected(true);
+        // One mode is always selected
+        modeGroup.selectedToggleProperty().addListener((observable, oldValue, newValue) -> {
+            if (newValue == null) {
+                modeGroup.selectToggle(oldValue);
+            }
+        });
 
-        String sql = "SELECT COUNT(*) FROM loans WHERE isbn = ? AND returned = 0";
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-            pstmt.setString(1, isbn);
-            ResultSet rs = pstmt.executeQuery();
+        Spinner<Integer> loanDaysSpinner = new Spinner<>(1, 90, DEFAULT_LOAN_DAYS);
+        styleSpinner(loanDaysSpinner);
+        loanDaysSpinner.setPrefWidth(90);
+        Label loanDaysLabel = new Label("Loan days:");
+        loanDaysLabel.getStyleClass().add("themed-text");
+
+        StringProperty borrower = new SimpleStringProperty();
+        Label borrowerLabel = new Label();
+        borrowerLabel.setFont(Font.font("Arial", FontWeight.BOLD, 14));
+        borrowerLabel.getStyleClass().add("themed-text");
+        borrowerLabel.textProperty().bind(Bindings.createStringBinding(() -> returnToggle.isSelected()
+                ? "Returning books" : borrower.get() == null ? "Scan a borrower card" : "Lending to " + borrower.get(),
+                borrower, returnToggle.selectedProperty()));
+
+        HBox modeBox = new HBox(10, checkoutToggle, returnToggle, loanDaysLabel, loanDaysSpinner, borrowerLabel);
+        modeBox.setAlignment(Pos.CENTER_LEFT);
+
+        TextField scanField = new TextField();
+        scanField.setPromptText("Scan a borrower card or a book");
+        styleTextField(scanField);
+        scanField.setMaxWidth(500);
+        scanField.setFont(Font.font("Arial", 20));
+        circulationScanField = scanField;
+
+        Label feedbackLabel = new Label();
+        feedbackLabel.getStyleClass().add("scan-feedback");
+
+        Label queueLabel = new Label();
+        queueLabel.getStyleClass().add("themed-text");
+
+        ListView<CirculationResult> log = new ListView<>();
+        log.getStyleClass().addAll("card-list", "scan-log");
+        log.setFocusTraversable(false);
+        log.setCellFactory(list -> new ListCell<>() {
+            @Override
+            protected void updateItem(CirculationResult result, boolean empty) {
+                super.updateItem(result, empty);
+                setText(empty || result == null ? null : describeCirculation(result));
+                pseudoClassStateChanged(REFUSED, !empty && result != null && !result.succeeded());
+            }
+        });
+        VBox.setVgrow(log, Priority.ALWAYS);
 
-            if (rs.next() && rs.getInt(1) == 0) {
-                sql = "UPDATE books SET status = 'Available' WHERE isbn = ?";
-                try (PreparedStatement pstmt2 = connection.prepareStatement(sql)) {
-                    pstmt2.setString(1, isbn);
-                    pstmt2.executeUpdate();
-                }
+        CirculationStation station = new CirculationStation(libraryService, serviceExecutor,
+                LocalLibraryService.MAX_CIRCULATION_BATCH, result -> {
+                    log.getItems().add(0, result);
+                    if (log.getItems().size() > CIRCULATION_LOG_SIZE) {
+                        log.getItems().remove(CIRCULATION_LOG_SIZE, log.getItems().size());
+                    }
+                    showScanFeedback(feedbackLabel, describeCirculation(result), !result.succeeded());
+                });
+        Runnable updateQueueLabel = () -> queueLabel.setText("Waiting to commit: " + station.queuedProperty().get()
+                + "   |   Items in the last minute: " + station.getItemsPerMinute());
+        station.queuedProperty().addListener((observable, oldValue, newValue) -> updateQueueLabel.run());
+        updateQueueLabel.run();
+
+        Runnable acceptScan = () -> {
+            String code = scanField.getText().trim();
+            scanField.clear();
+            if (code.isEmpty()) {
+                return;
+            }
+            LocalDateTime now = LocalDateTime.now();
+            if (!CirculationStation.isBookCode(code)) {
+                // A card ends any run of returns: the next books go to this borrower
+                borrower.set(code);
+                checkoutToggle.setSelected(true);
+                showScanFeedback(feedbackLabel, "Lending to " + code, false);
+            } else if (returnToggle.isSelected()) {
+                station.submit(CirculationScan.checkin(code, now));
+            } else if (borrower.get() == null) {
+                showScanFeedback(feedbackLabel, "✗ " + code + ": scan the borrower's card first", true);
+            } else {
+                LocalDateTime due = LocalDateTime.of(now.toLocalDate().plusDays(loanDaysSpinner.getValue()),
+                        LocalTime.of(17, 0));
+                station.submit(CirculationScan.checkout(code, borrower.get(), now, due));
+            }
+        };
+        scanField.setOnAction(e -> acceptScan.run());
+        // Some scanners end a code with Tab instead of Enter
+        scanField.addEventFilter(KeyEvent.KEY_PRESSED, e -> {
+            if (e.getCode() == KeyCode.TAB) {
+                e.consume();
+                acceptScan.run();
+            }
+        });
+
+        content.addEventFilter(KeyEvent.KEY_PRESSED, e -> {
+            if (e.getCode() == KeyCode.F2) {
+                checkoutToggle.setSelected(true);
+            } else if (e.getCode() == KeyCode.F3) {
+                returnToggle.setSelected(true);
+            } else if (e.getCode() == KeyCode.ESCAPE) {
+                borrower.set(null);
+            } else {
+                return;
             }
+            e.consume();
+        });
+        // Clicking a control must not leave the scanner typing into it
+        modeGroup.selectedToggleProperty().addListener((observable, oldValue, newValue) -> scanField.requestFocus());
+        loanDaysSpinner.valueProperty().addListener((observable, oldValue, newValue) -> scanField.requestFocus());
+
+        content.getChildren().addAll(modeBox, scanField, feedbackLabel, queueLabel, log);
+        return content;
+    }
+
+    private static String describeCirculation(CirculationResult result) {
+        CirculationScan scan = result.scan();
+        String book = result.title() == null ? scan.isbn() : "'" + result.title() + "'";
+        if (!result.succeeded()) {
+            return "✗ " + book + ": " + result.error();
         }
+        LoanRow loan = result.loan();
+        if (scan.kind() == CirculationScan.Kind.CHECKOUT) {
+            return "✓ Lent " + book + " to " + loan.borrowerName() + ", due " + loan.returnDate().format(LOAN_DATE_FORMAT);
+        }
+        return "✓ Returned " + book + " from " + loan.borrowerName()
+                + (loan.returnDate().isBefore(scan.scannedAt()) ? " (overdue)" : "");
     }
 
-    private void showSearchContent() {
-        titleLabel.setText("Search Books - Yemedemer Tiwlid Library");
+    private static void showScanFeedback(Label label, String text, boolean refused) {
+        label.setText(text);
+        label.pseudoClassStateChanged(REFUSED, refused);
+    }
 
+    private Node buildSearchContent() {
         VBox content = new VBox(20);
         content.setPadding(new Insets(20));
 
@@ -2070,7 +2500,7 @@ public class YemeDemerTiwlidLibrarySystem extends Application {
         styleComboBox(searchTypeCombo);
 
         Button searchButton = new Button("Search");
-        styleButton(searchButton, "#2a9df4", "#3aa8ff", "#1a7bc8");
+        styleButton(searchButton, Variant.PRIMARY);
         searchButton.setOnAction(e -> performSearch(searchField.getText(), searchTypeCombo.getValue()));
 
         searchControls.getChildren().addAll(searchField, searchTypeCombo, searchButton);
@@ -2079,14 +2509,15 @@ public class YemeDemerTiwlidLibrarySystem extends Application {
         booksFlowPane.setPadding(new Insets(15));
         booksFlowPane.setHgap(20);
         booksFlowPane.setVgap(20);
-        booksFlowPane.setStyle("-fx-background-color: " + (darkMode ? DARK_BG : LIGHT_BG) + ";");
+        booksFlowPane.getStyleClass().add("book-grid");
+        resetCardInserter();
 
         ScrollPane scrollPane = new ScrollPane(booksFlowPane);
         scrollPane.setFitToWidth(true);
-        scrollPane.setStyle("-fx-background: " + (darkMode ? DARK_BG : LIGHT_BG) + ";");
+        scrollPane.getStyleClass().add("content-scroll");
 
         content.getChildren().addAll(searchControls, scrollPane);
-        mainLayout.setCenter(content);
+        return content;
     }
 
     private void showLoadingIndicator(boolean show) {
@@ -2105,19 +2536,24 @@ public class YemeDemerTiwlidLibrarySystem extends Application {
         });
     }
 
-    private void showAnalysisContent() {
-        titleLabel.setText("Library Analysis - Yemedemer Tiwlid Library");
-
+    private Node buildAnalysisContent() {
         VBox content = new VBox(20);
         content.setPadding(new Insets(20));
 
         Button exportButton = new Button("Export to Excel");
-        styleButton(exportButton, "#28a745", "#34ce57", "#218838");
+        styleButton(exportButton, Variant.SUCCESS);
         exportButton.setOnAction(e -> exportAnalysisData());
 
+        Button fullExportButton = new Button("Export Full Data");
+        styleButton(fullExportButton, Variant.SECONDARY);
+        fullExportButton.setOnAction(e -> exportFullData());
+
         Button refreshButton = new Button("Refresh Charts");
-        styleButton(refreshButton, "#2a9df4", "#3aa8ff", "#1a7bc8");
-        refreshButton.setOnAction(e -> showAnalysisContent());
+        styleButton(refreshButton, Variant.PRIMARY);
+        refreshButton.setOnAction(e -> {
+            viewRegistry.invalidate(ANALYSIS_VIEW);
+            showAnalysisContent();
+        });
 
         VBox chartsBox = new VBox(20);
 
@@ -2134,17 +2570,17 @@ public class YemeDemerTiwlidLibrarySystem extends Application {
         HBox chartRow1 = new HBox(20, genreChart, loanStatusChart);
         chartRow1.setAlignment(Pos.CENTER);
 
-        HBox controlsBox = new HBox(20, exportButton, refreshButton);
+        HBox controlsBox = new HBox(20, exportButton, fullExportButton, refreshButton);
         controlsBox.setAlignment(Pos.CENTER_LEFT);
 
         chartsBox.getChildren().addAll(controlsBox, chartRow1, monthlyLoansChart);
 
         ScrollPane scrollPane = new ScrollPane(chartsBox);
         scrollPane.setFitToWidth(true);
-        scrollPane.setStyle("-fx-background: " + (darkMode ? DARK_BG : LIGHT_BG) + ";");
+        scrollPane.getStyleClass().add("content-scroll");
 
         content.getChildren().add(scrollPane);
-        mainLayout.setCenter(content);
+        return content;
     }
 
     private PieChart createGenrePieChart() {
@@ -2334,26 +2770,224 @@ public class YemeDemerTiwlidLibrarySystem extends Application {
         }
     }
 
-    private void showSettingsContent() {
-        titleLabel.setText("Settings");
+    private void exportFullData() {
+        ChoiceDialog<String> choiceDialog = new ChoiceDialog<>("Loans (CSV)",
+                "Books (CSV)", "Books (CSV.GZ)", "Loans (CSV)", "Loans (CSV.GZ)");
+        choiceDialog.setTitle("Export Full Data");
+        choiceDialog.setHeaderText("Choose the table and format to export");
+
+        Optional<String> choice = choiceDialog.showAndWait();
+        if (!choice.isPresent()) {
+            return;
+        }
+
+        CatalogExporter.Table table = choice.get().startsWith("Books")
+                ? CatalogExporter.Table.BOOKS : CatalogExporter.Table.LOANS;
+        boolean gzip = choice.get().endsWith(".GZ)");
+        String extension = gzip ? ".csv.gz" : ".csv";
 
+        FileChooser fileChooser = new FileChooser();
+        fileChooser.setTitle("Save " + table.getTableName() + " Export");
+        fileChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter(
+                gzip ? "Compressed CSV Files" : "CSV Files", "*" + extension));
+        fileChooser.setInitialFileName("yeme_demer_tiwlid_" + table.getTableName() + extension);
+
+        File file = fileChooser.showSaveDialog(primaryStage);
+        if (file == null) {
+            return;
+        }
+
+        Task<String> exportTask = new Task<>() {
+            @Override
+            protected String call() throws Exception {
+                try (Connection exportConnection = openStreamingConnection()) {
+                    CatalogExporter exporter = new CatalogExporter(exportConnection);
+                    long start = System.nanoTime();
+
+                    long rows = exporter.export(table, file, gzip, (written, total) -> {
+                        if (isCancelled()) {
+                            exporter.cancel();
+                        }
+                        updateProgress(written, total);
+                        updateMessage(String.format("%,d of %,d rows written", written, total));
+                    });
+
+                    double seconds = Math.max((System.nanoTime() - start) / 1e9, 0.001);
+                    return String.format("Exported %,d %s rows to %s in %.1f s (%,.0f rows/s)",
+                            rows, table.getTableName(), file.getName(), seconds, rows / seconds);
+                }
+            }
+        };
+
+        showJobProgress(exportTask, "Exporting " + table.getTableName() + "...",
+                "Export cancelled, the partial file was removed.", null);
+
+        Thread exportThread = new Thread(exportTask, "catalog-export");
+        exportThread.setDaemon(true);
+        exportThread.start();
+    }
+
+    private void showJobProgress(Task<String> task, String title, String cancelledMessage, Runnable onSuccess) {
+        Stage progressStage = new Stage();
+        progressStage.setTitle(title);
+        progressStage.initOwner(primaryStage);
+
+        VBox box = new VBox(15);
+        box.setPadding(new Insets(20));
+        box.setAlignment(Pos.CENTER);
+
+        ProgressBar progressBar = new ProgressBar();
+        progressBar.setPrefWidth(350);
+        progressBar.progressProperty().bind(task.progressProperty());
+
+        Label statusLabel = new Label("Starting...");
+        statusLabel.textProperty().bind(task.messageProperty());
+
+        Button cancelButton = new Button("Cancel");
+        styleButton(cancelButton, Variant.DANGER);
+        cancelButton.setOnAction(e -> task.cancel());
+
+        box.getChildren().addAll(progressBar, statusLabel, cancelButton);
+        StyleRegistry.install(box);
+        progressStage.setScene(new Scene(box, 420, 160));
+        progressStage.setOnCloseRequest(e -> task.cancel());
+
+        task.setOnSucceeded(e -> {
+            progressStage.close();
+            if (onSuccess != null) {
+                onSuccess.run();
+            }
+            showAlert("Success", task.getValue());
+        });
+
+        task.setOnCancelled(e -> {
+            progressStage.close();
+            showAlert("Cancelled", cancelledMessage);
+        });
+
+        task.setOnFailed(e -> {
+            progressStage.close();
+            showAlert("Error", title.replace("...", "") + " failed: " + task.getException().getMessage());
+        });
+
+        progressStage.show();
+    }
+
+    // Separate connection for long-running streaming reads, so the cursor does not
+    // block the queries the rest of the UI runs on the shared connection.
+    private Connection openStreamingConnection() throws SQLException {
+        Properties props = connectionProperties();
+        props.setProperty("useCursorFetch", "true");
+        props.setProperty("defaultFetchSize", String.valueOf(CatalogExporter.FETCH_SIZE));
+        return InstrumentedJdbc.wrap(DriverManager.getConnection(DB_URL, props));
+    }
+
+    // Separate connection for bulk writes; the driver folds each JDBC batch into
+    // multi-row INSERT statements instead of one round trip per row.
+    private static Connection openBulkConnection() throws SQLException {
+        Properties props = connectionProperties();
+        props.setProperty("rewriteBatchedStatements", "true");
+        return InstrumentedJdbc.wrap(DriverManager.getConnection(DB_URL, props));
+    }
+
+    private static Properties connectionProperties() {
+        Properties props = new Properties();
+        props.setProperty("user", DB_USER);
+        props.setProperty("password", DB_PASSWORD);
+        return props;
+    }
+
+    private Node buildSettingsContent() {
         VBox content = new VBox(20);
         content.setPadding(new Insets(20));
         content.setAlignment(Pos.CENTER);
 
         Label settingsLabel = new Label("Application Settings");
         settingsLabel.setFont(Font.font("Arial", FontWeight.BOLD, 18));
-        settingsLabel.setTextFill(darkMode ? Color.web(DARK_TEXT) : Color.BLACK);
+        settingsLabel.getStyleClass().add("themed-text");
 
+        // Bound rather than copied: the view is kept, and the header button switches the theme too
         ToggleButton themeToggle = new ToggleButton("Dark Mode");
-        themeToggle.setSelected(darkMode);
-        themeToggle.setOnAction(e -> {
-            darkMode = themeToggle.isSelected();
-            showMainDashboard();
+        themeToggle.selectedProperty().bindBidirectional(darkMode);
+
+        ToggleButton catalogToggle = new ToggleButton("In-Memory Catalog");
+        catalogToggle.setSelected(catalogSnapshot != null);
+        catalogToggle.setTooltip(new Tooltip("Load the catalog into memory once and serve browsing and "
+                + "search from it, polling the database for changes every few seconds"));
+        catalogToggle.setOnAction(e -> setCatalogInMemory(catalogToggle.isSelected()));
+
+        Button metricsButton = new Button("Performance Metrics");
+        styleButton(metricsButton, Variant.PRIMARY);
+        metricsButton.setOnAction(e -> showMetricsWindow());
+
+        ToggleButton overlayToggle = new ToggleButton("Performance Overlay");
+        overlayToggle.setSelected(performanceOverlay != null && performanceOverlay.isShowing());
+        overlayToggle.setTooltip(new Tooltip("Show frame time, scene size, cache sizes, queries in flight "
+                + "and FX thread stalls in the corner of the window"));
+        overlayToggle.setOnAction(e -> setPerformanceOverlayVisible(overlayToggle.isSelected()));
+
+        ToggleButton motionToggle = new ToggleButton("Reduced Motion");
+        motionToggle.selectedProperty().bindBidirectional(AnimationCoordinator.reducedMotionProperty());
+        motionToggle.setTooltip(new Tooltip("Show cards without entry animations and turn off hover and "
+                + "press effects, for slower desk PCs"));
+
+        content.getChildren().addAll(settingsLabel, themeToggle, catalogToggle, motionToggle, metricsButton,
+                overlayToggle);
+        return content;
+    }
+
+    private void setPerformanceOverlayVisible(boolean visible) {
+        if (visible) {
+            if (performanceOverlay == null) {
+                performanceOverlay = new PerformanceOverlay(primaryStage, stallDetector, bookCardCache::values);
+            }
+            // Frame times come from the detector, so the overlay starts it even when -Dlibrary.stallDetector=false
+            stallDetector.start();
+            performanceOverlay.show();
+        } else if (performanceOverlay != null) {
+            performanceOverlay.hide();
+        }
+    }
+
+    // Query timings, pool waits, cache hit rates and slow queries recorded since startup
+    private void showMetricsWindow() {
+        Stage metricsStage = new Stage();
+        metricsStage.setTitle("Performance Metrics");
+
+        TextArea report = new TextArea(Metrics.dump());
+        report.setEditable(false);
+        report.setFont(Font.font("Monospaced", 12));
+        VBox.setVgrow(report, Priority.ALWAYS);
+
+        Button refreshButton = new Button("Refresh");
+        styleButton(refreshButton, Variant.PRIMARY);
+        refreshButton.setOnAction(e -> report.setText(Metrics.dump()));
+
+        Button copyButton = new Button("Copy");
+        styleButton(copyButton, Variant.SECONDARY);
+        copyButton.setOnAction(e -> {
+            ClipboardContent clip = new ClipboardContent();
+            clip.putString(report.getText());
+            Clipboard.getSystemClipboard().setContent(clip);
+        });
+
+        Button resetButton = new Button("Reset");
+        styleButton(resetButton, Variant.DANGER);
+        resetButton.setOnAction(e -> {
+            Metrics.reset();
+            report.setText(Metrics.dump());
         });
 
-        content.getChildren().addAll(settingsLabel, themeToggle);
-        mainLayout.setCenter(content);
+        HBox buttons = new HBox(10, refreshButton, copyButton, resetButton);
+        buttons.setAlignment(Pos.CENTER_RIGHT);
+
+        VBox root = new VBox(10, report, buttons);
+        root.setPadding(new Insets(10));
+
+        Scene scene = new Scene(root, 1000, 600);
+        applyTheme(scene);
+        metricsStage.setScene(scene);
+        metricsStage.show();
     }
 
     private void showDevelopersWindow() {
@@ -2366,6 +3000,7 @@ public class YemeDemerTiwlidLibrarySystem extends Application {
 
         Label titleLabel = new Label("Development Team");
         titleLabel.setFont(Font.font("Arial", FontWeight.BOLD, 24));
+        titleLabel.getStyleClass().add("themed-text");
 
         class Developer {
 
@@ -2391,6 +3026,7 @@ public class YemeDemerTiwlidLibrarySystem extends Application {
         developersGrid.setHgap(20);
         developersGrid.setVgap(10);
         developersGrid.setPadding(new Insets(10));
+        developersGrid.getStyleClass().add("developers-grid");
 
         developersGrid.add(new Label("Name"), 0, 0);
         developersGrid.add(new Label("ID"), 1, 0);
@@ -2402,23 +3038,17 @@ public class YemeDemerTiwlidLibrarySystem extends Application {
         }
 
         Button closeButton = new Button("Close");
-        styleButton(closeButton, "#2a9df4", "#3aa8ff", "#1a7bc8");
+        styleButton(closeButton, Variant.PRIMARY);
         closeButton.setOnAction(e -> developersStage.close());
 
-        root.getChildren().addAll(titleLabel, developersGrid, closeButton);
-
-        if (darkMode) {
-            root.setStyle("-fx-background-color: " + DARK_BG + ";");
-            titleLabel.setTextFill(Color.web(DARK_TEXT));
-            developersGrid.setStyle("-fx-background-color: " + DARK_CARD + ";");
-            for (Node node : developersGrid.getChildren()) {
-                if (node instanceof Label) {
-                    ((Label) node).setTextFill(Color.web(DARK_TEXT));
-                }
-            }
+        for (Node node : developersGrid.getChildren()) {
+            node.getStyleClass().add("themed-text");
         }
 
+        root.getChildren().addAll(titleLabel, developersGrid, closeButton);
+
         Scene scene = new Scene(root, 400, 400);
+        applyTheme(scene);
         developersStage.setScene(scene);
         developersStage.initModality(Modality.APPLICATION_MODAL);
         developersStage.show();
@@ -2437,13 +3067,11 @@ public class YemeDemerTiwlidLibrarySystem extends Application {
 
         private String fullName;
         private String username;
-        private String password;
         private boolean isAdmin;
 
-        public User(String fullName, String username, String password, boolean isAdmin) {
+        public User(String fullName, String username, boolean isAdmin) {
             this.fullName = fullName;
             this.username = username;
-            this.password = password;
             this.isAdmin = isAdmin;
         }
 
@@ -2455,10 +3083,6 @@ public class YemeDemerTiwlidLibrarySystem extends Application {
             return username;
         }
 
-        public String getPassword() {
-            return password;
-        }
-
         public boolean isAdmin() {
             return isAdmin;
         }
@@ -2474,6 +3098,8 @@ public class YemeDemerTiwlidLibrarySystem extends Application {
         private final StringProperty status = new SimpleStringProperty();
         private final IntegerProperty quantity = new SimpleIntegerProperty();
         private final ObjectProperty<byte[]> coverImage = new SimpleObjectProperty<>();
+        // Copies currently available, maintained by the card's change subscribers
+        private final IntegerProperty available = new SimpleIntegerProperty();
 
         public Book(String title, String author, String isbn, String genre,
                 String shelfNumber, String status, int quantity, byte[] coverImage) {
@@ -2487,6 +3113,42 @@ public class YemeDemerTiwlidLibrarySystem extends Application {
             setCoverImage(coverImage);
         }
 
+        // View-model adapter: wraps a data-layer row in JavaFX properties for display
+        public Book(BookRow row) {
+            this(row.title(), row.author(), row.isbn(), row.genre(), row.shelfNumber(),
+                    row.status(), row.quantity(), row.coverImage());
+        }
+
+        public BookRow toRow() {
+            return new BookRow(getIsbn(), getTitle(), getAuthor(), getGenre(), getShelfNumber(),
+                    getStatus(), getQuantity(), getCoverImage());
+        }
+
+        // Takes over the values of a changed row; rows read without a cover keep the current one
+        public void apply(BookRow row) {
+            setTitle(row.title());
+            setAuthor(row.author());
+            setGenre(row.genre());
+            setShelfNumber(row.shelfNumber());
+            setStatus(row.status());
+            setQuantity(row.quantity());
+            if (row.coverImage() != null) {
+                setCoverImage(row.coverImage());
+            }
+        }
+
+        public IntegerProperty availableProperty() {
+            return available;
+        }
+
+        public int getAvailable() {
+            return available.get();
+        }
+
+        public void setAvailable(int available) {
+            this.available.set(available);
+        }
+
         // Getter methods for properties
         public StringProperty titleProperty() {
             return title;
@@ -2566,16 +3228,17 @@ public class YemeDemerTiwlidLibrarySystem extends Application {
             this.isbn.set(isbn);
         }
 
+        // Low-cardinality columns share one String instance per distinct value
         public void setGenre(String genre) {
-            this.genre.set(genre);
+            this.genre.set(ValueDictionary.GENRE.canonical(genre));
         }
 
         public void setShelfNumber(String shelfNumber) {
-            this.shelfNumber.set(shelfNumber);
+            this.shelfNumber.set(ValueDictionary.SHELF.canonical(shelfNumber));
         }
 
         public void setStatus(String status) {
-            this.status.set(status);
+            this.status.set(ValueDictionary.STATUS.canonical(status));
         }
 
         public void setQuantity(int quantity) {